@@ -0,0 +1,174 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.benchmarks;
+
+import com.twitter.graphjet.bipartite.LeftIndexedPowerLawMultiSegmentBipartiteGraph;
+import com.twitter.graphjet.bipartite.MultiSegmentPowerLawBipartiteGraph;
+import com.twitter.graphjet.bipartite.NodeMetadataLeftIndexedPowerLawMultiSegmentBipartiteGraph;
+import com.twitter.graphjet.bipartite.ShardedMultiSegmentPowerLawBipartiteGraph;
+import com.twitter.graphjet.bipartite.segment.IdentityEdgeTypeMask;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+/**
+ * Builds the graphs shared by the benchmarks. Sizing parameters are derived from the generated
+ * edge stream so that the pools are neither grossly over- nor under-allocated.
+ */
+public final class BenchmarkGraphs {
+  public static final double POWER_LAW_EXPONENT = 2.0;
+  public static final int NUM_RIGHT_NODE_METADATA_TYPES = 2;
+
+  private static final int[][] EMPTY_LEFT_NODE_METADATA = new int[][]{};
+  private static final int[][] EMPTY_RIGHT_NODE_METADATA =
+      new int[NUM_RIGHT_NODE_METADATA_TYPES][];
+
+  private BenchmarkGraphs() {
+  }
+
+  /**
+   * Creates an empty left-indexed graph sized for segments of the given number of edges.
+   */
+  public static LeftIndexedPowerLawMultiSegmentBipartiteGraph newLeftIndexedGraph(
+      int maxNumSegments,
+      int maxNumEdgesPerSegment,
+      int numLeftNodes,
+      int numRightNodes) {
+    return new LeftIndexedPowerLawMultiSegmentBipartiteGraph(
+        maxNumSegments,
+        maxNumEdgesPerSegment,
+        Math.min(numLeftNodes, maxNumEdgesPerSegment),
+        maxNumEdgesPerSegment,
+        POWER_LAW_EXPONENT,
+        Math.min(numRightNodes, maxNumEdgesPerSegment),
+        new IdentityEdgeTypeMask(),
+        new NullStatsReceiver());
+  }
+
+  /**
+   * Creates a left-indexed graph holding all of the given edges.
+   */
+  public static LeftIndexedPowerLawMultiSegmentBipartiteGraph buildLeftIndexedGraph(
+      PowerLawGraphGenerator.Edges edges,
+      int maxNumSegments,
+      int maxNumEdgesPerSegment,
+      int numLeftNodes,
+      int numRightNodes) {
+    LeftIndexedPowerLawMultiSegmentBipartiteGraph graph = newLeftIndexedGraph(
+        maxNumSegments, maxNumEdgesPerSegment, numLeftNodes, numRightNodes);
+    for (int i = 0; i < edges.size(); i++) {
+      graph.addEdge(edges.getLeftNode(i), edges.getRightNode(i), (byte) 0);
+    }
+    return graph;
+  }
+
+  /**
+   * Creates an empty graph indexed on both sides, sized for segments of the given number of edges.
+   */
+  public static MultiSegmentPowerLawBipartiteGraph newBipartiteGraph(
+      int maxNumSegments,
+      int maxNumEdgesPerSegment,
+      int numLeftNodes,
+      int numRightNodes) {
+    return new MultiSegmentPowerLawBipartiteGraph(
+        maxNumSegments,
+        maxNumEdgesPerSegment,
+        Math.min(numLeftNodes, maxNumEdgesPerSegment),
+        maxNumEdgesPerSegment,
+        POWER_LAW_EXPONENT,
+        Math.min(numRightNodes, maxNumEdgesPerSegment),
+        maxNumEdgesPerSegment,
+        POWER_LAW_EXPONENT,
+        new IdentityEdgeTypeMask(),
+        new NullStatsReceiver());
+  }
+
+  /**
+   * Creates an empty sharded graph indexed on both sides, with the given segment size split evenly
+   * across the shards so that it rolls over segments about as often as an unsharded graph.
+   */
+  public static ShardedMultiSegmentPowerLawBipartiteGraph newShardedBipartiteGraph(
+      int numShards,
+      int maxNumSegments,
+      int maxNumEdgesPerSegment,
+      int numLeftNodes,
+      int numRightNodes) {
+    int maxNumEdgesPerShardSegment = Math.max(maxNumEdgesPerSegment / numShards, 1);
+    return new ShardedMultiSegmentPowerLawBipartiteGraph(
+        numShards,
+        maxNumSegments,
+        maxNumEdgesPerShardSegment,
+        Math.min(numLeftNodes / numShards + 1, maxNumEdgesPerShardSegment),
+        maxNumEdgesPerShardSegment,
+        POWER_LAW_EXPONENT,
+        Math.min(numRightNodes, maxNumEdgesPerShardSegment),
+        maxNumEdgesPerShardSegment,
+        POWER_LAW_EXPONENT,
+        new IdentityEdgeTypeMask(),
+        new NullStatsReceiver());
+  }
+
+  /**
+   * Creates a graph indexed on both sides holding all of the given edges.
+   */
+  public static MultiSegmentPowerLawBipartiteGraph buildBipartiteGraph(
+      PowerLawGraphGenerator.Edges edges,
+      int maxNumSegments,
+      int maxNumEdgesPerSegment,
+      int numLeftNodes,
+      int numRightNodes) {
+    MultiSegmentPowerLawBipartiteGraph graph = newBipartiteGraph(
+        maxNumSegments, maxNumEdgesPerSegment, numLeftNodes, numRightNodes);
+    for (int i = 0; i < edges.size(); i++) {
+      graph.addEdge(edges.getLeftNode(i), edges.getRightNode(i), (byte) 0);
+    }
+    return graph;
+  }
+
+  /**
+   * Creates a left-indexed graph with right node metadata holding all of the given edges. Edge
+   * types cycle through the first few social proof types so that social proof collection is
+   * exercised.
+   */
+  public static NodeMetadataLeftIndexedPowerLawMultiSegmentBipartiteGraph buildNodeMetadataGraph(
+      PowerLawGraphGenerator.Edges edges,
+      int maxNumSegments,
+      int maxNumEdgesPerSegment,
+      int numLeftNodes,
+      int numRightNodes,
+      int numEdgeTypes) {
+    NodeMetadataLeftIndexedPowerLawMultiSegmentBipartiteGraph graph =
+        new NodeMetadataLeftIndexedPowerLawMultiSegmentBipartiteGraph(
+            maxNumSegments,
+            maxNumEdgesPerSegment,
+            Math.min(numLeftNodes, maxNumEdgesPerSegment),
+            maxNumEdgesPerSegment,
+            POWER_LAW_EXPONENT,
+            Math.min(numRightNodes, maxNumEdgesPerSegment),
+            NUM_RIGHT_NODE_METADATA_TYPES,
+            new IdentityEdgeTypeMask(),
+            new NullStatsReceiver());
+    for (int i = 0; i < edges.size(); i++) {
+      graph.addEdge(
+          edges.getLeftNode(i),
+          edges.getRightNode(i),
+          (byte) (i % numEdgeTypes),
+          0L,
+          EMPTY_LEFT_NODE_METADATA,
+          EMPTY_RIGHT_NODE_METADATA);
+    }
+    return graph;
+  }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.twitter.graphjet.algorithms.RecommendationAlgorithm;
+import com.twitter.graphjet.algorithms.filters.RequestedSetFilter;
+import com.twitter.graphjet.algorithms.filters.ResultFilter;
+import com.twitter.graphjet.algorithms.filters.ResultFilterChain;
+import com.twitter.graphjet.algorithms.salsa.SalsaRequest;
+import com.twitter.graphjet.algorithms.salsa.SalsaRequestBuilder;
+import com.twitter.graphjet.algorithms.salsa.SalsaResponse;
+import com.twitter.graphjet.algorithms.salsa.fullgraph.DenseSalsa;
+import com.twitter.graphjet.algorithms.salsa.fullgraph.Salsa;
+import com.twitter.graphjet.bipartite.MultiSegmentPowerLawBipartiteGraph;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+import it.unimi.dsi.fastutil.longs.Long2DoubleMap;
+import it.unimi.dsi.fastutil.longs.Long2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+/**
+ * Compares the end-to-end latency of a full-graph {@link Salsa} request, which counts the walks and
+ * visits in hash maps through {@link com.twitter.graphjet.algorithms.salsa.SalsaIterations}, with
+ * the same request on {@link DenseSalsa}, which keeps them in arrays indexed by a dense slot per
+ * node. The gap is expected to widen with the number of random walks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class DenseSalsaBenchmark {
+  private static final int NUM_REQUESTS = 64;
+
+  @Param({"2000000"})
+  public int numEdges;
+
+  @Param({"250000"})
+  public int maxNumEdgesPerSegment;
+
+  @Param({"100000"})
+  public int numLeftNodes;
+
+  @Param({"1000000"})
+  public int numRightNodes;
+
+  @Param({"100"})
+  public int numSeeds;
+
+  @Param({"1000", "100000"})
+  public int numRandomWalks;
+
+  @Param({"5"})
+  public int maxRandomWalkLength;
+
+  @Param({"false", "true"})
+  public boolean dense;
+
+  private RecommendationAlgorithm<SalsaRequest, SalsaResponse> salsa;
+  private SalsaRequest[] requests;
+  private Random random;
+  private int nextRequest;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    PowerLawGraphGenerator generator = new PowerLawGraphGenerator(
+        numLeftNodes,
+        numRightNodes,
+        BenchmarkGraphs.POWER_LAW_EXPONENT,
+        BenchmarkGraphs.POWER_LAW_EXPONENT,
+        PowerLawGraphGenerator.DEFAULT_SEED);
+    MultiSegmentPowerLawBipartiteGraph graph = BenchmarkGraphs.buildBipartiteGraph(
+        generator.generate(numEdges),
+        numEdges / maxNumEdgesPerSegment + 1,
+        maxNumEdgesPerSegment,
+        numLeftNodes,
+        numRightNodes);
+    // the walks cannot reach more nodes than the graph has
+    int expectedNodesToHit =
+        Math.min(numRandomWalks * maxRandomWalkLength * 10, numLeftNodes + numRightNodes);
+    if (dense) {
+      salsa = new DenseSalsa(graph, expectedNodesToHit, new NullStatsReceiver());
+    } else {
+      salsa = new Salsa(graph, expectedNodesToHit, new NullStatsReceiver());
+    }
+
+    long[] seedNodes = generator.sampleLeftNodes(NUM_REQUESTS * numSeeds);
+    requests = new SalsaRequest[NUM_REQUESTS];
+    for (int i = 0; i < NUM_REQUESTS; i++) {
+      Long2DoubleMap seedsWithWeight = new Long2DoubleOpenHashMap(numSeeds);
+      for (int j = 0; j < numSeeds; j++) {
+        seedsWithWeight.put(seedNodes[i * numSeeds + j], 1.0);
+      }
+      requests[i] = new SalsaRequestBuilder(seedNodes[i * numSeeds])
+          .withLeftSeedNodes(seedsWithWeight)
+          .withToBeFiltered(new LongOpenHashSet())
+          .withMaxNumResults(100)
+          .withResetProbability(0.3)
+          .withMaxRandomWalkLength(maxRandomWalkLength)
+          .withNumRandomWalks(numRandomWalks)
+          .withMaxSocialProofSize(10)
+          .withMaxSocialProofTypeSize(1)
+          .withResultFilterChain(new ResultFilterChain(Lists.<ResultFilter>newArrayList(
+              new RequestedSetFilter(new NullStatsReceiver()))))
+          .build();
+    }
+    random = new Random(PowerLawGraphGenerator.DEFAULT_SEED);
+  }
+
+  @Benchmark
+  public SalsaResponse computeRecommendations() {
+    SalsaRequest request = requests[nextRequest];
+    nextRequest = (nextRequest + 1) % NUM_REQUESTS;
+    return salsa.computeRecommendations(request, random);
+  }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.twitter.graphjet.bipartite.LeftIndexedPowerLawMultiSegmentBipartiteGraph;
+import com.twitter.graphjet.bipartite.MultiSegmentPowerLawBipartiteGraph;
+import com.twitter.graphjet.bipartite.ShardedMultiSegmentPowerLawBipartiteGraph;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Measures the cost of ingesting a power-law edge stream, including segment rollover and the
+ * optimizer jobs it triggers. Each invocation starts from an empty graph and inserts the whole
+ * stream. The sharded variant inserts the stream with one writer thread per shard, which shows how
+ * ingestion scales with the number of cores, and the bulk variant loads the whole stream as a
+ * single batch straight into optimized segments.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EdgeInsertionBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class EdgeStream {
+    @Param({"1000000"})
+    public int numEdges;
+
+    @Param({"250000"})
+    public int maxNumEdgesPerSegment;
+
+    @Param({"100000"})
+    public int numLeftNodes;
+
+    @Param({"1000000"})
+    public int numRightNodes;
+
+    PowerLawGraphGenerator.Edges edges;
+    // The same edges as a batch for bulk loading
+    long[] leftNodes;
+    long[] rightNodes;
+    byte[] edgeTypes;
+
+    @Setup(Level.Trial)
+    public void generateEdges() {
+      edges = new PowerLawGraphGenerator(
+          numLeftNodes,
+          numRightNodes,
+          BenchmarkGraphs.POWER_LAW_EXPONENT,
+          BenchmarkGraphs.POWER_LAW_EXPONENT,
+          PowerLawGraphGenerator.DEFAULT_SEED).generate(numEdges);
+      leftNodes = new long[edges.size()];
+      rightNodes = new long[edges.size()];
+      edgeTypes = new byte[edges.size()];
+      for (int i = 0; i < edges.size(); i++) {
+        leftNodes[i] = edges.getLeftNode(i);
+        rightNodes[i] = edges.getRightNode(i);
+      }
+    }
+
+    int maxNumSegments() {
+      return numEdges / maxNumEdgesPerSegment + 1;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class LeftIndexedGraphState {
+    LeftIndexedPowerLawMultiSegmentBipartiteGraph graph;
+
+    @Setup(Level.Invocation)
+    public void createGraph(EdgeStream stream) {
+      graph = BenchmarkGraphs.newLeftIndexedGraph(
+          stream.maxNumSegments(),
+          stream.maxNumEdgesPerSegment,
+          stream.numLeftNodes,
+          stream.numRightNodes);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class BipartiteGraphState {
+    MultiSegmentPowerLawBipartiteGraph graph;
+
+    @Setup(Level.Invocation)
+    public void createGraph(EdgeStream stream) {
+      graph = BenchmarkGraphs.newBipartiteGraph(
+          stream.maxNumSegments(),
+          stream.maxNumEdgesPerSegment,
+          stream.numLeftNodes,
+          stream.numRightNodes);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ShardedBipartiteGraphState {
+    @Param({"1", "2", "4", "8"})
+    public int numShards;
+
+    EdgeStream stream;
+    ShardedMultiSegmentPowerLawBipartiteGraph graph;
+    // The indices of the edges owned by each shard, as if the stream was partitioned upstream
+    IntArrayList[] edgeIndicesPerShard;
+    ExecutorService writers;
+
+    @Setup(Level.Trial)
+    public void partitionEdges(EdgeStream edgeStream) {
+      stream = edgeStream;
+      ShardedMultiSegmentPowerLawBipartiteGraph partitioner = newGraph();
+      edgeIndicesPerShard = new IntArrayList[numShards];
+      for (int i = 0; i < numShards; i++) {
+        edgeIndicesPerShard[i] = new IntArrayList();
+      }
+      for (int i = 0; i < stream.edges.size(); i++) {
+        edgeIndicesPerShard[partitioner.getShardIndex(stream.edges.getLeftNode(i))].add(i);
+      }
+      writers = Executors.newFixedThreadPool(numShards);
+    }
+
+    @Setup(Level.Invocation)
+    public void createGraph() {
+      graph = newGraph();
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdownWriters() {
+      writers.shutdownNow();
+    }
+
+    private ShardedMultiSegmentPowerLawBipartiteGraph newGraph() {
+      return BenchmarkGraphs.newShardedBipartiteGraph(
+          numShards,
+          stream.maxNumSegments(),
+          stream.maxNumEdgesPerSegment,
+          stream.numLeftNodes,
+          stream.numRightNodes);
+    }
+  }
+
+  @Benchmark
+  public LeftIndexedPowerLawMultiSegmentBipartiteGraph addEdgeLeftIndexed(
+      EdgeStream stream, LeftIndexedGraphState state) {
+    PowerLawGraphGenerator.Edges edges = stream.edges;
+    for (int i = 0; i < edges.size(); i++) {
+      state.graph.addEdge(edges.getLeftNode(i), edges.getRightNode(i), (byte) 0);
+    }
+    return state.graph;
+  }
+
+  @Benchmark
+  public MultiSegmentPowerLawBipartiteGraph addEdgeBipartite(
+      EdgeStream stream, BipartiteGraphState state) {
+    PowerLawGraphGenerator.Edges edges = stream.edges;
+    for (int i = 0; i < edges.size(); i++) {
+      state.graph.addEdge(edges.getLeftNode(i), edges.getRightNode(i), (byte) 0);
+    }
+    return state.graph;
+  }
+
+  @Benchmark
+  public MultiSegmentPowerLawBipartiteGraph bulkLoadBipartite(
+      EdgeStream stream, BipartiteGraphState state) {
+    state.graph.bulkLoad(
+        stream.leftNodes, stream.rightNodes, stream.edgeTypes, stream.leftNodes.length);
+    return state.graph;
+  }
+
+  @Benchmark
+  public ShardedMultiSegmentPowerLawBipartiteGraph addEdgeShardedBipartite(
+      final ShardedBipartiteGraphState state) throws InterruptedException, ExecutionException {
+    final PowerLawGraphGenerator.Edges edges = state.stream.edges;
+    List<Future<?>> futures = new ArrayList<>(state.numShards);
+    for (int shard = 0; shard < state.numShards; shard++) {
+      final MultiSegmentPowerLawBipartiteGraph shardGraph = state.graph.getShard(shard);
+      final IntArrayList edgeIndices = state.edgeIndicesPerShard[shard];
+      futures.add(state.writers.submit(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < edgeIndices.size(); i++) {
+            int edgeIndex = edgeIndices.getInt(i);
+            shardGraph.addEdge(
+                edges.getLeftNode(edgeIndex), edges.getRightNode(edgeIndex), (byte) 0);
+          }
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    return state.graph;
+  }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.twitter.graphjet.hashing.ArrayBasedLongToInternalIntBiMap;
+import com.twitter.graphjet.hashing.ArrayBasedLongToInternalIntFixedLengthBiMap;
+import com.twitter.graphjet.hashing.BucketizedLongToInternalIntFixedLengthBiMap;
+import com.twitter.graphjet.hashing.LongToInternalIntBiMap;
+import com.twitter.graphjet.hashing.ResizableLongToInternalIntBiMap;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+/**
+ * Measures id map lookups and inserts with the right node ids of a power-law edge stream, i.e. with
+ * the same skew and duplication a segment sees on ingestion. The implementations compared are
+ * {@link ArrayBasedLongToInternalIntBiMap} ("chained"), the double hashing
+ * {@link ArrayBasedLongToInternalIntFixedLengthBiMap} ("doubleHashing"), the cache-line
+ * bucketed {@link BucketizedLongToInternalIntFixedLengthBiMap} ("bucketized") and the growing
+ * {@link ResizableLongToInternalIntBiMap} ("resizable"). The node ids are either small
+ * sequential ids ("powerLaw") or snowflake-like tweet ids ("snowflake"), whose low bits are mostly a
+ * sequence number and whose high bits are a timestamp.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdMapBenchmark {
+  private static final int NUM_KEYS = 1 << 20;
+  private static final double LOAD_FACTOR = 0.75;
+  // 2016-01-01 in milliseconds since the snowflake epoch
+  private static final long SNOWFLAKE_BASE_MILLIS = 1451606400000L - 1288834974657L;
+  private static final int SNOWFLAKE_IDS_PER_MILLI = 16;
+
+  @Param({"1000000"})
+  public int numRightNodes;
+
+  @Param({"1048576"})
+  public int expectedNumKeys;
+
+  @Param({"chained", "doubleHashing", "bucketized", "resizable"})
+  public String implementation;
+
+  @Param({"powerLaw", "snowflake"})
+  public String idDistribution;
+
+  private long[] keys;
+  private long[] missingKeys;
+  private int[] internalIds;
+  private LongToInternalIntBiMap populatedMap;
+
+  @Setup(Level.Trial)
+  public void populate() {
+    PowerLawGraphGenerator.Edges edges = new PowerLawGraphGenerator(
+        1,
+        numRightNodes,
+        BenchmarkGraphs.POWER_LAW_EXPONENT,
+        1.0,
+        PowerLawGraphGenerator.DEFAULT_SEED).generate(NUM_KEYS);
+    keys = new long[NUM_KEYS];
+    missingKeys = new long[NUM_KEYS];
+    for (int i = 0; i < NUM_KEYS; i++) {
+      keys[i] = "snowflake".equals(idDistribution)
+          ? toSnowflakeId(edges.getRightNode(i))
+          : edges.getRightNode(i);
+      missingKeys[i] = -keys[i];
+    }
+    populatedMap = newMap();
+    internalIds = new int[NUM_KEYS];
+    for (int i = 0; i < NUM_KEYS; i++) {
+      internalIds[i] = populatedMap.put(keys[i]);
+    }
+  }
+
+  /**
+   * Spreads node ids over a snowflake-like layout, i.e. a millisecond timestamp in the high bits
+   * followed by 10 worker bits and a 12 bit sequence number, with a handful of ids per millisecond.
+   */
+  private static long toSnowflakeId(long node) {
+    long millis = SNOWFLAKE_BASE_MILLIS + node / SNOWFLAKE_IDS_PER_MILLI;
+    long worker = (node * 0x9E3779B9L) & 0x3FF;
+    long sequence = node % SNOWFLAKE_IDS_PER_MILLI;
+    return (millis << 22) | (worker << 12) | sequence;
+  }
+
+  private LongToInternalIntBiMap newMap() {
+    if ("doubleHashing".equals(implementation)) {
+      return new ArrayBasedLongToInternalIntFixedLengthBiMap(
+          expectedNumKeys, LOAD_FACTOR, -1, -1L, new NullStatsReceiver());
+    } else if ("bucketized".equals(implementation)) {
+      return new BucketizedLongToInternalIntFixedLengthBiMap(
+          expectedNumKeys, LOAD_FACTOR, -1, -1L, new NullStatsReceiver());
+    } else if ("resizable".equals(implementation)) {
+      return new ResizableLongToInternalIntBiMap(
+          expectedNumKeys, LOAD_FACTOR, -1, -1L, new NullStatsReceiver());
+    }
+    return new ArrayBasedLongToInternalIntBiMap(
+        expectedNumKeys, LOAD_FACTOR, -1, -1L, new NullStatsReceiver());
+  }
+
+  @State(Scope.Thread)
+  public static class EmptyMap {
+    LongToInternalIntBiMap map;
+
+    @Setup(Level.Invocation)
+    public void create(IdMapBenchmark benchmark) {
+      map = benchmark.newMap();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_KEYS)
+  public LongToInternalIntBiMap put(EmptyMap emptyMap) {
+    LongToInternalIntBiMap map = emptyMap.map;
+    for (long key : keys) {
+      map.put(key);
+    }
+    return map;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_KEYS)
+  public void getHit(Blackhole blackhole) {
+    for (long key : keys) {
+      blackhole.consume(populatedMap.get(key));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_KEYS)
+  public void getMiss(Blackhole blackhole) {
+    for (long key : missingKeys) {
+      blackhole.consume(populatedMap.get(key));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_KEYS)
+  public void getKey(Blackhole blackhole) {
+    for (int internalId : internalIds) {
+      blackhole.consume(populatedMap.getKey(internalId));
+    }
+  }
+}
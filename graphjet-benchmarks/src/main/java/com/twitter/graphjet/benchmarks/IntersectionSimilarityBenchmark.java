@@ -0,0 +1,122 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.twitter.graphjet.algorithms.SimilarityResponse;
+import com.twitter.graphjet.algorithms.intersection.CosineUpdateNormalization;
+import com.twitter.graphjet.algorithms.intersection.IntersectionSimilarity;
+import com.twitter.graphjet.algorithms.intersection.IntersectionSimilarityRequest;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+/**
+ * Measures end-to-end latency of an {@link IntersectionSimilarity} request with cosine
+ * normalization. Query nodes are right nodes drawn from the graph's own degree distribution.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class IntersectionSimilarityBenchmark {
+  private static final int NUM_REQUESTS = 64;
+
+  @Param({"2000000"})
+  public int numEdges;
+
+  @Param({"250000"})
+  public int maxNumEdgesPerSegment;
+
+  @Param({"100000"})
+  public int numLeftNodes;
+
+  @Param({"1000000"})
+  public int numRightNodes;
+
+  @Param({"1000"})
+  public int maxNumNeighbors;
+
+  @Param({"100"})
+  public int maxNumSamplesPerNeighbor;
+
+  private IntersectionSimilarity intersectionSimilarity;
+  private IntersectionSimilarityRequest[] requests;
+  private Random random;
+  private int nextRequest;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    PowerLawGraphGenerator generator = new PowerLawGraphGenerator(
+        numLeftNodes,
+        numRightNodes,
+        BenchmarkGraphs.POWER_LAW_EXPONENT,
+        BenchmarkGraphs.POWER_LAW_EXPONENT,
+        PowerLawGraphGenerator.DEFAULT_SEED);
+    intersectionSimilarity = new IntersectionSimilarity(
+        BenchmarkGraphs.buildBipartiteGraph(
+            generator.generate(numEdges),
+            numEdges / maxNumEdgesPerSegment + 1,
+            maxNumEdgesPerSegment,
+            numLeftNodes,
+            numRightNodes),
+        new CosineUpdateNormalization(),
+        new NullStatsReceiver());
+
+    long[] queryNodes = generator.sampleRightNodes(NUM_REQUESTS);
+    requests = new IntersectionSimilarityRequest[NUM_REQUESTS];
+    for (int i = 0; i < NUM_REQUESTS; i++) {
+      requests[i] = new IntersectionSimilarityRequest(
+          queryNodes[i],
+          100,
+          new LongOpenHashSet(),
+          maxNumNeighbors,
+          1,
+          maxNumSamplesPerNeighbor,
+          1,
+          1,
+          Double.MAX_VALUE,
+          Double.MAX_VALUE,
+          false);
+    }
+    random = new Random(PowerLawGraphGenerator.DEFAULT_SEED);
+  }
+
+  @Benchmark
+  public SimilarityResponse getSimilarNodes() {
+    IntersectionSimilarityRequest request = requests[nextRequest];
+    nextRequest = (nextRequest + 1) % NUM_REQUESTS;
+    return intersectionSimilarity.getSimilarNodes(request, random);
+  }
+}
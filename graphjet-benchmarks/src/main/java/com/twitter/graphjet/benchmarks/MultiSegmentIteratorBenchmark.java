@@ -0,0 +1,127 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.twitter.graphjet.bipartite.LeftIndexedPowerLawMultiSegmentBipartiteGraph;
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+
+/**
+ * Measures full and sampled traversal of left node edges across multiple segments, which
+ * exercises {@link com.twitter.graphjet.bipartite.MultiSegmentIterator} and
+ * {@link com.twitter.graphjet.bipartite.MultiSegmentRandomIterator}. Query nodes are drawn from the
+ * same power-law distribution as the graph, so most of them are high-degree nodes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MultiSegmentIteratorBenchmark {
+  private static final int NUM_QUERY_NODES = 1024;
+
+  @Param({"2000000"})
+  public int numEdges;
+
+  @Param({"250000"})
+  public int maxNumEdgesPerSegment;
+
+  @Param({"100000"})
+  public int numLeftNodes;
+
+  @Param({"1000000"})
+  public int numRightNodes;
+
+  @Param({"100"})
+  public int numSamples;
+
+  private LeftIndexedPowerLawMultiSegmentBipartiteGraph graph;
+  private long[] queryNodes;
+  private Random random;
+
+  @Setup(Level.Trial)
+  public void buildGraph() {
+    PowerLawGraphGenerator generator = new PowerLawGraphGenerator(
+        numLeftNodes,
+        numRightNodes,
+        BenchmarkGraphs.POWER_LAW_EXPONENT,
+        BenchmarkGraphs.POWER_LAW_EXPONENT,
+        PowerLawGraphGenerator.DEFAULT_SEED);
+    graph = BenchmarkGraphs.buildLeftIndexedGraph(
+        generator.generate(numEdges),
+        numEdges / maxNumEdgesPerSegment + 1,
+        maxNumEdgesPerSegment,
+        numLeftNodes,
+        numRightNodes);
+    queryNodes = generator.sampleLeftNodes(NUM_QUERY_NODES);
+    random = new Random(PowerLawGraphGenerator.DEFAULT_SEED);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_QUERY_NODES)
+  public void getLeftNodeDegree(Blackhole blackhole) {
+    for (long queryNode : queryNodes) {
+      blackhole.consume(graph.getLeftNodeDegree(queryNode));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_QUERY_NODES)
+  public void iterateLeftNodeEdges(Blackhole blackhole) {
+    for (long queryNode : queryNodes) {
+      EdgeIterator iterator = graph.getLeftNodeEdges(queryNode);
+      if (iterator == null) {
+        continue;
+      }
+      while (iterator.hasNext()) {
+        blackhole.consume(iterator.nextLong());
+      }
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(NUM_QUERY_NODES)
+  public void sampleLeftNodeEdges(Blackhole blackhole) {
+    for (long queryNode : queryNodes) {
+      EdgeIterator iterator = graph.getRandomLeftNodeEdges(queryNode, numSamples, random);
+      if (iterator == null) {
+        continue;
+      }
+      while (iterator.hasNext()) {
+        blackhole.consume(iterator.nextLong());
+      }
+    }
+  }
+}
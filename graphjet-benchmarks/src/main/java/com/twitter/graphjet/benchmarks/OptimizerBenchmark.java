@@ -0,0 +1,80 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.twitter.graphjet.bipartite.edgepool.EdgePool;
+import com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePool;
+import com.twitter.graphjet.bipartite.optimizer.Optimizer;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+/**
+ * Measures {@link Optimizer#optimizePowerLawDegreeEdgePool}, i.e. the copy of a sealed segment's
+ * edge pool into its read-only optimized form. The source pool is not modified by the optimizer,
+ * so a single populated pool is reused across invocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OptimizerBenchmark {
+  @Param({"1000000"})
+  public int numEdges;
+
+  @Param({"100000"})
+  public int numNodes;
+
+  private PowerLawDegreeEdgePool edgePool;
+
+  @Setup(Level.Trial)
+  public void populate() {
+    PowerLawGraphGenerator.Edges edges = new PowerLawGraphGenerator(
+        numNodes,
+        Integer.MAX_VALUE - 1,
+        BenchmarkGraphs.POWER_LAW_EXPONENT,
+        BenchmarkGraphs.POWER_LAW_EXPONENT,
+        PowerLawGraphGenerator.DEFAULT_SEED).generate(numEdges);
+    edgePool = new PowerLawDegreeEdgePool(
+        numNodes, numEdges, BenchmarkGraphs.POWER_LAW_EXPONENT, new NullStatsReceiver());
+    for (int i = 0; i < edges.size(); i++) {
+      edgePool.addEdge(
+          (int) (edges.getLeftNode(i) - PowerLawGraphGenerator.leftNodeId(0)),
+          (int) (edges.getRightNode(i) - PowerLawGraphGenerator.rightNodeId(0)));
+    }
+  }
+
+  @Benchmark
+  public EdgePool optimizePowerLawDegreeEdgePool() {
+    return Optimizer.optimizePowerLawDegreeEdgePool(edgePool);
+  }
+}
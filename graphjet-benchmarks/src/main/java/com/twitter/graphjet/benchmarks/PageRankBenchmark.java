@@ -0,0 +1,121 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.twitter.graphjet.algorithms.MultiThreadedPageRank;
+import com.twitter.graphjet.algorithms.ParallelPullPageRank;
+import com.twitter.graphjet.bipartite.segment.IdentityEdgeTypeMask;
+import com.twitter.graphjet.directed.CompactDirectedGraph;
+import com.twitter.graphjet.directed.OutIndexedPowerLawMultiSegmentDirectedGraph;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+/**
+ * Measures how PageRank scales with the number of threads on a synthetic power-law follow graph,
+ * comparing {@link ParallelPullPageRank} to {@link MultiThreadedPageRank}. Every invocation runs a
+ * fixed number of iterations. The default thread counts can be extended up to the number of cores
+ * of the machine with e.g. {@code -p threads=1,2,4,8,16,32}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PageRankBenchmark {
+  private static final double DAMPING_FACTOR = 0.85;
+  private static final int NUM_ITERATIONS = 10;
+
+  @Param({"1", "2", "4", "8"})
+  public int threads;
+
+  @Param({"2000000"})
+  public int numEdges;
+
+  @Param({"200000"})
+  public int numNodes;
+
+  private OutIndexedPowerLawMultiSegmentDirectedGraph graph;
+  private LongArrayList nodes;
+  private CompactDirectedGraph snapshot;
+  private ForkJoinPool pool;
+
+  @Setup(Level.Trial)
+  public void populate() {
+    // Both endpoints are drawn from power laws, and their popularity ranks are used as node ids.
+    PowerLawGraphGenerator.Edges edges = new PowerLawGraphGenerator(
+        numNodes,
+        numNodes,
+        BenchmarkGraphs.POWER_LAW_EXPONENT,
+        BenchmarkGraphs.POWER_LAW_EXPONENT,
+        PowerLawGraphGenerator.DEFAULT_SEED).generate(numEdges);
+    graph = new OutIndexedPowerLawMultiSegmentDirectedGraph(
+        1, numEdges, numNodes, numEdges, BenchmarkGraphs.POWER_LAW_EXPONENT,
+        new IdentityEdgeTypeMask(), new NullStatsReceiver());
+    for (int i = 0; i < edges.size(); i++) {
+      graph.addEdge(
+          edges.getLeftNode(i) - PowerLawGraphGenerator.leftNodeId(0),
+          edges.getRightNode(i) - PowerLawGraphGenerator.rightNodeId(0),
+          (byte) 0);
+    }
+    nodes = new LongArrayList(numNodes);
+    for (int i = 0; i < numNodes; i++) {
+      nodes.add(i);
+    }
+    snapshot = CompactDirectedGraph.build(graph, nodes);
+    pool = new ForkJoinPool(threads);
+  }
+
+  @TearDown(Level.Trial)
+  public void shutdown() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public double[] parallelPullPageRank() {
+    ParallelPullPageRank pageRank =
+        new ParallelPullPageRank(snapshot, DAMPING_FACTOR, NUM_ITERATIONS, 0.0, pool);
+    pageRank.run();
+    return pageRank.getPageRankVector();
+  }
+
+  @Benchmark
+  public double multiThreadedPageRank() {
+    MultiThreadedPageRank pageRank = new MultiThreadedPageRank(
+        graph, nodes, numNodes - 1, DAMPING_FACTOR, NUM_ITERATIONS, 0.0, threads);
+    pageRank.run();
+    return pageRank.getL1Norm();
+  }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.benchmarks;
+
+import java.util.Random;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Generates a synthetic bipartite edge stream where both the left and the right degree
+ * distributions follow a power-law, mimicking the user-tweet engagement graphs GraphJet is built
+ * for. Node ranks are drawn from a bounded Pareto distribution via inverse transform sampling, so
+ * a small number of "head" nodes receive most of the edges.
+ *
+ * The generator is fully determined by its seed, which makes benchmark runs reproducible across
+ * machines and JVM invocations.
+ */
+public final class PowerLawGraphGenerator {
+  /**
+   * Right node ids are offset so that they never collide with left node ids, which keeps the
+   * generated graph usable for algorithms that hash both sides into the same maps.
+   */
+  public static final long RIGHT_NODE_ID_OFFSET = 1L << 40;
+
+  /**
+   * The seed used by all benchmarks in this module.
+   */
+  public static final long DEFAULT_SEED = 918324701982347L;
+
+  private final int numLeftNodes;
+  private final int numRightNodes;
+  private final double leftPowerLawExponent;
+  private final double rightPowerLawExponent;
+  private final long seed;
+
+  /**
+   * Create a generator.
+   *
+   * @param numLeftNodes           is the number of distinct left nodes that can appear
+   * @param numRightNodes          is the number of distinct right nodes that can appear
+   * @param leftPowerLawExponent   is the exponent of the left degree distribution, must be > 0
+   * @param rightPowerLawExponent  is the exponent of the right degree distribution, must be > 0
+   * @param seed                   seeds the random number generator
+   */
+  public PowerLawGraphGenerator(
+      int numLeftNodes,
+      int numRightNodes,
+      double leftPowerLawExponent,
+      double rightPowerLawExponent,
+      long seed) {
+    Preconditions.checkArgument(numLeftNodes > 0, "numLeftNodes must be positive");
+    Preconditions.checkArgument(numRightNodes > 0, "numRightNodes must be positive");
+    Preconditions.checkArgument(leftPowerLawExponent > 0.0, "leftPowerLawExponent must be > 0");
+    Preconditions.checkArgument(rightPowerLawExponent > 0.0, "rightPowerLawExponent must be > 0");
+    this.numLeftNodes = numLeftNodes;
+    this.numRightNodes = numRightNodes;
+    this.leftPowerLawExponent = leftPowerLawExponent;
+    this.rightPowerLawExponent = rightPowerLawExponent;
+    this.seed = seed;
+  }
+
+  /**
+   * Generates the given number of edges. Calling this twice with the same argument returns
+   * identical edge streams.
+   *
+   * @param numEdges  is the number of edges to generate
+   * @return the generated edges, in insertion order
+   */
+  public Edges generate(int numEdges) {
+    Random random = new Random(seed);
+    long[] leftNodes = new long[numEdges];
+    long[] rightNodes = new long[numEdges];
+    for (int i = 0; i < numEdges; i++) {
+      leftNodes[i] = leftNodeId(sampleRank(random, numLeftNodes, leftPowerLawExponent));
+      rightNodes[i] = rightNodeId(sampleRank(random, numRightNodes, rightPowerLawExponent));
+    }
+    return new Edges(leftNodes, rightNodes);
+  }
+
+  /**
+   * Samples left nodes from the same distribution as the edge stream, so that query nodes are
+   * biased towards high-degree nodes just like production traffic. The sample is independent of
+   * the one returned by {@link #generate(int)}.
+   *
+   * @param numQueryNodes  is the number of left nodes to sample
+   * @return the sampled left node ids
+   */
+  public long[] sampleLeftNodes(int numQueryNodes) {
+    Random random = new Random(~seed);
+    long[] queryNodes = new long[numQueryNodes];
+    for (int i = 0; i < numQueryNodes; i++) {
+      queryNodes[i] = leftNodeId(sampleRank(random, numLeftNodes, leftPowerLawExponent));
+    }
+    return queryNodes;
+  }
+
+  /**
+   * Samples right nodes from the same distribution as the edge stream. See
+   * {@link #sampleLeftNodes(int)}.
+   *
+   * @param numQueryNodes  is the number of right nodes to sample
+   * @return the sampled right node ids
+   */
+  public long[] sampleRightNodes(int numQueryNodes) {
+    Random random = new Random(~seed);
+    long[] queryNodes = new long[numQueryNodes];
+    for (int i = 0; i < numQueryNodes; i++) {
+      queryNodes[i] = rightNodeId(sampleRank(random, numRightNodes, rightPowerLawExponent));
+    }
+    return queryNodes;
+  }
+
+  /**
+   * Returns the id of the left node with the given popularity rank, rank 0 being the most popular.
+   */
+  public static long leftNodeId(int rank) {
+    return rank + 1L;
+  }
+
+  /**
+   * Returns the id of the right node with the given popularity rank, rank 0 being the most popular.
+   */
+  public static long rightNodeId(int rank) {
+    return RIGHT_NODE_ID_OFFSET + rank;
+  }
+
+  /**
+   * Samples a rank in [0, numNodes) with P(rank = r) roughly proportional to (r + 1)^-exponent.
+   */
+  static int sampleRank(Random random, int numNodes, double exponent) {
+    double u = random.nextDouble();
+    double upper = numNodes + 1.0;
+    double x;
+    if (Math.abs(exponent - 1.0) < 1e-9) {
+      x = Math.exp(u * Math.log(upper));
+    } else {
+      double oneMinusExponent = 1.0 - exponent;
+      x = Math.pow(u * (Math.pow(upper, oneMinusExponent) - 1.0) + 1.0, 1.0 / oneMinusExponent);
+    }
+    return Math.min((int) x - 1, numNodes - 1);
+  }
+
+  /**
+   * A generated edge stream stored as two parallel arrays.
+   */
+  public static final class Edges {
+    private final long[] leftNodes;
+    private final long[] rightNodes;
+
+    Edges(long[] leftNodes, long[] rightNodes) {
+      this.leftNodes = leftNodes;
+      this.rightNodes = rightNodes;
+    }
+
+    public int size() {
+      return leftNodes.length;
+    }
+
+    public long getLeftNode(int i) {
+      return leftNodes[i];
+    }
+
+    public long getRightNode(int i) {
+      return rightNodes[i];
+    }
+  }
+}
@@ -0,0 +1,155 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.benchmarks;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.twitter.graphjet.algorithms.RecommendationType;
+import com.twitter.graphjet.algorithms.counting.TopSecondDegreeByCountResponse;
+import com.twitter.graphjet.algorithms.counting.tweet.TopSecondDegreeByCountForTweet;
+import com.twitter.graphjet.algorithms.counting.tweet.TopSecondDegreeByCountRequestForTweet;
+import com.twitter.graphjet.algorithms.filters.RequestedSetFilter;
+import com.twitter.graphjet.algorithms.filters.ResultFilter;
+import com.twitter.graphjet.algorithms.filters.ResultFilterChain;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+import it.unimi.dsi.fastutil.longs.Long2DoubleMap;
+import it.unimi.dsi.fastutil.longs.Long2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+/**
+ * Measures end-to-end latency of a {@link TopSecondDegreeByCountForTweet} request: the seed
+ * traversal, social proof collection, filtering and top-k selection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class TopSecondDegreeByCountForTweetBenchmark {
+  private static final int NUM_REQUESTS = 64;
+  private static final int NUM_EDGE_TYPES = 5;
+  private static final byte[] SOCIAL_PROOF_TYPES = new byte[]{0, 1, 2, 3, 4};
+
+  @Param({"2000000"})
+  public int numEdges;
+
+  @Param({"250000"})
+  public int maxNumEdgesPerSegment;
+
+  @Param({"100000"})
+  public int numLeftNodes;
+
+  @Param({"1000000"})
+  public int numRightNodes;
+
+  @Param({"100"})
+  public int numSeeds;
+
+  @Param({"100"})
+  public int maxNumResults;
+
+  private TopSecondDegreeByCountForTweet algorithm;
+  private TopSecondDegreeByCountRequestForTweet[] requests;
+  private Random random;
+  private int nextRequest;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    PowerLawGraphGenerator generator = new PowerLawGraphGenerator(
+        numLeftNodes,
+        numRightNodes,
+        BenchmarkGraphs.POWER_LAW_EXPONENT,
+        BenchmarkGraphs.POWER_LAW_EXPONENT,
+        PowerLawGraphGenerator.DEFAULT_SEED);
+    algorithm = new TopSecondDegreeByCountForTweet(
+        BenchmarkGraphs.buildNodeMetadataGraph(
+            generator.generate(numEdges),
+            numEdges / maxNumEdgesPerSegment + 1,
+            maxNumEdgesPerSegment,
+            numLeftNodes,
+            numRightNodes,
+            NUM_EDGE_TYPES),
+        numSeeds * 1000,
+        new NullStatsReceiver());
+
+    long[] seedNodes = generator.sampleLeftNodes(NUM_REQUESTS * numSeeds);
+    requests = new TopSecondDegreeByCountRequestForTweet[NUM_REQUESTS];
+    for (int i = 0; i < NUM_REQUESTS; i++) {
+      Long2DoubleMap seedsWithWeight = new Long2DoubleOpenHashMap(numSeeds);
+      for (int j = 0; j < numSeeds; j++) {
+        seedsWithWeight.put(seedNodes[i * numSeeds + j], 1.0);
+      }
+      requests[i] = newRequest(seedNodes[i * numSeeds], seedsWithWeight);
+    }
+    random = new Random(PowerLawGraphGenerator.DEFAULT_SEED);
+  }
+
+  private TopSecondDegreeByCountRequestForTweet newRequest(
+      long queryNode, Long2DoubleMap seedsWithWeight) {
+    Map<RecommendationType, Integer> maxNumResultsByType =
+        Collections.singletonMap(RecommendationType.TWEET, maxNumResults);
+    Map<RecommendationType, Integer> minUserSocialProofSizes =
+        Collections.singletonMap(RecommendationType.TWEET, 1);
+    Set<RecommendationType> recommendationTypes = new HashSet<>();
+    recommendationTypes.add(RecommendationType.TWEET);
+    return new TopSecondDegreeByCountRequestForTweet(
+        queryNode,
+        seedsWithWeight,
+        new LongOpenHashSet(),
+        recommendationTypes,
+        maxNumResultsByType,
+        SOCIAL_PROOF_TYPES.length,
+        10,
+        10,
+        minUserSocialProofSizes,
+        SOCIAL_PROOF_TYPES,
+        Long.MAX_VALUE,
+        Long.MAX_VALUE,
+        new ResultFilterChain(Lists.<ResultFilter>newArrayList(
+            new RequestedSetFilter(new NullStatsReceiver()))),
+        new HashSet<byte[]>());
+  }
+
+  @Benchmark
+  public TopSecondDegreeByCountResponse computeRecommendations() {
+    TopSecondDegreeByCountRequestForTweet request = requests[nextRequest];
+    nextRequest = (nextRequest + 1) % NUM_REQUESTS;
+    return algorithm.computeRecommendations(request, random);
+  }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.benchmarks;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PowerLawGraphGeneratorTest {
+  @Test
+  public void testGenerateIsDeterministic() throws Exception {
+    PowerLawGraphGenerator generator = new PowerLawGraphGenerator(100, 1000, 2.0, 1.5, 1234L);
+    PowerLawGraphGenerator.Edges edges = generator.generate(10000);
+    PowerLawGraphGenerator.Edges sameEdges = generator.generate(10000);
+
+    assertEquals(10000, edges.size());
+    for (int i = 0; i < edges.size(); i++) {
+      assertEquals(edges.getLeftNode(i), sameEdges.getLeftNode(i));
+      assertEquals(edges.getRightNode(i), sameEdges.getRightNode(i));
+      assertTrue(edges.getLeftNode(i) >= PowerLawGraphGenerator.leftNodeId(0));
+      assertTrue(edges.getLeftNode(i) <= PowerLawGraphGenerator.leftNodeId(99));
+      assertTrue(edges.getRightNode(i) >= PowerLawGraphGenerator.rightNodeId(0));
+      assertTrue(edges.getRightNode(i) <= PowerLawGraphGenerator.rightNodeId(999));
+    }
+    assertArrayEquals(generator.sampleLeftNodes(100), generator.sampleLeftNodes(100));
+  }
+
+  @Test
+  public void testSampleRankIsSkewed() throws Exception {
+    Random random = new Random(5678L);
+    int numNodes = 1000;
+    int[] counts = new int[numNodes];
+    for (int i = 0; i < 100000; i++) {
+      counts[PowerLawGraphGenerator.sampleRank(random, numNodes, 2.0)]++;
+    }
+    // with exponent 2 roughly half of the mass lands on the top node
+    assertTrue(counts[0] > 40000);
+    assertTrue(counts[0] > counts[1]);
+    assertTrue(counts[1] > counts[10]);
+    assertTrue(counts[10] > counts[500]);
+  }
+}
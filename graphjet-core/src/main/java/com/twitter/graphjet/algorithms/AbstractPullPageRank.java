@@ -0,0 +1,202 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.algorithms;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+import com.twitter.graphjet.directed.CompactDirectedGraph;
+
+/**
+ * <p>
+ * The driver shared by the implementations of PageRank that pull mass along the incoming edges of a
+ * {@link CompactDirectedGraph} snapshot. It allocates the vectors, runs the iterations until the
+ * L1 norm drops below the tolerance, and swaps the PageRank vectors after every iteration.
+ * Subclasses only decide how the two passes of an iteration are run over the nodes, see
+ * {@link #computeContributions()} and {@link #pullContributions(double)}.
+ * </p>
+ *
+ * <p>
+ * Both passes are made of the range operations {@link #computeContributions(int, int)} and
+ * {@link #pullContributions(double, int, int)}, which only write the entries of the nodes in
+ * their range and can therefore run concurrently over disjoint ranges.
+ * </p>
+ */
+public abstract class AbstractPullPageRank {
+  final protected CompactDirectedGraph graph;
+  final protected double dampingFactor;
+  final protected int nodeCount;
+  final private int maxIterations;
+  final private double tolerance;
+
+  private double normL1 = Double.MAX_VALUE;
+  private double[] prVector = null;
+  private double[] nextPR = null;
+  private double[] contributions = null;
+
+  /**
+   * @param graph          the snapshot of the directed graph
+   * @param dampingFactor  damping factor
+   * @param maxIterations  maximum number of iterations to run
+   * @param tolerance      L1 norm threshold for convergence
+   */
+  protected AbstractPullPageRank(CompactDirectedGraph graph, double dampingFactor,
+                                 int maxIterations, double tolerance) {
+    this.graph = graph;
+    this.dampingFactor = dampingFactor;
+    this.nodeCount = graph.getNumNodes();
+    this.maxIterations = maxIterations;
+    this.tolerance = tolerance;
+  }
+
+  /**
+   * Computes the contributions of all the nodes to their out-neighbors, the first pass of an
+   * iteration.
+   *
+   * @return the PageRank mass of the dangling nodes
+   */
+  protected abstract double computeContributions();
+
+  /**
+   * Computes the next PageRank of all the nodes by pulling the contributions of their
+   * in-neighbors, the second pass of an iteration.
+   *
+   * @param baseAmount  PageRank mass every node gets (from dangling nodes and from damping)
+   * @return the L1 norm of the difference between the PageRank vectors
+   */
+  protected abstract double pullContributions(double baseAmount);
+
+  /**
+   * Computes the contributions of the nodes in [from, to) to their out-neighbors.
+   *
+   * @return the PageRank mass of the dangling nodes in [from, to)
+   */
+  protected final double computeContributions(int from, int to) {
+    double dangleSum = 0.0;
+    for (int i = from; i < to; i++) {
+      int outDegree = graph.getOutDegree(i);
+      if (outDegree > 0) {
+        contributions[i] = dampingFactor * prVector[i] / outDegree;
+      } else {
+        contributions[i] = 0.0;
+        dangleSum += prVector[i];
+      }
+    }
+    return dangleSum;
+  }
+
+  /**
+   * Computes the next PageRank of the nodes in [from, to) by pulling the contributions of their
+   * in-neighbors.
+   *
+   * @return the L1 norm of the difference between the PageRank vectors over [from, to)
+   */
+  protected final double pullContributions(double baseAmount, int from, int to) {
+    double rangeNormL1 = 0.0;
+    int start = graph.getInEdgesStart(from);
+    for (int i = from; i < to; i++) {
+      int end = graph.getInEdgesStart(i + 1);
+      double pr = baseAmount;
+      for (int j = start; j < end; j++) {
+        pr += contributions[graph.getInEdge(j)];
+      }
+      nextPR[i] = pr;
+      rangeNormL1 += Math.abs(pr - prVector[i]);
+      start = end;
+    }
+    return rangeNormL1;
+  }
+
+  private void iterate(double dampingAmount) {
+    // First compute the contribution of every node to its out-neighbors, and how much mass is
+    // trapped at the dangling nodes.
+    double dangleSum = computeContributions();
+    double baseAmount = dampingAmount + dampingFactor * dangleSum / nodeCount;
+
+    // Pull PageRank mass.
+    normL1 = pullContributions(baseAmount);
+
+    double[] swap = prVector;
+    prVector = nextPR;
+    nextPR = swap;
+  }
+
+  /**
+   * Runs PageRank, either until the max number of iterations has been reached or the L1 norm of
+   * the difference between PageRank vectors drops below the tolerance.
+   *
+   * @return number of iterations that was actually run
+   */
+  public int run() {
+    double dampingAmount = (1.0 - dampingFactor) / nodeCount;
+    prVector = new double[nodeCount];
+    Arrays.fill(prVector, 1.0 / nodeCount);
+    normL1 = Double.MAX_VALUE;
+    nextPR = new double[nodeCount];
+    contributions = new double[nodeCount];
+
+    int i = 0;
+    while (i < this.maxIterations && normL1 > tolerance) {
+      iterate(dampingAmount);
+      i++;
+    }
+
+    nextPR = null;
+    contributions = null;
+    return i;
+  }
+
+  /**
+   * Returns the final L1 norm value after PageRank has been run.
+   *
+   * @return the final L1 norm value after PageRank has been run
+   */
+  public double getL1Norm() {
+    return normL1;
+  }
+
+  /**
+   * Returns the PageRank vector indexed by the dense node indices of the snapshot, or null if
+   * PageRank has not yet been run.
+   *
+   * @return the PageRank vector, or null if PageRank has not yet been run
+   */
+  public double[] getPageRankVector() {
+    return prVector;
+  }
+
+  /**
+   * Returns the PageRank of a node, or 0 if the node is not in the snapshot.
+   *
+   * @param nodeId  the id of the node in the original graph
+   * @return the PageRank of the node
+   * @throws IllegalStateException if PageRank has not yet been run
+   */
+  public double getPageRank(long nodeId) {
+    Preconditions.checkState(prVector != null, "PageRank has not yet been run");
+    int index = graph.getNodeIndex(nodeId);
+    return index < 0 ? 0.0 : prVector[index];
+  }
+
+  /**
+   * @return the snapshot PageRank runs over
+   */
+  public CompactDirectedGraph getGraph() {
+    return graph;
+  }
+}
@@ -17,6 +17,7 @@
 package com.twitter.graphjet.algorithms;
 
 import com.google.common.util.concurrent.AtomicDoubleArray;
+import com.twitter.graphjet.bipartite.ReadEpochs;
 import com.twitter.graphjet.bipartite.api.EdgeIterator;
 import com.twitter.graphjet.directed.api.OutIndexedDirectedGraph;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
@@ -37,6 +38,11 @@ import java.util.concurrent.CountDownLatch;
  * ensures all mutations are atomic, so concurrent access to the PageRank vector is appropriately
  * mediated.
  * </p>
+ *
+ * <p>
+ * See {@link ParallelPullPageRank} for an implementation that runs without atomics on a
+ * persistent thread pool over a snapshot of the graph.
+ * </p>
  */
 public class MultiThreadedPageRank {
   final private OutIndexedDirectedGraph graph;
@@ -130,6 +136,15 @@ public class MultiThreadedPageRank {
    * @return number of iterations that was actually run
    */
   public int run() {
+    long readEpoch = ReadEpochs.enter(graph);
+    try {
+      return runInReadEpoch();
+    } finally {
+      ReadEpochs.exit(graph, readEpoch);
+    }
+  }
+
+  private int runInReadEpoch() {
     LongArrayList noOuts = new LongArrayList();
     LongIterator iter = nodes.iterator();
     while (iter.hasNext()) {
@@ -27,12 +27,14 @@ import com.twitter.graphjet.hashing.SmallArrayBasedLongToDoubleMap;
  * different social proof engagements on a tweet from different users.
  */
 public class NodeInfo implements Comparable<NodeInfo> {
-  private final long nodeId;
+  private long nodeId;
   private int[][] nodeMetadata;
   private double weight;
   private int numVisits;
   private SmallArrayBasedLongToDoubleMap[] socialProofs;
-  private static final int[][] EMPTY_NODE_META_DATA = new int[1][1];
+  // Cleared social proof maps kept for reuse when this instance is recycled by a NodeInfoPool
+  private SmallArrayBasedLongToDoubleMap[] recycledSocialProofs;
+  static final int[][] EMPTY_NODE_META_DATA = new int[1][1];
 
   /**
    * Creates an instance for a node.
@@ -65,6 +67,32 @@ public class NodeInfo implements Comparable<NodeInfo> {
     this.socialProofs = new SmallArrayBasedLongToDoubleMap[maxSocialProofTypeSize];
   }
 
+  /**
+   * Reinitializes this instance for another node, keeping the social proof maps around so that
+   * they can be reused instead of reallocated. Only {@link NodeInfoPool} recycles instances.
+   */
+  void reset(long newNodeId, int[][] newNodeMetadata, double newWeight, int maxSocialProofTypeSize) {
+    this.nodeId = newNodeId;
+    this.nodeMetadata = newNodeMetadata;
+    this.weight = newWeight;
+    this.numVisits = 1;
+    if (socialProofs.length != maxSocialProofTypeSize) {
+      this.socialProofs = new SmallArrayBasedLongToDoubleMap[maxSocialProofTypeSize];
+      this.recycledSocialProofs = null;
+      return;
+    }
+    for (int i = 0; i < socialProofs.length; i++) {
+      if (socialProofs[i] != null) {
+        if (recycledSocialProofs == null) {
+          recycledSocialProofs = new SmallArrayBasedLongToDoubleMap[maxSocialProofTypeSize];
+        }
+        socialProofs[i].clear();
+        recycledSocialProofs[i] = socialProofs[i];
+        socialProofs[i] = null;
+      }
+    }
+  }
+
   public long getNodeId() {
     return nodeId;
   }
@@ -108,13 +136,40 @@ public class NodeInfo implements Comparable<NodeInfo> {
    */
   public boolean addToSocialProof(long socialProofId, byte edgeType, long edgeMetadata, double socialProofWeight) {
     if (socialProofs[edgeType] == null) {
-      socialProofs[edgeType] = new SmallArrayBasedLongToDoubleMap();
+      socialProofs[edgeType] = recycledSocialProofs != null && recycledSocialProofs[edgeType] != null
+        ? recycledSocialProofs[edgeType]
+        : new SmallArrayBasedLongToDoubleMap();
     }
 
     socialProofs[edgeType].put(socialProofId, socialProofWeight, edgeMetadata);
     return true;
   }
 
+  /**
+   * Folds another record of the same node into this one, adding up the weights and visits and
+   * taking the union of the social proofs. This is used when the visits to a node were counted
+   * separately, e.g. by several threads.
+   *
+   * @param otherNodeInfo  is the other record of this node, which is left untouched
+   */
+  public void merge(NodeInfo otherNodeInfo) {
+    weight += otherNodeInfo.weight;
+    numVisits += otherNodeInfo.numVisits;
+    SmallArrayBasedLongToDoubleMap[] otherSocialProofs = otherNodeInfo.socialProofs;
+    for (int i = 0; i < otherSocialProofs.length; i++) {
+      SmallArrayBasedLongToDoubleMap otherSocialProof = otherSocialProofs[i];
+      if (otherSocialProof == null) {
+        continue;
+      }
+      long[] keys = otherSocialProof.keys();
+      double[] values = otherSocialProof.values();
+      long[] metadata = otherSocialProof.metadata();
+      for (int j = 0; j < otherSocialProof.size(); j++) {
+        addToSocialProof(keys[j], (byte) i, metadata[j], values[j]);
+      }
+    }
+  }
+
   public int[] getNodeMetadata(int nodeMetadataType) {
     return nodeMetadata[nodeMetadataType];
   }
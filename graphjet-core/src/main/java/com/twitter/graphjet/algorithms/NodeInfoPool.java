@@ -0,0 +1,114 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of {@link NodeInfo} objects that are reused across requests. The algorithms keep one pool
+ * per instance next to their visited node maps, acquire a node info for every newly visited node
+ * and reset the pool at the start of the next request, at which point all previously acquired node
+ * infos are recycled together with their social proof maps. This way a steady stream of requests
+ * on the same algorithm instance allocates almost nothing per visited node.
+ *
+ * Like the algorithm instances themselves, a pool is not thread safe, and the node infos it hands
+ * out must not be referenced once the pool has been reset.
+ */
+public class NodeInfoPool {
+  private final List<NodeInfo> nodeInfos;
+  private int numAcquired;
+
+  /**
+   * Creates an empty pool.
+   *
+   * @param expectedNumNodes  is the expected number of node infos acquired per request
+   */
+  public NodeInfoPool(int expectedNumNodes) {
+    this.nodeInfos = new ArrayList<>(expectedNumNodes);
+    this.numAcquired = 0;
+  }
+
+  /**
+   * Creates an empty pool.
+   */
+  public NodeInfoPool() {
+    this(16);
+  }
+
+  /**
+   * Returns a node info for the given node, as if it was created with
+   * {@link NodeInfo#NodeInfo(long, int[][], double, int)}.
+   *
+   * @param nodeId                  is the node nodeId
+   * @param nodeMetadata            is the metadata arrays associated with each node
+   * @param weight                  is the initial weight
+   * @param maxSocialProofTypeSize  is the max social proof types to keep
+   * @return a node info that is exclusively owned by the caller until the next reset
+   */
+  public NodeInfo acquire(
+      long nodeId,
+      int[][] nodeMetadata,
+      double weight,
+      int maxSocialProofTypeSize) {
+    if (numAcquired == nodeInfos.size()) {
+      NodeInfo nodeInfo = new NodeInfo(nodeId, nodeMetadata, weight, maxSocialProofTypeSize);
+      nodeInfos.add(nodeInfo);
+      numAcquired++;
+      return nodeInfo;
+    }
+    NodeInfo nodeInfo = nodeInfos.get(numAcquired++);
+    nodeInfo.reset(nodeId, nodeMetadata, weight, maxSocialProofTypeSize);
+    return nodeInfo;
+  }
+
+  /**
+   * Returns a node info for the given node with empty node metadata, as if it was created with
+   * {@link NodeInfo#NodeInfo(long, double, int)}.
+   *
+   * @param nodeId                  is the node nodeId
+   * @param weight                  is the initial weight
+   * @param maxSocialProofTypeSize  is the max social proof types to keep
+   * @return a node info that is exclusively owned by the caller until the next reset
+   */
+  public NodeInfo acquire(long nodeId, double weight, int maxSocialProofTypeSize) {
+    return acquire(nodeId, NodeInfo.EMPTY_NODE_META_DATA, weight, maxSocialProofTypeSize);
+  }
+
+  /**
+   * Returns all the node infos to the pool. The node infos are cleared lazily, when they are
+   * acquired again.
+   */
+  public void reset() {
+    numAcquired = 0;
+  }
+
+  /**
+   * Returns the number of node infos acquired since the last reset.
+   */
+  public int size() {
+    return numAcquired;
+  }
+
+  /**
+   * Returns the number of node infos the pool holds, whether acquired or not.
+   */
+  public int capacity() {
+    return nodeInfos.size();
+  }
+}
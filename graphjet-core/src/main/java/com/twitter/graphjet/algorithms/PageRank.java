@@ -16,6 +16,7 @@
 
 package com.twitter.graphjet.algorithms;
 
+import com.twitter.graphjet.bipartite.ReadEpochs;
 import com.twitter.graphjet.bipartite.api.EdgeIterator;
 import com.twitter.graphjet.directed.api.OutIndexedDirectedGraph;
 import it.unimi.dsi.fastutil.longs.LongArrayList;
@@ -130,6 +131,15 @@ public class PageRank {
    * @return number of iterations that was actually run
    */
   public int run() {
+    long readEpoch = ReadEpochs.enter(graph);
+    try {
+      return runInReadEpoch();
+    } finally {
+      ReadEpochs.exit(graph, readEpoch);
+    }
+  }
+
+  private int runInReadEpoch() {
     LongArrayList noOuts = new LongArrayList();
     LongIterator iter = nodes.iterator();
     while (iter.hasNext()) {
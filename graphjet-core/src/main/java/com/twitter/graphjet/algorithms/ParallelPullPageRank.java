@@ -0,0 +1,169 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.algorithms;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.twitter.graphjet.directed.CompactDirectedGraph;
+import com.twitter.graphjet.directed.api.OutIndexedDirectedGraph;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+
+/**
+ * <p>
+ * Multithreaded implementation of {@link PullPageRank}, running every iteration on a
+ * {@link ForkJoinPool} that is kept across iterations and requests.
+ * </p>
+ *
+ * <p>
+ * The nodes of the snapshot are split into a few contiguous partitions per thread, balanced by
+ * their number of incoming edges plus one per node rather than by their number of nodes alone, so
+ * that the high in-degree nodes of power-law graphs don't all land in the same partition. Since
+ * every node only writes its own entry of the next PageRank vector while pulling mass from its
+ * in-neighbors, the partitions are updated with plain writes and need no atomics. The mass of
+ * the dangling nodes and the L1 norm of every iteration are summed up per partition and then
+ * reduced along the fork-join tree, so the sums are deterministic for a given pool size.
+ * </p>
+ *
+ * <p>
+ * Compared to {@link MultiThreadedPageRank}, which spawns threads on every iteration and pushes
+ * mass with compare-and-swap loops into an atomic vector, an iteration is a lock-free sequential
+ * pass over each partition of the in-edge array.
+ * </p>
+ */
+public class ParallelPullPageRank extends AbstractPullPageRank {
+  // Having a few partitions per thread lets the pool balance whatever the edge balance misses
+  private static final int PARTITIONS_PER_THREAD = 4;
+
+  final private ForkJoinPool pool;
+  final private int[] partitions;
+
+  /**
+   * Constructs this object for running PageRank over a snapshot of a directed graph.
+   *
+   * @param graph          the snapshot of the directed graph
+   * @param dampingFactor  damping factor
+   * @param maxIterations  maximum number of iterations to run
+   * @param tolerance      L1 norm threshold for convergence
+   * @param pool           runs the iterations, and is owned by the caller
+   */
+  public ParallelPullPageRank(CompactDirectedGraph graph, double dampingFactor, int maxIterations,
+                              double tolerance, ForkJoinPool pool) {
+    super(graph, dampingFactor, maxIterations, tolerance);
+    this.pool = pool;
+    this.partitions = partitionByEdges(graph, pool.getParallelism() * PARTITIONS_PER_THREAD);
+  }
+
+  /**
+   * Constructs this object for running PageRank over a directed graph, of which a
+   * {@link CompactDirectedGraph} snapshot is taken right away.
+   *
+   * @param graph          the directed graph
+   * @param nodes          nodes in the graph
+   * @param dampingFactor  damping factor
+   * @param maxIterations  maximum number of iterations to run
+   * @param tolerance      L1 norm threshold for convergence
+   * @param pool           runs the iterations, and is owned by the caller
+   */
+  public ParallelPullPageRank(OutIndexedDirectedGraph graph, LongCollection nodes,
+                              double dampingFactor, int maxIterations, double tolerance,
+                              ForkJoinPool pool) {
+    this(CompactDirectedGraph.build(graph, nodes), dampingFactor, maxIterations, tolerance, pool);
+  }
+
+  /**
+   * Splits the nodes into contiguous partitions with about the same number of incoming edges
+   * plus nodes each.
+   *
+   * @return the boundaries of the partitions: partition p spans the nodes in
+   * [partitions[p], partitions[p + 1])
+   */
+  static int[] partitionByEdges(CompactDirectedGraph graph, int maxNumPartitions) {
+    int numNodes = graph.getNumNodes();
+    int numPartitions = Math.max(1, Math.min(maxNumPartitions, numNodes));
+    long totalCost = (long) graph.getNumEdges() + numNodes;
+    int[] partitions = new int[numPartitions + 1];
+    partitions[numPartitions] = numNodes;
+    for (int p = 1; p < numPartitions; p++) {
+      long targetCost = totalCost * p / numPartitions;
+      // the first node whose cost so far reaches the target
+      int low = partitions[p - 1];
+      int high = numNodes;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if ((long) graph.getInEdgesStart(mid) + mid < targetCost) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      partitions[p] = low;
+    }
+    return partitions;
+  }
+
+  @Override
+  protected double computeContributions() {
+    return pool.invoke(new IterationTask(false, 0.0, 0, partitions.length - 1));
+  }
+
+  @Override
+  protected double pullContributions(double baseAmount) {
+    return pool.invoke(new IterationTask(true, baseAmount, 0, partitions.length - 1));
+  }
+
+  /**
+   * Runs one of the two passes of an iteration over a range of partitions, splitting the range in
+   * halves until a single partition is left.
+   */
+  private final class IterationTask extends RecursiveTask<Double> {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean pull;
+    private final double baseAmount;
+    private final int fromPartition;
+    private final int toPartition;
+
+    /**
+     * Creates a task over the partitions in [fromPartition, toPartition).
+     *
+     * @param pull        whether to pull mass, or else to compute the contributions
+     * @param baseAmount  PageRank mass every node gets (from dangling nodes and from damping)
+     */
+    IterationTask(boolean pull, double baseAmount, int fromPartition, int toPartition) {
+      this.pull = pull;
+      this.baseAmount = baseAmount;
+      this.fromPartition = fromPartition;
+      this.toPartition = toPartition;
+    }
+
+    @Override
+    protected Double compute() {
+      if (toPartition - fromPartition == 1) {
+        int from = partitions[fromPartition];
+        int to = partitions[toPartition];
+        return pull ? pullContributions(baseAmount, from, to) : computeContributions(from, to);
+      }
+      int midPartition = (fromPartition + toPartition) >>> 1;
+      IterationTask left = new IterationTask(pull, baseAmount, fromPartition, midPartition);
+      left.fork();
+      double right =
+          new IterationTask(pull, baseAmount, midPartition, toPartition).compute();
+      return left.join() + right;
+    }
+  }
+}
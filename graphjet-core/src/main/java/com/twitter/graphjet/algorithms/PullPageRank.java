@@ -0,0 +1,81 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.algorithms;
+
+import com.twitter.graphjet.directed.CompactDirectedGraph;
+import com.twitter.graphjet.directed.api.OutIndexedDirectedGraph;
+import it.unimi.dsi.fastutil.longs.LongCollection;
+
+/**
+ * <p>
+ * Implementation of PageRank over a {@link CompactDirectedGraph} snapshot. Unlike {@link PageRank}, which pushes
+ * mass along the outgoing edges into a vector indexed by node id, this implementation pulls mass along the incoming
+ * edges of the snapshot: every node sums up the contributions of its in-neighbors and writes its own entry only.
+ * The vectors are indexed by the dense node indices of the snapshot, so they are sized by the number of nodes rather
+ * than by the maximum node id, and node ids are not limited to {@code Integer.MAX_VALUE}.
+ * </p>
+ *
+ * <p>
+ * All the vectors are allocated once per {@link #run()}: the PageRank vector and the next one are swapped after every
+ * iteration, and the contribution of every node, i.e. its damped PageRank divided by its outgoing degree, is computed
+ * into a third vector at the start of the iteration so that the inner loop reads a single value per edge. An iteration
+ * is then a sequential pass over the in-edge array with one random read per edge.
+ * </p>
+ *
+ * <p>
+ * As the computation runs over a snapshot, edges added to the graph while PageRank is running are not traversed.
+ * </p>
+ */
+public class PullPageRank extends AbstractPullPageRank {
+  /**
+   * Constructs this object for running PageRank over a snapshot of a directed graph.
+   *
+   * @param graph          the snapshot of the directed graph
+   * @param dampingFactor  damping factor
+   * @param maxIterations  maximum number of iterations to run
+   * @param tolerance      L1 norm threshold for convergence
+   */
+  public PullPageRank(CompactDirectedGraph graph, double dampingFactor, int maxIterations,
+                      double tolerance) {
+    super(graph, dampingFactor, maxIterations, tolerance);
+  }
+
+  /**
+   * Constructs this object for running PageRank over a directed graph, of which a
+   * {@link CompactDirectedGraph} snapshot is taken right away.
+   *
+   * @param graph          the directed graph
+   * @param nodes          nodes in the graph
+   * @param dampingFactor  damping factor
+   * @param maxIterations  maximum number of iterations to run
+   * @param tolerance      L1 norm threshold for convergence
+   */
+  public PullPageRank(OutIndexedDirectedGraph graph, LongCollection nodes, double dampingFactor,
+                      int maxIterations, double tolerance) {
+    this(CompactDirectedGraph.build(graph, nodes), dampingFactor, maxIterations, tolerance);
+  }
+
+  @Override
+  protected double computeContributions() {
+    return computeContributions(0, nodeCount);
+  }
+
+  @Override
+  protected double pullContributions(double baseAmount) {
+    return pullContributions(baseAmount, 0, nodeCount);
+  }
+}
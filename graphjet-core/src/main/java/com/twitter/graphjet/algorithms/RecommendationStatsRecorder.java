@@ -0,0 +1,80 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.algorithms;
+
+import java.util.concurrent.TimeUnit;
+
+import com.twitter.graphjet.stats.Stat;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * Records the {@link RecommendationStats} of every request as {@link Stat}s, so that the latency
+ * and the amount of work done per request can be monitored as percentiles rather than read out of
+ * the logs. The stats are created once, so recording a request does not allocate.
+ */
+public final class RecommendationStatsRecorder {
+  private final Stat latencyMicrosStat;
+  private final Stat numDirectNeighborsStat;
+  private final Stat numRHSVisitsStat;
+  private final Stat numRightNodesReachedStat;
+  private final Stat numRightNodesFilteredStat;
+
+  /**
+   * @param statsReceiver  is the already scoped receiver the stats are registered with
+   */
+  public RecommendationStatsRecorder(StatsReceiver statsReceiver) {
+    this.latencyMicrosStat = statsReceiver.stat("latencyMicros");
+    this.numDirectNeighborsStat = statsReceiver.stat("numDirectNeighbors");
+    this.numRHSVisitsStat = statsReceiver.stat("numRHSVisits");
+    this.numRightNodesReachedStat = statsReceiver.stat("numRightNodesReached");
+    this.numRightNodesFilteredStat = statsReceiver.stat("numRightNodesFiltered");
+  }
+
+  /**
+   * Records a completed request.
+   *
+   * @param recommendationStats  are the stats of the request
+   * @param latencyNanos         is how long the request took, in nanoseconds
+   */
+  public void record(RecommendationStats recommendationStats, long latencyNanos) {
+    recordLatency(latencyNanos);
+    recordWork(recommendationStats);
+  }
+
+  /**
+   * Records only the latency of a request.
+   *
+   * @param latencyNanos  is how long the request took, in nanoseconds
+   */
+  public void recordLatency(long latencyNanos) {
+    latencyMicrosStat.add(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+  }
+
+  /**
+   * Records only the work done by a request, for requests whose latency is not their own, such as
+   * the requests of a batch.
+   *
+   * @param recommendationStats  are the stats of the request
+   */
+  public void recordWork(RecommendationStats recommendationStats) {
+    numDirectNeighborsStat.add(recommendationStats.getNumDirectNeighbors());
+    numRHSVisitsStat.add(recommendationStats.getNumRHSVisits());
+    numRightNodesReachedStat.add(recommendationStats.getNumRightNodesReached());
+    numRightNodesFilteredStat.add(recommendationStats.getNumRightNodesFiltered());
+  }
+}
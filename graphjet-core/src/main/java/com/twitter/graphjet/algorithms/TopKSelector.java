@@ -0,0 +1,248 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Selects the k items with the highest scores out of a stream of scored items. The scores are kept
+ * in a primitive array that is organized as a binary min-heap alongside the items, so selecting
+ * does not box scores or go through {@link Comparable}, and an item that does not make it into the
+ * top k is rejected with a single comparison against the current minimum. Callers that create
+ * their items on the fly can check {@link #wouldAccept(double)} first and only create the items
+ * that are actually kept.
+ *
+ * Items with equal scores come out in exactly the order a {@link java.util.PriorityQueue} that
+ * is polled and then reversed would produce, so results do not change when switching over.
+ * Callers that need a deterministic order of ties instead offer their items with a tie breaker,
+ * such as the node id, through {@link #offer(Object, double, long)}: items are then ranked by
+ * score and then by tie breaker, so among items with equal scores the ones with the highest tie
+ * breakers are selected and come out first, whatever order the items were offered in. A selection
+ * should either offer all of its items with a tie breaker or none of them.
+ *
+ * An instance can be reused for many selections through {@link #reset(int)}, which keeps the
+ * allocated arrays. Instances are not thread safe.
+ *
+ * @param <T> is the type of the items being selected
+ */
+public class TopKSelector<T> {
+  private int k;
+  private int size;
+  private double[] scores;
+  private long[] tieBreakers;
+  private Object[] items;
+
+  /**
+   * Creates a selector for the top k items.
+   *
+   * @param k  is the maximum number of items to select, which can be 0
+   */
+  public TopKSelector(int k) {
+    this.scores = new double[0];
+    this.tieBreakers = new long[0];
+    this.items = new Object[0];
+    reset(k);
+  }
+
+  /**
+   * Drops all the items and prepares the selector for a new selection of the top k items.
+   *
+   * @param newK  is the maximum number of items to select, which can be 0
+   */
+  public void reset(int newK) {
+    if (newK < 0) {
+      throw new IllegalArgumentException("k must not be negative: " + newK);
+    }
+    Arrays.fill(items, 0, size, null);
+    if (newK > scores.length) {
+      scores = new double[newK];
+      tieBreakers = new long[newK];
+      items = new Object[newK];
+    }
+    k = newK;
+    size = 0;
+  }
+
+  /**
+   * Returns the number of items currently selected, which is at most k.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns true if an item with the given score would currently be selected, i.e. either fewer
+   * than k items have been selected or the score beats the lowest selected score.
+   *
+   * @param score  is the score of the item
+   * @return true if {@link #offer(Object, double)} would select the item
+   */
+  public boolean wouldAccept(double score) {
+    return wouldAccept(score, 0L);
+  }
+
+  /**
+   * Returns true if an item with the given score and tie breaker would currently be selected, i.e.
+   * either fewer than k items have been selected or the item ranks above the lowest selected item.
+   *
+   * @param score        is the score of the item
+   * @param tieBreaker   ranks the item among the items with the same score
+   * @return true if {@link #offer(Object, double, long)} would select the item
+   */
+  public boolean wouldAccept(double score, long tieBreaker) {
+    return size < k || (k > 0 && compareToRoot(score, tieBreaker) > 0);
+  }
+
+  /**
+   * Offers an item. The item is selected if fewer than k items have been selected so far, or if its
+   * score is strictly higher than the lowest selected score, in which case it replaces the item
+   * with the lowest score.
+   *
+   * @param item   is the item
+   * @param score  is the score of the item
+   * @return true if the item was selected
+   */
+  public boolean offer(T item, double score) {
+    return offer(item, score, 0L);
+  }
+
+  /**
+   * Offers an item with a tie breaker. The item is selected if fewer than k items have been
+   * selected so far, or if it ranks above the lowest selected item, in which case it replaces that
+   * item. Items rank by score, and items with equal scores by tie breaker.
+   *
+   * @param item         is the item
+   * @param score        is the score of the item
+   * @param tieBreaker   ranks the item among the items with the same score
+   * @return true if the item was selected
+   */
+  public boolean offer(T item, double score, long tieBreaker) {
+    if (size < k) {
+      siftUp(size++, item, score, tieBreaker);
+      return true;
+    }
+    if (k > 0 && compareToRoot(score, tieBreaker) > 0) {
+      // Removing the lowest item and then adding the new one, rather than replacing the lowest
+      // item in place, keeps the same order of ties as a java.util.PriorityQueue
+      poll();
+      siftUp(size++, item, score, tieBreaker);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Removes all the selected items and returns them in the order of decreasing scores.
+   *
+   * @return the selected items, highest score first
+   */
+  public List<T> drainDescending() {
+    List<T> result = new ArrayList<>(Collections.<T>nCopies(size, null));
+    for (int i = size - 1; i >= 0; i--) {
+      result.set(i, poll());
+    }
+    return result;
+  }
+
+  /**
+   * Removes all the selected items and returns them in no particular order. This skips the final
+   * sort and should be used when callers only need the set of top k items.
+   *
+   * @return the selected items, in no particular order
+   */
+  public List<T> drainUnordered() {
+    List<T> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      @SuppressWarnings("unchecked")
+      T item = (T) items[i];
+      result.add(item);
+      items[i] = null;
+    }
+    size = 0;
+    return result;
+  }
+
+  /**
+   * Removes and returns the item with the lowest score.
+   */
+  @SuppressWarnings("unchecked")
+  private T poll() {
+    T item = (T) items[0];
+    size--;
+    Object last = items[size];
+    items[size] = null;
+    if (size > 0) {
+      siftDown(0, last, scores[size], tieBreakers[size]);
+    } else {
+      items[0] = null;
+    }
+    return item;
+  }
+
+  private int compareToRoot(double score, long tieBreaker) {
+    return compare(score, tieBreaker, scores[0], tieBreakers[0]);
+  }
+
+  private static int compare(double score1, long tieBreaker1, double score2, long tieBreaker2) {
+    int result = Double.compare(score1, score2);
+    return result != 0 ? result : Long.compare(tieBreaker1, tieBreaker2);
+  }
+
+  private void siftUp(int index, Object item, double score, long tieBreaker) {
+    int current = index;
+    while (current > 0) {
+      int parent = (current - 1) >>> 1;
+      if (compare(score, tieBreaker, scores[parent], tieBreakers[parent]) >= 0) {
+        break;
+      }
+      scores[current] = scores[parent];
+      tieBreakers[current] = tieBreakers[parent];
+      items[current] = items[parent];
+      current = parent;
+    }
+    scores[current] = score;
+    tieBreakers[current] = tieBreaker;
+    items[current] = item;
+  }
+
+  private void siftDown(int index, Object item, double score, long tieBreaker) {
+    int current = index;
+    int half = size >>> 1;
+    while (current < half) {
+      int child = (current << 1) + 1;
+      int right = child + 1;
+      if (right < size
+          && compare(scores[child], tieBreakers[child], scores[right], tieBreakers[right]) > 0) {
+        child = right;
+      }
+      if (compare(score, tieBreaker, scores[child], tieBreakers[child]) <= 0) {
+        break;
+      }
+      scores[current] = scores[child];
+      tieBreakers[current] = tieBreakers[child];
+      items[current] = items[child];
+      current = child;
+    }
+    scores[current] = score;
+    tieBreakers[current] = tieBreaker;
+    items[current] = item;
+  }
+}
@@ -25,6 +25,7 @@ import com.twitter.graphjet.algorithms.ConnectingUsersWithMetadata;
 import com.twitter.graphjet.algorithms.NodeInfo;
 import com.twitter.graphjet.algorithms.RecommendationRequest;
 import com.twitter.graphjet.algorithms.RecommendationType;
+import com.twitter.graphjet.algorithms.TopKSelector;
 import com.twitter.graphjet.algorithms.counting.tweet.TopSecondDegreeByCountRequestForTweet;
 import com.twitter.graphjet.hashing.SmallArrayBasedLongToDoubleMap;
 
@@ -86,6 +87,11 @@ public final class GeneratorHelper {
       : RecommendationRequest.DEFAULT_RECOMMENDATION_RESULTS;
   }
 
+  /**
+   * @deprecated the generators select their top results with {@link TopKSelector}, see
+   * {@link #getTopValidNodes(List, Map, int)}
+   */
+  @Deprecated
   public static void addResultToPriorityQueue(
     PriorityQueue<NodeInfo> topResults,
     NodeInfo nodeInfo,
@@ -98,6 +104,11 @@ public final class GeneratorHelper {
     }
   }
 
+  /**
+   * @deprecated use {@link #getTopValidNodes(List, Map, int)}, which returns the same nodes
+   * already in the order of decreasing weights
+   */
+  @Deprecated
   public static PriorityQueue<NodeInfo> getValidNodes(
       List<NodeInfo> nodeInfoList,
       Map<Byte, Integer> minSocialProofSizes,
@@ -112,6 +123,24 @@ public final class GeneratorHelper {
     return topResults;
   }
 
+  /**
+   * Returns the nodes with the highest weights that pass the social proof size limits, in the
+   * order of decreasing weights.
+   */
+  public static List<NodeInfo> getTopValidNodes(
+      List<NodeInfo> nodeInfoList,
+      Map<Byte, Integer> minSocialProofSizes,
+      int maxNumResults) {
+    TopKSelector<NodeInfo> topResults = new TopKSelector<>(maxNumResults);
+
+    for (NodeInfo nodeInfo: nodeInfoList) {
+      if (isValidSocialProof(minSocialProofSizes, nodeInfo.getSocialProofs())) {
+        topResults.offer(nodeInfo, nodeInfo.getWeight());
+      }
+    }
+    return topResults.drainDescending();
+  }
+
   public static boolean isValidSocialProof(
       Map<Byte, Integer> minSocialProofSizes,
       SmallArrayBasedLongToDoubleMap[] socialProofs) {
@@ -19,24 +19,31 @@ package com.twitter.graphjet.algorithms.counting;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.twitter.graphjet.algorithms.NodeInfo;
+import com.twitter.graphjet.algorithms.NodeInfoPool;
 import com.twitter.graphjet.algorithms.RecommendationAlgorithm;
 import com.twitter.graphjet.algorithms.RecommendationRequest;
 import com.twitter.graphjet.algorithms.RecommendationStats;
+import com.twitter.graphjet.algorithms.RecommendationStatsRecorder;
 import com.twitter.graphjet.bipartite.LeftIndexedMultiSegmentBipartiteGraph;
 import com.twitter.graphjet.bipartite.api.EdgeIterator;
 import com.twitter.graphjet.stats.Counter;
+import com.twitter.graphjet.stats.Stat;
 import com.twitter.graphjet.stats.StatsReceiver;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.longs.Long2ByteArrayMap;
 import it.unimi.dsi.fastutil.longs.Long2ByteMap;
 import it.unimi.dsi.fastutil.longs.Long2DoubleMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 
 /**
  * Generate recommended RHS nodes by calculating aggregated weights.
@@ -51,11 +58,25 @@ public abstract class TopSecondDegreeByCount<Request extends TopSecondDegreeByCo
   // Static variables for better memory reuse. Avoids re-allocation on every request
   private final LeftIndexedMultiSegmentBipartiteGraph leftIndexedBipartiteGraph;
   private final Long2ByteMap seenEdgesPerNode;
+  private final int expectedNodesToHit;
   protected final Long2ObjectMap<NodeInfo> visitedRightNodes;
+  // Recycles the NodeInfo objects of visitedRightNodes across requests
+  protected final NodeInfoPool nodeInfoPool;
   protected final List<NodeInfo> nodeInfosAfterFiltering;
   protected final RecommendationStats topSecondDegreeByCountStats;
+  // The state of a single request, made of the two fields above
+  private final RequestContext singleRequestContext;
   protected final StatsReceiver statsReceiver;
   protected final Counter numRequestsCounter;
+  protected final Counter numBatchesCounter;
+  protected final RecommendationStatsRecorder statsRecorder;
+  protected final Stat batchLatencyMicrosStat;
+
+  // Per-request state of the batch API, grown to the largest batch seen and reused across batches
+  private final List<Long2ObjectMap<NodeInfo>> batchVisitedRightNodes;
+  private final List<Long2ByteMap> batchSeenEdgesPerNode;
+  private final LongOpenHashSet batchLeftSeedNodes;
+  private final IntArrayList batchWindowRequestIndices;
 
   /**
    * @param leftIndexedBipartiteGraph is the
@@ -71,12 +92,46 @@ public abstract class TopSecondDegreeByCount<Request extends TopSecondDegreeByCo
     int expectedNodesToHit,
     StatsReceiver statsReceiver) {
     this.leftIndexedBipartiteGraph = leftIndexedBipartiteGraph;
+    this.expectedNodesToHit = expectedNodesToHit;
     this.visitedRightNodes = new Long2ObjectOpenHashMap<>(expectedNodesToHit);
+    this.nodeInfoPool = new NodeInfoPool(expectedNodesToHit);
     this.nodeInfosAfterFiltering = new ArrayList<>();
     this.seenEdgesPerNode = new Long2ByteArrayMap();
     this.topSecondDegreeByCountStats = new RecommendationStats();
+    this.singleRequestContext =
+      new RequestContext(this.visitedRightNodes, this.topSecondDegreeByCountStats);
     this.statsReceiver = statsReceiver.scope("TopSecondDegreeByCount");
     this.numRequestsCounter = this.statsReceiver.counter("numRequests");
+    this.numBatchesCounter = this.statsReceiver.counter("numBatches");
+    this.statsRecorder = new RecommendationStatsRecorder(this.statsReceiver);
+    this.batchLatencyMicrosStat = this.statsReceiver.stat("batchLatencyMicros");
+    this.batchVisitedRightNodes = new ArrayList<>();
+    this.batchSeenEdgesPerNode = new ArrayList<>();
+    this.batchLeftSeedNodes = new LongOpenHashSet();
+    this.batchWindowRequestIndices = new IntArrayList();
+  }
+
+  /**
+   * The per-request state that is filtered into a response: the RHS nodes visited for the request
+   * and the stats of the request. A single request uses the state held by the algorithm, and each
+   * request of a batch has its own.
+   */
+  protected static final class RequestContext {
+    private final Long2ObjectMap<NodeInfo> visitedRightNodes;
+    private final RecommendationStats stats;
+
+    RequestContext(Long2ObjectMap<NodeInfo> visitedRightNodes, RecommendationStats stats) {
+      this.visitedRightNodes = visitedRightNodes;
+      this.stats = stats;
+    }
+
+    public Long2ObjectMap<NodeInfo> getVisitedRightNodes() {
+      return visitedRightNodes;
+    }
+
+    public RecommendationStats getStats() {
+      return stats;
+    }
   }
 
   /**
@@ -90,6 +145,18 @@ public abstract class TopSecondDegreeByCount<Request extends TopSecondDegreeByCo
     return (edgeEngagementTime >= System.currentTimeMillis() - edgeAgeLimit);
   }
 
+  /**
+   * Return the time before which no edge added to the graph can pass
+   * {@link #isEdgeUpdateValid}, so that the graph segments sealed before it are not traversed at
+   * all. Edges are added to the graph after the engagement they record happened, so a segment that
+   * was sealed before the start of the edge age limit cannot hold any edge within the limit.
+   * @param request is the request object containing the criteria
+   * @return the earliest time at which a valid edge may have been added, no bound by default
+   */
+  protected long getMinEdgeAddedTimestamp(Request request) {
+    return Long.MIN_VALUE;
+  }
+
   /**
    * Return whether we should proceed with updating an edge's info based on the criteria specified in the request
    * @param request the request object containing the criteria
@@ -107,7 +174,7 @@ public abstract class TopSecondDegreeByCount<Request extends TopSecondDegreeByCo
 
   /**
    * Update node information gathered about each RHS node, such as metadata and weights.
-   * This method update nodes in {@link TopSecondDegreeByCount#visitedRightNodes}.
+   * @param visitedRightNodes       is the map of the request's RHS nodes to update
    * @param leftNode                is the LHS node from which traversal initialized
    * @param rightNode               is the RHS node at which traversal arrived
    * @param edgeType                is the edge type from which LHS and RHS nodes are connected
@@ -116,6 +183,7 @@ public abstract class TopSecondDegreeByCount<Request extends TopSecondDegreeByCo
    * @param edgeIterator            is the iterator for traversing edges from LHS node
    */
   protected abstract void updateNodeInfo(
+    Long2ObjectMap<NodeInfo> visitedRightNodes,
     long leftNode,
     long rightNode,
     byte edgeType,
@@ -129,9 +197,12 @@ public abstract class TopSecondDegreeByCount<Request extends TopSecondDegreeByCo
    * this method should utilize filtered information gathered in
    * {@link TopSecondDegreeByCount#nodeInfosAfterFiltering}.
    * @param request                 is the original request object
+   * @param requestContext          is the state of the request, whose stats the response keeps
    * @return                        is the recommendations
    */
-  protected abstract Response generateRecommendationFromNodeInfo(Request request);
+  protected abstract Response generateRecommendationFromNodeInfo(
+    Request request,
+    RequestContext requestContext);
 
   /**
    * Compute recommendations using the TopSecondDegreeByCount algorithm.
@@ -142,26 +213,95 @@ public abstract class TopSecondDegreeByCount<Request extends TopSecondDegreeByCo
   @Override
   public Response computeRecommendations(Request request, Random random) {
     numRequestsCounter.incr();
-    reset(request);
+    long startTime = System.nanoTime();
+    Response response;
+    long readEpoch = leftIndexedBipartiteGraph.enterReadEpoch();
+    try {
+      reset(request);
 
-    collectRightNodeInfo(request);
-    updateAlgorithmStats(request.getQueryNode());
-    filterNodeInfo(request);
-    return generateRecommendationFromNodeInfo(request);
+      collectRightNodeInfo(request);
+      updateAlgorithmStats(request.getQueryNode(), singleRequestContext);
+      filterNodeInfo(request, singleRequestContext);
+      response = generateRecommendationFromNodeInfo(request, singleRequestContext);
+    } finally {
+      leftIndexedBipartiteGraph.exitReadEpoch(readEpoch);
+    }
+    statsRecorder.record(topSecondDegreeByCountStats, System.nanoTime() - startTime);
+    return response;
+  }
+
+  /**
+   * Compute recommendations for a batch of requests in a single pass over the graph. The edges of
+   * each distinct left seed node are read once and credited to every request that contains the
+   * seed, so requests with overlapping seed sets share their graph reads. Seeds are read once per
+   * distinct {@link #getMinEdgeAddedTimestamp} in the batch, so that each request sees exactly the
+   * edges and the per-node edge cap it would see on its own. Every response is the same as the one
+   * {@link #computeRecommendations(TopSecondDegreeByCountRequest, Random)} would return for its
+   * request, up to the order in which seeds contribute to a right node.
+   *
+   * @param requests are the requests for the algorithm
+   * @param random   is used for all random choices within the algorithm
+   * @return         the responses, in the same order as the requests
+   */
+  public List<Response> computeRecommendations(List<Request> requests, Random random) {
+    numBatchesCounter.incr();
+    numRequestsCounter.incr(requests.size());
+    long startTime = System.nanoTime();
+    List<Response> responses = new ArrayList<>(requests.size());
+    long readEpoch = leftIndexedBipartiteGraph.enterReadEpoch();
+    try {
+      resetBatch(requests.size());
+
+      collectRightNodeInfo(requests);
+
+      for (int i = 0; i < requests.size(); i++) {
+        Request request = requests.get(i);
+        // Filters are not used while collecting, so resetting them here allows requests to share
+        // a filter chain. Each response keeps its own stats object.
+        request.resetFilters();
+        RequestContext requestContext =
+          new RequestContext(batchVisitedRightNodes.get(i), new RecommendationStats());
+        nodeInfosAfterFiltering.clear();
+
+        updateAlgorithmStats(request.getQueryNode(), requestContext);
+        filterNodeInfo(request, requestContext);
+        responses.add(generateRecommendationFromNodeInfo(request, requestContext));
+        statsRecorder.recordWork(requestContext.getStats());
+      }
+    } finally {
+      leftIndexedBipartiteGraph.exitReadEpoch(readEpoch);
+    }
+    batchLatencyMicrosStat.add(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+    return responses;
+  }
+
+  private void resetBatch(int numRequests) {
+    for (int i = batchVisitedRightNodes.size(); i < numRequests; i++) {
+      batchVisitedRightNodes.add(new Long2ObjectOpenHashMap<NodeInfo>(expectedNodesToHit));
+      batchSeenEdgesPerNode.add(new Long2ByteArrayMap());
+    }
+    for (int i = 0; i < numRequests; i++) {
+      batchVisitedRightNodes.get(i).clear();
+    }
+    batchLeftSeedNodes.clear();
+    nodeInfoPool.reset();
   }
 
   private void reset(Request request) {
     request.resetFilters();
     visitedRightNodes.clear();
+    nodeInfoPool.reset();
     nodeInfosAfterFiltering.clear();
     seenEdgesPerNode.clear();
     topSecondDegreeByCountStats.reset();
   }
 
   private void collectRightNodeInfo(Request request) {
+    long minEdgeAddedTimestamp = getMinEdgeAddedTimestamp(request);
     for (Long2DoubleMap.Entry entry: request.getLeftSeedNodesWithWeight().long2DoubleEntrySet()) {
       long leftNode = entry.getLongKey();
-      EdgeIterator edgeIterator = leftIndexedBipartiteGraph.getLeftNodeEdges(leftNode);
+      EdgeIterator edgeIterator =
+        leftIndexedBipartiteGraph.getLeftNodeEdges(leftNode, minEdgeAddedTimestamp, Long.MAX_VALUE);
       if (edgeIterator == null) {
         continue;
       }
@@ -182,6 +322,7 @@ public abstract class TopSecondDegreeByCount<Request extends TopSecondDegreeByCo
           && isEdgeUpdateValid(request, rightNode, edgeType, edgeMetadata)) {
           seenEdgesPerNode.put(rightNode, edgeType);
           updateNodeInfo(
+            visitedRightNodes,
             leftNode,
             rightNode,
             edgeType,
@@ -194,8 +335,97 @@ public abstract class TopSecondDegreeByCount<Request extends TopSecondDegreeByCo
     }
   }
 
-  private void updateAlgorithmStats(long queryNode) {
-    topSecondDegreeByCountStats.setNumDirectNeighbors(
+  private void collectRightNodeInfo(List<Request> requests) {
+    long[] minEdgeAddedTimestamps = new long[requests.size()];
+    for (int i = 0; i < requests.size(); i++) {
+      minEdgeAddedTimestamps[i] = getMinEdgeAddedTimestamp(requests.get(i));
+    }
+
+    // The edge cap per seed counts the edges of the window, so only requests with the same window
+    // can share a pass over the edges of a seed
+    boolean[] isCollected = new boolean[requests.size()];
+    for (int i = 0; i < requests.size(); i++) {
+      if (isCollected[i]) {
+        continue;
+      }
+      batchWindowRequestIndices.clear();
+      batchLeftSeedNodes.clear();
+      for (int j = i; j < requests.size(); j++) {
+        if (minEdgeAddedTimestamps[j] == minEdgeAddedTimestamps[i]) {
+          isCollected[j] = true;
+          batchWindowRequestIndices.add(j);
+          batchLeftSeedNodes.addAll(requests.get(j).getLeftSeedNodesWithWeight().keySet());
+        }
+      }
+      collectRightNodeInfo(requests, batchWindowRequestIndices, minEdgeAddedTimestamps[i]);
+    }
+  }
+
+  private void collectRightNodeInfo(
+    List<Request> requests,
+    IntArrayList windowRequestIndices,
+    long minEdgeAddedTimestamp) {
+    int[] seedRequestIndices = new int[windowRequestIndices.size()];
+    double[] seedRequestWeights = new double[windowRequestIndices.size()];
+    LongIterator leftNodeIterator = batchLeftSeedNodes.iterator();
+    while (leftNodeIterator.hasNext()) {
+      long leftNode = leftNodeIterator.nextLong();
+      EdgeIterator edgeIterator =
+        leftIndexedBipartiteGraph.getLeftNodeEdges(leftNode, minEdgeAddedTimestamp, Long.MAX_VALUE);
+      if (edgeIterator == null) {
+        continue;
+      }
+
+      // Find the requests this seed belongs to, along with its weight in each of them
+      int numSeedRequests = 0;
+      for (int i = 0; i < windowRequestIndices.size(); i++) {
+        int requestIndex = windowRequestIndices.getInt(i);
+        Long2DoubleMap leftSeedNodesWithWeight =
+          requests.get(requestIndex).getLeftSeedNodesWithWeight();
+        if (leftSeedNodesWithWeight.containsKey(leftNode)) {
+          seedRequestIndices[numSeedRequests] = requestIndex;
+          seedRequestWeights[numSeedRequests] = leftSeedNodesWithWeight.get(leftNode);
+          numSeedRequests++;
+          batchSeenEdgesPerNode.get(requestIndex).clear();
+        }
+      }
+
+      int numEdgesPerNode = 0;
+      // Sequentially iterating through the latest MAX_EDGES_PER_NODE edges per node
+      while (edgeIterator.hasNext() && numEdgesPerNode++ < RecommendationRequest.MAX_EDGES_PER_NODE) {
+        long rightNode = edgeIterator.nextLong();
+        byte edgeType = edgeIterator.currentEdgeType();
+        long edgeMetadata = edgeIterator.currentMetadata();
+
+        for (int j = 0; j < numSeedRequests; j++) {
+          int requestIndex = seedRequestIndices[j];
+          Request request = requests.get(requestIndex);
+          Long2ByteMap requestSeenEdgesPerNode = batchSeenEdgesPerNode.get(requestIndex);
+
+          boolean hasSeenRightNodeFromEdge = requestSeenEdgesPerNode.containsKey(rightNode)
+            && requestSeenEdgesPerNode.get(rightNode) == edgeType;
+
+          if (!hasSeenRightNodeFromEdge
+            && isEdgeUpdateValid(request, rightNode, edgeType, edgeMetadata)) {
+            requestSeenEdgesPerNode.put(rightNode, edgeType);
+            updateNodeInfo(
+              batchVisitedRightNodes.get(requestIndex),
+              leftNode,
+              rightNode,
+              edgeType,
+              edgeMetadata,
+              seedRequestWeights[j],
+              edgeIterator,
+              request.getMaxSocialProofTypeSize());
+          }
+        }
+      }
+    }
+  }
+
+  private void updateAlgorithmStats(long queryNode, RequestContext requestContext) {
+    RecommendationStats stats = requestContext.getStats();
+    stats.setNumDirectNeighbors(
       leftIndexedBipartiteGraph.getLeftNodeDegree(queryNode)
     );
 
@@ -203,7 +433,8 @@ public abstract class TopSecondDegreeByCount<Request extends TopSecondDegreeByCo
     int maxVisitsPerRightNode = 0;
     int numRHSVisits = 0;
 
-    for (Long2ObjectMap.Entry<NodeInfo> entry: visitedRightNodes.long2ObjectEntrySet()) {
+    Long2ObjectMap<NodeInfo> requestVisitedRightNodes = requestContext.getVisitedRightNodes();
+    for (Long2ObjectMap.Entry<NodeInfo> entry: requestVisitedRightNodes.long2ObjectEntrySet()) {
       NodeInfo nodeInfo = entry.getValue();
       int numVisits = nodeInfo.getNumVisits();
 
@@ -212,32 +443,33 @@ public abstract class TopSecondDegreeByCount<Request extends TopSecondDegreeByCo
       numRHSVisits += numVisits;
     }
 
-    topSecondDegreeByCountStats.setMinVisitsPerRightNode(minVisitsPerRightNode);
-    topSecondDegreeByCountStats.setMaxVisitsPerRightNode(maxVisitsPerRightNode);
-    topSecondDegreeByCountStats.setNumRHSVisits(numRHSVisits);
-    topSecondDegreeByCountStats.setNumRightNodesReached(visitedRightNodes.size());
+    stats.setMinVisitsPerRightNode(minVisitsPerRightNode);
+    stats.setMaxVisitsPerRightNode(maxVisitsPerRightNode);
+    stats.setNumRHSVisits(numRHSVisits);
+    stats.setNumRightNodesReached(requestVisitedRightNodes.size());
   }
 
-  private void filterNodeInfo(Request request) {
+  private void filterNodeInfo(Request request, RequestContext requestContext) {
     int numFilteredNodes = 0;
-    for (NodeInfo nodeInfo : visitedRightNodes.values()) {
+    for (NodeInfo nodeInfo : requestContext.getVisitedRightNodes().values()) {
       if (request.filterResult(nodeInfo.getNodeId(), nodeInfo.getSocialProofs())) {
         numFilteredNodes++;
         continue;
       }
       nodeInfosAfterFiltering.add(nodeInfo);
     }
-    topSecondDegreeByCountStats.setNumRightNodesFiltered(numFilteredNodes);
+    requestContext.getStats().setNumRightNodesFiltered(numFilteredNodes);
   }
 
-  protected String getResultLogMessage(Request request) {
+  protected String getResultLogMessage(Request request, RequestContext requestContext) {
+    RecommendationStats stats = requestContext.getStats();
     return "TopSecondDegreeByCount: after running algorithm for request_id = "
       + request.getQueryNode()
-      + ", we get numDirectNeighbors = " + topSecondDegreeByCountStats.getNumDirectNeighbors()
-      + ", numRHSVisits = " + topSecondDegreeByCountStats.getNumRHSVisits()
-      + ", numRightNodesReached = " + topSecondDegreeByCountStats.getNumRightNodesReached()
-      + ", numRightNodesFiltered = " + topSecondDegreeByCountStats.getNumRightNodesFiltered()
-      + ", minVisitsPerRightNode = " + topSecondDegreeByCountStats.getMinVisitsPerRightNode()
-      + ", maxVisitsPerRightNode = " + topSecondDegreeByCountStats.getMaxVisitsPerRightNode();
+      + ", we get numDirectNeighbors = " + stats.getNumDirectNeighbors()
+      + ", numRHSVisits = " + stats.getNumRHSVisits()
+      + ", numRightNodesReached = " + stats.getNumRightNodesReached()
+      + ", numRightNodesFiltered = " + stats.getNumRightNodesFiltered()
+      + ", minVisitsPerRightNode = " + stats.getMinVisitsPerRightNode()
+      + ", maxVisitsPerRightNode = " + stats.getMaxVisitsPerRightNode();
   }
 }
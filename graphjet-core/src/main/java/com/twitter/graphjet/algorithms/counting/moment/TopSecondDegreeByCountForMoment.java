@@ -26,6 +26,8 @@ import com.twitter.graphjet.bipartite.NodeMetadataLeftIndexedMultiSegmentBiparti
 import com.twitter.graphjet.bipartite.api.EdgeIterator;
 import com.twitter.graphjet.stats.StatsReceiver;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+
 public class TopSecondDegreeByCountForMoment extends
   TopSecondDegreeByCount<TopSecondDegreeByCountRequestForMoment, TopSecondDegreeByCountResponse> {
 
@@ -46,6 +48,11 @@ public class TopSecondDegreeByCountForMoment extends
     super(leftIndexedBipartiteGraph, expectedNodesToHit, statsReceiver);
   }
 
+  @Override
+  protected long getMinEdgeAddedTimestamp(TopSecondDegreeByCountRequestForMoment request) {
+    return System.currentTimeMillis() - request.getMaxEdgeAgeInMillis();
+  }
+
   @Override
   protected boolean isEdgeUpdateValid(
     TopSecondDegreeByCountRequestForMoment request,
@@ -58,6 +65,7 @@ public class TopSecondDegreeByCountForMoment extends
 
   @Override
   protected void updateNodeInfo(
+    Long2ObjectMap<NodeInfo> visitedRightNodes,
     long leftNode,
     long rightNode,
     byte edgeType,
@@ -67,11 +75,11 @@ public class TopSecondDegreeByCountForMoment extends
     int maxSocialProofTypeSize) {
 
     NodeInfo nodeInfo;
-    if (!super.visitedRightNodes.containsKey(rightNode)) {
-      nodeInfo = new NodeInfo(rightNode, 0.0, maxSocialProofTypeSize);
-      super.visitedRightNodes.put(rightNode, nodeInfo);
+    if (!visitedRightNodes.containsKey(rightNode)) {
+      nodeInfo = nodeInfoPool.acquire(rightNode, 0.0, maxSocialProofTypeSize);
+      visitedRightNodes.put(rightNode, nodeInfo);
     } else {
-      nodeInfo = super.visitedRightNodes.get(rightNode);
+      nodeInfo = visitedRightNodes.get(rightNode);
     }
     nodeInfo.addToWeight(weight);
     nodeInfo.addToSocialProof(leftNode, edgeType, edgeMetadata, weight);
@@ -79,15 +87,18 @@ public class TopSecondDegreeByCountForMoment extends
 
   @Override
   public TopSecondDegreeByCountResponse generateRecommendationFromNodeInfo(
-      TopSecondDegreeByCountRequestForMoment request) {
+      TopSecondDegreeByCountRequestForMoment request,
+      RequestContext requestContext) {
     List<RecommendationInfo> momentRecommendations =
       TopSecondDegreeByCountMomentRecsGenerator.generateMomentRecs(
         request,
         super.nodeInfosAfterFiltering);
 
-    LOG.info(getResultLogMessage(request)
-      + ", numMomentResults = " + momentRecommendations.size()
-      + ", totalResults = " + momentRecommendations.size());
-    return new TopSecondDegreeByCountResponse(momentRecommendations, topSecondDegreeByCountStats);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(getResultLogMessage(request, requestContext)
+        + ", numMomentResults = " + momentRecommendations.size()
+        + ", totalResults = " + momentRecommendations.size());
+    }
+    return new TopSecondDegreeByCountResponse(momentRecommendations, requestContext.getStats());
   }
 }
@@ -16,10 +16,8 @@
 
 package com.twitter.graphjet.algorithms.counting.moment;
 
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 
 import com.google.common.collect.Lists;
 
@@ -46,19 +44,19 @@ public final class TopSecondDegreeByCountMomentRecsGenerator {
 
     int maxNumResults = Math.min(request.getMaxNumResults(), RecommendationRequest.MAX_RECOMMENDATION_RESULTS);
 
-    PriorityQueue<NodeInfo> validNodes =
-      GeneratorHelper.getValidNodes(candidateNodes, request.getMinUserPerSocialProof(), maxNumResults);
+    List<NodeInfo> validNodes =
+      GeneratorHelper.getTopValidNodes(
+        candidateNodes, request.getMinUserPerSocialProof(), maxNumResults);
 
     return getRecommendationsFromNodes(request, validNodes);
   }
 
   private static List<RecommendationInfo> getRecommendationsFromNodes(
     TopSecondDegreeByCountRequestForMoment request,
-    PriorityQueue<NodeInfo> topNodes) {
+    List<NodeInfo> topNodes) {
     List<RecommendationInfo> outputResults = Lists.newArrayListWithCapacity(topNodes.size());
 
-    while (!topNodes.isEmpty()) {
-      NodeInfo nodeInfo = topNodes.poll();
+    for (NodeInfo nodeInfo : topNodes) {
 
       Map<Byte, ConnectingUsersWithMetadata> topSocialProofs = GeneratorHelper.pickTopSocialProofs(
         nodeInfo.getSocialProofs()
@@ -70,7 +68,6 @@ public final class TopSecondDegreeByCountMomentRecsGenerator {
         topSocialProofs);
       outputResults.add(momentRecs);
     }
-    Collections.reverse(outputResults);
     return outputResults;
   }
 }
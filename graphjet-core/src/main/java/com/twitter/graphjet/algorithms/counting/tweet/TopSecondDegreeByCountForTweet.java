@@ -31,6 +31,8 @@ import com.twitter.graphjet.bipartite.api.EdgeIterator;
 import com.twitter.graphjet.hashing.IntArrayIterator;
 import com.twitter.graphjet.stats.StatsReceiver;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+
 public class TopSecondDegreeByCountForTweet extends
   TopSecondDegreeByCount<TopSecondDegreeByCountRequestForTweet, TopSecondDegreeByCountResponse> {
   // Max number of node metadata associated with each right node.
@@ -86,6 +88,11 @@ public class TopSecondDegreeByCountForTweet extends
     }
   }
 
+  @Override
+  protected long getMinEdgeAddedTimestamp(TopSecondDegreeByCountRequestForTweet request) {
+    return System.currentTimeMillis() - request.getMaxEdgeAgeInMillis();
+  }
+
   @Override
   protected boolean isEdgeUpdateValid(
     TopSecondDegreeByCountRequestForTweet request,
@@ -127,6 +134,7 @@ public class TopSecondDegreeByCountForTweet extends
 
   @Override
   protected void updateNodeInfo(
+    Long2ObjectMap<NodeInfo> visitedRightNodes,
     long leftNode,
     long rightNode,
     byte edgeType,
@@ -136,12 +144,12 @@ public class TopSecondDegreeByCountForTweet extends
     int maxSocialProofTypeSize) {
 
     NodeInfo nodeInfo;
-    if (!super.visitedRightNodes.containsKey(rightNode)) {
+    if (!visitedRightNodes.containsKey(rightNode)) {
       int[][] nodeMetadata = collectNodeMetadata(edgeIterator);
-      nodeInfo = new NodeInfo(rightNode, nodeMetadata, 0.0, maxSocialProofTypeSize);
-      super.visitedRightNodes.put(rightNode, nodeInfo);
+      nodeInfo = nodeInfoPool.acquire(rightNode, nodeMetadata, 0.0, maxSocialProofTypeSize);
+      visitedRightNodes.put(rightNode, nodeInfo);
     } else {
-      nodeInfo = super.visitedRightNodes.get(rightNode);
+      nodeInfo = visitedRightNodes.get(rightNode);
     }
 
     nodeInfo.addToWeight(weight);
@@ -150,7 +158,8 @@ public class TopSecondDegreeByCountForTweet extends
 
   @Override
   public TopSecondDegreeByCountResponse generateRecommendationFromNodeInfo(
-    TopSecondDegreeByCountRequestForTweet request) {
+    TopSecondDegreeByCountRequestForTweet request,
+    RequestContext requestContext) {
     int numTweetResults = 0;
     int numHashtagResults = 0;
     int numUrlResults = 0;
@@ -186,13 +195,15 @@ public class TopSecondDegreeByCountForTweet extends
       recommendations.addAll(urlRecommendations);
     }
 
-    LOG.info(getResultLogMessage(request)
-      + ", numTweetResults = " + numTweetResults
-      + ", numHashtagResults = " + numHashtagResults
-      + ", numUrlResults = " + numUrlResults
-      + ", totalResults = " + (numTweetResults + numHashtagResults + numUrlResults)
-    );
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(getResultLogMessage(request, requestContext)
+        + ", numTweetResults = " + numTweetResults
+        + ", numHashtagResults = " + numHashtagResults
+        + ", numUrlResults = " + numUrlResults
+        + ", totalResults = " + (numTweetResults + numHashtagResults + numUrlResults)
+      );
+    }
 
-    return new TopSecondDegreeByCountResponse(recommendations, topSecondDegreeByCountStats);
+    return new TopSecondDegreeByCountResponse(recommendations, requestContext.getStats());
   }
 }
@@ -16,9 +16,7 @@
 
 package com.twitter.graphjet.algorithms.counting.tweet;
 
-import java.util.Collections;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.Set;
 
 import com.google.common.collect.Lists;
@@ -27,6 +25,7 @@ import com.twitter.graphjet.algorithms.NodeInfo;
 import com.twitter.graphjet.algorithms.NodeInfoHelper;
 import com.twitter.graphjet.algorithms.RecommendationInfo;
 import com.twitter.graphjet.algorithms.RecommendationType;
+import com.twitter.graphjet.algorithms.TopKSelector;
 import com.twitter.graphjet.algorithms.TweetIDMask;
 import com.twitter.graphjet.algorithms.counting.GeneratorHelper;
 import com.twitter.graphjet.hashing.SmallArrayBasedLongToDoubleMap;
@@ -56,7 +55,7 @@ public final class TopSecondDegreeByCountTweetRecsGenerator {
     int minUserSocialProofSize = GeneratorHelper.getMinUserSocialProofSize(request, RecommendationType.TWEET);
     byte[] validSocialProofs = request.getSocialProofTypes();
 
-    PriorityQueue<NodeInfo> topResults = new PriorityQueue<>(maxNumResults);
+    TopKSelector<NodeInfo> topResults = new TopKSelector<>(maxNumResults);
 
     // handling specific rules of tweet recommendations
     for (NodeInfo nodeInfo : nodeInfoList) {
@@ -73,19 +72,17 @@ public final class TopSecondDegreeByCountTweetRecsGenerator {
           nodeInfo.getSocialProofs(), minUserSocialProofSize, request.getSocialProofTypeUnions())) {
         continue;
       }
-      GeneratorHelper.addResultToPriorityQueue(topResults, nodeInfo, maxNumResults);
+      topResults.offer(nodeInfo, nodeInfo.getWeight());
     }
 
     List<RecommendationInfo> outputResults = Lists.newArrayListWithCapacity(topResults.size());
-    while (!topResults.isEmpty()) {
-      NodeInfo nodeInfo = topResults.poll();
+    for (NodeInfo nodeInfo : topResults.drainDescending()) {
       outputResults.add(
         new TweetRecommendationInfo(
           TWEET_ID_MASK.restore(nodeInfo.getNodeId()),
           nodeInfo.getWeight(),
           GeneratorHelper.pickTopSocialProofs(nodeInfo.getSocialProofs())));
     }
-    Collections.reverse(outputResults);
 
     return outputResults;
   }
@@ -34,6 +34,8 @@ import com.twitter.graphjet.bipartite.api.EdgeIterator;
 import com.twitter.graphjet.hashing.IntArrayIterator;
 import com.twitter.graphjet.stats.StatsReceiver;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+
 public class TopSecondDegreeByCountForTweet extends
   TopSecondDegreeByCount<TopSecondDegreeByCountRequestForTweet, TopSecondDegreeByCountResponse> {
   // Max number of node metadata associated with each right node.
@@ -106,6 +108,7 @@ public class TopSecondDegreeByCountForTweet extends
 
   @Override
   protected void updateNodeInfo(
+    Long2ObjectMap<NodeInfo> visitedRightNodes,
     long leftNode,
     long rightNode,
     byte edgeType,
@@ -115,13 +118,13 @@ public class TopSecondDegreeByCountForTweet extends
     int maxSocialProofTypeSize) {
 
     NodeInfo nodeInfo;
-    if (!super.visitedRightNodes.containsKey(rightNode)) {
+    if (!visitedRightNodes.containsKey(rightNode)) {
       RightNodeMetadataMultiSegmentIterator castedIterator = (RightNodeMetadataMultiSegmentIterator)edgeIterator;
       int[][] nodeMetadata = collectNodeMetadata(rightNode, castedIterator);
-      nodeInfo = new NodeInfo(rightNode, nodeMetadata, 0.0, maxSocialProofTypeSize);
-      super.visitedRightNodes.put(rightNode, nodeInfo);
+      nodeInfo = nodeInfoPool.acquire(rightNode, nodeMetadata, 0.0, maxSocialProofTypeSize);
+      visitedRightNodes.put(rightNode, nodeInfo);
     } else {
-      nodeInfo = super.visitedRightNodes.get(rightNode);
+      nodeInfo = visitedRightNodes.get(rightNode);
     }
 
     nodeInfo.addToWeight(weight);
@@ -130,7 +133,8 @@ public class TopSecondDegreeByCountForTweet extends
 
   @Override
   public TopSecondDegreeByCountResponse generateRecommendationFromNodeInfo(
-    TopSecondDegreeByCountRequestForTweet request) {
+    TopSecondDegreeByCountRequestForTweet request,
+    RequestContext requestContext) {
     int numTweetResults = 0;
 
     List<RecommendationInfo> recommendations = new ArrayList<>();
@@ -144,10 +148,12 @@ public class TopSecondDegreeByCountForTweet extends
       recommendations.addAll(tweetRecommendations);
     }
 
-    LOG.info(getResultLogMessage(request)
-      + ", numTweetResults = " + numTweetResults
-    );
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(getResultLogMessage(request, requestContext)
+        + ", numTweetResults = " + numTweetResults
+      );
+    }
 
-    return new TopSecondDegreeByCountResponse(recommendations, topSecondDegreeByCountStats);
+    return new TopSecondDegreeByCountResponse(recommendations, requestContext.getStats());
   }
 }
@@ -16,9 +16,7 @@
 
 package com.twitter.graphjet.algorithms.counting.tweetfeature;
 
-import java.util.Collections;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.Set;
 
 import com.google.common.collect.Lists;
@@ -28,6 +26,7 @@ import com.twitter.graphjet.algorithms.NodeInfoHelper;
 import com.twitter.graphjet.algorithms.RecommendationInfo;
 import com.twitter.graphjet.algorithms.RecommendationRequest;
 import com.twitter.graphjet.algorithms.RecommendationType;
+import com.twitter.graphjet.algorithms.TopKSelector;
 import com.twitter.graphjet.algorithms.TweetIDMask;
 import com.twitter.graphjet.algorithms.counting.GeneratorHelper;
 import com.twitter.graphjet.algorithms.counting.tweet.TopSecondDegreeByCountRequestForTweet;
@@ -56,7 +55,7 @@ public final class TopSecondDegreeByCountTweetRecsGenerator {
     int minUserSocialProofSize = GeneratorHelper.getMinUserSocialProofSize(request, RecommendationType.TWEET);
     byte[] validSocialProofs = request.getSocialProofTypes();
 
-    PriorityQueue<NodeInfo> topResults = new PriorityQueue<NodeInfo>(maxNumResults);
+    TopKSelector<NodeInfo> topResults = new TopKSelector<>(maxNumResults);
 
     // handling specific rules of tweet recommendations
     for (NodeInfo nodeInfo : nodeInfoList) {
@@ -73,12 +72,11 @@ public final class TopSecondDegreeByCountTweetRecsGenerator {
           nodeInfo.getSocialProofs(), minUserSocialProofSize, request.getSocialProofTypeUnions())) {
         continue;
       }
-      GeneratorHelper.addResultToPriorityQueue(topResults, nodeInfo, maxNumResults);
+      topResults.offer(nodeInfo, nodeInfo.getWeight());
     }
 
     List<RecommendationInfo> outputResults = Lists.newArrayListWithCapacity(topResults.size());
-    while (!topResults.isEmpty()) {
-      NodeInfo nodeInfo = topResults.poll();
+    for (NodeInfo nodeInfo : topResults.drainDescending()) {
       outputResults.add(
         new TweetRecommendationInfo(
           TWEET_ID_MASK.restore(nodeInfo.getNodeId()),
@@ -86,7 +84,6 @@ public final class TopSecondDegreeByCountTweetRecsGenerator {
           GeneratorHelper.pickTopSocialProofs(nodeInfo.getSocialProofs()),
           nodeInfo.getNodeMetadata(TweetFeature.TWEET_FEATURE.getValue())));
     }
-    Collections.reverse(outputResults);
 
     return outputResults;
   }
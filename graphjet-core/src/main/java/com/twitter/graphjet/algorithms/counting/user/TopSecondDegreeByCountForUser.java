@@ -26,6 +26,8 @@ import com.twitter.graphjet.bipartite.NodeMetadataLeftIndexedMultiSegmentBiparti
 import com.twitter.graphjet.bipartite.api.EdgeIterator;
 import com.twitter.graphjet.stats.StatsReceiver;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+
 public class TopSecondDegreeByCountForUser extends
   TopSecondDegreeByCount<TopSecondDegreeByCountRequestForUser, TopSecondDegreeByCountResponse> {
 
@@ -63,6 +65,11 @@ public class TopSecondDegreeByCountForUser extends
     return false;
   }
 
+  @Override
+  protected long getMinEdgeAddedTimestamp(TopSecondDegreeByCountRequestForUser request) {
+    return System.currentTimeMillis() - request.getMaxEdgeAgeInMillis();
+  }
+
   @Override
   protected boolean isEdgeUpdateValid(
     TopSecondDegreeByCountRequestForUser request,
@@ -77,6 +84,7 @@ public class TopSecondDegreeByCountForUser extends
 
   @Override
   protected void updateNodeInfo(
+    Long2ObjectMap<NodeInfo> visitedRightNodes,
     long leftNode,
     long rightNode,
     byte edgeType,
@@ -86,11 +94,11 @@ public class TopSecondDegreeByCountForUser extends
     int maxSocialProofTypeSize) {
 
     NodeInfo nodeInfo;
-    if (!super.visitedRightNodes.containsKey(rightNode)) {
-      nodeInfo = new NodeInfo(rightNode, 0.0, maxSocialProofTypeSize);
-      super.visitedRightNodes.put(rightNode, nodeInfo);
+    if (!visitedRightNodes.containsKey(rightNode)) {
+      nodeInfo = nodeInfoPool.acquire(rightNode, 0.0, maxSocialProofTypeSize);
+      visitedRightNodes.put(rightNode, nodeInfo);
     } else {
-      nodeInfo = super.visitedRightNodes.get(rightNode);
+      nodeInfo = visitedRightNodes.get(rightNode);
     }
     nodeInfo.addToWeight(weight);
     nodeInfo.addToSocialProof(leftNode, edgeType, edgeMetadata, weight);
@@ -98,15 +106,18 @@ public class TopSecondDegreeByCountForUser extends
 
   @Override
   public TopSecondDegreeByCountResponse generateRecommendationFromNodeInfo(
-    TopSecondDegreeByCountRequestForUser request) {
+    TopSecondDegreeByCountRequestForUser request,
+    RequestContext requestContext) {
     List<RecommendationInfo> userRecommendations =
       TopSecondDegreeByCountUserRecsGenerator.generateUserRecs(
         request,
         super.nodeInfosAfterFiltering);
 
-    LOG.info(getResultLogMessage(request)
-      + ", numUserResults = " + userRecommendations.size()
-      + ", totalResults = " + userRecommendations.size());
-    return new TopSecondDegreeByCountResponse(userRecommendations, topSecondDegreeByCountStats);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug(getResultLogMessage(request, requestContext)
+        + ", numUserResults = " + userRecommendations.size()
+        + ", totalResults = " + userRecommendations.size());
+    }
+    return new TopSecondDegreeByCountResponse(userRecommendations, requestContext.getStats());
   }
 }
@@ -17,18 +17,16 @@
 
 package com.twitter.graphjet.algorithms.intersection;
 
-import java.util.Collections;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.Random;
 
-import com.google.common.collect.Lists;
-
 import com.twitter.graphjet.algorithms.RecommendationRequest;
 import com.twitter.graphjet.algorithms.SimilarityAlgorithm;
 import com.twitter.graphjet.algorithms.SimilarityInfo;
 import com.twitter.graphjet.algorithms.SimilarityResponse;
+import com.twitter.graphjet.algorithms.TopKSelector;
 import com.twitter.graphjet.algorithms.filters.RelatedTweetFilterChain;
+import com.twitter.graphjet.bipartite.ReadEpochs;
 import com.twitter.graphjet.bipartite.api.BipartiteGraph;
 import com.twitter.graphjet.bipartite.api.EdgeIterator;
 import com.twitter.graphjet.stats.Counter;
@@ -77,6 +75,16 @@ public class IntersectionSimilarity implements
   @Override
   public SimilarityResponse getSimilarNodes(IntersectionSimilarityRequest request, Random random,
                                             RelatedTweetFilterChain filterChain) {
+    long readEpoch = ReadEpochs.enter(bipartiteGraph);
+    try {
+      return getSimilarNodesInReadEpoch(request, random, filterChain);
+    } finally {
+      ReadEpochs.exit(bipartiteGraph, readEpoch);
+    }
+  }
+
+  private SimilarityResponse getSimilarNodesInReadEpoch(
+      IntersectionSimilarityRequest request, Random random, RelatedTweetFilterChain filterChain) {
     long queryNode = request.getQueryNode();
     LongSet seedSet = request.getSeedSet();
     int queryNodeDegree = bipartiteGraph.getRightNodeDegree(queryNode);
@@ -158,7 +166,7 @@ public class IntersectionSimilarity implements
       request.getMaxNumResults(),
       RecommendationRequest.MAX_RECOMMENDATION_RESULTS
     );
-    PriorityQueue<SimilarityInfo> topResults = new PriorityQueue<SimilarityInfo>(maxNumResults);
+    TopKSelector<SimilarityInfo> topResults = new TopKSelector<>(maxNumResults);
     for (long similarNode : nodeToWeightedCooccurenceCountsMap.keySet()) {
       double cooccurrence = nodeToWeightedCooccurenceCountsMap.get(similarNode);
       int rawCooccurrence = nodeToCooccurrenceCountsMap.get(similarNode);
@@ -171,18 +179,13 @@ public class IntersectionSimilarity implements
           cooccurrence, similarNodeDegree, queryNodeDegree);
       normWeight = Double.isInfinite(normWeight) ? 0 : normWeight;
       double score = cooccurrence * normWeight;
-      if (topResults.size() < maxNumResults) {
-        topResults.add(new SimilarityInfo(similarNode, score, rawCooccurrence, similarNodeDegree));
-      } else if (score > topResults.peek().getWeight()) {
-        topResults.poll();
-        topResults.add(new SimilarityInfo(similarNode, score, rawCooccurrence, similarNodeDegree));
+      // only create the result once we know it makes it into the top results
+      if (topResults.wouldAccept(score)) {
+        topResults.offer(
+            new SimilarityInfo(similarNode, score, rawCooccurrence, similarNodeDegree), score);
       }
     }
-    List<SimilarityInfo> outputResults = Lists.newArrayListWithCapacity(topResults.size());
-    while (!topResults.isEmpty()) {
-      outputResults.add(topResults.poll());
-    }
-    Collections.reverse(outputResults);
+    List<SimilarityInfo> outputResults = topResults.drainDescending();
 
     return new SimilarityResponse(outputResults, queryNodeDegree);
   }
@@ -0,0 +1,185 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.algorithms.personalizedpagerank;
+
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.twitter.graphjet.algorithms.RecommendationAlgorithm;
+import com.twitter.graphjet.algorithms.RecommendationStats;
+import com.twitter.graphjet.algorithms.RecommendationStatsRecorder;
+import com.twitter.graphjet.bipartite.ReadEpochs;
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+import com.twitter.graphjet.directed.api.OutIndexedDirectedGraph;
+import com.twitter.graphjet.stats.Counter;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+import it.unimi.dsi.fastutil.longs.Long2DoubleMap;
+import it.unimi.dsi.fastutil.longs.Long2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+/**
+ * <p>
+ * Approximate personalized PageRank computed with forward push, as in Andersen, Chung and Lang,
+ * "Local Graph Partitioning using PageRank Vectors". The PageRank mass starts as residual on the
+ * seed nodes. Pushing a node moves the reset probability share of its residual into its estimate
+ * and spreads the rest evenly over its out-neighbors' residuals. Only the nodes whose residual per
+ * outgoing edge is at least the residual threshold are pushed, so the computation stays local to
+ * the seeds: the estimate of every node is within its out-degree times the threshold of its
+ * personalized PageRank, and the work is bounded both by the threshold and by the maximum number
+ * of pushes. The residual of a node without outgoing edges is moved into its estimate entirely.
+ * </p>
+ *
+ * <p>
+ * Unlike {@link MonteCarloPersonalizedPageRank}, the result is deterministic and does not use the
+ * random number generator, but a push reads all the out-edges of a node.
+ * </p>
+ *
+ * <p>
+ * The object can be reused for answering many different queries on the same graph, but only one
+ * at a time.
+ * </p>
+ */
+public class ForwardPushPersonalizedPageRank
+    implements RecommendationAlgorithm<PersonalizedPageRankRequest, PersonalizedPageRankResponse> {
+  private static final Logger LOG = LoggerFactory.getLogger("graph");
+
+  private final OutIndexedDirectedGraph graph;
+  private final Long2DoubleOpenHashMap estimates;
+  private final Long2DoubleOpenHashMap residuals;
+  private final LongArrayFIFOQueue queue;
+  private final LongOpenHashSet queuedNodes;
+  private final PersonalizedPageRankSelectResults selectResults;
+
+  private final StatsReceiver statsReceiver;
+  private final Counter numRequestsCounter;
+  private final RecommendationStatsRecorder statsRecorder;
+
+  /**
+   * This initializes all the state needed to run personalized PageRank.
+   *
+   * @param graph               is the graph to push over
+   * @param expectedNodesToHit  is an estimate of how many nodes can be hit by the pushes of a
+   *                            request. This is purely for allocating needed memory right up front
+   *                            to make requests fast.
+   * @param statsReceiver       tracks the internal stats
+   */
+  public ForwardPushPersonalizedPageRank(
+      OutIndexedDirectedGraph graph,
+      int expectedNodesToHit,
+      StatsReceiver statsReceiver) {
+    this.graph = graph;
+    this.estimates = new Long2DoubleOpenHashMap(expectedNodesToHit);
+    this.residuals = new Long2DoubleOpenHashMap(expectedNodesToHit);
+    this.queue = new LongArrayFIFOQueue();
+    this.queuedNodes = new LongOpenHashSet(expectedNodesToHit);
+    this.selectResults = new PersonalizedPageRankSelectResults();
+    this.statsReceiver = statsReceiver.scope("ForwardPushPersonalizedPageRank");
+    this.numRequestsCounter = this.statsReceiver.counter("numRequests");
+    this.statsRecorder = new RecommendationStatsRecorder(this.statsReceiver);
+  }
+
+  @Override
+  public PersonalizedPageRankResponse computeRecommendations(
+      PersonalizedPageRankRequest request, Random random) {
+    long readEpoch = ReadEpochs.enter(graph);
+    try {
+      return computeRecommendationsInReadEpoch(request, random);
+    } finally {
+      ReadEpochs.exit(graph, readEpoch);
+    }
+  }
+
+  private PersonalizedPageRankResponse computeRecommendationsInReadEpoch(
+      PersonalizedPageRankRequest request, Random random) {
+    numRequestsCounter.incr();
+    long startTime = System.nanoTime();
+    RecommendationStats stats = new RecommendationStats();
+    stats.setNumDirectNeighbors(graph.getOutDegree(request.getQueryNode()));
+
+    estimates.clear();
+    residuals.clear();
+    queue.clear();
+    queuedNodes.clear();
+
+    double resetProbability = request.getResetProbability();
+    double threshold = request.getResidualThreshold();
+    Long2DoubleMap seeds = request.getSeedNodesWithWeight();
+    if (seeds == null || seeds.isEmpty()) {
+      addResidual(request.getQueryNode(), 1.0, threshold);
+    } else {
+      double totalWeight = 0.0;
+      for (Long2DoubleMap.Entry entry : seeds.long2DoubleEntrySet()) {
+        totalWeight += entry.getDoubleValue();
+      }
+      for (Long2DoubleMap.Entry entry : seeds.long2DoubleEntrySet()) {
+        addResidual(entry.getLongKey(), entry.getDoubleValue() / totalWeight, threshold);
+      }
+    }
+
+    int numPushes = 0;
+    int numEdgesRead = 0;
+    while (!queue.isEmpty() && numPushes < request.getMaxNumPushes()) {
+      long node = queue.dequeueLong();
+      queuedNodes.remove(node);
+      double residual = residuals.remove(node);
+      numPushes++;
+
+      int outDegree = graph.getOutDegree(node);
+      EdgeIterator neighbors = outDegree > 0 ? graph.getOutEdges(node) : null;
+      if (neighbors == null) {
+        estimates.addTo(node, residual);
+        continue;
+      }
+      estimates.addTo(node, resetProbability * residual);
+      double share = (1.0 - resetProbability) * residual / outDegree;
+      while (neighbors.hasNext()) {
+        addResidual(neighbors.nextLong(), share, threshold);
+        numEdgesRead++;
+      }
+    }
+    stats.setNumRHSVisits(numEdgesRead);
+
+    PersonalizedPageRankResponse response = selectResults.pickTopNodes(request, estimates, stats);
+
+    statsRecorder.record(stats, System.nanoTime() - startTime);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("ForwardPushPersonalizedPageRank: request_id = " + request.getQueryNode()
+          + " with numPushes = " + numPushes
+          + " and " + queue.size() + " nodes left to push got " + stats);
+    }
+    return response;
+  }
+
+  /**
+   * Adds to the residual of a node, and queues the node for a push once its residual per outgoing
+   * edge reaches the threshold.
+   */
+  private void addResidual(long node, double amount, double threshold) {
+    double residual = residuals.addTo(node, amount) + amount;
+    // the degree lookup is skipped for the many nodes that are far below the threshold anyway
+    if (residual >= threshold
+        && !queuedNodes.contains(node)
+        && residual >= threshold * Math.max(1, graph.getOutDegree(node))) {
+      queue.enqueue(node);
+      queuedNodes.add(node);
+    }
+  }
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.algorithms.personalizedpagerank;
+
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.twitter.graphjet.algorithms.RecommendationAlgorithm;
+import com.twitter.graphjet.algorithms.RecommendationStats;
+import com.twitter.graphjet.algorithms.RecommendationStatsRecorder;
+import com.twitter.graphjet.bipartite.ReadEpochs;
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+import com.twitter.graphjet.directed.api.OutIndexedDirectedGraph;
+import com.twitter.graphjet.stats.Counter;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+import it.unimi.dsi.fastutil.longs.Long2DoubleMap;
+import it.unimi.dsi.fastutil.longs.Long2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+/**
+ * <p>
+ * Personalized PageRank, also known as random walk with restart, estimated with Monte Carlo random
+ * walks. Every walk starts at a seed node picked in proportion to the seed weights, and at every
+ * step it either terminates with the reset probability or moves to a random out-neighbor. The
+ * score of a node is the fraction of all the steps that visited it, which is an estimate of its
+ * personalized PageRank with respect to the seeds. Walks also terminate at nodes without outgoing
+ * edges and after the maximum walk length, so the work of a request is bounded by the number of
+ * walks times the maximum walk length, and is on average the number of walks divided by the reset
+ * probability.
+ * </p>
+ *
+ * <p>
+ * The walks are run in lock-step and grouped by the node they are at, so that a node reached by k
+ * walks is sampled once for k neighbors, see
+ * {@link OutIndexedDirectedGraph#getRandomOutEdges(long, int, Random)}, which for multi-segment
+ * graphs samples across segments in proportion to their degrees.
+ * </p>
+ *
+ * <p>
+ * The algorithm runs over any {@link OutIndexedDirectedGraph}, including a left-indexed bipartite
+ * graph where left and right nodes share the same ids, see
+ * {@link com.twitter.graphjet.directed.LeftIndexedBipartiteDirectedGraph}. The object can be reused
+ * for answering many different queries on the same graph, but only one at a time.
+ * </p>
+ */
+public class MonteCarloPersonalizedPageRank
+    implements RecommendationAlgorithm<PersonalizedPageRankRequest, PersonalizedPageRankResponse> {
+  private static final Logger LOG = LoggerFactory.getLogger("graph");
+
+  private final OutIndexedDirectedGraph graph;
+  private final Long2IntOpenHashMap visitCounts;
+  private Long2IntOpenHashMap currentWalks;
+  private Long2IntOpenHashMap nextWalks;
+  private final PersonalizedPageRankSelectResults selectResults;
+
+  private final StatsReceiver statsReceiver;
+  private final Counter numRequestsCounter;
+  private final RecommendationStatsRecorder statsRecorder;
+
+  /**
+   * This initializes all the state needed to run personalized PageRank.
+   *
+   * @param graph               is the graph to walk over
+   * @param expectedNodesToHit  is an estimate of how many nodes can be hit by the walks of a
+   *                            request. This is purely for allocating needed memory right up front
+   *                            to make requests fast.
+   * @param statsReceiver       tracks the internal stats
+   */
+  public MonteCarloPersonalizedPageRank(
+      OutIndexedDirectedGraph graph,
+      int expectedNodesToHit,
+      StatsReceiver statsReceiver) {
+    this.graph = graph;
+    this.visitCounts = new Long2IntOpenHashMap(expectedNodesToHit);
+    this.currentWalks = new Long2IntOpenHashMap(expectedNodesToHit);
+    this.nextWalks = new Long2IntOpenHashMap(expectedNodesToHit);
+    this.selectResults = new PersonalizedPageRankSelectResults();
+    this.statsReceiver = statsReceiver.scope("MonteCarloPersonalizedPageRank");
+    this.numRequestsCounter = this.statsReceiver.counter("numRequests");
+    this.statsRecorder = new RecommendationStatsRecorder(this.statsReceiver);
+  }
+
+  @Override
+  public PersonalizedPageRankResponse computeRecommendations(
+      PersonalizedPageRankRequest request, Random random) {
+    long readEpoch = ReadEpochs.enter(graph);
+    try {
+      return computeRecommendationsInReadEpoch(request, random);
+    } finally {
+      ReadEpochs.exit(graph, readEpoch);
+    }
+  }
+
+  private PersonalizedPageRankResponse computeRecommendationsInReadEpoch(
+      PersonalizedPageRankRequest request, Random random) {
+    numRequestsCounter.incr();
+    long startTime = System.nanoTime();
+    RecommendationStats stats = new RecommendationStats();
+    stats.setNumDirectNeighbors(graph.getOutDegree(request.getQueryNode()));
+
+    visitCounts.clear();
+    currentWalks.clear();
+    startWalks(request, random);
+
+    double resetProbability = request.getResetProbability();
+    int numVisits = 0;
+    for (int step = 0; step < request.getMaxRandomWalkLength() && !currentWalks.isEmpty(); step++) {
+      boolean lastStep = step == request.getMaxRandomWalkLength() - 1;
+      nextWalks.clear();
+      for (Long2IntMap.Entry entry : currentWalks.long2IntEntrySet()) {
+        long node = entry.getLongKey();
+        int numWalks = entry.getIntValue();
+        visitCounts.addTo(node, numWalks);
+        numVisits += numWalks;
+        if (lastStep) {
+          continue;
+        }
+
+        int numContinuingWalks = 0;
+        for (int i = 0; i < numWalks; i++) {
+          if (random.nextDouble() >= resetProbability) {
+            numContinuingWalks++;
+          }
+        }
+        if (numContinuingWalks == 0) {
+          continue;
+        }
+        EdgeIterator neighbors = graph.getRandomOutEdges(node, numContinuingWalks, random);
+        if (neighbors != null) {
+          while (neighbors.hasNext()) {
+            nextWalks.addTo(neighbors.nextLong(), 1);
+          }
+        }
+      }
+      Long2IntOpenHashMap swap = currentWalks;
+      currentWalks = nextWalks;
+      nextWalks = swap;
+    }
+    stats.setNumRHSVisits(numVisits);
+
+    Long2DoubleMap scores = new Long2DoubleOpenHashMap(visitCounts.size());
+    for (Long2IntMap.Entry entry : visitCounts.long2IntEntrySet()) {
+      stats.updateVisitStatsPerRightNode(entry.getIntValue());
+      scores.put(entry.getLongKey(), (double) entry.getIntValue() / numVisits);
+    }
+    PersonalizedPageRankResponse response = selectResults.pickTopNodes(request, scores, stats);
+
+    statsRecorder.record(stats, System.nanoTime() - startTime);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("MonteCarloPersonalizedPageRank: request_id = " + request.getQueryNode()
+          + " with numRandomWalks = " + request.getNumRandomWalks()
+          + " got " + stats);
+    }
+    return response;
+  }
+
+  /**
+   * Spreads the walks over the seeds, in proportion to their weights.
+   */
+  private void startWalks(PersonalizedPageRankRequest request, Random random) {
+    Long2DoubleMap seeds = request.getSeedNodesWithWeight();
+    int numRandomWalks = request.getNumRandomWalks();
+    if (seeds == null || seeds.isEmpty()) {
+      currentWalks.put(request.getQueryNode(), numRandomWalks);
+      return;
+    }
+    double totalWeight = 0.0;
+    for (Long2DoubleMap.Entry entry : seeds.long2DoubleEntrySet()) {
+      totalWeight += entry.getDoubleValue();
+    }
+    // Every seed gets the integer part of its share, and the walks left over are spread at random
+    int numStartedWalks = 0;
+    for (Long2DoubleMap.Entry entry : seeds.long2DoubleEntrySet()) {
+      int numWalks = (int) (numRandomWalks * entry.getDoubleValue() / totalWeight);
+      if (numWalks > 0) {
+        currentWalks.addTo(entry.getLongKey(), numWalks);
+        numStartedWalks += numWalks;
+      }
+    }
+    long[] seedNodes = seeds.keySet().toLongArray();
+    double[] seedWeights = seeds.values().toDoubleArray();
+    for (; numStartedWalks < numRandomWalks; numStartedWalks++) {
+      double target = random.nextDouble() * totalWeight;
+      int i = 0;
+      while (i < seedNodes.length - 1 && target >= seedWeights[i]) {
+        target -= seedWeights[i++];
+      }
+      currentWalks.addTo(seedNodes[i], 1);
+    }
+  }
+}
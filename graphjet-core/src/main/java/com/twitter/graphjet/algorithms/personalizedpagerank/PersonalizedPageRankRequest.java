@@ -0,0 +1,126 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.algorithms.personalizedpagerank;
+
+import com.twitter.graphjet.algorithms.RecommendationRequest;
+import com.twitter.graphjet.algorithms.filters.ResultFilterChain;
+import com.twitter.graphjet.hashing.SmallArrayBasedLongToDoubleMap;
+
+import it.unimi.dsi.fastutil.longs.Long2DoubleMap;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+/**
+ * This class encapsulates a personalized PageRank request, used by both
+ * {@link MonteCarloPersonalizedPageRank} and {@link ForwardPushPersonalizedPageRank}. Each of them
+ * only reads the parameters that bound its own work.
+ */
+public class PersonalizedPageRankRequest extends RecommendationRequest {
+  private static final byte[] NO_SOCIAL_PROOF_TYPES = new byte[0];
+
+  private final Long2DoubleMap seedNodesWithWeight;
+  private final double resetProbability;
+  private final int maxNumResults;
+  private final int numRandomWalks;
+  private final int maxRandomWalkLength;
+  private final double residualThreshold;
+  private final int maxNumPushes;
+  private final ResultFilterChain resultFilterChain;
+
+  /**
+   * Create a new request.
+   *
+   * @param queryNode            is the query node, which is never returned as a result
+   * @param seedNodesWithWeight  is the set of nodes the walks restart from, with weights being the
+   *                             proportion of restarts to each of them. The query node is used as
+   *                             the only seed if this is empty.
+   * @param toBeFiltered         is the set of nodes to be filtered from the output
+   * @param resetProbability     is the probability of restarting from the seeds at each step
+   * @param maxNumResults        is the maximum number of results to return
+   * @param numRandomWalks       is the number of random walks to run, for the Monte Carlo variant
+   * @param maxRandomWalkLength  is the maximum length of a random walk, for the Monte Carlo variant
+   * @param residualThreshold    is the residual per outgoing edge below which a node is not pushed
+   *                             any more, for the forward push variant
+   * @param maxNumPushes         is the maximum number of pushes, for the forward push variant
+   * @param resultFilterChain    is the chain of filters to be applied, or null for none
+   */
+  public PersonalizedPageRankRequest(
+      long queryNode,
+      Long2DoubleMap seedNodesWithWeight,
+      LongSet toBeFiltered,
+      double resetProbability,
+      int maxNumResults,
+      int numRandomWalks,
+      int maxRandomWalkLength,
+      double residualThreshold,
+      int maxNumPushes,
+      ResultFilterChain resultFilterChain) {
+    super(queryNode, toBeFiltered, NO_SOCIAL_PROOF_TYPES);
+    this.seedNodesWithWeight = seedNodesWithWeight;
+    this.resetProbability = resetProbability;
+    this.maxNumResults = maxNumResults;
+    this.numRandomWalks = numRandomWalks;
+    this.maxRandomWalkLength = maxRandomWalkLength;
+    this.residualThreshold = residualThreshold;
+    this.maxNumPushes = maxNumPushes;
+    this.resultFilterChain = resultFilterChain;
+  }
+
+  public Long2DoubleMap getSeedNodesWithWeight() {
+    return seedNodesWithWeight;
+  }
+
+  public double getResetProbability() {
+    return resetProbability;
+  }
+
+  public int getMaxNumResults() {
+    return maxNumResults;
+  }
+
+  public int getNumRandomWalks() {
+    return numRandomWalks;
+  }
+
+  public int getMaxRandomWalkLength() {
+    return maxRandomWalkLength;
+  }
+
+  public double getResidualThreshold() {
+    return residualThreshold;
+  }
+
+  public int getMaxNumPushes() {
+    return maxNumPushes;
+  }
+
+  public void resetFilters() {
+    if (resultFilterChain != null) {
+      resultFilterChain.resetFilters(this);
+    }
+  }
+
+  /**
+   * filter the given result
+   * @param result is the node to check for filtering
+   * @param socialProofs is the socialProofs of different types associated with the node
+   * @return true if the node should be discarded, false otherwise
+   */
+  public boolean filterResult(long result, SmallArrayBasedLongToDoubleMap[] socialProofs) {
+    return (getToBeFiltered() != null && getToBeFiltered().contains(result))
+        || (resultFilterChain != null && resultFilterChain.filterResult(result, socialProofs));
+  }
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.algorithms.personalizedpagerank;
+
+import com.twitter.graphjet.algorithms.RecommendationInfo;
+import com.twitter.graphjet.algorithms.RecommendationResponse;
+import com.twitter.graphjet.algorithms.RecommendationStats;
+
+/**
+ * A simple wrapper around {@link RecommendationResponse} that also allows returning
+ * {@link RecommendationStats} from the personalized PageRank computation.
+ */
+public class PersonalizedPageRankResponse extends RecommendationResponse {
+  private final RecommendationStats recommendationStats;
+
+  public PersonalizedPageRankResponse(
+      Iterable<RecommendationInfo> rankedRecommendations,
+      RecommendationStats recommendationStats) {
+    super(rankedRecommendations);
+    this.recommendationStats = recommendationStats;
+  }
+
+  public RecommendationStats getRecommendationStats() {
+    return recommendationStats;
+  }
+}
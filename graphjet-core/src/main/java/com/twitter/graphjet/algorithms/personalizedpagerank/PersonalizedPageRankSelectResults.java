@@ -0,0 +1,83 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.algorithms.personalizedpagerank;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.twitter.graphjet.algorithms.ConnectingUsersWithMetadata;
+import com.twitter.graphjet.algorithms.RecommendationInfo;
+import com.twitter.graphjet.algorithms.RecommendationRequest;
+import com.twitter.graphjet.algorithms.RecommendationStats;
+import com.twitter.graphjet.algorithms.TopKSelector;
+import com.twitter.graphjet.algorithms.counting.user.UserRecommendationInfo;
+import com.twitter.graphjet.hashing.SmallArrayBasedLongToDoubleMap;
+
+import it.unimi.dsi.fastutil.longs.Long2DoubleMap;
+
+/**
+ * This class selects the top recommendations from the personalized PageRank scores of a request.
+ */
+class PersonalizedPageRankSelectResults {
+  // Personalized PageRank does not track social proofs, so the filters are handed empty ones
+  private static final SmallArrayBasedLongToDoubleMap[] NO_SOCIAL_PROOFS =
+      new SmallArrayBasedLongToDoubleMap[RecommendationRequest.MAX_SOCIAL_PROOF_TYPE_SIZE];
+
+  private final TopKSelector<RecommendationInfo> topResults =
+      new TopKSelector<>(RecommendationRequest.MAX_RECOMMENDATION_RESULTS);
+
+  /**
+   * Picks the top-k scored nodes, skipping the query node and the filtered nodes.
+   *
+   * @param request  is the request the scores were computed for
+   * @param scores   is the score of every node reached
+   * @param stats    is where the number of nodes reached and filtered is recorded
+   * @return the response holding the top-k nodes by descending score
+   */
+  PersonalizedPageRankResponse pickTopNodes(
+      PersonalizedPageRankRequest request,
+      Long2DoubleMap scores,
+      RecommendationStats stats) {
+    int maxNumResults =
+        Math.min(request.getMaxNumResults(), RecommendationRequest.MAX_RECOMMENDATION_RESULTS);
+    topResults.reset(maxNumResults);
+    request.resetFilters();
+
+    int numFilteredNodes = 0;
+    for (Long2DoubleMap.Entry entry : scores.long2DoubleEntrySet()) {
+      long node = entry.getLongKey();
+      double score = entry.getDoubleValue();
+      if (node == request.getQueryNode()) {
+        continue;
+      }
+      if (request.filterResult(node, NO_SOCIAL_PROOFS)) {
+        numFilteredNodes++;
+        continue;
+      }
+      if (!topResults.wouldAccept(score)) {
+        continue;
+      }
+      topResults.offer(new UserRecommendationInfo(
+          node, score, Collections.<Byte, ConnectingUsersWithMetadata>emptyMap()), score);
+    }
+    List<RecommendationInfo> outputResults = topResults.drainDescending();
+
+    stats.setNumRightNodesReached(scores.size());
+    stats.setNumRightNodesFiltered(numFilteredNodes);
+    return new PersonalizedPageRankResponse(outputResults, stats);
+  }
+}
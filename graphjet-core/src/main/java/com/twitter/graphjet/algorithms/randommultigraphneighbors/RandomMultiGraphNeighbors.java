@@ -17,15 +17,13 @@
 
 package com.twitter.graphjet.algorithms.randommultigraphneighbors;
 
-import java.util.Collections;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.Random;
 
-import com.google.common.collect.Lists;
-
 import com.twitter.graphjet.algorithms.RecommendationRequest;
+import com.twitter.graphjet.algorithms.TopKSelector;
 import com.twitter.graphjet.algorithms.filters.RelatedTweetFilterChain;
+import com.twitter.graphjet.bipartite.ReadEpochs;
 import com.twitter.graphjet.bipartite.api.BipartiteGraph;
 import com.twitter.graphjet.bipartite.api.EdgeIterator;
 import com.twitter.graphjet.math.AliasTableUtil;
@@ -89,6 +87,18 @@ public class RandomMultiGraphNeighbors {
       RandomMultiGraphNeighborsRequest request,
       Random random,
       RelatedTweetFilterChain filterChain) {
+    long readEpoch = ReadEpochs.enter(bipartiteGraph);
+    try {
+      return getRandomMultiGraphNeighborsInReadEpoch(request, random, filterChain);
+    } finally {
+      ReadEpochs.exit(bipartiteGraph, readEpoch);
+    }
+  }
+
+  private RandomMultiGraphNeighborsResponse getRandomMultiGraphNeighborsInReadEpoch(
+      RandomMultiGraphNeighborsRequest request,
+      Random random,
+      RelatedTweetFilterChain filterChain) {
     Long2DoubleMap leftSeedNodeWithWeights = request.getLeftSeedNodesWithWeight();
     int maxNumSamples = request.getMaxNumSamples();
     int maxNumResults = Math.min(
@@ -129,7 +139,7 @@ public class RandomMultiGraphNeighbors {
     }
 
     // normalize and select top neighbors
-    PriorityQueue<NeighborInfo> topResults = new PriorityQueue<NeighborInfo>(maxNumResults);
+    TopKSelector<NeighborInfo> topResults = new TopKSelector<>(maxNumResults);
     numOfUniqueNeighborsCounter.incr(seedNodeRightNeighbors.size());
     for (Long2IntMap.Entry entry : seedNodeRightNeighbors.long2IntEntrySet()) {
       long neighborNode = entry.getLongKey();
@@ -141,13 +151,9 @@ public class RandomMultiGraphNeighbors {
       int neighborNodeDegree = bipartiteGraph.getRightNodeDegree(neighborNode);
       NeighborInfo neighborInfo = new NeighborInfo(
         neighborNode, (double) occurrence / (double) maxNumSamples, neighborNodeDegree);
-      addResultToPriorityQueue(topResults, neighborInfo, maxNumResults);
+      topResults.offer(neighborInfo, neighborInfo.getScore());
     }
-    List<NeighborInfo> outputResults = Lists.newArrayListWithCapacity(topResults.size());
-    while (!topResults.isEmpty()) {
-      outputResults.add(topResults.poll());
-    }
-    Collections.reverse(outputResults);
+    List<NeighborInfo> outputResults = topResults.drainDescending();
 
     return new RandomMultiGraphNeighborsResponse(outputResults);
   }
@@ -184,24 +190,4 @@ public class RandomMultiGraphNeighbors {
     // now we can construct the alias table
     AliasTableUtil.constructAliasTable(aliasTableArray);
   }
-
-  /**
-   * Add a neighborInfo to the priority queue when the queue is not full
-   * or the score of this neighborInfo is larger then the smallest score in the queue.
-   *
-   * @param topResults                the priority queue
-   * @param neighborInfo              the neighborInfo to be added
-   * @param maxNumResults             the maximum capacity of the queue
-   */
-  private void addResultToPriorityQueue(
-      PriorityQueue<NeighborInfo> topResults,
-      NeighborInfo neighborInfo,
-      int maxNumResults) {
-    if (topResults.size() < maxNumResults) {
-      topResults.add(neighborInfo);
-    } else if (neighborInfo.getScore() > topResults.peek().getScore()) {
-      topResults.poll();
-      topResults.add(neighborInfo);
-    }
-  }
 }
@@ -0,0 +1,166 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.algorithms.salsa;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+/**
+ * This class keeps the number of random walks currently at each node on one side of the graph.
+ * Every distinct node gets a dense slot id the first time it is reached in a request, and a walk
+ * that reaches a node costs a single hash lookup to resolve its slot. Everything else kept about
+ * the node, i.e. its walks and degree here and its NodeInfo in
+ * {@link com.twitter.graphjet.algorithms.salsa.fullgraph.DenseSalsaInternalState}, lives in
+ * arrays indexed by slot, and the nodes that currently have walks are iterated through a list of
+ * their slots rather than by scanning a hash table.
+ *
+ * Slots are kept for the whole request, so that a node that is reached again in a later iteration
+ * reuses its slot, and are only dropped by {@link #reset()}.
+ */
+public final class DenseWalkCounts {
+  private static final int NO_SLOT = -1;
+  private static final int NO_DEGREE = -1;
+
+  private final Long2IntMap slots;
+  private long[] nodes;
+  private int[] numWalks;
+  private int[] degrees;
+  private int numSlots;
+  private final IntArrayList activeSlots;
+
+  /**
+   * Get a new instance that does not need to grow for up to expectedNumNodes nodes.
+   *
+   * @param expectedNumNodes  is the number of distinct nodes expected in a request
+   */
+  public DenseWalkCounts(int expectedNumNodes) {
+    int capacity = Math.max(expectedNumNodes, 16);
+    this.slots = new Long2IntOpenHashMap(capacity);
+    this.slots.defaultReturnValue(NO_SLOT);
+    this.nodes = new long[capacity];
+    this.numWalks = new int[capacity];
+    this.degrees = new int[capacity];
+    this.activeSlots = new IntArrayList(capacity);
+  }
+
+  /**
+   * Returns the slot of the given node, assigning it a new one if needed.
+   *
+   * @param node  is the node to look up
+   * @return the slot of the node
+   */
+  public int getSlot(long node) {
+    int slot = slots.get(node);
+    if (slot == NO_SLOT) {
+      slot = numSlots++;
+      if (slot == nodes.length) {
+        int newCapacity = 2 * nodes.length;
+        long[] newNodes = new long[newCapacity];
+        System.arraycopy(nodes, 0, newNodes, 0, slot);
+        nodes = newNodes;
+        int[] newNumWalks = new int[newCapacity];
+        System.arraycopy(numWalks, 0, newNumWalks, 0, slot);
+        numWalks = newNumWalks;
+        int[] newDegrees = new int[newCapacity];
+        System.arraycopy(degrees, 0, newDegrees, 0, slot);
+        degrees = newDegrees;
+      }
+      nodes[slot] = node;
+      degrees[slot] = NO_DEGREE;
+      slots.put(node, slot);
+    }
+    return slot;
+  }
+
+  /**
+   * Adds walks to the node in the given slot.
+   *
+   * @param slot      is the slot of the node, as returned by {@link #getSlot(long)}
+   * @param newWalks  is the number of walks to add, which must be positive
+   */
+  public void addWalks(int slot, int newWalks) {
+    if (numWalks[slot] == 0) {
+      activeSlots.add(slot);
+    }
+    numWalks[slot] += newWalks;
+  }
+
+  public void addWalks(long node, int newWalks) {
+    addWalks(getSlot(node), newWalks);
+  }
+
+  /**
+   * Returns the number of nodes that currently have walks, which are the ones in the slots
+   * {@link #getActiveSlot(int)} for 0 to this number.
+   */
+  public int getNumActiveSlots() {
+    return activeSlots.size();
+  }
+
+  public int getActiveSlot(int index) {
+    return activeSlots.getInt(index);
+  }
+
+  public long getNode(int slot) {
+    return nodes[slot];
+  }
+
+  public int getNumWalks(int slot) {
+    return numWalks[slot];
+  }
+
+  /**
+   * Returns the degree of the node in the given slot as recorded by {@link #setDegree(int, int)},
+   * so that the graph is looked up once per node rather than once per iteration.
+   *
+   * @param slot  is the slot of the node
+   * @return the degree of the node, or -1 if it was not recorded yet
+   */
+  public int getDegree(int slot) {
+    return degrees[slot];
+  }
+
+  public void setDegree(int slot, int degree) {
+    degrees[slot] = degree;
+  }
+
+  public int getNumSlots() {
+    return numSlots;
+  }
+
+  /**
+   * Removes all the walks while keeping the slots of the nodes, which is what an iteration does
+   * once it has moved the walks to the other side.
+   */
+  public void clearWalks() {
+    for (int i = 0; i < activeSlots.size(); i++) {
+      numWalks[activeSlots.getInt(i)] = 0;
+    }
+    activeSlots.clear();
+  }
+
+  /**
+   * Removes all the walks and the slots, to enable reuse for a new request.
+   */
+  public void reset() {
+    clearWalks();
+    slots.clear();
+    numSlots = 0;
+  }
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.algorithms.salsa;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.twitter.graphjet.algorithms.NodeInfo;
+import com.twitter.graphjet.bipartite.api.LeftIndexedBipartiteGraph;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+
+/**
+ * This class runs the random walks of a single SALSA request on several threads. The walks of every
+ * seed node are split evenly across a number of {@link SalsaIterations} workers, each of which has
+ * its own internal state and visit counters as well as its own random number generator, so the
+ * workers never share any mutable state while walking. Once all the walks are done, the visited
+ * right nodes of the workers are merged into a single internal state, from which
+ * {@link SalsaSelectResults} picks the top nodes as usual.
+ *
+ * Since the random walks are independent, the merged visit counters follow the same distribution as
+ * the ones of a single threaded run with the same number of walks. With a single worker, the
+ * results are exactly the same as the ones of {@link SalsaIterations}.
+ */
+public class ParallelSalsaIterations<T extends LeftIndexedBipartiteGraph> {
+  private static final Logger LOG = LoggerFactory.getLogger("graph");
+
+  private final CommonInternalState<T> salsaInternalState;
+  private final List<SalsaIterations<T>> workers;
+  private final ExecutorService executorService;
+  private final Long2IntMap seedLeftNodes;
+  private final Random[] workerRandoms;
+
+  /**
+   * Initialize state needed to run SALSA iterations in parallel.
+   *
+   * @param salsaInternalState  is the state the visited right nodes of all the workers are merged
+   *                            into, which results are then selected from
+   * @param workers             run the random walks, and must each have their own internal state
+   * @param executorService     runs all but the first worker, which runs on the calling thread
+   */
+  public ParallelSalsaIterations(
+      CommonInternalState<T> salsaInternalState,
+      List<SalsaIterations<T>> workers,
+      ExecutorService executorService) {
+    Preconditions.checkArgument(!workers.isEmpty(), "Need to have at least one worker!");
+    this.salsaInternalState = salsaInternalState;
+    this.workers = workers;
+    this.executorService = executorService;
+    this.seedLeftNodes = new Long2IntOpenHashMap();
+    this.workerRandoms = new Random[workers.size()];
+  }
+
+  public int getNumWorkers() {
+    return workers.size();
+  }
+
+  /**
+   * Main entry point to run the SALSA iterations, see
+   * {@link SalsaIterations#runSalsaIterations(SalsaRequest, Random)}. The first worker uses the
+   * given random number generator while each of the other ones gets a new one seeded from it, so
+   * that a given seed still leads to the same results.
+   *
+   * @param salsaRequest        is the new incoming salsa request
+   * @param random              is used for making all the random choices in SALSA
+   */
+  public void runSalsaIterations(SalsaRequest salsaRequest, final Random random) {
+    int numWorkers = workers.size();
+    workerRandoms[0] = random;
+    for (int i = 1; i < numWorkers; i++) {
+      workerRandoms[i] = new Random(random.nextLong());
+    }
+    // resetting the request filters is not thread-safe, so all the resets happen here
+    salsaInternalState.resetWithRequest(salsaRequest);
+    for (int i = 0; i < numWorkers; i++) {
+      workers.get(i).resetWithRequest(salsaRequest, workerRandoms[i]);
+    }
+
+    // the first worker seeds the walks for everyone
+    SalsaIterations<T> firstWorker = workers.get(0);
+    firstWorker.seedLeftSideForFirstIteration();
+    splitSeedLeftNodes();
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("SALSA: done seeding " + numWorkers + " workers");
+    }
+
+    List<Future<?>> futures = new ArrayList<Future<?>>(numWorkers - 1);
+    for (int i = 1; i < numWorkers; i++) {
+      final SalsaIterations<T> worker = workers.get(i);
+      futures.add(executorService.submit(new Runnable() {
+        @Override
+        public void run() {
+          worker.runRandomWalks();
+        }
+      }));
+    }
+    firstWorker.runRandomWalks();
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while running SALSA random walks", e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Failed to run SALSA random walks", e.getCause());
+      }
+    }
+
+    mergeWorkers();
+  }
+
+  /**
+   * Splits the walks the first worker was seeded with evenly across all workers, handing out the
+   * remainders in a round-robin fashion so that they don't all end up on the first workers.
+   */
+  private void splitSeedLeftNodes() {
+    int numWorkers = workers.size();
+    Long2IntMap firstWorkerLeftNodes =
+        workers.get(0).getSalsaInternalState().getCurrentLeftNodes();
+    seedLeftNodes.clear();
+    seedLeftNodes.putAll(firstWorkerLeftNodes);
+    firstWorkerLeftNodes.clear();
+
+    int nextWorker = 0;
+    for (Long2IntMap.Entry entry : seedLeftNodes.long2IntEntrySet()) {
+      int numWalks = entry.getIntValue();
+      for (int i = 0; i < numWorkers; i++) {
+        int worker = (nextWorker + i) % numWorkers;
+        int numWorkerWalks = numWalks / numWorkers + (i < numWalks % numWorkers ? 1 : 0);
+        if (numWorkerWalks > 0) {
+          workers.get(worker).getSalsaInternalState().getCurrentLeftNodes()
+              .put(entry.getLongKey(), numWorkerWalks);
+        }
+      }
+      nextWorker = (nextWorker + numWalks) % numWorkers;
+    }
+  }
+
+  private void mergeWorkers() {
+    SalsaStats salsaStats = salsaInternalState.getSalsaStats();
+    SalsaStats firstWorkerStats = workers.get(0).getSalsaInternalState().getSalsaStats();
+    salsaStats.setNumSeedNodes(firstWorkerStats.getNumSeedNodes());
+    salsaStats.setNumDirectNeighbors(firstWorkerStats.getNumDirectNeighbors());
+
+    Long2ObjectMap<NodeInfo> visitedRightNodes = salsaInternalState.getVisitedRightNodes();
+    for (SalsaIterations<T> worker : workers) {
+      CommonInternalState<T> workerState = worker.getSalsaInternalState();
+      SalsaStats workerStats = workerState.getSalsaStats();
+      salsaStats.addToNumRHSVisits(workerStats.getNumRHSVisits());
+      salsaStats.updateMinVisitsPerRightNode(workerStats.getMinVisitsPerRightNode());
+      for (Long2ObjectMap.Entry<NodeInfo> entry
+          : workerState.getVisitedRightNodes().long2ObjectEntrySet()) {
+        NodeInfo nodeInfo = visitedRightNodes.get(entry.getLongKey());
+        if (nodeInfo == null) {
+          // the nodes stay owned by the worker that created them until its next request
+          visitedRightNodes.put(entry.getLongKey(), entry.getValue());
+        } else {
+          nodeInfo.merge(entry.getValue());
+        }
+      }
+    }
+    for (NodeInfo nodeInfo : visitedRightNodes.values()) {
+      salsaStats.updateMaxVisitsPerRightNode(nodeInfo.getNumVisits());
+    }
+  }
+}
@@ -75,12 +75,20 @@ public class SalsaIterations<T extends LeftIndexedBipartiteGraph> {
    * @param random              is used for making all the random choices in SALSA
    */
   public void runSalsaIterations(SalsaRequest salsaRequest, Random random) {
-    LOG.info("SALSA: starting to reset internal state");
+    LOG.debug("SALSA: starting to reset internal state");
     resetWithRequest(salsaRequest, random);
-    LOG.info("SALSA: done resetting internal state");
+    LOG.debug("SALSA: done resetting internal state");
 
     seedLeftSideForFirstIteration();
-    LOG.info("SALSA: done seeding");
+    LOG.debug("SALSA: done seeding");
+    runRandomWalks();
+  }
+
+  /**
+   * Progresses all the random walks that start from the current left nodes of the internal state,
+   * which must have been reset and seeded for the request.
+   */
+  void runRandomWalks() {
     boolean isForwardIteration = true;
     SingleSalsaIteration singleSalsaIteration = leftSalsaIteration;
 
@@ -101,6 +109,10 @@ public class SalsaIterations<T extends LeftIndexedBipartiteGraph> {
     }
   }
 
+  CommonInternalState<T> getSalsaInternalState() {
+    return salsaInternalState;
+  }
+
   @VisibleForTesting
   protected void seedLeftSideForFirstIteration() {
     long queryNode = salsaInternalState.getSalsaRequest().getQueryNode();
@@ -18,6 +18,7 @@
 package com.twitter.graphjet.algorithms.salsa;
 
 import com.twitter.graphjet.algorithms.NodeInfo;
+import com.twitter.graphjet.algorithms.NodeInfoPool;
 
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 
@@ -31,10 +32,13 @@ public class SalsaNodeVisitor {
    */
   public abstract static class NodeVisitor {
     protected final Long2ObjectMap<NodeInfo> visitedRightNodes;
+    // Recycles the NodeInfo objects this visitor puts in visitedRightNodes, see resetWithRequest
+    protected final NodeInfoPool nodeInfoPool;
     protected SalsaRequest salsaRequest;
 
     public NodeVisitor(Long2ObjectMap<NodeInfo> visitedRightNodes) {
       this.visitedRightNodes = visitedRightNodes;
+      this.nodeInfoPool = new NodeInfoPool();
     }
 
     /**
@@ -57,14 +61,47 @@ public class SalsaNodeVisitor {
       double weight
     );
 
+    /**
+     * Visits the given rightNode just like {@link #visitRightNode(long, long, byte, long, double)},
+     * for callers that keep the NodeInfo of every right node themselves, e.g. in an array indexed
+     * by a dense node id, which spares the lookups in visitedRightNodes. The visitedRightNodes map
+     * is left untouched.
+     *
+     * @param nodeInfo   is the NodeInfo of the rightNode, or null if this is its first visit
+     * @param leftNode   is the left node that visits the rightNode
+     * @param rightNode  is the right node being visited
+     * @param edgeType   is the edge type between leftNode and rightNode
+     * @param metadata   is the edge metadata between leftNode and rightNode
+     * @param weight     is the weight of the edge
+     * @return the NodeInfo of the rightNode, which accounts for the current visit
+     */
+    public abstract NodeInfo visitRightNodeInfo(
+      NodeInfo nodeInfo,
+      long leftNode,
+      long rightNode,
+      byte edgeType,
+      long metadata,
+      double weight
+    );
+
+    protected NodeInfo addRightNodeVisit(NodeInfo nodeInfo, long rightNode, double weight) {
+      if (nodeInfo == null) {
+        return nodeInfoPool.acquire(rightNode, weight, salsaRequest.getMaxSocialProofTypeSize());
+      }
+      nodeInfo.addToWeight(weight);
+      return nodeInfo;
+    }
+
     protected int simpleRightNodeVisitor(long rightNode) {
       int numVisits = 1;
-      if (visitedRightNodes.containsKey(rightNode)) {
-        visitedRightNodes.get(rightNode).addToWeight(1.0);
-        numVisits = (int) visitedRightNodes.get(rightNode).getWeight();
+      // a single lookup for nodes that were already visited, which are most of the visits
+      NodeInfo nodeInfo = visitedRightNodes.get(rightNode);
+      if (nodeInfo != null) {
+        nodeInfo.addToWeight(1.0);
+        numVisits = (int) nodeInfo.getWeight();
       } else {
         visitedRightNodes.put(rightNode,
-            new NodeInfo(
+            nodeInfoPool.acquire(
               rightNode,
               1.0,
               salsaRequest.getMaxSocialProofTypeSize()
@@ -74,8 +111,15 @@ public class SalsaNodeVisitor {
       return numVisits;
     }
 
+    /**
+     * Resets the visitor for a new request. This also recycles all the NodeInfo objects the
+     * visitor created, so the visited right nodes must have been cleared for the new request.
+     *
+     * @param incomingSalsaRequest  is the new incoming request
+     */
     public void resetWithRequest(SalsaRequest incomingSalsaRequest) {
       this.salsaRequest = incomingSalsaRequest;
+      nodeInfoPool.reset();
     }
   }
 
@@ -98,6 +142,18 @@ public class SalsaNodeVisitor {
     ) {
       return simpleRightNodeVisitor(rightNode);
     }
+
+    @Override
+    public NodeInfo visitRightNodeInfo(
+      NodeInfo nodeInfo,
+      long leftNode,
+      long rightNode,
+      byte edgeType,
+      long metadata,
+      double weight
+    ) {
+      return addRightNodeVisit(nodeInfo, rightNode, 1.0);
+    }
   }
 
   /**
@@ -117,12 +173,13 @@ public class SalsaNodeVisitor {
       double weight
     ) {
       int numVisits = 1;
-      if (visitedRightNodes.containsKey(rightNode)) {
-        visitedRightNodes.get(rightNode).addToWeight(weight);
-        numVisits = visitedRightNodes.get(rightNode).getNumVisits();
+      NodeInfo nodeInfo = visitedRightNodes.get(rightNode);
+      if (nodeInfo != null) {
+        nodeInfo.addToWeight(weight);
+        numVisits = nodeInfo.getNumVisits();
       } else {
         visitedRightNodes.put(rightNode,
-            new NodeInfo(
+            nodeInfoPool.acquire(
               rightNode,
               weight,
               salsaRequest.getMaxSocialProofTypeSize()
@@ -131,6 +188,18 @@ public class SalsaNodeVisitor {
       }
       return numVisits;
     }
+
+    @Override
+    public NodeInfo visitRightNodeInfo(
+      NodeInfo nodeInfo,
+      long leftNode,
+      long rightNode,
+      byte edgeType,
+      long metadata,
+      double weight
+    ) {
+      return addRightNodeVisit(nodeInfo, rightNode, weight);
+    }
   }
 
   /**
@@ -156,6 +225,22 @@ public class SalsaNodeVisitor {
       }
       return numVisits;
     }
+
+    @Override
+    public NodeInfo visitRightNodeInfo(
+      NodeInfo nodeInfo,
+      long leftNode,
+      long rightNode,
+      byte edgeType,
+      long metadata,
+      double weight
+    ) {
+      NodeInfo visitedNodeInfo = addRightNodeVisit(nodeInfo, rightNode, 1.0);
+      if (leftNode != salsaRequest.getQueryNode()) {
+        visitedNodeInfo.addToSocialProof(leftNode, edgeType, metadata, weight);
+      }
+      return visitedNodeInfo;
+    }
   }
 
 
@@ -182,5 +267,22 @@ public class SalsaNodeVisitor {
       }
       return numVisits;
     }
+
+    @Override
+    public NodeInfo visitRightNodeInfo(
+      NodeInfo nodeInfo,
+      long leftNode,
+      long rightNode,
+      byte edgeType,
+      long metadata,
+      double weight
+    ) {
+      NodeInfo visitedNodeInfo =
+          super.visitRightNodeInfo(nodeInfo, leftNode, rightNode, edgeType, metadata, weight);
+      if (leftNode != salsaRequest.getQueryNode()) {
+        visitedNodeInfo.addToSocialProof(leftNode, edgeType, metadata, weight);
+      }
+      return visitedNodeInfo;
+    }
   }
 }
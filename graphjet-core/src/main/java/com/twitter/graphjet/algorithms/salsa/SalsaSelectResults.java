@@ -17,11 +17,9 @@
 
 package com.twitter.graphjet.algorithms.salsa;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
 
 import com.google.common.collect.Lists;
 
@@ -32,6 +30,7 @@ import com.twitter.graphjet.algorithms.ConnectingUsersWithMetadata;
 import com.twitter.graphjet.algorithms.NodeInfo;
 import com.twitter.graphjet.algorithms.RecommendationInfo;
 import com.twitter.graphjet.algorithms.RecommendationRequest;
+import com.twitter.graphjet.algorithms.TopKSelector;
 import com.twitter.graphjet.algorithms.TweetIDMask;
 import com.twitter.graphjet.algorithms.counting.tweet.TweetRecommendationInfo;
 import com.twitter.graphjet.bipartite.api.LeftIndexedBipartiteGraph;
@@ -48,6 +47,7 @@ public class SalsaSelectResults<T extends LeftIndexedBipartiteGraph> {
 
   private final CommonInternalState<T> salsaInternalState;
   private final SalsaStats salsaStats;
+  private final TopKSelector<NodeInfo> topResults;
 
   /**
    * Default constructor that requires a {@link CommonInternalState} populated with visited
@@ -58,6 +58,7 @@ public class SalsaSelectResults<T extends LeftIndexedBipartiteGraph> {
   public SalsaSelectResults(CommonInternalState<T> salsaInternalState) {
     this.salsaInternalState = salsaInternalState;
     this.salsaStats = salsaInternalState.getSalsaStats();
+    this.topResults = new TopKSelector<>(RecommendationRequest.MAX_RECOMMENDATION_RESULTS);
   }
 
   /**
@@ -66,7 +67,7 @@ public class SalsaSelectResults<T extends LeftIndexedBipartiteGraph> {
   public SalsaResponse pickTopNodes() {
     int maxNumResults = Math.min(salsaInternalState.getSalsaRequest().getMaxNumResults(),
       RecommendationRequest.MAX_RECOMMENDATION_RESULTS);
-    PriorityQueue<NodeInfo> topResults = new PriorityQueue<NodeInfo>(maxNumResults);
+    topResults.reset(maxNumResults);
 
     int numFilteredNodes = 0;
     for (NodeInfo nodeInfo : salsaInternalState.getVisitedRightNodes().values()) {
@@ -79,7 +80,7 @@ public class SalsaSelectResults<T extends LeftIndexedBipartiteGraph> {
       }
       nodeInfo.setWeight(
           nodeInfo.getWeight() / salsaInternalState.getSalsaStats().getNumRHSVisits());
-      addResultToPriorityQueue(topResults, nodeInfo, maxNumResults);
+      topResults.offer(nodeInfo, nodeInfo.getWeight());
     }
 
     List<RecommendationInfo> outputResults =
@@ -87,38 +88,38 @@ public class SalsaSelectResults<T extends LeftIndexedBipartiteGraph> {
 
     byte[] validSocialProofs = salsaInternalState.getSalsaRequest().getSocialProofTypes();
 
-    while (!topResults.isEmpty()) {
-      NodeInfo nodeInfo = topResults.poll();
+    for (NodeInfo nodeInfo : topResults.drainDescending()) {
       outputResults.add(
         new TweetRecommendationInfo(
           TWEET_ID_MASK.restore(nodeInfo.getNodeId()),
           nodeInfo.getWeight(),
           pickTopSocialProofs(nodeInfo.getSocialProofs(), validSocialProofs)));
     }
-    Collections.reverse(outputResults);
 
     salsaStats.setNumRightNodesFiltered(numFilteredNodes);
     salsaStats.setNumRightNodesReached(salsaInternalState.getVisitedRightNodes().size());
 
-    LOG.info("SALSA: after running iterations for request_id = "
-        + salsaInternalState.getSalsaRequest().getQueryNode()
-        + ", we get numSeedNodes = "
-        + salsaStats.getNumSeedNodes()
-        + ", numDirectNeighbors = "
-        + salsaStats.getNumDirectNeighbors()
-        + ", numRHSVisits = "
-        + salsaStats.getNumRHSVisits()
-        + ", numRightNodesReached = "
-        + salsaStats.getNumRightNodesReached()
-        + ", numRightNodesFiltered = "
-        + salsaStats.getNumRightNodesFiltered()
-        + ", minVisitsPerRightNode = "
-        + salsaStats.getMinVisitsPerRightNode()
-        + ", maxVisitsPerRightNode = "
-        + salsaStats.getMaxVisitsPerRightNode()
-        + ", numOutputResults = "
-        + outputResults.size()
-    );
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("SALSA: after running iterations for request_id = "
+          + salsaInternalState.getSalsaRequest().getQueryNode()
+          + ", we get numSeedNodes = "
+          + salsaStats.getNumSeedNodes()
+          + ", numDirectNeighbors = "
+          + salsaStats.getNumDirectNeighbors()
+          + ", numRHSVisits = "
+          + salsaStats.getNumRHSVisits()
+          + ", numRightNodesReached = "
+          + salsaStats.getNumRightNodesReached()
+          + ", numRightNodesFiltered = "
+          + salsaStats.getNumRightNodesFiltered()
+          + ", minVisitsPerRightNode = "
+          + salsaStats.getMinVisitsPerRightNode()
+          + ", maxVisitsPerRightNode = "
+          + salsaStats.getMaxVisitsPerRightNode()
+          + ", numOutputResults = "
+          + outputResults.size()
+      );
+    }
 
     return new SalsaResponse(outputResults, salsaStats);
   }
@@ -149,16 +150,4 @@ public class SalsaSelectResults<T extends LeftIndexedBipartiteGraph> {
     }
     return results;
   }
-
-  private void addResultToPriorityQueue(
-      PriorityQueue<NodeInfo> topResults,
-      NodeInfo nodeInfo,
-      int maxNumResults) {
-    if (topResults.size() < maxNumResults) {
-      topResults.add(nodeInfo);
-    } else if (nodeInfo.getWeight() > topResults.peek().getWeight()) {
-      topResults.poll();
-      topResults.add(nodeInfo);
-    }
-  }
 }
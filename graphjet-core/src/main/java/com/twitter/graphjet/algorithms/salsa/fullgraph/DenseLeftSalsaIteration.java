@@ -0,0 +1,115 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.algorithms.salsa.fullgraph;
+
+import com.twitter.graphjet.algorithms.salsa.DenseWalkCounts;
+import com.twitter.graphjet.algorithms.salsa.SalsaNodeVisitor;
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+
+public class DenseLeftSalsaIteration extends LeftSalsaIteration {
+  protected final DenseSalsaInternalState denseSalsaInternalState;
+
+  /**
+   * Default constructor that should be used for a regular iteration.
+   *
+   * @param salsaInternalState  is the internal state to use
+   */
+  public DenseLeftSalsaIteration(DenseSalsaInternalState salsaInternalState) {
+    super(salsaInternalState);
+    this.denseSalsaInternalState = salsaInternalState;
+  }
+
+  /**
+   * This constructor allows passing in a custom visitor that can be used for the final iteration,
+   * for instance to incorporate logic such as storing social proof.
+   *
+   * @param salsaInternalState  is the internal state to use
+   * @param nodeVisitor         is the
+   * {@link com.twitter.graphjet.algorithms.salsa.SalsaNodeVisitor.NodeVisitor} to use
+   */
+  public DenseLeftSalsaIteration(
+      DenseSalsaInternalState salsaInternalState,
+      SalsaNodeVisitor.NodeVisitor nodeVisitor) {
+    super(salsaInternalState, nodeVisitor);
+    this.denseSalsaInternalState = salsaInternalState;
+  }
+
+  /**
+   * Runs a single left-to-right SALSA iteration over the left walk counts. This direction resets
+   * some of the random walks to start again from the queryNode.
+   */
+  @Override
+  public void runSingleIteration() {
+    DenseWalkCounts leftWalkCounts = denseSalsaInternalState.getLeftWalkCounts();
+    DenseWalkCounts rightWalkCounts = denseSalsaInternalState.getRightWalkCounts();
+    // the walks are seeded in the current left nodes, and are only moved here the first time
+    Long2IntMap seedLeftNodes = denseSalsaInternalState.getCurrentLeftNodes();
+    if (!seedLeftNodes.isEmpty()) {
+      for (Long2IntMap.Entry entry : seedLeftNodes.long2IntEntrySet()) {
+        leftWalkCounts.addWalks(entry.getLongKey(), entry.getIntValue());
+      }
+      seedLeftNodes.clear();
+    }
+
+    int numEdgesTraversed = 0;
+    int numWalksResetToQueryNode = 0;
+    double resetProbability = denseSalsaInternalState.getSalsaRequest().getResetProbability();
+    for (int i = 0; i < leftWalkCounts.getNumActiveSlots(); i++) {
+      int leftSlot = leftWalkCounts.getActiveSlot(i);
+      long leftNode = leftWalkCounts.getNode(leftSlot);
+      int numWalksToStart = leftWalkCounts.getNumWalks(leftSlot);
+      int numWalks = 0;
+      for (int j = 0; j < numWalksToStart; j++) {
+        if (random.nextDouble() >= resetProbability) {
+          numWalks++;
+        }
+      }
+      numWalksResetToQueryNode += numWalksToStart - numWalks;
+      if (numWalks > 0) {
+        EdgeIterator sampledRightNodes = denseSalsaInternalState.getBipartiteGraph()
+          .getRandomLeftNodeEdges(leftNode, numWalks, random);
+        int leftNodeDegree = leftWalkCounts.getDegree(leftSlot);
+        if (leftNodeDegree < 0) {
+          leftNodeDegree = denseSalsaInternalState.getBipartiteGraph().getLeftNodeDegree(leftNode);
+          leftWalkCounts.setDegree(leftSlot, leftNodeDegree);
+        }
+        if (sampledRightNodes != null) {
+          while (sampledRightNodes.hasNext()) {
+            // the only lookup of the visit, the walks and NodeInfo are then indexed by the slot
+            int rightSlot = rightWalkCounts.getSlot(sampledRightNodes.nextLong());
+            rightWalkCounts.addWalks(rightSlot, 1);
+            int numVisits =
+                denseSalsaInternalState.visitRightNode(nodeVisitor, leftNode,
+                  rightSlot, sampledRightNodes.currentEdgeType(),
+                  sampledRightNodes.currentMetadata(), leftNodeDegree);
+            denseSalsaInternalState.getSalsaStats().updateVisitStatsPerRightNode(numVisits);
+            numEdgesTraversed++;
+          }
+        }
+      }
+    }
+    leftWalkCounts.clearWalks();
+    if (numWalksResetToQueryNode > 0) {
+      leftWalkCounts.addWalks(
+          denseSalsaInternalState.getSalsaRequest().getQueryNode(), numWalksResetToQueryNode);
+    }
+    denseSalsaInternalState.getSalsaStats().addToNumRHSVisits(numEdgesTraversed);
+  }
+}
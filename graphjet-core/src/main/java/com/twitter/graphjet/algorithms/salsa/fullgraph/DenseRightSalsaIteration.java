@@ -0,0 +1,51 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.algorithms.salsa.fullgraph;
+
+import com.twitter.graphjet.algorithms.salsa.DenseWalkCounts;
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+
+public class DenseRightSalsaIteration extends RightSalsaIteration {
+  protected final DenseSalsaInternalState denseSalsaInternalState;
+
+  public DenseRightSalsaIteration(DenseSalsaInternalState salsaInternalState) {
+    super(salsaInternalState);
+    this.denseSalsaInternalState = salsaInternalState;
+  }
+
+  /**
+   * Runs a single right-to-left SALSA iteration over the right walk counts.
+   */
+  @Override
+  public void runSingleIteration() {
+    DenseWalkCounts leftWalkCounts = denseSalsaInternalState.getLeftWalkCounts();
+    DenseWalkCounts rightWalkCounts = denseSalsaInternalState.getRightWalkCounts();
+    for (int i = 0; i < rightWalkCounts.getNumActiveSlots(); i++) {
+      int rightSlot = rightWalkCounts.getActiveSlot(i);
+      EdgeIterator sampledLeftNodes = denseSalsaInternalState.getBipartiteGraph()
+          .getRandomRightNodeEdges(
+              rightWalkCounts.getNode(rightSlot), rightWalkCounts.getNumWalks(rightSlot), random);
+      if (sampledLeftNodes != null) {
+        while (sampledLeftNodes.hasNext()) {
+          leftWalkCounts.addWalks(sampledLeftNodes.nextLong(), 1);
+        }
+      }
+    }
+    rightWalkCounts.clearWalks();
+  }
+}
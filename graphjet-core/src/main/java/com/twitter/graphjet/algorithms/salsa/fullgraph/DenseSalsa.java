@@ -0,0 +1,115 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.algorithms.salsa.fullgraph;
+
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.twitter.graphjet.algorithms.RecommendationAlgorithm;
+import com.twitter.graphjet.algorithms.RecommendationStatsRecorder;
+import com.twitter.graphjet.algorithms.salsa.SalsaIterations;
+import com.twitter.graphjet.algorithms.salsa.SalsaRequest;
+import com.twitter.graphjet.algorithms.salsa.SalsaResponse;
+import com.twitter.graphjet.algorithms.salsa.SalsaSelectResults;
+import com.twitter.graphjet.algorithms.salsa.SalsaStats;
+import com.twitter.graphjet.bipartite.ReadEpochs;
+import com.twitter.graphjet.bipartite.api.BipartiteGraph;
+import com.twitter.graphjet.stats.Counter;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * This is the entry point to the SALSA algorithm with the random walks counted in dense arrays,
+ * see {@link DenseSalsaInternalState}. Compared to {@link Salsa}, a visit to a node costs a single
+ * hash lookup to resolve its slot instead of several lookups and insertions in the node maps, and
+ * the walks, degrees and NodeInfo of the nodes are then read from arrays indexed by slot, which
+ * pays off for requests with a large number of random walks. The walks follow the same
+ * distribution as in {@link Salsa}, although the exact results for a given seed differ since the
+ * nodes are walked in a different order.
+ */
+public class DenseSalsa implements RecommendationAlgorithm<SalsaRequest, SalsaResponse> {
+  private static final Logger LOG = LoggerFactory.getLogger("graph");
+
+  private final BipartiteGraph bipartiteGraph;
+  private final DenseSalsaInternalState salsaInternalState;
+  private final SalsaIterations<BipartiteGraph> salsaIterations;
+  private final SalsaSelectResults<BipartiteGraph> salsaSelectResults;
+
+  private final StatsReceiver statsReceiver;
+  private final Counter numRequestsCounter;
+  private final RecommendationStatsRecorder statsRecorder;
+
+  /**
+   * This initializes all the state needed to run SALSA. Note that the object can be reused for
+   * answering many different queries on the same graph, which allows for optimizations such as
+   * reusing internally allocated arrays etc.
+   *
+   * @param bipartiteGraph        is the {@link BipartiteGraph} to run SALSA on
+   * @param expectedNodesToHit    is an estimate of how many nodes can be hit in SALSA. This is
+   *                              purely for allocating needed memory right up front to make requests
+   *                              fast.
+   * @param statsReceiver         tracks the internal stats
+   */
+  public DenseSalsa(
+      BipartiteGraph bipartiteGraph,
+      int expectedNodesToHit,
+      StatsReceiver statsReceiver) {
+    this.salsaInternalState = new DenseSalsaInternalState(
+        bipartiteGraph, new SalsaStats(), expectedNodesToHit);
+    this.salsaIterations = new SalsaIterations<BipartiteGraph>(
+        salsaInternalState,
+        new DenseLeftSalsaIteration(salsaInternalState),
+        new DenseRightSalsaIteration(salsaInternalState),
+        new DenseFinalSalsaIteration(salsaInternalState)
+    );
+    this.salsaSelectResults = new SalsaSelectResults<BipartiteGraph>(salsaInternalState);
+    this.bipartiteGraph = bipartiteGraph;
+    this.statsReceiver = statsReceiver.scope("DenseSALSA");
+    this.numRequestsCounter = this.statsReceiver.counter("numRequests");
+    this.statsRecorder = new RecommendationStatsRecorder(this.statsReceiver);
+  }
+
+  @Override
+  public SalsaResponse computeRecommendations(
+      SalsaRequest request, Random random) {
+    numRequestsCounter.incr();
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("SALSA: Incoming request with request_id = "
+          + request.getQueryNode()
+          + " with numRandomWalks = "
+          + request.getNumRandomWalks()
+          + " with seed set size = "
+          + request.getLeftSeedNodesWithWeight().size()
+      );
+    }
+
+    long startTime = System.nanoTime();
+    SalsaResponse salsaResponse;
+    long readEpoch = ReadEpochs.enter(bipartiteGraph);
+    try {
+      salsaIterations.runSalsaIterations(request, random);
+      salsaInternalState.publishVisitedRightNodes();
+      salsaResponse = salsaSelectResults.pickTopNodes();
+    } finally {
+      ReadEpochs.exit(bipartiteGraph, readEpoch);
+    }
+    statsRecorder.record(salsaResponse.getSalsaStats(), System.nanoTime() - startTime);
+    return salsaResponse;
+  }
+}
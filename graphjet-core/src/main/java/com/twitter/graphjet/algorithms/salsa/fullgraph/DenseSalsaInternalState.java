@@ -0,0 +1,123 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.algorithms.salsa.fullgraph;
+
+import java.util.Arrays;
+
+import com.twitter.graphjet.algorithms.NodeInfo;
+import com.twitter.graphjet.algorithms.salsa.DenseWalkCounts;
+import com.twitter.graphjet.algorithms.salsa.SalsaNodeVisitor;
+import com.twitter.graphjet.algorithms.salsa.SalsaRequest;
+import com.twitter.graphjet.algorithms.salsa.SalsaStats;
+import com.twitter.graphjet.bipartite.api.BipartiteGraph;
+
+/**
+ * This class encapsulates the state needed to run SALSA iterations with the walks counted in
+ * {@link DenseWalkCounts} rather than in the current left and right node maps, which are only used
+ * for seeding. The NodeInfo of every visited right node is kept in an array indexed by the slots of
+ * the right walk counts, and only moved to the visited right nodes map once the walks are done, see
+ * {@link #publishVisitedRightNodes()}. See {@link DenseSalsa}.
+ */
+public class DenseSalsaInternalState extends SalsaInternalState {
+  protected final DenseWalkCounts leftWalkCounts;
+  protected final DenseWalkCounts rightWalkCounts;
+  // indexed by the slots of rightWalkCounts
+  protected NodeInfo[] rightNodeInfos;
+
+  /**
+   * Get a new instance of a fresh internal state.
+   *
+   * @param bipartiteGraph      is the underlying graph that SALSA runs on
+   * @param salsaStats          is the stats object to use
+   * @param expectedNodesToHit  is the number of nodes the random walk is expected to hit
+   */
+  public DenseSalsaInternalState(
+      BipartiteGraph bipartiteGraph,
+      SalsaStats salsaStats,
+      int expectedNodesToHit) {
+    super(bipartiteGraph, salsaStats, expectedNodesToHit);
+    this.leftWalkCounts = new DenseWalkCounts(expectedNodesToHit);
+    this.rightWalkCounts = new DenseWalkCounts(expectedNodesToHit);
+    this.rightNodeInfos = new NodeInfo[Math.max(expectedNodesToHit, 16)];
+  }
+
+  public DenseWalkCounts getLeftWalkCounts() {
+    return leftWalkCounts;
+  }
+
+  public DenseWalkCounts getRightWalkCounts() {
+    return rightWalkCounts;
+  }
+
+  /**
+   * Visits the right node in the given slot of the right walk counts, updating its NodeInfo.
+   *
+   * @param nodeVisitor  is the node visitor to use
+   * @param leftNode     is the left node that visits the right node
+   * @param rightSlot    is the slot of the right node being visited
+   * @param edgeType     is the edge type between left node and right node
+   * @param edgeMetadata is the metadata of the edge
+   * @param weight       is the weight of the edge
+   * @return the number of visits to this node so far, including the current one
+   */
+  public int visitRightNode(
+      SalsaNodeVisitor.NodeVisitor nodeVisitor,
+      long leftNode,
+      int rightSlot,
+      byte edgeType,
+      long edgeMetadata,
+      double weight) {
+    if (rightSlot >= rightNodeInfos.length) {
+      rightNodeInfos = Arrays.copyOf(
+          rightNodeInfos, Math.max(2 * rightNodeInfos.length, rightSlot + 1));
+    }
+    NodeInfo nodeInfo = nodeVisitor.visitRightNodeInfo(
+        rightNodeInfos[rightSlot],
+        leftNode,
+        rightWalkCounts.getNode(rightSlot),
+        edgeType,
+        edgeMetadata,
+        weight);
+    rightNodeInfos[rightSlot] = nodeInfo;
+    return nodeInfo.getNumVisits();
+  }
+
+  /**
+   * Puts the NodeInfo of every visited right node in the visited right nodes map, which is where
+   * {@link com.twitter.graphjet.algorithms.salsa.SalsaSelectResults} picks the top nodes from. This
+   * is called once the walks are done, and costs a single hash insertion per distinct right node.
+   */
+  public void publishVisitedRightNodes() {
+    int numSlots = Math.min(rightWalkCounts.getNumSlots(), rightNodeInfos.length);
+    for (int i = 0; i < numSlots; i++) {
+      NodeInfo nodeInfo = rightNodeInfos[i];
+      if (nodeInfo != null) {
+        visitedRightNodes.put(nodeInfo.getNodeId(), nodeInfo);
+      }
+    }
+  }
+
+  @Override
+  public void resetWithRequest(SalsaRequest incomingSalsaRequest) {
+    super.resetWithRequest(incomingSalsaRequest);
+    leftWalkCounts.reset();
+    Arrays.fill(
+        rightNodeInfos, 0, Math.min(rightWalkCounts.getNumSlots(), rightNodeInfos.length), null);
+    rightWalkCounts.reset();
+  }
+}
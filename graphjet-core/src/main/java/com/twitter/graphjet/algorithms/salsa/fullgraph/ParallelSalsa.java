@@ -0,0 +1,128 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.algorithms.salsa.fullgraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.twitter.graphjet.algorithms.RecommendationAlgorithm;
+import com.twitter.graphjet.algorithms.RecommendationStatsRecorder;
+import com.twitter.graphjet.algorithms.salsa.ParallelSalsaIterations;
+import com.twitter.graphjet.algorithms.salsa.SalsaIterations;
+import com.twitter.graphjet.algorithms.salsa.SalsaRequest;
+import com.twitter.graphjet.algorithms.salsa.SalsaResponse;
+import com.twitter.graphjet.algorithms.salsa.SalsaSelectResults;
+import com.twitter.graphjet.algorithms.salsa.SalsaStats;
+import com.twitter.graphjet.bipartite.ReadEpochs;
+import com.twitter.graphjet.bipartite.api.BipartiteGraph;
+import com.twitter.graphjet.stats.Counter;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * This is the entry point to the SALSA algorithm running the random walks of a request on several
+ * threads, see {@link ParallelSalsaIterations}. This is meant for requests with a large number of
+ * random walks, where the latency of {@link Salsa} is bound by a single core.
+ */
+public class ParallelSalsa implements RecommendationAlgorithm<SalsaRequest, SalsaResponse> {
+  private static final Logger LOG = LoggerFactory.getLogger("graph");
+
+  private final BipartiteGraph bipartiteGraph;
+  private final ParallelSalsaIterations<BipartiteGraph> salsaIterations;
+  private final SalsaSelectResults<BipartiteGraph> salsaSelectResults;
+
+  private final StatsReceiver statsReceiver;
+  private final Counter numRequestsCounter;
+  private final RecommendationStatsRecorder statsRecorder;
+
+  /**
+   * This initializes all the state needed to run SALSA on several threads. Just like {@link Salsa},
+   * the object can be reused for answering many different queries on the same graph, but only one
+   * at a time.
+   *
+   * @param bipartiteGraph        is the {@link BipartiteGraph} to run SALSA on
+   * @param expectedNodesToHit    is an estimate of how many nodes can be hit in SALSA. This is
+   *                              purely for allocating needed memory right up front to make requests
+   *                              fast.
+   * @param numWorkers            is the number of threads the random walks of a request are split
+   *                              across, including the calling thread
+   * @param executorService       runs the workers other than the calling thread, and is expected to
+   *                              have at least numWorkers - 1 threads available
+   * @param statsReceiver         tracks the internal stats
+   */
+  public ParallelSalsa(
+      BipartiteGraph bipartiteGraph,
+      int expectedNodesToHit,
+      int numWorkers,
+      ExecutorService executorService,
+      StatsReceiver statsReceiver) {
+    List<SalsaIterations<BipartiteGraph>> workers =
+        new ArrayList<SalsaIterations<BipartiteGraph>>(numWorkers);
+    for (int i = 0; i < numWorkers; i++) {
+      SalsaInternalState workerInternalState = new SalsaInternalState(
+          bipartiteGraph, new SalsaStats(), expectedNodesToHit);
+      workers.add(new SalsaIterations<BipartiteGraph>(
+          workerInternalState,
+          new LeftSalsaIteration(workerInternalState),
+          new RightSalsaIteration(workerInternalState),
+          new FinalSalsaIteration(workerInternalState)
+      ));
+    }
+    SalsaInternalState salsaInternalState = new SalsaInternalState(
+        bipartiteGraph, new SalsaStats(), expectedNodesToHit);
+    this.salsaIterations = new ParallelSalsaIterations<BipartiteGraph>(
+        salsaInternalState, workers, executorService);
+    this.salsaSelectResults = new SalsaSelectResults<BipartiteGraph>(salsaInternalState);
+    this.bipartiteGraph = bipartiteGraph;
+    this.statsReceiver = statsReceiver.scope("ParallelSALSA");
+    this.numRequestsCounter = this.statsReceiver.counter("numRequests");
+    this.statsRecorder = new RecommendationStatsRecorder(this.statsReceiver);
+  }
+
+  @Override
+  public SalsaResponse computeRecommendations(
+      SalsaRequest request, Random random) {
+    numRequestsCounter.incr();
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("SALSA: Incoming request with request_id = "
+          + request.getQueryNode()
+          + " with numRandomWalks = "
+          + request.getNumRandomWalks()
+          + " with seed set size = "
+          + request.getLeftSeedNodesWithWeight().size()
+          + " on " + salsaIterations.getNumWorkers() + " workers"
+      );
+    }
+
+    long startTime = System.nanoTime();
+    SalsaResponse salsaResponse;
+    long readEpoch = ReadEpochs.enter(bipartiteGraph);
+    try {
+      salsaIterations.runSalsaIterations(request, random);
+      salsaResponse = salsaSelectResults.pickTopNodes();
+    } finally {
+      ReadEpochs.exit(bipartiteGraph, readEpoch);
+    }
+    statsRecorder.record(salsaResponse.getSalsaStats(), System.nanoTime() - startTime);
+    return salsaResponse;
+  }
+}
@@ -23,11 +23,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.twitter.graphjet.algorithms.RecommendationAlgorithm;
+import com.twitter.graphjet.algorithms.RecommendationStatsRecorder;
 import com.twitter.graphjet.algorithms.salsa.SalsaIterations;
 import com.twitter.graphjet.algorithms.salsa.SalsaRequest;
 import com.twitter.graphjet.algorithms.salsa.SalsaResponse;
 import com.twitter.graphjet.algorithms.salsa.SalsaSelectResults;
 import com.twitter.graphjet.algorithms.salsa.SalsaStats;
+import com.twitter.graphjet.bipartite.ReadEpochs;
 import com.twitter.graphjet.bipartite.api.BipartiteGraph;
 import com.twitter.graphjet.stats.Counter;
 import com.twitter.graphjet.stats.StatsReceiver;
@@ -38,11 +40,13 @@ import com.twitter.graphjet.stats.StatsReceiver;
 public class Salsa implements RecommendationAlgorithm<SalsaRequest, SalsaResponse> {
   private static final Logger LOG = LoggerFactory.getLogger("graph");
 
+  private final BipartiteGraph bipartiteGraph;
   private final SalsaIterations<BipartiteGraph> salsaIterations;
   private final SalsaSelectResults<BipartiteGraph> salsaSelectResults;
 
   private final StatsReceiver statsReceiver;
   private final Counter numRequestsCounter;
+  private final RecommendationStatsRecorder statsRecorder;
 
   /**
    * This initializes all the state needed to run SALSA. Note that the object can be reused for
@@ -68,8 +72,10 @@ public class Salsa implements RecommendationAlgorithm<SalsaRequest, SalsaRespons
         new FinalSalsaIteration(salsaInternalState)
     );
     this.salsaSelectResults = new SalsaSelectResults<BipartiteGraph>(salsaInternalState);
+    this.bipartiteGraph = bipartiteGraph;
     this.statsReceiver = statsReceiver.scope("SALSA");
     this.numRequestsCounter = this.statsReceiver.counter("numRequests");
+    this.statsRecorder = new RecommendationStatsRecorder(this.statsReceiver);
   }
 
   @Override
@@ -78,16 +84,27 @@ public class Salsa implements RecommendationAlgorithm<SalsaRequest, SalsaRespons
     // First, update some stats
     numRequestsCounter.incr();
     long queryNode = request.getQueryNode();
-    LOG.info("SALSA: Incoming request with request_id = "
-        + queryNode
-        + " with numRandomWalks = "
-        + request.getNumRandomWalks()
-        + " with seed set size = "
-        + request.getLeftSeedNodesWithWeight().size()
-    );
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("SALSA: Incoming request with request_id = "
+          + queryNode
+          + " with numRandomWalks = "
+          + request.getNumRandomWalks()
+          + " with seed set size = "
+          + request.getLeftSeedNodesWithWeight().size()
+      );
+      LOG.debug("SALSA: running the full graph algo for query node " + queryNode);
+    }
 
-    LOG.info("SALSA: running the full graph algo for query node " + queryNode);
-    salsaIterations.runSalsaIterations(request, random);
-    return salsaSelectResults.pickTopNodes();
+    long startTime = System.nanoTime();
+    SalsaResponse salsaResponse;
+    long readEpoch = ReadEpochs.enter(bipartiteGraph);
+    try {
+      salsaIterations.runSalsaIterations(request, random);
+      salsaResponse = salsaSelectResults.pickTopNodes();
+    } finally {
+      ReadEpochs.exit(bipartiteGraph, readEpoch);
+    }
+    statsRecorder.record(salsaResponse.getSalsaStats(), System.nanoTime() - startTime);
+    return salsaResponse;
   }
 }
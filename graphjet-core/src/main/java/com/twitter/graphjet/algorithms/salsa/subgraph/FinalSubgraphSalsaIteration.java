@@ -35,7 +35,7 @@ public class FinalSubgraphSalsaIteration extends LeftSubgraphSalsaIteration {
 
   @Override
   public void runSingleIteration() {
-    LOG.info("SALSA: running final subgraph iteration");
+    LOG.debug("SALSA: running final subgraph iteration");
     salsaSubgraphInternalState.traverseSubgraphLeftToRight(nodeVisitor);
   }
 }
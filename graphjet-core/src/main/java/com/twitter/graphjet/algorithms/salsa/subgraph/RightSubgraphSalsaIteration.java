@@ -32,7 +32,7 @@ public class RightSubgraphSalsaIteration extends SingleSalsaIteration {
    */
   @Override
   public void runSingleIteration() {
-    LOG.info("SALSA: running right subgraph iteration");
+    LOG.debug("SALSA: running right subgraph iteration");
     salsaSubgraphInternalState.traverseSubgraphRightToLeft();
   }
 }
@@ -23,12 +23,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.twitter.graphjet.algorithms.RecommendationAlgorithm;
+import com.twitter.graphjet.algorithms.RecommendationStatsRecorder;
 import com.twitter.graphjet.algorithms.salsa.SalsaIterations;
 import com.twitter.graphjet.algorithms.salsa.SalsaNodeVisitor;
 import com.twitter.graphjet.algorithms.salsa.SalsaRequest;
 import com.twitter.graphjet.algorithms.salsa.SalsaResponse;
 import com.twitter.graphjet.algorithms.salsa.SalsaSelectResults;
 import com.twitter.graphjet.algorithms.salsa.SalsaStats;
+import com.twitter.graphjet.bipartite.ReadEpochs;
 import com.twitter.graphjet.bipartite.api.LeftIndexedBipartiteGraph;
 import com.twitter.graphjet.stats.Counter;
 import com.twitter.graphjet.stats.StatsReceiver;
@@ -39,11 +41,13 @@ import com.twitter.graphjet.stats.StatsReceiver;
 public class SubgraphSalsa implements RecommendationAlgorithm<SalsaRequest, SalsaResponse> {
   private static final Logger LOG = LoggerFactory.getLogger("graph");
 
+  private final LeftIndexedBipartiteGraph bipartiteGraph;
   private final SalsaIterations<LeftIndexedBipartiteGraph> salsaIterationsSubgraph;
   private final SalsaSelectResults<LeftIndexedBipartiteGraph> salsaSelectResultsSubgraph;
 
   private final StatsReceiver statsReceiver;
   private final Counter numRequestsCounter;
+  private final RecommendationStatsRecorder statsRecorder;
 
   /**
    * This initializes all the state needed to run SALSA. Note that the object can be reused for
@@ -78,8 +82,10 @@ public class SubgraphSalsa implements RecommendationAlgorithm<SalsaRequest, Sals
     );
     this.salsaSelectResultsSubgraph =
         new SalsaSelectResults<LeftIndexedBipartiteGraph>(salsaSubgraphInternalState);
+    this.bipartiteGraph = bipartiteGraph;
     this.statsReceiver = statsReceiver.scope("SubgraphSALSA");
     this.numRequestsCounter = this.statsReceiver.counter("numRequests");
+    this.statsRecorder = new RecommendationStatsRecorder(this.statsReceiver);
   }
 
   @Override
@@ -88,15 +94,26 @@ public class SubgraphSalsa implements RecommendationAlgorithm<SalsaRequest, Sals
     // First, update some stats
     numRequestsCounter.incr();
     long queryNode = request.getQueryNode();
-    LOG.info("SubgraphSALSA: Incoming request with request_id = "
-            + queryNode
-            + " with numRandomWalks = "
-            + request.getNumRandomWalks()
-            + " with seed set size = "
-            + request.getLeftSeedNodesWithWeight().size()
-    );
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("SubgraphSALSA: Incoming request with request_id = "
+              + queryNode
+              + " with numRandomWalks = "
+              + request.getNumRandomWalks()
+              + " with seed set size = "
+              + request.getLeftSeedNodesWithWeight().size()
+      );
+    }
 
-    salsaIterationsSubgraph.runSalsaIterations(request, random);
-    return salsaSelectResultsSubgraph.pickTopNodes();
+    long startTime = System.nanoTime();
+    SalsaResponse salsaResponse;
+    long readEpoch = ReadEpochs.enter(bipartiteGraph);
+    try {
+      salsaIterationsSubgraph.runSalsaIterations(request, random);
+      salsaResponse = salsaSelectResultsSubgraph.pickTopNodes();
+    } finally {
+      ReadEpochs.exit(bipartiteGraph, readEpoch);
+    }
+    statsRecorder.record(salsaResponse.getSalsaStats(), System.nanoTime() - startTime);
+    return salsaResponse;
   }
 }
@@ -20,13 +20,22 @@ package com.twitter.graphjet.algorithms.socialproof;
 import com.twitter.graphjet.algorithms.IdentityIDMask;
 import com.twitter.graphjet.algorithms.RecommendationType;
 import com.twitter.graphjet.bipartite.LeftIndexedMultiSegmentBipartiteGraph;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+import com.twitter.graphjet.stats.StatsReceiver;
 
 public class MomentSocialProofGenerator extends SocialProofGenerator {
 
   public MomentSocialProofGenerator(
     LeftIndexedMultiSegmentBipartiteGraph leftIndexedBipartiteGraph
   ) {
-    super(leftIndexedBipartiteGraph);
+    this(leftIndexedBipartiteGraph, new NullStatsReceiver());
+  }
+
+  public MomentSocialProofGenerator(
+    LeftIndexedMultiSegmentBipartiteGraph leftIndexedBipartiteGraph,
+    StatsReceiver statsReceiver
+  ) {
+    super(leftIndexedBipartiteGraph, statsReceiver);
     super.idMask = new IdentityIDMask();
     super.recommendationType = RecommendationType.MOMENT;
   }
@@ -25,11 +25,16 @@ import java.util.Random;
 import com.twitter.graphjet.algorithms.IDMask;
 import com.twitter.graphjet.algorithms.RecommendationAlgorithm;
 import com.twitter.graphjet.algorithms.RecommendationInfo;
+import com.twitter.graphjet.algorithms.RecommendationStats;
+import com.twitter.graphjet.algorithms.RecommendationStatsRecorder;
 import com.twitter.graphjet.algorithms.RecommendationType;
 import com.twitter.graphjet.algorithms.TweetIDMask;
 import com.twitter.graphjet.bipartite.NodeMetadataLeftIndexedPowerLawMultiSegmentBipartiteGraph;
 import com.twitter.graphjet.bipartite.NodeMetadataMultiSegmentIterator;
 import com.twitter.graphjet.hashing.IntArrayIterator;
+import com.twitter.graphjet.stats.Counter;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+import com.twitter.graphjet.stats.StatsReceiver;
 
 import it.unimi.dsi.fastutil.bytes.*;
 import it.unimi.dsi.fastutil.ints.*;
@@ -65,9 +70,25 @@ public class NodeMetadataSocialProofGenerator implements
   // NodeMetadata (Int) -> Sum of social proof edges (Double)
   private final List<Int2DoubleMap> socialProofWeights;
   protected IDMask idMask;
+  private final RecommendationStats socialProofStats;
+  private int numRHSVisits;
+
+  private final Counter numRequestsCounter;
+  private final RecommendationStatsRecorder statsRecorder;
 
   public NodeMetadataSocialProofGenerator(
     NodeMetadataLeftIndexedPowerLawMultiSegmentBipartiteGraph graph
+  ) {
+    this(graph, new NullStatsReceiver());
+  }
+
+  /**
+   * @param graph          is the graph to collect social proofs from
+   * @param statsReceiver  tracks the internal stats
+   */
+  public NodeMetadataSocialProofGenerator(
+    NodeMetadataLeftIndexedPowerLawMultiSegmentBipartiteGraph graph,
+    StatsReceiver statsReceiver
   ) {
     this.graph = graph;
     this.idMask = new TweetIDMask();
@@ -85,6 +106,10 @@ public class NodeMetadataSocialProofGenerator implements
       socialProofs.add(i, new Int2ObjectOpenHashMap<>());
       socialProofWeights.add(i, new Int2DoubleOpenHashMap());
     }
+    this.socialProofStats = new RecommendationStats();
+    StatsReceiver scopedStatsReceiver = statsReceiver.scope("NodeMetadataSocialProofGenerator");
+    this.numRequestsCounter = scopedStatsReceiver.counter("numRequests");
+    this.statsRecorder = new RecommendationStatsRecorder(scopedStatsReceiver);
   }
 
   private void addSocialProofWeight(byte nodeMetaDataType, int metadataId, double weight) {
@@ -179,6 +204,7 @@ public class NodeMetadataSocialProofGenerator implements
             if (!inputNodeMetadataIds.contains(metadataId)) continue;
             addSocialProof(nodeMetadataType, metadataId, edgeType, leftNode, rightNode);
             addSocialProofWeight(nodeMetadataType, metadataId, weight);
+            numRHSVisits++;
           }
         }
       }
@@ -192,12 +218,21 @@ public class NodeMetadataSocialProofGenerator implements
     for (Int2DoubleMap socialProofToWeightMap: socialProofWeights) {
       socialProofToWeightMap.clear();
     }
+    socialProofStats.reset();
+    numRHSVisits = 0;
   }
 
   @Override
   public SocialProofResponse computeRecommendations(NodeMetadataSocialProofRequest request, Random rand) {
+    numRequestsCounter.incr();
+    long startTime = System.nanoTime();
     resetSocialProofs();
-    collectRecommendations(request);
+    long readEpoch = graph.enterReadEpoch();
+    try {
+      collectRecommendations(request);
+    } finally {
+      graph.exitReadEpoch(readEpoch);
+    }
 
     List<RecommendationInfo> socialProofList = new LinkedList<>();
     for (byte inputNodeMetadataType : request.getNodeMetadataTypeToIdsMap().keySet()) {
@@ -219,6 +254,11 @@ public class NodeMetadataSocialProofGenerator implements
       }
     }
 
+    // The node metadata ids with social proofs are the right nodes this request reaches
+    socialProofStats.setNumDirectNeighbors(request.getLeftSeedNodesWithWeight().size());
+    socialProofStats.setNumRHSVisits(numRHSVisits);
+    socialProofStats.setNumRightNodesReached(socialProofList.size());
+    statsRecorder.record(socialProofStats, System.nanoTime() - startTime);
     return new SocialProofResponse(socialProofList);
   }
 }
@@ -26,13 +26,20 @@ import java.util.Random;
 import com.twitter.graphjet.algorithms.IDMask;
 import com.twitter.graphjet.algorithms.NodeInfo;
 import com.twitter.graphjet.algorithms.NodeInfoHelper;
+import com.twitter.graphjet.algorithms.NodeInfoPool;
 import com.twitter.graphjet.algorithms.RecommendationAlgorithm;
 import com.twitter.graphjet.algorithms.RecommendationInfo;
 import com.twitter.graphjet.algorithms.RecommendationRequest;
+import com.twitter.graphjet.algorithms.RecommendationStats;
+import com.twitter.graphjet.algorithms.RecommendationStatsRecorder;
 import com.twitter.graphjet.algorithms.RecommendationType;
 import com.twitter.graphjet.bipartite.LeftIndexedMultiSegmentBipartiteGraph;
 import com.twitter.graphjet.bipartite.api.EdgeIterator;
+import com.twitter.graphjet.bipartite.api.RightIndexedBipartiteGraph;
 import com.twitter.graphjet.hashing.SmallArrayBasedLongToDoubleMap;
+import com.twitter.graphjet.stats.Counter;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+import com.twitter.graphjet.stats.StatsReceiver;
 
 import it.unimi.dsi.fastutil.bytes.Byte2ObjectArrayMap;
 import it.unimi.dsi.fastutil.bytes.ByteArraySet;
@@ -43,6 +50,7 @@ import it.unimi.dsi.fastutil.longs.Long2DoubleMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongArraySet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import it.unimi.dsi.fastutil.longs.LongSet;
 
 import static com.twitter.graphjet.algorithms.RecommendationRequest.FAVORITE_SOCIAL_PROOF_TYPE;
@@ -67,21 +75,53 @@ public abstract class SocialProofGenerator implements
   protected IDMask idMask;
 
   private final Long2ObjectMap<NodeInfo> visitedRightNodes;
+  private final NodeInfoPool nodeInfoPool;
   private final Long2ByteMap seenEdgesPerNode;
+  // Seeds with more than MAX_EDGES_PER_NODE edges, whose edges are always scanned from the left
+  private final LongSet heavyLeftSeedNodes;
+  private final long[] maskedRightNodeIds = new long[1];
+  private final RecommendationStats socialProofStats;
+  private int numRHSVisits;
+  private int numRightNodesFiltered;
+
+  private final Counter numRequestsCounter;
+  private final RecommendationStatsRecorder statsRecorder;
 
   public SocialProofGenerator(
     LeftIndexedMultiSegmentBipartiteGraph leftIndexedBipartiteGraph
+  ) {
+    this(leftIndexedBipartiteGraph, new NullStatsReceiver());
+  }
+
+  /**
+   * @param leftIndexedBipartiteGraph is the graph to collect social proofs from
+   * @param statsReceiver             tracks the internal stats
+   */
+  public SocialProofGenerator(
+    LeftIndexedMultiSegmentBipartiteGraph leftIndexedBipartiteGraph,
+    StatsReceiver statsReceiver
   ) {
     // We re-use these data containers to avoid redundant allocations across requests
     this.visitedRightNodes = new Long2ObjectOpenHashMap<>();
+    this.nodeInfoPool = new NodeInfoPool();
     this.seenEdgesPerNode = new Long2ByteArrayMap();
+    this.heavyLeftSeedNodes = new LongOpenHashSet();
+    this.socialProofStats = new RecommendationStats();
 
     this.leftIndexedBipartiteGraph = leftIndexedBipartiteGraph;
+    StatsReceiver scopedStatsReceiver = statsReceiver.scope("SocialProofGenerator");
+    this.numRequestsCounter = scopedStatsReceiver.counter("numRequests");
+    this.statsRecorder = new RecommendationStatsRecorder(scopedStatsReceiver);
   }
 
   private void reset() {
     seenEdgesPerNode.clear();
+    heavyLeftSeedNodes.clear();
     visitedRightNodes.clear();
+    nodeInfoPool.reset();
+    socialProofStats.reset();
+    numRHSVisits = 0;
+    numRightNodesFiltered = 0;
   }
 
   /**
@@ -135,6 +175,7 @@ public abstract class SocialProofGenerator implements
       // Remove unfavorited edges from the node, and skip the node if it has no social proof left
       boolean isNodeModified = NodeInfoHelper.removeUnfavoritedSocialProofs(nodeInfo);
       if (isNodeModified && !NodeInfoHelper.nodeInfoHasValidSocialProofs(nodeInfo)) {
+        numRightNodesFiltered++;
         continue;
       }
       results.add(makeSocialProofResult(nodeInfo));
@@ -145,7 +186,7 @@ public abstract class SocialProofGenerator implements
   private void updateVisitedRightNodes(long leftNode, long rightNode, byte edgeType, double weight) {
     NodeInfo nodeInfo;
     if (!this.visitedRightNodes.containsKey(rightNode)) {
-      nodeInfo = new NodeInfo(rightNode, 0.0, NUM_OF_SOCIAL_PROOF_TYPES);
+      nodeInfo = nodeInfoPool.acquire(rightNode, 0.0, NUM_OF_SOCIAL_PROOF_TYPES);
       this.visitedRightNodes.put(rightNode, nodeInfo);
     } else {
       nodeInfo = this.visitedRightNodes.get(rightNode);
@@ -153,6 +194,7 @@ public abstract class SocialProofGenerator implements
 
     nodeInfo.addToWeight(weight);
     nodeInfo.addToSocialProof(leftNode, edgeType, 0, weight);
+    numRHSVisits++;
   }
 
   /**
@@ -166,10 +208,21 @@ public abstract class SocialProofGenerator implements
     Long2DoubleMap leftSeedNodesWithWeight, LongSet rightNodeIds, byte[] validSocialProofTypes) {
     ByteSet socialProofTypeSet = new ByteArraySet(validSocialProofTypes);
 
+    boolean collectFromRightNodeEdges =
+      shouldCollectFromRightNodeEdges(leftSeedNodesWithWeight, rightNodeIds);
+    if (collectFromRightNodeEdges) {
+      collectRightNodeInfoFromRightNodeEdges(
+        leftSeedNodesWithWeight, rightNodeIds, socialProofTypeSet);
+    }
+
     // Iterate through the set of left node seeds with weights.
     // For each left node, go through its edges and collect the engagements on the right nodes
     for (Long2DoubleMap.Entry entry: leftSeedNodesWithWeight.long2DoubleEntrySet()) {
       long leftNode = entry.getLongKey();
+      if (collectFromRightNodeEdges && !heavyLeftSeedNodes.contains(leftNode)) {
+        // already collected from the right node edges
+        continue;
+      }
       EdgeIterator edgeIterator = leftIndexedBipartiteGraph.getLeftNodeEdges(leftNode);
       if (edgeIterator == null) {
         continue;
@@ -198,6 +251,93 @@ public abstract class SocialProofGenerator implements
     }
   }
 
+  /**
+   * Returns all the ids under which the given right node may be stored in the graph, i.e. all the
+   * ids that {@link #idMask} restores to the right node. These are the ids whose edges are looked
+   * up when social proofs are collected from a right-indexed graph. The returned array is reused
+   * by the next call.
+   *
+   * @param rightNode is a right node id as given in the request
+   * @return the masked ids of the right node
+   */
+  protected long[] getMaskedRightNodeIds(long rightNode) {
+    maskedRightNodeIds[0] = rightNode;
+    return maskedRightNodeIds;
+  }
+
+  /**
+   * The left seeds' edges are scanned unless the graph is also indexed by right node and the
+   * requested right nodes have fewer edges in total than the seeds whose edges all fall within the
+   * scan of MAX_EDGES_PER_NODE edges. This is typically the case for requests with many seeds and
+   * few candidate right nodes. Seeds with more edges than that are always scanned, see
+   * {@link #collectRightNodeInfoFromRightNodeEdges}, and are collected in
+   * {@link #heavyLeftSeedNodes} along the way.
+   */
+  private boolean shouldCollectFromRightNodeEdges(
+    Long2DoubleMap leftSeedNodesWithWeight, LongSet rightNodeIds) {
+    if (!(leftIndexedBipartiteGraph instanceof RightIndexedBipartiteGraph)) {
+      return false;
+    }
+    RightIndexedBipartiteGraph rightIndexedBipartiteGraph =
+      (RightIndexedBipartiteGraph) leftIndexedBipartiteGraph;
+    long numLightLeftEdges = 0;
+    for (long leftNode: leftSeedNodesWithWeight.keySet()) {
+      int leftNodeDegree = leftIndexedBipartiteGraph.getLeftNodeDegree(leftNode);
+      if (leftNodeDegree > MAX_EDGES_PER_NODE) {
+        heavyLeftSeedNodes.add(leftNode);
+      } else {
+        numLightLeftEdges += leftNodeDegree;
+      }
+    }
+    long numRightEdgesToVisit = 0;
+    for (long rightNode: rightNodeIds) {
+      for (long maskedRightNode: getMaskedRightNodeIds(rightNode)) {
+        numRightEdgesToVisit += rightIndexedBipartiteGraph.getRightNodeDegree(maskedRightNode);
+        if (numRightEdgesToVisit >= numLightLeftEdges) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Collect social proofs by intersecting the edges of every requested right node with the left
+   * seeds that have at most MAX_EDGES_PER_NODE edges. All the edges of these seeds fall within the
+   * scan of their edges, so this collects exactly the same social proofs as the scan. The edges of
+   * the other seeds are left to the scan, which only visits the first MAX_EDGES_PER_NODE of them.
+   *
+   * @param leftSeedNodesWithWeight Left nodes whose engagements are collected
+   * @param rightNodeIds            Right nodes for which we want to generate social proofs
+   * @param socialProofTypeSet      Social proof types that we are interested in
+   */
+  private void collectRightNodeInfoFromRightNodeEdges(
+    Long2DoubleMap leftSeedNodesWithWeight, LongSet rightNodeIds, ByteSet socialProofTypeSet) {
+    RightIndexedBipartiteGraph rightIndexedBipartiteGraph =
+      (RightIndexedBipartiteGraph) leftIndexedBipartiteGraph;
+
+    for (long rightNode: rightNodeIds) {
+      for (long maskedRightNode: getMaskedRightNodeIds(rightNode)) {
+        EdgeIterator edgeIterator = rightIndexedBipartiteGraph.getRightNodeEdges(maskedRightNode);
+        if (edgeIterator == null) {
+          continue;
+        }
+
+        while (edgeIterator.hasNext()) {
+          long leftNode = edgeIterator.nextLong();
+          byte edgeType = edgeIterator.currentEdgeType();
+          if (!leftSeedNodesWithWeight.containsKey(leftNode)
+            || !socialProofTypeSet.contains(edgeType)
+            || heavyLeftSeedNodes.contains(leftNode)) {
+            continue;
+          }
+          updateVisitedRightNodes(
+            leftNode, rightNode, edgeType, leftSeedNodesWithWeight.get(leftNode));
+        }
+      }
+    }
+  }
+
   /**
    * When the incoming request asks for Favorite as one of the social proofs, we must check for
    * Unfavorite edges as well, and remove the corresponding unfavorited edges.
@@ -226,18 +366,42 @@ public abstract class SocialProofGenerator implements
 
   @Override
   public SocialProofResponse computeRecommendations(SocialProofRequest request, Random rand) {
+    numRequestsCounter.incr();
+    long startTime = System.nanoTime();
     reset();
 
     Long2DoubleMap leftSeedNodesWithWeight = request.getLeftSeedNodesWithWeight();
     LongSet rightNodeIds = request.getRightNodeIds();
 
-    if (shouldRemoveUnfavoritedEdges(request)) {
-      collectRightNodeInfo(
-        leftSeedNodesWithWeight, rightNodeIds, appendUnfavoriteType(request.getSocialProofTypes()));
-      return removeUnfavoritesAndGenerateRecommendationsFromNodeInfo();
-    } else {
-      collectRightNodeInfo(leftSeedNodesWithWeight, rightNodeIds, request.getSocialProofTypes());
-      return generateRecommendationFromNodeInfo();
+    SocialProofResponse response;
+    long readEpoch = leftIndexedBipartiteGraph.enterReadEpoch();
+    try {
+      if (shouldRemoveUnfavoritedEdges(request)) {
+        collectRightNodeInfo(
+          leftSeedNodesWithWeight,
+          rightNodeIds,
+          appendUnfavoriteType(request.getSocialProofTypes()));
+        response = removeUnfavoritesAndGenerateRecommendationsFromNodeInfo();
+      } else {
+        collectRightNodeInfo(leftSeedNodesWithWeight, rightNodeIds, request.getSocialProofTypes());
+        response = generateRecommendationFromNodeInfo();
+      }
+    } finally {
+      leftIndexedBipartiteGraph.exitReadEpoch(readEpoch);
     }
+    updateAlgorithmStats(leftSeedNodesWithWeight.size());
+    statsRecorder.record(socialProofStats, System.nanoTime() - startTime);
+    return response;
+  }
+
+  /**
+   * The seeds are the direct neighbors of a social proof request, and the right nodes that lose
+   * all their social proofs to unfavorites are the filtered ones.
+   */
+  private void updateAlgorithmStats(int numLeftSeedNodes) {
+    socialProofStats.setNumDirectNeighbors(numLeftSeedNodes);
+    socialProofStats.setNumRHSVisits(numRHSVisits);
+    socialProofStats.setNumRightNodesReached(visitedRightNodes.size());
+    socialProofStats.setNumRightNodesFiltered(numRightNodesFiltered);
   }
 }
@@ -20,14 +20,44 @@ package com.twitter.graphjet.algorithms.socialproof;
 import com.twitter.graphjet.algorithms.RecommendationType;
 import com.twitter.graphjet.algorithms.TweetIDMask;
 import com.twitter.graphjet.bipartite.LeftIndexedMultiSegmentBipartiteGraph;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+import com.twitter.graphjet.stats.StatsReceiver;
 
 public class TweetSocialProofGenerator extends SocialProofGenerator {
+  // All the tags TweetIDMask can store in the top bits of a tweet id
+  private static final long[] TWEET_ID_TAGS = {
+    TweetIDMask.TWEET,
+    TweetIDMask.SUMMARY,
+    TweetIDMask.PHOTO,
+    TweetIDMask.PLAYER,
+    TweetIDMask.PROMOTION,
+    TweetIDMask.UNUSED1,
+    TweetIDMask.UNUSED2,
+    TweetIDMask.UNUSED3
+  };
+
+  private final long[] maskedRightNodeIds = new long[TWEET_ID_TAGS.length];
 
   public TweetSocialProofGenerator(
     LeftIndexedMultiSegmentBipartiteGraph leftIndexedBipartiteGraph
   ) {
-    super(leftIndexedBipartiteGraph);
+    this(leftIndexedBipartiteGraph, new NullStatsReceiver());
+  }
+
+  public TweetSocialProofGenerator(
+    LeftIndexedMultiSegmentBipartiteGraph leftIndexedBipartiteGraph,
+    StatsReceiver statsReceiver
+  ) {
+    super(leftIndexedBipartiteGraph, statsReceiver);
     super.idMask = new TweetIDMask();
     super.recommendationType = RecommendationType.TWEET;
   }
+
+  @Override
+  protected long[] getMaskedRightNodeIds(long rightNode) {
+    for (int i = 0; i < TWEET_ID_TAGS.length; i++) {
+      maskedRightNodeIds[i] = rightNode | TWEET_ID_TAGS[i];
+    }
+    return maskedRightNodeIds;
+  }
 }
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.bipartite;
+
+import java.util.NoSuchElementException;
+
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+
+/**
+ * An {@link EdgeIterator} that goes through a number of edge iterators one after the other, which
+ * is how {@link ShardedMultiSegmentPowerLawBipartiteGraph} merges the edges that a node has in
+ * different shards. Null iterators are treated as empty.
+ */
+public class ConcatenatedEdgeIterator implements EdgeIterator {
+  private final EdgeIterator[] edgeIterators;
+  private int numEdgeIterators;
+  private int currentIndex;
+
+  /**
+   * Creates an iterator that can concatenate up to the given number of iterators.
+   *
+   * @param maxNumEdgeIterators  is the maximum number of iterators to concatenate
+   */
+  public ConcatenatedEdgeIterator(int maxNumEdgeIterators) {
+    this.edgeIterators = new EdgeIterator[maxNumEdgeIterators];
+  }
+
+  /**
+   * Drops all the iterators so that the object can be reused.
+   *
+   * @return this iterator
+   */
+  public ConcatenatedEdgeIterator reset() {
+    for (int i = 0; i < numEdgeIterators; i++) {
+      edgeIterators[i] = null;
+    }
+    numEdgeIterators = 0;
+    currentIndex = 0;
+    return this;
+  }
+
+  /**
+   * Appends an iterator, whose edges are returned after those of all the iterators added before.
+   *
+   * @param edgeIterator  is the iterator to append, which may be null
+   * @return this iterator
+   */
+  public ConcatenatedEdgeIterator add(EdgeIterator edgeIterator) {
+    edgeIterators[numEdgeIterators++] = edgeIterator;
+    return this;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (currentIndex < numEdgeIterators) {
+      EdgeIterator edgeIterator = edgeIterators[currentIndex];
+      if (edgeIterator != null && edgeIterator.hasNext()) {
+        return true;
+      }
+      currentIndex++;
+    }
+    return false;
+  }
+
+  @Override
+  public long nextLong() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    return edgeIterators[currentIndex].nextLong();
+  }
+
+  @Override
+  public Long next() {
+    return nextLong();
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("The remove operation is not supported");
+  }
+
+  @Override
+  public byte currentEdgeType() {
+    return edgeIterators[currentIndex].currentEdgeType();
+  }
+
+  @Override
+  public long currentMetadata() {
+    return edgeIterators[currentIndex].currentMetadata();
+  }
+
+  @Override
+  public int skip(int n) {
+    int skipped = 0;
+    while (skipped < n && hasNext()) {
+      int skippedInCurrent = edgeIterators[currentIndex].skip(n - skipped);
+      if (skippedInCurrent == 0) {
+        // not every iterator skips across its own internal boundaries
+        edgeIterators[currentIndex].nextLong();
+        skippedInCurrent = 1;
+      }
+      skipped += skippedInCurrent;
+    }
+    return skipped;
+  }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.bipartite;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Epoch-based reclamation for memory that the single writer has unpublished but that readers may
+ * still be using, e.g. the edge pools of a dropped segment.
+ *
+ * Readers bracket all their accesses with {@link #enter()} and {@link #exit(long)}, which only
+ * touch a counter for the current epoch. The retired memory is stamped with the epoch the writer
+ * sees it in, and the writer only advances the epoch once no reader is left in the epoch before the
+ * current one. Once the epoch is two past the stamp, every reader that could have reached the
+ * memory before it was unpublished has exited, and the memory can be reused.
+ *
+ * Readers that do not enter an epoch are not protected, so this is only safe if ALL the readers
+ * follow the protocol. A reader that never exits stalls the reclamation, but never makes it unsafe.
+ *
+ * Thread-safety: {@link #enter()}, {@link #exit(long)} and {@link #retire(Runnable)} can be called
+ * from any thread, whereas {@link #reclaim()} must only be called by the writer.
+ */
+public class EpochReclaimer {
+  private static final class Retirement {
+    private final long epoch;
+    private final Runnable reclamation;
+
+    private Retirement(long epoch, Runnable reclamation) {
+      this.epoch = epoch;
+      this.reclamation = reclamation;
+    }
+  }
+
+  private final AtomicLong epoch = new AtomicLong();
+  // number of readers in the even and odd epochs
+  private final AtomicLongArray numReaders = new AtomicLongArray(2);
+  // handed over from any thread to the writer, which stamps them with an epoch
+  private final Queue<Runnable> pendingReclamations = new ConcurrentLinkedQueue<Runnable>();
+  // only accessed by the writer
+  private final List<Retirement> retirements = new ArrayList<Retirement>();
+
+  /**
+   * Registers a reader in the current epoch. Everything the reader reads from the graph after this
+   * call stays valid until the matching {@link #exit(long)}.
+   *
+   * @return the epoch to pass to {@link #exit(long)}
+   */
+  public long enter() {
+    while (true) {
+      long currentEpoch = epoch.get();
+      numReaders.incrementAndGet((int) (currentEpoch & 1));
+      // if the epoch moved in between, the writer may not have seen this reader
+      if (epoch.get() == currentEpoch) {
+        return currentEpoch;
+      }
+      numReaders.decrementAndGet((int) (currentEpoch & 1));
+    }
+  }
+
+  /**
+   * Unregisters a reader.
+   *
+   * @param readerEpoch  is what the matching {@link #enter()} returned
+   */
+  public void exit(long readerEpoch) {
+    numReaders.decrementAndGet((int) (readerEpoch & 1));
+  }
+
+  /**
+   * Schedules reclamation to run once no reader can reach memory that has already been
+   * unpublished, i.e. this must be called after the memory is unreachable for new readers.
+   *
+   * @param reclamation  releases the memory, and is run by the writer
+   */
+  public void retire(Runnable reclamation) {
+    pendingReclamations.add(reclamation);
+  }
+
+  /**
+   * Advances the epoch as far as the readers allow and runs the reclamations that became safe.
+   * This must only be called by the writer.
+   *
+   * @return the number of reclamations that were run
+   */
+  public int reclaim() {
+    // stamping here rather than in retire orders the stamp before any later epoch advance
+    Runnable reclamation;
+    while ((reclamation = pendingReclamations.poll()) != null) {
+      retirements.add(new Retirement(epoch.get(), reclamation));
+    }
+    if (retirements.isEmpty()) {
+      return 0;
+    }
+    for (int i = 0; i < 2 && tryAdvanceEpoch(); i++) {
+      // keep advancing
+    }
+    long currentEpoch = epoch.get();
+    int numReclaimed = 0;
+    Iterator<Retirement> iterator = retirements.iterator();
+    while (iterator.hasNext()) {
+      Retirement retirement = iterator.next();
+      if (retirement.epoch + 2 <= currentEpoch) {
+        retirement.reclamation.run();
+        iterator.remove();
+        numReclaimed++;
+      }
+    }
+    return numReclaimed;
+  }
+
+  private boolean tryAdvanceEpoch() {
+    long currentEpoch = epoch.get();
+    // the readers of the previous epoch share the counter of the next one
+    if (numReaders.get((int) ((currentEpoch + 1) & 1)) != 0) {
+      return false;
+    }
+    epoch.set(currentEpoch + 1);
+    return true;
+  }
+
+  public long getEpoch() {
+    return epoch.get();
+  }
+
+  public int getNumPendingRetirements() {
+    return retirements.size() + pendingReclamations.size();
+  }
+}
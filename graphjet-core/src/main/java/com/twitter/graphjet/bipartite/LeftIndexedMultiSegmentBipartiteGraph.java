@@ -17,15 +17,25 @@
 
 package com.twitter.graphjet.bipartite;
 
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.twitter.graphjet.bipartite.api.DynamicBipartiteGraph;
 import com.twitter.graphjet.bipartite.api.EdgeIterator;
+import com.twitter.graphjet.bipartite.api.EpochGuardedGraph;
 import com.twitter.graphjet.bipartite.api.LeftIndexedBipartiteGraph;
 import com.twitter.graphjet.bipartite.api.OptimizableBipartiteGraph;
+import com.twitter.graphjet.bipartite.api.OptimizableBipartiteGraphSegment;
+import com.twitter.graphjet.bipartite.edgepool.EdgePool;
+import com.twitter.graphjet.bipartite.edgepool.RecyclePoolMemory;
 import com.twitter.graphjet.bipartite.optimizer.Optimizer;
+import com.twitter.graphjet.bipartite.optimizer.OptimizerExecutor;
 import com.twitter.graphjet.bipartite.segment.BipartiteGraphSegmentProvider;
 import com.twitter.graphjet.bipartite.segment.LeftIndexedBipartiteGraphSegment;
+import com.twitter.graphjet.bipartite.segment.RecycleSegmentMemory;
+import com.twitter.graphjet.hashing.BigArrayStorage;
+import com.twitter.graphjet.hashing.IntShardPool;
 import com.twitter.graphjet.stats.Counter;
 import com.twitter.graphjet.stats.StatsReceiver;
 
@@ -66,7 +76,8 @@ public abstract class
   LeftIndexedBipartiteGraph,
   DynamicBipartiteGraph,
   ReusableLeftIndexedBipartiteGraph,
-  OptimizableBipartiteGraph {
+  OptimizableBipartiteGraph,
+  EpochGuardedGraph {
 
   protected final BipartiteGraphSegmentProvider<T> bipartiteGraphSegmentProvider;
   protected final Int2IntMap numEdgesInNonLiveSegmentsMap;
@@ -80,11 +91,57 @@ public abstract class
 
   protected final int maxNumSegments;
   protected final int maxNumEdgesPerSegment;
+  // Where optimized segments keep their edges
+  protected final BigArrayStorage optimizedStorage;
+
+  // How often the writer checks for memory to recycle, in edges
+  private static final int RECLAIM_INTERVAL_MASK = (1 << 16) - 1;
+
+  // Only set once segment memory recycling is enabled, see enableSegmentMemoryRecycling
+  private volatile EpochReclaimer epochReclaimer;
+  private IntShardPool shardPool;
+
+  // Null until the graph is given its own executor, see setOptimizerExecutor
+  private volatile OptimizerExecutor optimizerExecutor;
+  // Bumped after the optimizer swaps the edge pools of a segment, so that reusable iterators that
+  // are bound to the replaced pools get rebuilt, see MultiSegmentIterator
+  private final AtomicInteger numOptimizedSegments = new AtomicInteger();
 
   private T liveSegment;
 
   protected final StatsReceiver statsReceiver;
   protected final Counter numEdgesSeenInAllHistoryCounter;
+  // bumped by the random iterators of all readers, see MultiSegmentRandomIterator
+  final Counter aliasTableCacheHitsCounter;
+  final Counter aliasTableCacheMissesCounter;
+  private final Counter numSkippedOptimizationsCounter;
+
+  /**
+   * This starts the graph off with a single segment, and additional ones are allocated as needed.
+   *
+   * @param maxNumSegments                 is the maximum number of segments we'll add to the graph.
+   *                                       At that point, the oldest segments will start getting
+   *                                       dropped
+   * @param maxNumEdgesPerSegment          determines when the implementation decides to fork off a
+   *                                       new segment
+   * @param bipartiteGraphSegmentProvider  is used to generate new segments that are added to the
+   *                                       graph
+   * @param statsReceiver                  tracks the internal stats
+   */
+  public LeftIndexedMultiSegmentBipartiteGraph(
+      int maxNumSegments,
+      int maxNumEdgesPerSegment,
+      BipartiteGraphSegmentProvider<T> bipartiteGraphSegmentProvider,
+      MultiSegmentReaderAccessibleInfoProvider<T> multiSegmentReaderAccessibleInfoProvider,
+      StatsReceiver statsReceiver) {
+    this(
+        maxNumSegments,
+        maxNumEdgesPerSegment,
+        bipartiteGraphSegmentProvider,
+        multiSegmentReaderAccessibleInfoProvider,
+        BigArrayStorage.HEAP,
+        statsReceiver);
+  }
 
   /**
    * This starts the graph off with a single segment, and additional ones are allocated as needed.
@@ -96,6 +153,8 @@ public abstract class
    *                                       new segment
    * @param bipartiteGraphSegmentProvider  is used to generate new segments that are added to the
    *                                       graph
+   * @param optimizedStorage               is where sealed segments keep their edges once they are
+   *                                       optimized or restored from a snapshot
    * @param statsReceiver                  tracks the internal stats
    */
   public LeftIndexedMultiSegmentBipartiteGraph(
@@ -103,18 +162,30 @@ public abstract class
       int maxNumEdgesPerSegment,
       BipartiteGraphSegmentProvider<T> bipartiteGraphSegmentProvider,
       MultiSegmentReaderAccessibleInfoProvider<T> multiSegmentReaderAccessibleInfoProvider,
+      BigArrayStorage optimizedStorage,
       StatsReceiver statsReceiver) {
     this.maxNumSegments = maxNumSegments;
     this.maxNumEdgesPerSegment = maxNumEdgesPerSegment;
+    this.optimizedStorage = optimizedStorage;
     this.bipartiteGraphSegmentProvider = bipartiteGraphSegmentProvider;
     this.statsReceiver = statsReceiver.scope("LeftIndexedMultiSegmentBipartiteGraph");
     this.numEdgesSeenInAllHistoryCounter = this.statsReceiver.counter("numEdgesSeenInAllHistory");
+    this.aliasTableCacheHitsCounter = this.statsReceiver.counter("aliasTableCacheHits");
+    this.aliasTableCacheMissesCounter = this.statsReceiver.counter("aliasTableCacheMisses");
+    this.numSkippedOptimizationsCounter = this.statsReceiver.counter("numSkippedOptimizations");
+    // the gauges are read by the exporter thread, and may see counts that are a few edges stale
+    this.statsReceiver.addGauge(
+        "numEdges", () -> numEdgesInLiveSegment + getNumEdgesInNonLiveSegments());
+    this.statsReceiver.addGauge("numEdgesInLiveSegment", () -> numEdgesInLiveSegment);
+    this.statsReceiver.addGauge(
+        "numSegments", () -> getReaderAccessibleInfo().getSegments().size());
+    this.statsReceiver.addGauge("numOptimizedSegments", numOptimizedSegments::get);
     this.multiSegmentReaderAccessibleInfoProvider = multiSegmentReaderAccessibleInfoProvider;
     this.numEdgesInNonLiveSegmentsMap = new Int2IntOpenHashMap(maxNumSegments);
     addNewSegment();
   }
 
-  abstract ReusableNodeLongIterator initializeLeftNodeEdgesLongIterator();
+  abstract ReusableNodeTimeWindowLongIterator initializeLeftNodeEdgesLongIterator();
 
   abstract ReusableNodeRandomLongIterator initializeLeftNodeEdgesRandomLongIterator();
 
@@ -123,13 +194,167 @@ public abstract class
   }
 
   protected void addNewSegment() {
-    liveSegment = multiSegmentReaderAccessibleInfoProvider.addNewSegment(
+    long now = currentTimeMillis();
+    if (liveSegment != null) {
+      liveSegment.setMaxTimestamp(now);
+    }
+    MultiSegmentReaderAccessibleInfo<T> previousReaderAccessibleInfo =
+        multiSegmentReaderAccessibleInfoProvider.getMultiSegmentReaderAccessibleInfo();
+    T newLiveSegment = multiSegmentReaderAccessibleInfoProvider.addNewSegment(
         numEdgesInLiveSegment,
         numEdgesInNonLiveSegmentsMap,
         statsReceiver,
         bipartiteGraphSegmentProvider
     );
+    newLiveSegment.setMinTimestamp(now);
+    liveSegment = newLiveSegment;
     numEdgesInLiveSegment = 0;
+    if (epochReclaimer != null) {
+      int droppedSegmentId = previousReaderAccessibleInfo.oldestSegmentId;
+      if (droppedSegmentId < multiSegmentReaderAccessibleInfoProvider
+          .getMultiSegmentReaderAccessibleInfo().oldestSegmentId) {
+        // the dropped segment is already unpublished, so new readers cannot reach it anymore
+        retireEdgePools(RecycleSegmentMemory.getEdgePools(
+            previousReaderAccessibleInfo.getSegments().get(droppedSegmentId)));
+      }
+      epochReclaimer.reclaim();
+    }
+  }
+
+  /**
+   * Makes this graph optimize its sealed segments on the given executor instead of the JVM-wide
+   * default one of the {@link Optimizer}, so that its saturation policy, thread count and stats
+   * are its own. Jobs already submitted keep running on the previous executor.
+   *
+   * @param executor  is the executor optimizing the sealed segments of this graph
+   */
+  public void setOptimizerExecutor(OptimizerExecutor executor) {
+    optimizerExecutor = executor;
+  }
+
+  /**
+   * Hands a sealed segment to the executor of this graph, or to the default one of the
+   * {@link Optimizer} if this graph was not given its own.
+   */
+  protected void submitOptimizerJob(OptimizableBipartiteGraph graph, T segment) {
+    OptimizerExecutor executor = optimizerExecutor;
+    if (executor == null) {
+      Optimizer.submitGraphOptimizerJob(graph, segment);
+    } else {
+      executor.submit(graph, segment);
+    }
+  }
+
+  /**
+   * Makes the graph hand the edge shards of the segments it drops, and of the edge pools that the
+   * {@link Optimizer} replaces, to the given pool once no reader can reach them anymore, and take
+   * the shards of new live segments from the pool. This avoids allocating (and later collecting) a
+   * whole segment's worth of shards at every rollover. The pool only serves the segments of this
+   * graph, which it is handed to through the segment provider.
+   *
+   * This must be called by the writer before any reader accesses the graph. From then on, ALL the
+   * readers must bracket their accesses, including the whole lifetime of the iterators they get,
+   * with {@link #enterReadEpoch()} and {@link #exitReadEpoch(long)}: a reader that does not could
+   * see its edges being overwritten by a new segment. The algorithms in this library do so at
+   * their entry points, so only clients that read the graph directly need to. This is not meant
+   * for the shards of a {@link ShardedMultiSegmentPowerLawBipartiteGraph}, whose readers go through
+   * the sharded graph.
+   *
+   * @param pool  is where the shards are recycled
+   */
+  public void enableSegmentMemoryRecycling(IntShardPool pool) {
+    shardPool = pool;
+    bipartiteGraphSegmentProvider.setShardPool(pool);
+    RecycleSegmentMemory.setShardPool(liveSegment, pool);
+    epochReclaimer = new EpochReclaimer();
+  }
+
+  /**
+   * Marks the start of a read access when segment memory recycling is enabled, and is a no-op
+   * otherwise.
+   *
+   * @return the token to pass to {@link #exitReadEpoch(long)}
+   */
+  @Override
+  public long enterReadEpoch() {
+    EpochReclaimer reclaimer = epochReclaimer;
+    return reclaimer == null ? 0 : reclaimer.enter();
+  }
+
+  /**
+   * Marks the end of a read access started by {@link #enterReadEpoch()}.
+   *
+   * @param readEpoch  is what {@link #enterReadEpoch()} returned
+   */
+  @Override
+  public void exitReadEpoch(long readEpoch) {
+    EpochReclaimer reclaimer = epochReclaimer;
+    if (reclaimer != null) {
+      reclaimer.exit(readEpoch);
+    }
+  }
+
+  private void retireEdgePools(List<EdgePool> edgePools) {
+    IntShardPool pool = shardPool;
+    for (EdgePool edgePool : edgePools) {
+      epochReclaimer.retire(() -> RecyclePoolMemory.releaseEdgePoolShards(edgePool, pool));
+    }
+  }
+
+  /**
+   * Optimizes a sealed segment from the optimizer's thread, which reads the segment like any other
+   * reader, and then retires the edge pools that the optimization replaced.
+   *
+   * The optimizer may only get to the segment once it has been dropped, at which point the rollover
+   * has retired its edge pools, and their shards may already hold the edges of a newer segment. So
+   * the segment is only read if it is still published once the optimizer is in its read epoch,
+   * which then keeps the shards from being recycled until the optimization is done.
+   */
+  private void optimizeAndRecycle(int segmentId, T segment) {
+    EpochReclaimer reclaimer = epochReclaimer;
+    long readEpoch = reclaimer.enter();
+    try {
+      if (!isPublished(segmentId, segment)) {
+        numSkippedOptimizationsCounter.incr();
+        return;
+      }
+      List<EdgePool> edgePools = RecycleSegmentMemory.getEdgePools(segment);
+      optimizeAndRebindIterators(segment);
+      edgePools.removeAll(RecycleSegmentMemory.getEdgePools(segment));
+      // if the segment got dropped meanwhile, the rollover may have retired the replaced pools
+      // already, in which case they are left to the garbage collector
+      if (isPublished(segmentId, segment)) {
+        retireEdgePools(edgePools);
+      }
+    } finally {
+      reclaimer.exit(readEpoch);
+    }
+  }
+
+  private void optimizeAndRebindIterators(OptimizableBipartiteGraphSegment segment) {
+    optimize(segment);
+    numOptimizedSegments.incrementAndGet();
+  }
+
+  /**
+   * Returns how many segments the optimizer has swapped the edge pools of so far, which lets
+   * reusable iterators notice that the pools they are bound to were replaced.
+   */
+  int getNumOptimizedSegments() {
+    return numOptimizedSegments.get();
+  }
+
+  private boolean isPublished(int segmentId, T segment) {
+    MultiSegmentReaderAccessibleInfo<T> readerAccessibleInfo = getReaderAccessibleInfo();
+    return readerAccessibleInfo != null
+        && readerAccessibleInfo.getSegments().get(segmentId) == segment;
+  }
+
+  /**
+   * The clock used to record the time range of each segment, which can be overridden in tests.
+   */
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
   }
 
   public T getLiveSegment() {
@@ -140,17 +365,73 @@ public abstract class
     addNewSegment();
   }
 
-  @Override
-  public void addEdge(long leftNode, long rightNode, byte edgeType) {
+  /**
+   * Seals the live segment by starting a new one, and hands the sealed segment to the optimizer.
+   */
+  protected void sealLiveSegment() {
+    T oldLiveSegment = liveSegment;
+    int oldLiveSegmentId = multiSegmentReaderAccessibleInfoProvider.getLiveSegmentId();
+
+    addNewSegment();
+
+    if (epochReclaimer == null) {
+      submitOptimizerJob(this::optimizeAndRebindIterators, oldLiveSegment);
+    } else {
+      submitOptimizerJob(
+          segment -> optimizeAndRecycle(oldLiveSegmentId, oldLiveSegment), oldLiveSegment);
+    }
+  }
+
+  /**
+   * Replaces the single empty segment of a freshly constructed graph with sealed segments restored
+   * from a snapshot, plus a new empty live segment.
+   *
+   * @param oldestSegmentId  is the id of the first restored segment, the rest having consecutive
+   *                         ids
+   * @param sealedSegments   contains the restored segments from oldest to newest
+   */
+  protected void restoreSealedSegments(int oldestSegmentId, List<T> sealedSegments) {
+    if (numEdgesInLiveSegment != 0
+        || multiSegmentReaderAccessibleInfoProvider.getLiveSegmentId() != 0) {
+      throw new IllegalStateException("Segments can only be restored into an empty graph!");
+    }
+    // the time range of the restored segments is not known, so they are never skipped
+    T newLiveSegment = multiSegmentReaderAccessibleInfoProvider.restoreSegments(
+        oldestSegmentId,
+        sealedSegments,
+        numEdgesInNonLiveSegmentsMap,
+        statsReceiver,
+        bipartiteGraphSegmentProvider
+    );
+    newLiveSegment.setMinTimestamp(currentTimeMillis());
+    liveSegment = newLiveSegment;
+    numEdgesInLiveSegment = 0;
+  }
+
+  /**
+   * Readies the live segment for an edge of the given left node: seals the live segment once it is
+   * full, reclaims retired edge pools on the reclaim interval and indexes the left node. Every
+   * addEdge variant must call this before adding the edge to the live segment.
+   *
+   * @param leftNode  is the left node of the edge about to be added
+   */
+  protected void prepareLiveSegmentForEdge(long leftNode) {
     // usually very cheap check is it's only false very rarely
     if (numEdgesInLiveSegment == maxNumEdgesPerSegment) {
-      T oldLiveSegment = liveSegment;
-
-      addNewSegment();
+      sealLiveSegment();
+    }
 
-      Optimizer.submitGraphOptimizerJob(this, oldLiveSegment);
+    if ((numEdgesInLiveSegment & RECLAIM_INTERVAL_MASK) == 0 && epochReclaimer != null) {
+      // the optimizer retires edge pools at any time, and their shards are best reused right away
+      epochReclaimer.reclaim();
     }
 
+    multiSegmentReaderAccessibleInfoProvider.indexLeftNodeInLiveSegment(leftNode);
+  }
+
+  @Override
+  public void addEdge(long leftNode, long rightNode, byte edgeType) {
+    prepareLiveSegmentForEdge(leftNode);
     liveSegment.addEdge(leftNode, rightNode, edgeType);
     numEdgesInLiveSegment++;
 
@@ -168,11 +449,23 @@ public abstract class
     if (crossMemoryBarrier() == -1) {
       return 0;
     }
+    MultiSegmentReaderAccessibleInfo<T> readerAccessibleInfo =
+        multiSegmentReaderAccessibleInfoProvider.getMultiSegmentReaderAccessibleInfo();
+    NodeSegmentIndex leftNodeSegmentIndex = readerAccessibleInfo.getLeftNodeSegmentIndex();
     int degree = 0;
-    for (LeftIndexedBipartiteGraphSegment segment
-        : multiSegmentReaderAccessibleInfoProvider
-          .getMultiSegmentReaderAccessibleInfo().getSegments().values()) {
-      degree += segment.getLeftNodeDegree(leftNode);
+    if (leftNodeSegmentIndex == null) {
+      for (LeftIndexedBipartiteGraphSegment segment : readerAccessibleInfo.getSegments().values()) {
+        degree += segment.getLeftNodeDegree(leftNode);
+      }
+      return degree;
+    }
+    // only look the node up in the segments that hold it
+    long leftNodeSegments = leftNodeSegmentIndex.getSegments(leftNode);
+    int liveSegmentId = readerAccessibleInfo.liveSegmentId;
+    for (int i = readerAccessibleInfo.oldestSegmentId; i <= liveSegmentId; i++) {
+      if (leftNodeSegmentIndex.containsSegment(leftNodeSegments, i)) {
+        degree += readerAccessibleInfo.segments.get(i).getLeftNodeDegree(leftNode);
+      }
     }
     return degree;
   }
@@ -188,6 +481,34 @@ public abstract class
     return reusableNodeLongIterator.resetForNode(leftNode);
   }
 
+  /**
+   * Returns the edges of the given left node, skipping every segment that holds no edge added in
+   * the given time window. Whole segments are skipped, so the returned edges can still include
+   * edges added just outside the window.
+   *
+   * @param leftNode            is the left node whose edges are returned
+   * @param windowMinTimestamp  is the start of the window, in millis
+   * @param windowMaxTimestamp  is the end of the window, in millis
+   * @return an iterator over the edges of the left node in the segments overlapping the window
+   */
+  public EdgeIterator getLeftNodeEdges(
+      long leftNode, long windowMinTimestamp, long windowMaxTimestamp) {
+    return getLeftNodeEdges(
+        leftNode, windowMinTimestamp, windowMaxTimestamp, initializeLeftNodeEdgesLongIterator());
+  }
+
+  /**
+   * Same as {@link #getLeftNodeEdges(long, long, long)}, reusing the given iterator.
+   */
+  public EdgeIterator getLeftNodeEdges(
+      long leftNode,
+      long windowMinTimestamp,
+      long windowMaxTimestamp,
+      ReusableNodeTimeWindowLongIterator reusableNodeTimeWindowLongIterator) {
+    return reusableNodeTimeWindowLongIterator.resetForNode(
+        leftNode, windowMinTimestamp, windowMaxTimestamp);
+  }
+
   @Override
   public EdgeIterator getRandomLeftNodeEdges(long leftNode, int numSamples, Random random) {
     return getRandomLeftNodeEdges(
@@ -25,6 +25,7 @@ import com.twitter.graphjet.bipartite.optimizer.Optimizer;
 import com.twitter.graphjet.bipartite.segment.LeftIndexedBipartiteGraphSegment;
 import com.twitter.graphjet.bipartite.segment.LeftIndexedPowerLawSegmentProvider;
 import com.twitter.graphjet.bipartite.segment.ReusableInternalIdToLongIterator;
+import com.twitter.graphjet.hashing.BigArrayStorage;
 import com.twitter.graphjet.stats.StatsReceiver;
 
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
@@ -66,6 +67,97 @@ public class LeftIndexedPowerLawMultiSegmentBipartiteGraph
       int expectedNumRightNodes,
       EdgeTypeMask edgeTypeMask,
       StatsReceiver statsReceiver) {
+    this(
+        maxNumSegments,
+        maxNumEdgesPerSegment,
+        expectedNumLeftNodes,
+        expectedMaxLeftDegree,
+        leftPowerLawExponent,
+        expectedNumRightNodes,
+        edgeTypeMask,
+        BigArrayStorage.HEAP,
+        statsReceiver);
+  }
+
+  /**
+   * Create a multi-segment bipartite graph with both the left and right sides being power-law,
+   * whose optimized segments keep their edges in the given storage.
+   *
+   * @param maxNumSegments           is the maximum number of segments we'll add to the graph.
+   *                                 At that point, the oldest segments will start getting dropped
+   * @param maxNumEdgesPerSegment    determines when the implementation decides to fork off a
+   *                                 new segment
+   * @param expectedNumLeftNodes     is the expected number of left nodes that would be inserted in
+   *                                 the segment
+   * @param expectedMaxLeftDegree    is the maximum degree expected for any left node
+   * @param leftPowerLawExponent     is the exponent of the LHS power-law graph. see
+   *                                  {@link
+   *                                    com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePool}
+   *                                 for details
+   * @param expectedNumRightNodes    is the expected number of right nodes that would be inserted in
+   *                                 the segment
+   * @param optimizedStorage         is where optimized segments keep their edges, see
+   *                                 {@link BigArrayStorage}
+   * @param statsReceiver            tracks the internal stats
+   */
+  public LeftIndexedPowerLawMultiSegmentBipartiteGraph(
+      int maxNumSegments,
+      int maxNumEdgesPerSegment,
+      int expectedNumLeftNodes,
+      int expectedMaxLeftDegree,
+      double leftPowerLawExponent,
+      int expectedNumRightNodes,
+      EdgeTypeMask edgeTypeMask,
+      BigArrayStorage optimizedStorage,
+      StatsReceiver statsReceiver) {
+    this(
+        maxNumSegments,
+        maxNumEdgesPerSegment,
+        expectedNumLeftNodes,
+        expectedMaxLeftDegree,
+        leftPowerLawExponent,
+        expectedNumRightNodes,
+        edgeTypeMask,
+        optimizedStorage,
+        false,
+        statsReceiver);
+  }
+
+  /**
+   * Create a multi-segment bipartite graph with both the left and right sides being power-law,
+   * optionally keeping a {@link NodeSegmentIndex} so that reads of a left node only visit the
+   * segments holding it.
+   *
+   * @param maxNumSegments           is the maximum number of segments we'll add to the graph.
+   *                                 At that point, the oldest segments will start getting dropped
+   * @param maxNumEdgesPerSegment    determines when the implementation decides to fork off a
+   *                                 new segment
+   * @param expectedNumLeftNodes     is the expected number of left nodes that would be inserted in
+   *                                 the segment
+   * @param expectedMaxLeftDegree    is the maximum degree expected for any left node
+   * @param leftPowerLawExponent     is the exponent of the LHS power-law graph. see
+   *                                  {@link
+   *                                    com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePool}
+   *                                 for details
+   * @param expectedNumRightNodes    is the expected number of right nodes that would be inserted in
+   *                                 the segment
+   * @param optimizedStorage         is where optimized segments keep their edges, see
+   *                                 {@link BigArrayStorage}
+   * @param indexLeftNodeSegments    is whether to index the segments holding each left node, which
+   *                                 limits maxNumSegments to {@link NodeSegmentIndex#MAX_NUM_SEGMENTS}
+   * @param statsReceiver            tracks the internal stats
+   */
+  public LeftIndexedPowerLawMultiSegmentBipartiteGraph(
+      int maxNumSegments,
+      int maxNumEdgesPerSegment,
+      int expectedNumLeftNodes,
+      int expectedMaxLeftDegree,
+      double leftPowerLawExponent,
+      int expectedNumRightNodes,
+      EdgeTypeMask edgeTypeMask,
+      BigArrayStorage optimizedStorage,
+      boolean indexLeftNodeSegments,
+      StatsReceiver statsReceiver) {
     super(
         maxNumSegments,
         maxNumEdgesPerSegment,
@@ -77,12 +169,13 @@ public class LeftIndexedPowerLawMultiSegmentBipartiteGraph
             edgeTypeMask,
             statsReceiver),
         new MultiSegmentReaderAccessibleInfoProvider<LeftIndexedBipartiteGraphSegment>(
-            maxNumSegments, maxNumEdgesPerSegment),
+            maxNumSegments, maxNumEdgesPerSegment, indexLeftNodeSegments),
+        optimizedStorage,
         statsReceiver);
   }
 
   @Override
-  ReusableNodeLongIterator initializeLeftNodeEdgesLongIterator() {
+  ReusableNodeTimeWindowLongIterator initializeLeftNodeEdgesLongIterator() {
     return new ReverseChronologicalMultiSegmentIterator<LeftIndexedBipartiteGraphSegment>(
         this,
         new LeftSegmentEdgeAccessor<LeftIndexedBipartiteGraphSegment>(
@@ -111,6 +204,7 @@ public class LeftIndexedPowerLawMultiSegmentBipartiteGraph
 
   @Override
   public void optimize(OptimizableBipartiteGraphSegment segment) {
-    Optimizer.optimizeLeftIndexedBipartiteGraphSegment((LeftIndexedBipartiteGraphSegment) segment);
+    Optimizer.optimizeLeftIndexedBipartiteGraphSegment(
+        (LeftIndexedBipartiteGraphSegment) segment, optimizedStorage);
   }
 }
@@ -62,6 +62,11 @@ public class LeftSegmentEdgeAccessor<T extends LeftIndexedBipartiteGraphSegment>
         );
   }
 
+  @Override
+  public NodeSegmentIndex getNodeSegmentIndex() {
+    return readerAccessibleInfo.getLeftNodeSegmentIndex();
+  }
+
   @Override
   public void rebuildIterators(int oldestSegmentId, int liveSegmentId) {
     segmentInternalIdToLongIteratorMap.clear();
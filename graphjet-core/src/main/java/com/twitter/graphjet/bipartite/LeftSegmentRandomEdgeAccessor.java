@@ -58,6 +58,11 @@ class LeftSegmentRandomEdgeAccessor<T extends LeftIndexedBipartiteGraphSegment>
     return null;
   }
 
+  @Override
+  public NodeSegmentIndex getNodeSegmentIndex() {
+    return readerAccessibleInfo.getLeftNodeSegmentIndex();
+  }
+
   @Override
   public void rebuildIterators(int oldestSegmentId, int liveSegmentId) {
     segmentInternalIdToLongIteratorMap.clear();
@@ -17,8 +17,19 @@
 
 package com.twitter.graphjet.bipartite;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
 import com.twitter.graphjet.bipartite.api.BipartiteGraph;
 import com.twitter.graphjet.bipartite.api.DynamicBipartiteGraph;
 import com.twitter.graphjet.bipartite.api.EdgeIterator;
@@ -26,8 +37,14 @@ import com.twitter.graphjet.bipartite.api.OptimizableBipartiteGraphSegment;
 import com.twitter.graphjet.bipartite.optimizer.Optimizer;
 import com.twitter.graphjet.bipartite.segment.BipartiteGraphSegment;
 import com.twitter.graphjet.bipartite.segment.BipartiteGraphSegmentProvider;
+import com.twitter.graphjet.hashing.BigArrayStorage;
+import com.twitter.graphjet.snapshot.SnapshotReader;
+import com.twitter.graphjet.snapshot.SnapshotWriter;
 import com.twitter.graphjet.stats.StatsReceiver;
 
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+
 /**
  * This class implements a multi-segment {@link DynamicBipartiteGraph}
  * that can consume an (almost) infinite stream of incoming edges while consuming a maximum
@@ -59,6 +76,51 @@ import com.twitter.graphjet.stats.StatsReceiver;
 public abstract class MultiSegmentBipartiteGraph
     extends LeftIndexedMultiSegmentBipartiteGraph<BipartiteGraphSegment>
     implements BipartiteGraph, DynamicBipartiteGraph, ReusableBipartiteGraph {
+  private static final Logger LOG = LoggerFactory.getLogger("graph");
+
+  static final String MANIFEST_FILE_NAME = "manifest";
+  static final String SEGMENT_FILE_PREFIX = "segment_";
+  private static final String TMP_FILE_SUFFIX = ".tmp";
+  // "GJSP" in ASCII
+  private static final int SNAPSHOT_MAGIC = 0x474A5350;
+  private static final int SNAPSHOT_VERSION = 2;
+
+  // Segment files that this graph wrote to (or restored from) the last snapshot directory, which
+  // later snapshots to the same directory can keep
+  private File lastSnapshotDirectory;
+  private final IntSet segmentIdsInLastSnapshotDirectory = new IntOpenHashSet();
+
+  /**
+   * This starts the graph off with a single segment, and additional ones are allocated as needed.
+   *
+   * @param maxNumSegments                            is the maximum number of segments we'll add to
+   *                                                  the graph. At that point, the oldest segments
+   *                                                  will start getting dropped
+   * @param maxNumEdgesPerSegment                     determines when the implementation decides to
+   *                                                  fork off a new segment
+   * @param bipartiteGraphSegmentProvider             is used to generate new segments that are
+   *                                                  added to the graph
+   * @param multiSegmentReaderAccessibleInfoProvider  is use to generate the
+   *                                                  {@link MultiSegmentReaderAccessibleInfo}
+   *                                                  object which contains all the information
+   *                                                  needed by the readers
+   * @param statsReceiver                             tracks the internal stats
+   */
+  public MultiSegmentBipartiteGraph(
+      int maxNumSegments,
+      int maxNumEdgesPerSegment,
+      BipartiteGraphSegmentProvider<BipartiteGraphSegment> bipartiteGraphSegmentProvider,
+      MultiSegmentReaderAccessibleInfoProvider<BipartiteGraphSegment>
+          multiSegmentReaderAccessibleInfoProvider,
+      StatsReceiver statsReceiver) {
+    this(
+        maxNumSegments,
+        maxNumEdgesPerSegment,
+        bipartiteGraphSegmentProvider,
+        multiSegmentReaderAccessibleInfoProvider,
+        BigArrayStorage.HEAP,
+        statsReceiver);
+  }
 
   /**
    * This starts the graph off with a single segment, and additional ones are allocated as needed.
@@ -74,6 +136,8 @@ public abstract class MultiSegmentBipartiteGraph
    *                                                  {@link MultiSegmentReaderAccessibleInfo}
    *                                                  object which contains all the information
    *                                                  needed by the readers
+   * @param optimizedStorage                          is where sealed segments keep their edges
+   *                                                  once they are optimized or restored
    * @param statsReceiver                             tracks the internal stats
    */
   public MultiSegmentBipartiteGraph(
@@ -82,12 +146,14 @@ public abstract class MultiSegmentBipartiteGraph
       BipartiteGraphSegmentProvider<BipartiteGraphSegment> bipartiteGraphSegmentProvider,
       MultiSegmentReaderAccessibleInfoProvider<BipartiteGraphSegment>
           multiSegmentReaderAccessibleInfoProvider,
+      BigArrayStorage optimizedStorage,
       StatsReceiver statsReceiver) {
     super(
         maxNumSegments,
         maxNumEdgesPerSegment,
         bipartiteGraphSegmentProvider,
         multiSegmentReaderAccessibleInfoProvider,
+        optimizedStorage,
         statsReceiver.scope("MultiSegmentBipartiteGraph"));
   }
 
@@ -97,7 +163,210 @@ public abstract class MultiSegmentBipartiteGraph
 
   @Override
   public void optimize(OptimizableBipartiteGraphSegment segment) {
-    Optimizer.optimizeBipartiteGraphSegment((BipartiteGraphSegment) segment);
+    Optimizer.optimizeBipartiteGraphSegment((BipartiteGraphSegment) segment, optimizedStorage);
+  }
+
+  /**
+   * Writes every sealed segment of the graph into its own file in the given directory, followed by
+   * a manifest recording the segments and the stream offset at which the live segment starts. The
+   * live segment is left alone, so snapshots do not cut segments short: a restored graph replays
+   * the stream from that offset onwards, which adds the edges of the live segment back.
+   *
+   * This assumes that every offset of the input stream holds a single edge, all of which were
+   * added to the graph.
+   *
+   * Segments never change once sealed, so a file this graph already wrote to (or restored from)
+   * the same directory is kept as is, and files of segments that have since been dropped are
+   * deleted.
+   * The manifest is replaced atomically, so a crash in the middle of a snapshot leaves the previous
+   * one readable.
+   *
+   * This must be called from the writer thread.
+   *
+   * Only graphs whose segment provider supports sealed segments, see
+   * {@link BipartiteGraphSegmentProvider#supportsSealedSegments()}, such as
+   * {@link MultiSegmentPowerLawBipartiteGraph}, can be snapshotted. Other graphs are rejected
+   * before anything is written.
+   *
+   * @param directory     is the directory to write the snapshot to
+   * @param streamOffset  is the offset in the input stream of the next edge to be added
+   * @throws IOException if the snapshot cannot be written
+   * @throws UnsupportedOperationException if the segments of this graph cannot be snapshotted
+   */
+  public void snapshot(File directory, long streamOffset) throws IOException {
+    checkSupportsSealedSegments("snapshots");
+    long liveSegmentStreamOffset = streamOffset - numEdgesInLiveSegment;
+    Preconditions.checkArgument(liveSegmentStreamOffset >= 0,
+        "The live segment holds more edges than the stream offset!");
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create snapshot directory " + directory);
+    }
+    MultiSegmentReaderAccessibleInfo<BipartiteGraphSegment> readerAccessibleInfo =
+        multiSegmentReaderAccessibleInfoProvider.getMultiSegmentReaderAccessibleInfo();
+    int oldestSegmentId = readerAccessibleInfo.oldestSegmentId;
+    int liveSegmentId = readerAccessibleInfo.liveSegmentId;
+    if (!directory.equals(lastSnapshotDirectory)) {
+      lastSnapshotDirectory = directory;
+      segmentIdsInLastSnapshotDirectory.clear();
+    }
+
+    List<String> segmentFileNames = new ArrayList<String>(liveSegmentId - oldestSegmentId);
+    for (int segmentId = oldestSegmentId; segmentId < liveSegmentId; segmentId++) {
+      String segmentFileName = SEGMENT_FILE_PREFIX + segmentId;
+      segmentFileNames.add(segmentFileName);
+      File segmentFile = new File(directory, segmentFileName);
+      if (segmentIdsInLastSnapshotDirectory.contains(segmentId) && segmentFile.exists()) {
+        continue;
+      }
+      File tmpFile = new File(directory, segmentFileName + TMP_FILE_SUFFIX);
+      try (SnapshotWriter writer = new SnapshotWriter(tmpFile)) {
+        readerAccessibleInfo.getSegments().get(segmentId).writeTo(writer);
+      }
+      moveAtomically(tmpFile, segmentFile);
+      segmentIdsInLastSnapshotDirectory.add(segmentId);
+    }
+
+    File tmpManifestFile = new File(directory, MANIFEST_FILE_NAME + TMP_FILE_SUFFIX);
+    try (SnapshotWriter writer = new SnapshotWriter(tmpManifestFile)) {
+      writer.writeInt(SNAPSHOT_MAGIC);
+      writer.writeInt(SNAPSHOT_VERSION);
+      writer.writeLong(liveSegmentStreamOffset);
+      writer.writeInt(oldestSegmentId);
+      writer.writeInt(liveSegmentId - oldestSegmentId);
+    }
+    moveAtomically(tmpManifestFile, new File(directory, MANIFEST_FILE_NAME));
+
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        if (file.getName().startsWith(SEGMENT_FILE_PREFIX)
+            && !segmentFileNames.contains(file.getName())) {
+          Files.delete(file.toPath());
+        }
+      }
+    }
+    LOG.info("Wrote snapshot of segments " + oldestSegmentId + " to " + (liveSegmentId - 1)
+        + " at stream offset " + liveSegmentStreamOffset + " to " + directory);
+  }
+
+  private void checkSupportsSealedSegments(String feature) {
+    if (!bipartiteGraphSegmentProvider.supportsSealedSegments()) {
+      throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support "
+          + feature + ", as " + bipartiteGraphSegmentProvider.getClass().getSimpleName()
+          + " cannot restore or load segments");
+    }
+  }
+
+  /**
+   * Restores the sealed segments of a snapshot written by {@link #snapshot(File, long)}. The
+   * segment files are memory-mapped and either copied into heap optimized edge pools or, with
+   * off-heap storage, used in place as the edge pools, and the graph ends up
+   * with an empty live segment. This must be called on a freshly constructed graph, before any
+   * edge is added, and the caller is expected to replay the stream starting at the returned offset,
+   * i.e. from the first edge of the live segment at the time of the snapshot.
+   *
+   * @param directory  is the directory the snapshot was written to
+   * @return the stream offset to replay the stream from
+   * @throws IOException if the snapshot cannot be read
+   * @throws UnsupportedOperationException if the segments of this graph cannot be restored, see
+   *                                       {@link #snapshot(File, long)}
+   */
+  public long restore(File directory) throws IOException {
+    checkSupportsSealedSegments("snapshots");
+    long streamOffset;
+    int oldestSegmentId;
+    int numSegments;
+    try (SnapshotReader reader = new SnapshotReader(new File(directory, MANIFEST_FILE_NAME))) {
+      if (reader.readInt() != SNAPSHOT_MAGIC) {
+        throw new IOException("Not a graph snapshot: " + directory);
+      }
+      int version = reader.readInt();
+      if (version != SNAPSHOT_VERSION) {
+        throw new IOException("Unsupported snapshot version " + version + " in " + directory);
+      }
+      streamOffset = reader.readLong();
+      oldestSegmentId = reader.readInt();
+      numSegments = reader.readInt();
+    }
+
+    // there is no point in reading segments that would immediately be dropped
+    int numSkippedSegments = Math.max(0, numSegments - (maxNumSegments - 1));
+    List<BipartiteGraphSegment> sealedSegments =
+        new ArrayList<BipartiteGraphSegment>(numSegments - numSkippedSegments);
+    for (int i = numSkippedSegments; i < numSegments; i++) {
+      int segmentId = oldestSegmentId + i;
+      File segmentFile = new File(directory, SEGMENT_FILE_PREFIX + segmentId);
+      try (SnapshotReader reader = new SnapshotReader(segmentFile)) {
+        sealedSegments.add(
+            bipartiteGraphSegmentProvider.restoreSegment(segmentId, reader, optimizedStorage));
+      }
+    }
+    restoreSealedSegments(oldestSegmentId + numSkippedSegments, sealedSegments);
+    lastSnapshotDirectory = directory;
+    segmentIdsInLastSnapshotDirectory.clear();
+    for (int i = numSkippedSegments; i < numSegments; i++) {
+      segmentIdsInLastSnapshotDirectory.add(oldestSegmentId + i);
+    }
+    return streamOffset;
+  }
+
+  /**
+   * Loads a batch of edges, e.g. from offline data, straight into sealed segments. The edges are
+   * cut into segments of maxNumEdgesPerSegment edges in the given order, exactly as if they were
+   * added one by one, but each segment is built with its final optimized layout in one go: the
+   * degrees are counted first and the edges are then written into exactly sized pools, without
+   * going through the growing power law pools and the {@link Optimizer}. The batch need not be
+   * sorted. The graph ends up with an empty live segment, and if the batch does not fit in the
+   * graph only the newest edges are kept.
+   *
+   * Just like {@link #restore(File)}, this must be called from the writer thread on a freshly
+   * constructed graph, before any edge is added.
+   *
+   * @param leftNodes   contains the left node of every edge
+   * @param rightNodes  contains the right node of every edge
+   * @param edgeTypes   contains the type of every edge
+   * @param numEdges    is the number of edges in the batch
+   * @throws UnsupportedOperationException if the segments of this graph cannot be loaded, see
+   *                                       {@link #snapshot(File, long)}
+   */
+  public void bulkLoad(long[] leftNodes, long[] rightNodes, byte[] edgeTypes, int numEdges) {
+    checkSupportsSealedSegments("bulk loading");
+    Preconditions.checkArgument(
+        numEdges >= 0
+            && leftNodes.length >= numEdges
+            && rightNodes.length >= numEdges
+            && edgeTypes.length >= numEdges,
+        "Each of the arrays needs to hold numEdges entries!");
+    long start = System.currentTimeMillis();
+    int numSegments = (numEdges + maxNumEdgesPerSegment - 1) / maxNumEdgesPerSegment;
+    // there is no point in building segments that would immediately be dropped
+    int numSkippedSegments = Math.max(0, numSegments - (maxNumSegments - 1));
+    List<BipartiteGraphSegment> sealedSegments =
+        new ArrayList<BipartiteGraphSegment>(numSegments - numSkippedSegments);
+    for (int segmentId = numSkippedSegments; segmentId < numSegments; segmentId++) {
+      int offset = segmentId * maxNumEdgesPerSegment;
+      sealedSegments.add(bipartiteGraphSegmentProvider.loadSegment(
+          segmentId,
+          maxNumEdgesPerSegment,
+          leftNodes,
+          rightNodes,
+          edgeTypes,
+          offset,
+          Math.min(maxNumEdgesPerSegment, numEdges - offset),
+          optimizedStorage));
+    }
+    restoreSealedSegments(numSkippedSegments, sealedSegments);
+    numEdgesSeenInAllHistoryCounter.incr(numEdges);
+    LOG.info("Bulk loaded " + numEdges + " edges into " + sealedSegments.size() + " segments in "
+        + (double) (System.currentTimeMillis() - start) / 1000.0 + " seconds");
+  }
+
+  private static void moveAtomically(File source, File target) throws IOException {
+    Files.move(
+        source.toPath(),
+        target.toPath(),
+        StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
   }
 
   @Override
@@ -34,8 +34,16 @@ public abstract class MultiSegmentIterator<T extends LeftIndexedBipartiteGraphSe
   protected int currentSegmentId;
   protected int liveSegmentId;
   protected int oldestSegmentId;
+  // the segment iterators are bound to the edge pools the segments had at this point
+  protected int numOptimizedSegments;
   protected EdgeIterator currentSegmentIterator;
   protected long node;
+  // the segments holding the node, if the graph indexes them
+  protected NodeSegmentIndex nodeSegmentIndex;
+  protected long nodeSegments;
+  // Segments holding no edge added in this window are skipped
+  protected long windowMinTimestamp = Long.MIN_VALUE;
+  protected long windowMaxTimestamp = Long.MAX_VALUE;
 
   /**
    * This constructor is for easy reuse in the random iterator derived from this one.
@@ -56,6 +64,7 @@ public abstract class MultiSegmentIterator<T extends LeftIndexedBipartiteGraphSe
    * the handle to the oldest segment and can continue to access it
    */
   private void rebuildSegmentIterators() {
+    numOptimizedSegments = multiSegmentBipartiteGraph.getNumOptimizedSegments();
     readerAccessibleInfo = multiSegmentBipartiteGraph.getReaderAccessibleInfo();
     segmentEdgeAccessor.setReaderAccessibleInfo(readerAccessibleInfo);
     oldestSegmentId = readerAccessibleInfo.oldestSegmentId;
@@ -67,15 +76,50 @@ public abstract class MultiSegmentIterator<T extends LeftIndexedBipartiteGraphSe
   protected void rebuildSegmentIteratorsForNode(long inputNode) {
     this.node = inputNode;
     MultiSegmentReaderAccessibleInfo<T> newReaderAccessibleInfo = multiSegmentBipartiteGraph.getReaderAccessibleInfo();
-    // this is violated rarely: only when we drop or add segments
+    // this is violated rarely: only when we drop, add or optimize segments
     if ((oldestSegmentId != newReaderAccessibleInfo.oldestSegmentId)
-        || (liveSegmentId != newReaderAccessibleInfo.liveSegmentId)) {
+        || (liveSegmentId != newReaderAccessibleInfo.liveSegmentId)
+        || (numOptimizedSegments != multiSegmentBipartiteGraph.getNumOptimizedSegments())) {
       rebuildSegmentIterators();
     }
+    nodeSegmentIndex = segmentEdgeAccessor.getNodeSegmentIndex();
+    if (nodeSegmentIndex != null) {
+      nodeSegments = nodeSegmentIndex.getSegments(inputNode);
+    }
+  }
+
+  /**
+   * Returns false if the current node is known to have no edges in the given segment, which saves
+   * looking it up there.
+   */
+  protected boolean mayHaveEdgesInSegment(int segmentId) {
+    return nodeSegmentIndex == null || nodeSegmentIndex.containsSegment(nodeSegments, segmentId);
+  }
+
+  protected void setTimeWindow(long minTimestamp, long maxTimestamp) {
+    this.windowMinTimestamp = minTimestamp;
+    this.windowMaxTimestamp = maxTimestamp;
   }
 
   protected void initializeCurrentSegmentIterator() {
-    currentSegmentIterator = segmentEdgeAccessor.getNodeEdges(currentSegmentId, node);
+    currentSegmentIterator = getSegmentNodeEdges(currentSegmentId);
+  }
+
+  /**
+   * Returns the edges of the current node in the given segment, or null if the segment holds no
+   * edge of the node or no edge added in the time window.
+   */
+  protected EdgeIterator getSegmentNodeEdges(int segmentId) {
+    if (!mayHaveEdgesInSegment(segmentId)) {
+      return null;
+    }
+    if (windowMinTimestamp != Long.MIN_VALUE || windowMaxTimestamp != Long.MAX_VALUE) {
+      T segment = readerAccessibleInfo.segments.get(segmentId);
+      if (!segment.overlapsTimeWindow(windowMinTimestamp, windowMaxTimestamp)) {
+        return null;
+      }
+    }
+    return segmentEdgeAccessor.getNodeEdges(segmentId, node);
   }
 
   abstract boolean findNextSegmentForNode();
@@ -22,6 +22,7 @@ import com.twitter.graphjet.bipartite.api.ReusableNodeRandomIntIterator;
 import com.twitter.graphjet.bipartite.segment.BipartiteGraphSegment;
 import com.twitter.graphjet.bipartite.segment.PowerLawSegmentProvider;
 import com.twitter.graphjet.bipartite.segment.ReusableInternalIdToLongIterator;
+import com.twitter.graphjet.hashing.BigArrayStorage;
 import com.twitter.graphjet.stats.StatsReceiver;
 
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
@@ -64,6 +65,104 @@ public class MultiSegmentPowerLawBipartiteGraph extends MultiSegmentBipartiteGra
       double rightPowerLawExponent,
       EdgeTypeMask edgeTypeMask,
       StatsReceiver statsReceiver) {
+    this(
+        maxNumSegments,
+        maxNumEdgesPerSegment,
+        expectedNumLeftNodes,
+        expectedMaxLeftDegree,
+        leftPowerLawExponent,
+        expectedNumRightNodes,
+        expectedMaxRightDegree,
+        rightPowerLawExponent,
+        edgeTypeMask,
+        BigArrayStorage.HEAP,
+        statsReceiver);
+  }
+
+  /**
+   * Create a multi-segment bipartite graph where both the left and right degrees are characterized by power laws,
+   * and whose optimized segments keep their edges in the given storage.
+   *
+   * @param maxNumSegments           the maximum number of segments in the graph, after which the oldest segment will
+   *                                 be dropped
+   * @param maxNumEdgesPerSegment    the maximum number of edges in each segment, after which a new segment will be
+   *                                 created
+   * @param expectedNumLeftNodes     the expected number of left nodes in each segment
+   * @param expectedMaxLeftDegree    the expected maximum degree for a left node (soft upper bound)
+   * @param leftPowerLawExponent     the exponent of the power law characterizing the left degree distribution, see
+   *                                 {@link com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePool}
+   * @param expectedNumRightNodes    the expected number of right nodes in each segment
+   * @param expectedMaxRightDegree   the expected maximum degree for a left node (soft upper bound)
+   * @param rightPowerLawExponent    the exponent of the power law characterizing the left degree distribution, see
+   *                                 {@link com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePool}
+   * @param edgeTypeMask             the mask to encode edge type into the integer node id
+   * @param optimizedStorage         where optimized and restored segments keep their edges, see
+   *                                 {@link BigArrayStorage}
+   * @param statsReceiver            object for tracking internal stats
+   */
+  public MultiSegmentPowerLawBipartiteGraph(
+      int maxNumSegments,
+      int maxNumEdgesPerSegment,
+      int expectedNumLeftNodes,
+      int expectedMaxLeftDegree,
+      double leftPowerLawExponent,
+      int expectedNumRightNodes,
+      int expectedMaxRightDegree,
+      double rightPowerLawExponent,
+      EdgeTypeMask edgeTypeMask,
+      BigArrayStorage optimizedStorage,
+      StatsReceiver statsReceiver) {
+    this(
+        maxNumSegments,
+        maxNumEdgesPerSegment,
+        expectedNumLeftNodes,
+        expectedMaxLeftDegree,
+        leftPowerLawExponent,
+        expectedNumRightNodes,
+        expectedMaxRightDegree,
+        rightPowerLawExponent,
+        edgeTypeMask,
+        optimizedStorage,
+        false,
+        statsReceiver);
+  }
+
+  /**
+   * Create a multi-segment bipartite graph where both the left and right degrees are characterized by power laws,
+   * optionally keeping a {@link NodeSegmentIndex} so that reads of a left node only visit the segments holding it.
+   *
+   * @param maxNumSegments           the maximum number of segments in the graph, after which the oldest segment will
+   *                                 be dropped
+   * @param maxNumEdgesPerSegment    the maximum number of edges in each segment, after which a new segment will be
+   *                                 created
+   * @param expectedNumLeftNodes     the expected number of left nodes in each segment
+   * @param expectedMaxLeftDegree    the expected maximum degree for a left node (soft upper bound)
+   * @param leftPowerLawExponent     the exponent of the power law characterizing the left degree distribution, see
+   *                                 {@link com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePool}
+   * @param expectedNumRightNodes    the expected number of right nodes in each segment
+   * @param expectedMaxRightDegree   the expected maximum degree for a left node (soft upper bound)
+   * @param rightPowerLawExponent    the exponent of the power law characterizing the left degree distribution, see
+   *                                 {@link com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePool}
+   * @param edgeTypeMask             the mask to encode edge type into the integer node id
+   * @param optimizedStorage         where optimized and restored segments keep their edges, see
+   *                                 {@link BigArrayStorage}
+   * @param indexLeftNodeSegments    whether to index the segments holding each left node, which limits
+   *                                 maxNumSegments to {@link NodeSegmentIndex#MAX_NUM_SEGMENTS}
+   * @param statsReceiver            object for tracking internal stats
+   */
+  public MultiSegmentPowerLawBipartiteGraph(
+      int maxNumSegments,
+      int maxNumEdgesPerSegment,
+      int expectedNumLeftNodes,
+      int expectedMaxLeftDegree,
+      double leftPowerLawExponent,
+      int expectedNumRightNodes,
+      int expectedMaxRightDegree,
+      double rightPowerLawExponent,
+      EdgeTypeMask edgeTypeMask,
+      BigArrayStorage optimizedStorage,
+      boolean indexLeftNodeSegments,
+      StatsReceiver statsReceiver) {
     super(
         maxNumSegments,
         maxNumEdgesPerSegment,
@@ -77,12 +176,13 @@ public class MultiSegmentPowerLawBipartiteGraph extends MultiSegmentBipartiteGra
             edgeTypeMask,
             statsReceiver),
         new MultiSegmentReaderAccessibleInfoProvider<BipartiteGraphSegment>(
-            maxNumSegments, maxNumEdgesPerSegment),
+            maxNumSegments, maxNumEdgesPerSegment, indexLeftNodeSegments),
+        optimizedStorage,
         statsReceiver);
   }
 
   @Override
-  ReusableNodeLongIterator initializeLeftNodeEdgesLongIterator() {
+  ReusableNodeTimeWindowLongIterator initializeLeftNodeEdgesLongIterator() {
     return new ChronologicalMultiSegmentIterator<BipartiteGraphSegment>(
         this,
         new LeftSegmentEdgeAccessor<BipartiteGraphSegment>(
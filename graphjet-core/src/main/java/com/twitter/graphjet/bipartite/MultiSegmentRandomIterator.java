@@ -31,18 +31,46 @@ import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
  * This iterator provides random access over edges where the edges can be spread across segments.
  * The random access is provided via first randomly picking a segment (weighted according to degree)
  * and then randomly picking an edge in the segment.
+ *
+ * Building the per-segment alias table of a node means looking the node up in every segment, which
+ * adds up for high-degree nodes that are sampled over and over again, e.g. popular seeds of random
+ * walks. A reused iterator hence keeps the alias tables of a small number of such nodes in a
+ * direct-mapped cache. Since only the live segment changes, a cached table stays valid until a
+ * segment is added or dropped, or until the degree of the node in the live segment has moved by
+ * more than a fraction of its total degree: up to that point the segments are sampled with
+ * slightly stale weights, while the edges within each segment are still sampled uniformly.
  */
 public class MultiSegmentRandomIterator<T extends LeftIndexedBipartiteGraphSegment>
     extends MultiSegmentIterator<T> implements ReusableNodeRandomLongIterator {
+  public static final int DEFAULT_ALIAS_TABLE_CACHE_SIZE = 64;
+  public static final int DEFAULT_MIN_DEGREE_TO_CACHE = 1024;
+  // a cached table is rebuilt once the live segment degree of the node has moved by more than
+  // totalDegree >> LIVE_DEGREE_DRIFT_SHIFT, i.e. about 12% of its total degree
+  private static final int LIVE_DEGREE_DRIFT_SHIFT = 3;
+  private static final long FIBONACCI_HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
   private final SegmentEdgeRandomAccessor<T> segmentEdgeRandomAccessor;
   private final int[] aliasTableArray;
   private final Int2IntMap numSamplesInSegment;
   private int numSamplesReturned;
   private int numSamplesNeeded;
   private Random random;
-  private long[] samples;
-  private long[] sampleEdgeMetadata;
-  private byte[] sampleEdgeTypes;
+  private long[] samples = new long[0];
+  private long[] sampleEdgeMetadata = new long[0];
+  private byte[] sampleEdgeTypes = new byte[0];
+
+  // the alias table cache, which is null when caching is turned off
+  private final int minDegreeToCache;
+  private final int cacheShift;
+  private final long[] cachedNodes;
+  private final int[][] cachedAliasTables;
+  private final int[] cachedOldestSegmentIds;
+  private final int[] cachedLiveSegmentIds;
+  private final int[] cachedLiveSegmentDegrees;
+  private final int[] cachedTotalDegrees;
+  private int liveSegmentDegree;
+  private long numCacheHits;
+  private long numCacheMisses;
 
   /**
    * This constructor mirror the one in it's super-class to reuse common code.
@@ -54,6 +82,29 @@ public class MultiSegmentRandomIterator<T extends LeftIndexedBipartiteGraphSegme
   public MultiSegmentRandomIterator(
       LeftIndexedMultiSegmentBipartiteGraph<T> multiSegmentBipartiteGraph,
       SegmentEdgeRandomAccessor<T> segmentEdgeRandomAccessor) {
+    this(
+        multiSegmentBipartiteGraph,
+        segmentEdgeRandomAccessor,
+        DEFAULT_ALIAS_TABLE_CACHE_SIZE,
+        DEFAULT_MIN_DEGREE_TO_CACHE);
+  }
+
+  /**
+   * This constructor allows tuning the alias table cache.
+   *
+   * @param multiSegmentBipartiteGraph  is the underlying {@link
+   *                                    LeftIndexedMultiSegmentBipartiteGraph}
+   * @param segmentEdgeRandomAccessor   is the accessor for the segments
+   * @param aliasTableCacheSize         is the number of nodes whose alias tables are cached, which
+   *                                    is rounded up to a power of 2. Zero turns caching off.
+   * @param minDegreeToCache            is the minimum total degree of a node for its alias table
+   *                                    to be cached
+   */
+  public MultiSegmentRandomIterator(
+      LeftIndexedMultiSegmentBipartiteGraph<T> multiSegmentBipartiteGraph,
+      SegmentEdgeRandomAccessor<T> segmentEdgeRandomAccessor,
+      int aliasTableCacheSize,
+      int minDegreeToCache) {
     super(multiSegmentBipartiteGraph, segmentEdgeRandomAccessor);
     this.segmentEdgeRandomAccessor = segmentEdgeRandomAccessor;
     // Allocate maximum possible memory for alias table as this is going to be reused
@@ -61,47 +112,130 @@ public class MultiSegmentRandomIterator<T extends LeftIndexedBipartiteGraphSegme
         multiSegmentBipartiteGraph.getMaxNumSegments());
     this.numSamplesInSegment =
         new Int2IntOpenHashMap(multiSegmentBipartiteGraph.getMaxNumSegments());
+    this.minDegreeToCache = minDegreeToCache;
+    if (aliasTableCacheSize > 0) {
+      int cacheSize = Integer.highestOneBit(aliasTableCacheSize);
+      if (cacheSize < aliasTableCacheSize) {
+        cacheSize <<= 1;
+      }
+      // a shift of 64 would be a no-op, so a single-entry cache hashes to slot 0 explicitly
+      this.cacheShift = 64 - Integer.numberOfTrailingZeros(cacheSize);
+      this.cachedNodes = new long[cacheSize];
+      // the tables themselves are only allocated once a slot is used
+      this.cachedAliasTables = new int[cacheSize][];
+      this.cachedOldestSegmentIds = new int[cacheSize];
+      this.cachedLiveSegmentIds = new int[cacheSize];
+      this.cachedLiveSegmentDegrees = new int[cacheSize];
+      this.cachedTotalDegrees = new int[cacheSize];
+    } else {
+      this.cacheShift = 64;
+      this.cachedNodes = null;
+      this.cachedAliasTables = null;
+      this.cachedOldestSegmentIds = null;
+      this.cachedLiveSegmentIds = null;
+      this.cachedLiveSegmentDegrees = null;
+      this.cachedTotalDegrees = null;
+    }
   }
 
-  // return true if degree > 0, false otherwise
-  private boolean fillAliasTableForNode(long node) {
-    IntArrayAliasTable.clearAliasTableArray(aliasTableArray);
+  // returns the total degree of the node, which is 0 if the table could not be filled, and sets
+  // liveSegmentDegree as a side effect
+  private int fillAliasTableForNode(long node, int[] aliasTable) {
+    IntArrayAliasTable.clearAliasTableArray(aliasTable);
+    liveSegmentDegree = 0;
     // iterate through all the segments and get this node's degree in each one
     int index = 0;
-    int averageDegree = 0;
+    int totalDegree = 0;
     for (int i = oldestSegmentId; i <= liveSegmentId; i++) {
+      if (!mayHaveEdgesInSegment(i)) {
+        continue;
+      }
       int degree = segmentEdgeRandomAccessor.getDegreeInSegment(node, i);
       // for non-empty segments, add to alias table
       if (degree > 0) {
-        IntArrayAliasTable.setEntry(aliasTableArray, index, i);
-        IntArrayAliasTable.setWeight(aliasTableArray, index, degree);
+        IntArrayAliasTable.setEntry(aliasTable, index, i);
+        IntArrayAliasTable.setWeight(aliasTable, index, degree);
         index++;
-        averageDegree += degree;
+        totalDegree += degree;
+        if (i == liveSegmentId) {
+          liveSegmentDegree = degree;
+        }
       }
     }
-    if (averageDegree == 0) {
-      return false;
+    if (totalDegree == 0) {
+      return 0;
     }
     // finally set the size and weight
-    IntArrayAliasTable.setAliasTableSize(aliasTableArray, index);
-    IntArrayAliasTable.setAliasTableAverageWeight(aliasTableArray, averageDegree / index);
+    IntArrayAliasTable.setAliasTableSize(aliasTable, index);
+    IntArrayAliasTable.setAliasTableAverageWeight(aliasTable, totalDegree / index);
     // now we can construct the alias table
-    AliasTableUtil.constructAliasTable(aliasTableArray);
-    return true;
+    AliasTableUtil.constructAliasTable(aliasTable);
+    return totalDegree;
+  }
+
+  private int getCacheSlot(long node) {
+    return cacheShift == 64 ? 0 : (int) ((node * FIBONACCI_HASH_MULTIPLIER) >>> cacheShift);
   }
 
-  private void sampleFromAliasTable() {
+  // returns the alias table to sample from, or null if the node has no edges
+  private int[] getAliasTableForNode(long node) {
+    if (cachedNodes == null) {
+      return fillAliasTableForNode(node, aliasTableArray) > 0 ? aliasTableArray : null;
+    }
+    int slot = getCacheSlot(node);
+    int[] cachedAliasTable = cachedAliasTables[slot];
+    if (cachedAliasTable != null
+        && cachedNodes[slot] == node
+        && cachedOldestSegmentIds[slot] == oldestSegmentId
+        && cachedLiveSegmentIds[slot] == liveSegmentId) {
+      // only the live segment can have changed since the table was built
+      int currentLiveSegmentDegree = mayHaveEdgesInSegment(liveSegmentId)
+          ? segmentEdgeRandomAccessor.getDegreeInSegment(node, liveSegmentId)
+          : 0;
+      int degreeDrift = Math.abs(currentLiveSegmentDegree - cachedLiveSegmentDegrees[slot]);
+      if (degreeDrift <= cachedTotalDegrees[slot] >> LIVE_DEGREE_DRIFT_SHIFT) {
+        numCacheHits++;
+        multiSegmentBipartiteGraph.aliasTableCacheHitsCounter.incr();
+        return cachedAliasTable;
+      }
+    }
+    int totalDegree = fillAliasTableForNode(node, aliasTableArray);
+    if (totalDegree == 0) {
+      return null;
+    }
+    // nodes below the degree threshold are never cached, so they count as neither hits nor misses
+    if (totalDegree >= minDegreeToCache) {
+      numCacheMisses++;
+      multiSegmentBipartiteGraph.aliasTableCacheMissesCounter.incr();
+      if (cachedAliasTable == null) {
+        cachedAliasTable = new int[aliasTableArray.length];
+        cachedAliasTables[slot] = cachedAliasTable;
+      }
+      System.arraycopy(aliasTableArray, 0, cachedAliasTable, 0, aliasTableArray.length);
+      cachedNodes[slot] = node;
+      cachedOldestSegmentIds[slot] = oldestSegmentId;
+      cachedLiveSegmentIds[slot] = liveSegmentId;
+      cachedLiveSegmentDegrees[slot] = liveSegmentDegree;
+      cachedTotalDegrees[slot] = totalDegree;
+    }
+    return aliasTableArray;
+  }
+
+  private void sampleFromAliasTable(int[] aliasTable) {
     // rest the number of samples
     numSamplesInSegment.clear();
     // first, pick a random segment (weighted according to # edges for this node in the segment)
     for (int i = 0; i < numSamplesNeeded; i++) {
-      int randomSegmentId = AliasTableUtil.getRandomSampleFromAliasTable(aliasTableArray, random);
+      int randomSegmentId = AliasTableUtil.getRandomSampleFromAliasTable(aliasTable, random);
       numSamplesInSegment.put(randomSegmentId, numSamplesInSegment.get(randomSegmentId) + 1);
     }
-    // now, get the required number of random edges from each non-empty segment
-    samples = new long[numSamplesNeeded];
-    sampleEdgeMetadata = new long[numSamplesNeeded];
-    sampleEdgeTypes = new byte[numSamplesNeeded];
+    // now, get the required number of random edges from each non-empty segment, into buffers that
+    // are only reallocated when a request asks for more samples than any before it
+    if (samples.length < numSamplesNeeded) {
+      samples = new long[numSamplesNeeded];
+      sampleEdgeMetadata = new long[numSamplesNeeded];
+      sampleEdgeTypes = new byte[numSamplesNeeded];
+    }
     int sampledCount = 0;
     for (int segmentId : numSamplesInSegment.keySet()) {
       // we get all the samples we need from this segment in one go
@@ -125,17 +259,33 @@ public class MultiSegmentRandomIterator<T extends LeftIndexedBipartiteGraphSegme
     this.numSamplesReturned = 0;
     this.random = randomGen;
     // this is the main computation-intensive operation, although it should be fast for most nodes
-    // as they won't occur in too many segments
-    if (!fillAliasTableForNode(node)) {
+    // as they won't occur in too many segments, and the hot ones that do are cached
+    int[] aliasTable = getAliasTableForNode(node);
+    if (aliasTable == null) {
       return null;
     }
     // sample all the elements right up-front to preserve locality of access: note that this will be
     // needlessly expensive if most callers are going to get less samples than they asked for and
     // if that's the behavior we should sample lazily
-    sampleFromAliasTable();
+    sampleFromAliasTable(aliasTable);
     return this;
   }
 
+  /**
+   * Returns the number of calls to {@link #resetForNode} that reused a cached alias table.
+   */
+  public long getNumCacheHits() {
+    return numCacheHits;
+  }
+
+  /**
+   * Returns the number of calls to {@link #resetForNode} that had to build the alias table of a
+   * node whose degree is high enough for the table to be cached.
+   */
+  public long getNumCacheMisses() {
+    return numCacheMisses;
+  }
+
   @Override
   public long nextLong() {
     return samples[numSamplesReturned++];
@@ -59,6 +59,8 @@ public class MultiSegmentReaderAccessibleInfo<T extends LeftIndexedBipartiteGrap
   protected final Int2ObjectMap<T> segments;
   protected final int oldestSegmentId;
   protected final int liveSegmentId;
+  // optional, lets readers skip the segments that do not hold a left node
+  protected final NodeSegmentIndex leftNodeSegmentIndex;
 
   /**
    * A new instance is immediately visible to the readers due to publication safety.
@@ -71,12 +73,36 @@ public class MultiSegmentReaderAccessibleInfo<T extends LeftIndexedBipartiteGrap
       Int2ObjectMap<T> segments,
       int oldestSegmentId,
       int liveSegmentId) {
+    this(segments, oldestSegmentId, liveSegmentId, null);
+  }
+
+  /**
+   * A new instance is immediately visible to the readers due to publication safety.
+   *
+   * @param segments               contains all the present segments
+   * @param oldestSegmentId        is the id of the oldest segment
+   * @param liveSegmentId          is the id of the live segment
+   * @param leftNodeSegmentIndex   indexes the segments holding each left node, or is null
+   */
+  public MultiSegmentReaderAccessibleInfo(
+      Int2ObjectMap<T> segments,
+      int oldestSegmentId,
+      int liveSegmentId,
+      NodeSegmentIndex leftNodeSegmentIndex) {
     this.segments = segments;
     this.oldestSegmentId = oldestSegmentId;
     this.liveSegmentId = liveSegmentId;
+    this.leftNodeSegmentIndex = leftNodeSegmentIndex;
   }
 
   public Int2ObjectMap<T> getSegments() {
     return segments;
   }
+
+  /**
+   * Returns the index of the segments holding each left node, or null if the graph keeps none.
+   */
+  public NodeSegmentIndex getLeftNodeSegmentIndex() {
+    return leftNodeSegmentIndex;
+  }
 }
@@ -17,6 +17,8 @@
 
 package com.twitter.graphjet.bipartite;
 
+import java.util.List;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +39,7 @@ public class MultiSegmentReaderAccessibleInfoProvider<T extends LeftIndexedBipar
   private int numEdgesInNonLiveSegments;
   private final int maxNumSegments;
   private final int maxNumEdgesPerSegment;
+  private final boolean indexLeftNodeSegments;
 
   /**
    * The constructor tries to reserve most of the memory that is needed for the graph.
@@ -45,13 +48,33 @@ public class MultiSegmentReaderAccessibleInfoProvider<T extends LeftIndexedBipar
    * @param maxNumEdgesPerSegment  is the maximum number of edges a segment will store
    */
   public MultiSegmentReaderAccessibleInfoProvider(int maxNumSegments, int maxNumEdgesPerSegment) {
+    this(maxNumSegments, maxNumEdgesPerSegment, false);
+  }
+
+  /**
+   * The constructor tries to reserve most of the memory that is needed for the graph.
+   *
+   * @param maxNumSegments         is the maximum number of segments to store
+   * @param maxNumEdgesPerSegment  is the maximum number of edges a segment will store
+   * @param indexLeftNodeSegments  is whether to keep a {@link NodeSegmentIndex} of the segments
+   *                               holding each left node, which needs maxNumSegments to be at most
+   *                               {@link NodeSegmentIndex#MAX_NUM_SEGMENTS}
+   */
+  public MultiSegmentReaderAccessibleInfoProvider(
+      int maxNumSegments, int maxNumEdgesPerSegment, boolean indexLeftNodeSegments) {
+    if (indexLeftNodeSegments && maxNumSegments > NodeSegmentIndex.MAX_NUM_SEGMENTS) {
+      throw new IllegalArgumentException("Cannot index the segments of left nodes with more than "
+          + NodeSegmentIndex.MAX_NUM_SEGMENTS + " segments: " + maxNumSegments);
+    }
     // this is going to swapped out right away in the addNewSegment call
     this.multiSegmentReaderAccessibleInfo = new MultiSegmentReaderAccessibleInfo<T>(
         new Int2ObjectOpenHashMap<T>(maxNumSegments),
         0,
-        -1);
+        -1,
+        indexLeftNodeSegments ? new NodeSegmentIndex(maxNumEdgesPerSegment, 0) : null);
     this.maxNumSegments = maxNumSegments;
     this.maxNumEdgesPerSegment = maxNumEdgesPerSegment;
+    this.indexLeftNodeSegments = indexLeftNodeSegments;
   }
 
   public MultiSegmentReaderAccessibleInfo<T> getMultiSegmentReaderAccessibleInfo() {
@@ -64,7 +87,8 @@ public class MultiSegmentReaderAccessibleInfoProvider<T extends LeftIndexedBipar
    * them will reference it anymore (once their computation finishes) and the JVM can then
    * garbage-collect it. This lagging reading behavior is what makes it hard to explicitly recycle
    * the already allocated memory so we need memory for k+1 segments (where k is the number of
-   * segments we'll maintain).
+   * segments we'll maintain), unless readers register themselves for
+   * {@link LeftIndexedMultiSegmentBipartiteGraph#enableSegmentMemoryRecycling}.
    *
    * @param numEdgesInLiveSegment          is the number of edges in the current live segment
    * @param numEdgesInNonLiveSegmentsMap   contains a map from segment id to number of edges in it
@@ -82,10 +106,14 @@ public class MultiSegmentReaderAccessibleInfoProvider<T extends LeftIndexedBipar
         new Int2ObjectOpenHashMap<T>(multiSegmentReaderAccessibleInfo.getSegments());
     numEdgesInNonLiveSegmentsMap.put(liveSegmentId, numEdgesInLiveSegment);
     int oldestSegmentId = multiSegmentReaderAccessibleInfo.oldestSegmentId;
+    NodeSegmentIndex leftNodeSegmentIndex = multiSegmentReaderAccessibleInfo.leftNodeSegmentIndex;
     // remove a segment if we're at the limit
     if (multiSegmentReaderAccessibleInfo.getSegments().size() == maxNumSegments) {
       segments.remove(oldestSegmentId);
       numEdgesInNonLiveSegmentsMap.remove(oldestSegmentId);
+      if (leftNodeSegmentIndex != null) {
+        leftNodeSegmentIndex.dropSegment(oldestSegmentId);
+      }
       LOG.info("Removed segment " + oldestSegmentId);
       oldestSegmentId++;
     } else {
@@ -94,11 +122,11 @@ public class MultiSegmentReaderAccessibleInfoProvider<T extends LeftIndexedBipar
     int newLiveSegmentId =  multiSegmentReaderAccessibleInfo.liveSegmentId + 1;
     // add a new segment
     T liveSegment =
-        bipartiteGraphSegmentProvider.generateNewSegment(newLiveSegmentId, maxNumEdgesPerSegment);
+        bipartiteGraphSegmentProvider.generateNewLiveSegment(newLiveSegmentId, maxNumEdgesPerSegment);
     segments.put(newLiveSegmentId, liveSegment);
     // now make the switch for the readers -- this is immediately published and visible!
     multiSegmentReaderAccessibleInfo = new MultiSegmentReaderAccessibleInfo<T>(
-            segments, oldestSegmentId, newLiveSegmentId);
+            segments, oldestSegmentId, newLiveSegmentId, leftNodeSegmentIndex);
 
     // flush the write
     liveSegmentId = newLiveSegmentId;
@@ -114,6 +142,76 @@ public class MultiSegmentReaderAccessibleInfoProvider<T extends LeftIndexedBipar
     return liveSegment;
   }
 
+  /**
+   * Replaces all the segments with sealed segments restored from a snapshot, followed by a new
+   * empty live segment. This is only meant to be called by the writer before it starts adding
+   * edges. If there are more sealed segments than fit in the graph, the oldest ones are dropped.
+   *
+   * @param oldestSegmentId                is the id of the first segment in sealedSegments, the
+   *                                       rest having consecutive ids
+   * @param sealedSegments                 contains the restored segments from oldest to newest
+   * @param numEdgesInNonLiveSegmentsMap   contains a map from segment id to number of edges in it
+   * @param statsReceiver                  is where the stats are updated
+   * @param bipartiteGraphSegmentProvider  provides the new live segment
+   * @return the live segment that was added
+   */
+  public T restoreSegments(
+      int oldestSegmentId,
+      List<T> sealedSegments,
+      Int2IntMap numEdgesInNonLiveSegmentsMap,
+      StatsReceiver statsReceiver,
+      BipartiteGraphSegmentProvider<T> bipartiteGraphSegmentProvider
+  ) {
+    final Int2ObjectMap<T> segments = new Int2ObjectOpenHashMap<T>(maxNumSegments);
+    numEdgesInNonLiveSegmentsMap.clear();
+    int numDroppedSegments = Math.max(0, sealedSegments.size() - (maxNumSegments - 1));
+    for (int i = numDroppedSegments; i < sealedSegments.size(); i++) {
+      T segment = sealedSegments.get(i);
+      segments.put(oldestSegmentId + i, segment);
+      numEdgesInNonLiveSegmentsMap.put(oldestSegmentId + i, segment.getCurrentNumEdges());
+    }
+    int newOldestSegmentId = oldestSegmentId + numDroppedSegments;
+    int newLiveSegmentId = oldestSegmentId + sealedSegments.size();
+    T liveSegment =
+        bipartiteGraphSegmentProvider.generateNewLiveSegment(newLiveSegmentId, maxNumEdgesPerSegment);
+    segments.put(newLiveSegmentId, liveSegment);
+    statsReceiver.counter("numSegments").incr(sealedSegments.size() - numDroppedSegments);
+    // the restored segments are not indexed, and readers visit them for every node
+    NodeSegmentIndex leftNodeSegmentIndex = indexLeftNodeSegments
+        ? new NodeSegmentIndex(maxNumEdgesPerSegment, newLiveSegmentId)
+        : null;
+    // now make the switch for the readers -- this is immediately published and visible!
+    multiSegmentReaderAccessibleInfo = new MultiSegmentReaderAccessibleInfo<T>(
+        segments, newOldestSegmentId, newLiveSegmentId, leftNodeSegmentIndex);
+
+    // flush the write
+    liveSegmentId = newLiveSegmentId;
+
+    numEdgesInNonLiveSegments = 0;
+    for (int segmentEdgeCount : numEdgesInNonLiveSegmentsMap.values()) {
+      numEdgesInNonLiveSegments += segmentEdgeCount;
+    }
+    LOG.info("Restored " + (sealedSegments.size() - numDroppedSegments) + " segments with "
+        + numEdgesInNonLiveSegments + " edges: oldestSegmentId = " + newOldestSegmentId
+        + ", and liveSegmentId = " + newLiveSegmentId);
+
+    return liveSegment;
+  }
+
+  /**
+   * Records that the given left node has edges in the live segment, if left nodes are indexed.
+   * This is only meant to be called by the writer, before the edge is added to the live segment.
+   *
+   * @param leftNode  is the left node of the edge being added
+   */
+  public void indexLeftNodeInLiveSegment(long leftNode) {
+    NodeSegmentIndex leftNodeSegmentIndex = multiSegmentReaderAccessibleInfo.leftNodeSegmentIndex;
+    if (leftNodeSegmentIndex != null) {
+      leftNodeSegmentIndex.addNodeToSegment(
+          leftNode, multiSegmentReaderAccessibleInfo.liveSegmentId);
+    }
+  }
+
   public int getLiveSegmentId() {
     return liveSegmentId;
   }
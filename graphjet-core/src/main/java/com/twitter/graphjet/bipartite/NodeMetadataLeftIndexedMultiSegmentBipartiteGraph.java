@@ -71,14 +71,7 @@ public abstract class NodeMetadataLeftIndexedMultiSegmentBipartiteGraph
     int[][] leftNodeMetadata,
     int[][] rightNodeMetadata
   ) {
-    // usually very cheap check is it's only false very rarely
-    if (numEdgesInLiveSegment == maxNumEdgesPerSegment) {
-      NodeMetadataLeftIndexedBipartiteGraphSegment oldLiveSegment = getLiveSegment();
-
-      addNewSegment();
-
-      Optimizer.submitGraphOptimizerJob(this, oldLiveSegment);
-    }
+    prepareLiveSegmentForEdge(leftNode);
     getLiveSegment().addEdge(leftNode, rightNode, edgeType, edgeMetadata, leftNodeMetadata, rightNodeMetadata);
     numEdgesInLiveSegment++;
 
@@ -88,6 +81,6 @@ public abstract class NodeMetadataLeftIndexedMultiSegmentBipartiteGraph
   @Override
   public void optimize(OptimizableBipartiteGraphSegment segment) {
     Optimizer.optimizeLeftIndexedBipartiteGraphSegment(
-      (NodeMetadataLeftIndexedBipartiteGraphSegment) segment);
+      (NodeMetadataLeftIndexedBipartiteGraphSegment) segment, optimizedStorage);
   }
 }
@@ -84,7 +84,7 @@ public class NodeMetadataLeftIndexedPowerLawMultiSegmentBipartiteGraph
   }
 
   @Override
-  ReusableNodeLongIterator initializeLeftNodeEdgesLongIterator() {
+  ReusableNodeTimeWindowLongIterator initializeLeftNodeEdgesLongIterator() {
     return new NodeMetadataMultiSegmentIterator(
       this,
       new LeftSegmentEdgeAccessor<NodeMetadataLeftIndexedBipartiteGraphSegment>(
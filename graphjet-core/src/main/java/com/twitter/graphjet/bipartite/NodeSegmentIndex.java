@@ -0,0 +1,254 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.bipartite;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A graph-level index from a node id to the set of segments holding edges of that node, which lets
+ * readers of a multi-segment graph resolve a node once instead of hashing it into the id map of
+ * every segment, most of which do not contain it. The set is a 64-bit bitmap where segment i is
+ * bit (i % 64), so it is only unambiguous for graphs with at most {@link #MAX_NUM_SEGMENTS}
+ * segments at a time.
+ *
+ * The index is an open-addressing hash table with linear probing, written by the single writer of
+ * the graph and read lock-free by any number of readers: a slot's key is written before its
+ * bitmap, and the bitmap is published through an {@link AtomicLongArray}, so a reader that sees a
+ * non-empty bitmap also sees the key.
+ *
+ * Dropping the oldest segment does not touch the table, see {@link #dropSegment}. Readers only ask
+ * about the segments they were handed, so the bit of a dropped segment is ignored until a newer
+ * segment reuses it. Each entry remembers the last segment its node was added to, which lets the
+ * writer clear the bits of dropped segments when it next adds the node, and drop the entries of
+ * nodes that are only in dropped segments when it next rebuilds the table. Until a node is added
+ * again, a reused bit may report the node in a segment that does not hold it, which costs readers a
+ * lookup but never hides an edge.
+ *
+ * Segments older than the first indexed one, e.g. segments restored from a snapshot, are treated
+ * as holding every node.
+ */
+public class NodeSegmentIndex {
+  public static final int MAX_NUM_SEGMENTS = Long.SIZE;
+
+  private static final double MAX_LOAD_FACTOR = 0.75;
+  private static final long FIBONACCI_HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+  /**
+   * One generation of the hash table, replaced as a whole when the table grows.
+   */
+  private static final class Table {
+    private final long[] keys;
+    // a bitmap of 0 marks an empty slot, as a present node is always in at least one segment
+    private final AtomicLongArray segmentBitmaps;
+    // only used by the writer
+    private final int[] lastSegmentIds;
+    private final int shift;
+
+    Table(int capacity) {
+      this.keys = new long[capacity];
+      this.segmentBitmaps = new AtomicLongArray(capacity);
+      this.lastSegmentIds = new int[capacity];
+      this.shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    int capacity() {
+      return keys.length;
+    }
+
+    int firstSlot(long node) {
+      // the capacity is a power of 2 of at least 2, so the shift is never the no-op shift of 64
+      return (int) ((node * FIBONACCI_HASH_MULTIPLIER) >>> shift);
+    }
+  }
+
+  private final int firstIndexedSegmentId;
+  private volatile Table table;
+  private int numNodes;
+  private int oldestSegmentId;
+
+  /**
+   * Creates an empty index.
+   *
+   * @param expectedNumNodes       is the number of nodes the index is sized for, although it grows
+   *                               past that as needed
+   * @param firstIndexedSegmentId  is the id of the first segment whose nodes are indexed, older
+   *                               segments being assumed to hold every node
+   */
+  public NodeSegmentIndex(int expectedNumNodes, int firstIndexedSegmentId) {
+    this.firstIndexedSegmentId = firstIndexedSegmentId;
+    this.oldestSegmentId = firstIndexedSegmentId;
+    this.table = new Table(capacityFor(expectedNumNodes));
+  }
+
+  private static int capacityFor(int numNodes) {
+    int minCapacity = (int) Math.min(1 << 30, (long) Math.ceil(numNodes / MAX_LOAD_FACTOR) + 1);
+    return Math.max(2, Integer.highestOneBit(minCapacity - 1) << 1);
+  }
+
+  /**
+   * Records that the given node has edges in the given segment. This is only meant to be called by
+   * the writer, before the edge is added to the segment, and segment ids are expected to be
+   * added in increasing order.
+   *
+   * @param node       is the node being added
+   * @param segmentId  is the segment the node has edges in
+   */
+  public void addNodeToSegment(long node, int segmentId) {
+    long segmentBit = 1L << (segmentId & (MAX_NUM_SEGMENTS - 1));
+    Table currentTable = table;
+    int mask = currentTable.capacity() - 1;
+    for (int slot = currentTable.firstSlot(node);; slot = (slot + 1) & mask) {
+      long segmentBitmap = currentTable.segmentBitmaps.get(slot);
+      if (segmentBitmap == 0) {
+        insert(currentTable, slot, node, segmentBit, segmentId);
+        return;
+      }
+      if (currentTable.keys[slot] == node) {
+        int lastSegmentId = currentTable.lastSegmentIds[slot];
+        if (lastSegmentId != segmentId) {
+          // the bits of segments lastSegmentId + 1 to segmentId last held segments that are
+          // dropped by now
+          currentTable.lastSegmentIds[slot] = segmentId;
+          currentTable.segmentBitmaps.set(slot,
+              (segmentBitmap & ~segmentBits(lastSegmentId + 1, segmentId)) | segmentBit);
+        }
+        return;
+      }
+    }
+  }
+
+  // returns the bits of the segments from firstSegmentId to lastSegmentId, wrapping around
+  private static long segmentBits(int firstSegmentId, int lastSegmentId) {
+    int numSegments = lastSegmentId - firstSegmentId + 1;
+    if (numSegments >= MAX_NUM_SEGMENTS) {
+      return ~0L;
+    }
+    return Long.rotateLeft((1L << numSegments) - 1, firstSegmentId & (MAX_NUM_SEGMENTS - 1));
+  }
+
+  private void insert(Table currentTable, int slot, long node, long segmentBitmap, int segmentId) {
+    if (numNodes + 1 > currentTable.capacity() * MAX_LOAD_FACTOR) {
+      // readers keep using the old table until they see the new one, which has everything they
+      // can ask about
+      int numLiveNodes = countLiveEntries(currentTable);
+      int newCapacity = numLiveNodes + 1 > currentTable.capacity() * MAX_LOAD_FACTOR / 2
+          ? currentTable.capacity() << 1
+          : currentTable.capacity();
+      Table newTable = new Table(newCapacity);
+      copyLiveEntries(currentTable, newTable);
+      putNew(newTable, node, segmentBitmap, segmentId);
+      table = newTable;
+      numNodes = numLiveNodes;
+    } else {
+      currentTable.keys[slot] = node;
+      currentTable.lastSegmentIds[slot] = segmentId;
+      currentTable.segmentBitmaps.set(slot, segmentBitmap);
+    }
+    numNodes++;
+  }
+
+  // only used on tables that are not published yet
+  private static void putNew(Table newTable, long node, long segmentBitmap, int lastSegmentId) {
+    int mask = newTable.capacity() - 1;
+    int slot = newTable.firstSlot(node);
+    while (newTable.segmentBitmaps.get(slot) != 0) {
+      slot = (slot + 1) & mask;
+    }
+    newTable.keys[slot] = node;
+    newTable.lastSegmentIds[slot] = lastSegmentId;
+    newTable.segmentBitmaps.lazySet(slot, segmentBitmap);
+  }
+
+  // an entry is live as long as its node was last added to a segment that is not dropped
+  private boolean isLive(Table currentTable, int slot) {
+    return currentTable.segmentBitmaps.get(slot) != 0
+        && currentTable.lastSegmentIds[slot] >= oldestSegmentId;
+  }
+
+  private int countLiveEntries(Table currentTable) {
+    int numLive = 0;
+    for (int i = 0; i < currentTable.capacity(); i++) {
+      if (isLive(currentTable, i)) {
+        numLive++;
+      }
+    }
+    return numLive;
+  }
+
+  private void copyLiveEntries(Table from, Table to) {
+    for (int i = 0; i < from.capacity(); i++) {
+      if (isLive(from, i)) {
+        putNew(to, from.keys[i], from.segmentBitmaps.get(i), from.lastSegmentIds[i]);
+      }
+    }
+  }
+
+  /**
+   * Records that the given segment is dropped from the graph. This takes constant time: the bit of
+   * the segment is cleared lazily, and the nodes that were only in dropped segments are removed the
+   * next time the table is rebuilt, which readers of the older table do not see. This is only
+   * meant to be called by the writer.
+   *
+   * @param segmentId  is the segment being dropped from the graph
+   */
+  public void dropSegment(int segmentId) {
+    oldestSegmentId = Math.max(oldestSegmentId, segmentId + 1);
+  }
+
+  /**
+   * Returns the bitmap of the segments the given node has edges in, to be checked with
+   * {@link #containsSegment}. Nodes that are not in any indexed segment get an empty bitmap.
+   *
+   * @param node  is the node being looked up
+   * @return the bitmap of the segments holding the node
+   */
+  public long getSegments(long node) {
+    Table currentTable = table;
+    int mask = currentTable.capacity() - 1;
+    for (int slot = currentTable.firstSlot(node);; slot = (slot + 1) & mask) {
+      long segmentBitmap = currentTable.segmentBitmaps.get(slot);
+      if (segmentBitmap == 0) {
+        return 0;
+      }
+      if (currentTable.keys[slot] == node) {
+        return segmentBitmap;
+      }
+    }
+  }
+
+  /**
+   * Checks a bitmap returned by {@link #getSegments} for the given segment. Segments that are not
+   * indexed are always reported as holding the node.
+   *
+   * @param segments   is the bitmap of the segments holding a node
+   * @param segmentId  is the segment to check
+   * @return false only if the node has no edges in the segment
+   */
+  public boolean containsSegment(long segments, int segmentId) {
+    return segmentId < firstIndexedSegmentId
+        || (segments & (1L << (segmentId & (MAX_NUM_SEGMENTS - 1)))) != 0;
+  }
+
+  /**
+   * Returns the number of entries in the index, which includes nodes that are only in dropped
+   * segments until the table is next rebuilt.
+   */
+  public int getNumNodes() {
+    return numNodes;
+  }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.bipartite;
+
+import com.twitter.graphjet.bipartite.api.EpochGuardedGraph;
+
+/**
+ * Lets the algorithms bracket a request with a read epoch of the graph they run on, for graphs
+ * that need it, see {@link EpochGuardedGraph}. The other graphs are left untouched.
+ */
+public final class ReadEpochs {
+  private ReadEpochs() {
+  }
+
+  /**
+   * Enters a read epoch of the given graph if it is epoch-guarded.
+   *
+   * @param graph  is the graph about to be read
+   * @return the token to pass to {@link #exit(Object, long)}
+   */
+  public static long enter(Object graph) {
+    return graph instanceof EpochGuardedGraph
+        ? ((EpochGuardedGraph) graph).enterReadEpoch()
+        : 0;
+  }
+
+  /**
+   * Exits a read epoch entered with {@link #enter(Object)}.
+   *
+   * @param graph      is the graph that was read
+   * @param readEpoch  is what {@link #enter(Object)} returned
+   */
+  public static void exit(Object graph, long readEpoch) {
+    if (graph instanceof EpochGuardedGraph) {
+      ((EpochGuardedGraph) graph).exitReadEpoch(readEpoch);
+    }
+  }
+}
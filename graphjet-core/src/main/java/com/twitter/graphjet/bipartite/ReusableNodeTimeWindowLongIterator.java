@@ -0,0 +1,38 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.bipartite;
+
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+
+/**
+ * A {@link ReusableNodeLongIterator} that can also be restricted to the segments holding edges
+ * added in a time window, so that time-bounded traversals do not touch older segments at all.
+ */
+public interface ReusableNodeTimeWindowLongIterator extends ReusableNodeLongIterator {
+
+  /**
+   * Resets the iterator state for the given node, skipping the segments that hold no edge added
+   * in the given time window.
+   *
+   * @param node                the node that this iterator now points to
+   * @param windowMinTimestamp  is the start of the window, in millis
+   * @param windowMaxTimestamp  is the end of the window, in millis
+   * @return the iterator
+   */
+  EdgeIterator resetForNode(long node, long windowMinTimestamp, long windowMaxTimestamp);
+}
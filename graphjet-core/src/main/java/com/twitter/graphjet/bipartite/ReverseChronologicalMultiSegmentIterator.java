@@ -23,7 +23,7 @@ import com.twitter.graphjet.bipartite.segment.LeftIndexedBipartiteGraphSegment;
  * This iterator provides reverse chronological access over edges where the edges can be spread across segments.
  */
 public class ReverseChronologicalMultiSegmentIterator<T extends LeftIndexedBipartiteGraphSegment>
-    extends MultiSegmentIterator<T> implements ReusableNodeLongIterator {
+    extends MultiSegmentIterator<T> implements ReusableNodeTimeWindowLongIterator {
   /**
    * @param multiSegmentBipartiteGraph  is the underlying {@link LeftIndexedMultiSegmentBipartiteGraph}
    * @param segmentEdgeAccessor   is the accessor for the segments
@@ -35,7 +35,14 @@ public class ReverseChronologicalMultiSegmentIterator<T extends LeftIndexedBipar
   }
 
   public EdgeIterator resetForNode(long inputNode) {
+    return resetForNode(inputNode, Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  @Override
+  public EdgeIterator resetForNode(
+      long inputNode, long windowMinTimestamp, long windowMaxTimestamp) {
     rebuildSegmentIteratorsForNode(inputNode);
+    setTimeWindow(windowMinTimestamp, windowMaxTimestamp);
     super.currentSegmentId = liveSegmentId;
     initializeCurrentSegmentIterator();
     return this;
@@ -48,7 +55,7 @@ public class ReverseChronologicalMultiSegmentIterator<T extends LeftIndexedBipar
   protected boolean findNextSegmentForNode() {
     while ((currentSegmentIterator == null || !currentSegmentIterator.hasNext()) &&
         currentSegmentId > oldestSegmentId) {
-      currentSegmentIterator = segmentEdgeAccessor.getNodeEdges(--currentSegmentId, node);
+      currentSegmentIterator = getSegmentNodeEdges(--currentSegmentId);
     }
     return currentSegmentIterator != null && currentSegmentIterator.hasNext();
   }
@@ -69,14 +69,7 @@ public abstract class RightNodeMetadataLeftIndexedMultiSegmentBipartiteGraph
     byte edgeType,
     int[][] rightNodeMetadata
   ) {
-    // usually very cheap check is it's only false very rarely
-    if (numEdgesInLiveSegment == maxNumEdgesPerSegment) {
-      RightNodeMetadataLeftIndexedBipartiteGraphSegment oldLiveSegment = getLiveSegment();
-
-      addNewSegment();
-
-      Optimizer.submitGraphOptimizerJob(this, oldLiveSegment);
-    }
+    prepareLiveSegmentForEdge(leftNode);
     getLiveSegment().addEdge(leftNode, rightNode, edgeType, rightNodeMetadata);
     numEdgesInLiveSegment++;
 
@@ -86,7 +79,7 @@ public abstract class RightNodeMetadataLeftIndexedMultiSegmentBipartiteGraph
   @Override
   public void optimize(OptimizableBipartiteGraphSegment segment) {
     Optimizer.optimizeLeftIndexedBipartiteGraphSegment(
-      (RightNodeMetadataLeftIndexedBipartiteGraphSegment) segment);
+      (RightNodeMetadataLeftIndexedBipartiteGraphSegment) segment, optimizedStorage);
   }
 }
 
@@ -84,7 +84,7 @@ public class RightNodeMetadataLeftIndexedPowerLawMultiSegmentBipartiteGraph
   }
 
   @Override
-  ReusableNodeLongIterator initializeLeftNodeEdgesLongIterator() {
+  ReusableNodeTimeWindowLongIterator initializeLeftNodeEdgesLongIterator() {
     return new RightNodeMetadataMultiSegmentIterator(
       this,
       new LeftSegmentEdgeAccessor<RightNodeMetadataLeftIndexedBipartiteGraphSegment>(
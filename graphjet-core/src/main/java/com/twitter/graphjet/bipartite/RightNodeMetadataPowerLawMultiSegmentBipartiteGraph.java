@@ -0,0 +1,180 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.bipartite;
+
+import java.util.Random;
+
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+import com.twitter.graphjet.bipartite.api.EdgeTypeMask;
+import com.twitter.graphjet.bipartite.api.OptimizableBipartiteGraphSegment;
+import com.twitter.graphjet.bipartite.api.ReusableNodeIntIterator;
+import com.twitter.graphjet.bipartite.api.ReusableNodeRandomIntIterator;
+import com.twitter.graphjet.bipartite.api.RightIndexedBipartiteGraph;
+import com.twitter.graphjet.bipartite.optimizer.Optimizer;
+import com.twitter.graphjet.bipartite.segment.ReusableInternalIdToLongIterator;
+import com.twitter.graphjet.bipartite.segment.RightNodeMetadataBipartiteGraphSegment;
+import com.twitter.graphjet.bipartite.segment.RightNodeMetadataLeftIndexedBipartiteGraphSegment;
+import com.twitter.graphjet.bipartite.segment.RightNodeMetadataPowerLawSegmentProvider;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+/**
+ * This creates a multi-segment bipartite graph with right node metadata where each segment is a
+ * {@link com.twitter.graphjet.bipartite.segment.RightNodeMetadataPowerLawBipartiteGraphSegment}.
+ * Unlike {@link RightNodeMetadataLeftIndexedPowerLawMultiSegmentBipartiteGraph}, the edges are also
+ * indexed by right node, so all the left nodes that engaged with a right node can be fetched
+ * directly, at the cost of storing every edge twice.
+ *
+ * This class is thread-safe as the underlying
+ * {@link LeftIndexedMultiSegmentBipartiteGraph} is thread-safe and all this
+ * class does is provide implementations of segments and iterators.
+ */
+public class RightNodeMetadataPowerLawMultiSegmentBipartiteGraph
+  extends RightNodeMetadataLeftIndexedMultiSegmentBipartiteGraph
+  implements RightIndexedBipartiteGraph {
+  /**
+   * Create a multi-segment bipartite graph with both the left and right sides being power-law.
+   *
+   * @param maxNumSegments            is the maximum number of segments we'll add to the graph.
+   *                                  At that point, the oldest segments will start getting dropped
+   * @param maxNumEdgesPerSegment     determines when the implementation decides to fork off a
+   *                                  new segment
+   * @param expectedNumLeftNodes      is the expected number of left nodes that would be inserted
+   *                                  in the segment
+   * @param expectedMaxLeftDegree     is the maximum degree expected for any left node
+   * @param leftPowerLawExponent      is the exponent of the LHS power-law graph. see
+   *                                  {@link
+   *                                    com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePool}
+   *                                  for details
+   * @param expectedNumRightNodes     is the expected number of right nodes that would be inserted
+   *                                  in the segment
+   * @param expectedMaxRightDegree    is the maximum degree expected for any right node
+   * @param rightPowerLawExponent     is the exponent of the RHS power-law graph
+   * @param numRightNodeMetadataTypes is the max number of node metadata types associated with the
+   *                                  right nodes
+   * @param edgeTypeMask              is the mask to encode edge type into integer node id
+   * @param statsReceiver             tracks the internal stats
+   */
+  public RightNodeMetadataPowerLawMultiSegmentBipartiteGraph(
+    int maxNumSegments,
+    int maxNumEdgesPerSegment,
+    int expectedNumLeftNodes,
+    int expectedMaxLeftDegree,
+    double leftPowerLawExponent,
+    int expectedNumRightNodes,
+    int expectedMaxRightDegree,
+    double rightPowerLawExponent,
+    int numRightNodeMetadataTypes,
+    EdgeTypeMask edgeTypeMask,
+    StatsReceiver statsReceiver) {
+    super(
+      maxNumSegments,
+      maxNumEdgesPerSegment,
+      new RightNodeMetadataPowerLawSegmentProvider(
+        expectedNumLeftNodes,
+        expectedMaxLeftDegree,
+        leftPowerLawExponent,
+        expectedNumRightNodes,
+        expectedMaxRightDegree,
+        rightPowerLawExponent,
+        numRightNodeMetadataTypes,
+        edgeTypeMask,
+        statsReceiver),
+      new MultiSegmentReaderAccessibleInfoProvider<RightNodeMetadataLeftIndexedBipartiteGraphSegment>(
+        maxNumSegments, maxNumEdgesPerSegment),
+      statsReceiver);
+  }
+
+  @Override
+  ReusableNodeTimeWindowLongIterator initializeLeftNodeEdgesLongIterator() {
+    return new RightNodeMetadataMultiSegmentIterator(
+      this,
+      new LeftSegmentEdgeAccessor<RightNodeMetadataLeftIndexedBipartiteGraphSegment>(
+        getReaderAccessibleInfo(),
+        new Int2ObjectOpenHashMap<ReusableNodeIntIterator>(getMaxNumSegments()),
+        new Int2ObjectOpenHashMap<ReusableInternalIdToLongIterator>(getMaxNumSegments())
+      )
+    );
+  }
+
+  @Override
+  ReusableNodeRandomLongIterator initializeLeftNodeEdgesRandomLongIterator() {
+    return new MultiSegmentRandomIterator<RightNodeMetadataLeftIndexedBipartiteGraphSegment>(
+      this,
+      new LeftSegmentRandomEdgeAccessor<RightNodeMetadataLeftIndexedBipartiteGraphSegment>(
+        getReaderAccessibleInfo(),
+        new Int2ObjectOpenHashMap<ReusableInternalIdToLongIterator>(getMaxNumSegments()),
+        new Int2ObjectOpenHashMap<ReusableNodeRandomIntIterator>(getMaxNumSegments())
+      )
+    );
+  }
+
+  ReusableNodeLongIterator initializeRightNodeEdgesLongIterator() {
+    return new ChronologicalMultiSegmentIterator<RightNodeMetadataLeftIndexedBipartiteGraphSegment>(
+      this,
+      new RightNodeMetadataRightSegmentEdgeAccessor(
+        getReaderAccessibleInfo(),
+        new Int2ObjectOpenHashMap<ReusableNodeIntIterator>(getMaxNumSegments()),
+        new Int2ObjectOpenHashMap<ReusableInternalIdToLongIterator>(getMaxNumSegments())
+      )
+    );
+  }
+
+  ReusableNodeRandomLongIterator initializeRightNodeEdgesRandomLongIterator() {
+    return new MultiSegmentRandomIterator<RightNodeMetadataLeftIndexedBipartiteGraphSegment>(
+      this,
+      new RightNodeMetadataRightSegmentRandomEdgeAccessor(
+        getReaderAccessibleInfo(),
+        new Int2ObjectOpenHashMap<ReusableInternalIdToLongIterator>(getMaxNumSegments()),
+        new Int2ObjectOpenHashMap<ReusableNodeRandomIntIterator>(getMaxNumSegments())
+      )
+    );
+  }
+
+  @Override
+  public void optimize(OptimizableBipartiteGraphSegment segment) {
+    Optimizer.optimizeRightNodeMetadataBipartiteGraphSegment(
+      (RightNodeMetadataBipartiteGraphSegment) segment, optimizedStorage);
+  }
+
+  @Override
+  public int getRightNodeDegree(long rightNode) {
+    // Hopefully branch prediction should make this really cheap as it'll always be false!
+    if (crossMemoryBarrier() == -1) {
+      return 0;
+    }
+    int degree = 0;
+    for (RightNodeMetadataLeftIndexedBipartiteGraphSegment segment
+      : multiSegmentReaderAccessibleInfoProvider
+        .getMultiSegmentReaderAccessibleInfo().getSegments().values()) {
+      degree += ((RightNodeMetadataBipartiteGraphSegment) segment).getRightNodeDegree(rightNode);
+    }
+    return degree;
+  }
+
+  @Override
+  public EdgeIterator getRightNodeEdges(long rightNode) {
+    return initializeRightNodeEdgesLongIterator().resetForNode(rightNode);
+  }
+
+  @Override
+  public EdgeIterator getRandomRightNodeEdges(long rightNode, int numSamples, Random random) {
+    return initializeRightNodeEdgesRandomLongIterator().resetForNode(rightNode, numSamples, random);
+  }
+}
@@ -54,6 +54,14 @@ public abstract class SegmentEdgeAccessor<T extends LeftIndexedBipartiteGraphSeg
    */
   public abstract void rebuildIterators(int oldestSegmentId, int liveSegmentId);
 
+  /**
+   * Returns the index of the segments holding each node on the accessed side, which is null when
+   * the graph keeps no such index and every segment has to be visited.
+   */
+  public NodeSegmentIndex getNodeSegmentIndex() {
+    return null;
+  }
+
   /**
    * Allows resetting the accessor to point to point to a new object.
    *
@@ -0,0 +1,255 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.bipartite;
+
+import java.util.Random;
+
+import com.twitter.graphjet.bipartite.api.BipartiteGraph;
+import com.twitter.graphjet.bipartite.api.DynamicBipartiteGraph;
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+import com.twitter.graphjet.bipartite.api.EdgeTypeMask;
+import com.twitter.graphjet.hashing.BigArrayStorage;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * A bipartite graph that partitions its left nodes across a number of independent
+ * {@link MultiSegmentPowerLawBipartiteGraph} shards so that edges can be ingested by several writer
+ * threads at once. Every edge is stored in the shard that owns its left node, so all the edges of a
+ * left node live in a single shard while the edges of a right node are spread over all shards.
+ *
+ * Each shard keeps the single-writer, lock-free reader design of
+ * {@link MultiSegmentBipartiteGraph}, which leaves two ways to write:
+ * 1. Writers that partition the stream by {@link #getShardIndex(long)} upstream, e.g. by consuming
+ *    the partitions of a stream keyed the same way, each own a shard and can add edges to it
+ *    through {@link #getShard(int)} without any locking.
+ * 2. Writers that see arbitrary edges call {@link #addEdge(long, long, byte)}, which serializes
+ *    writers of the same shard on a per-shard lock. Writers of different shards never contend, so
+ *    ingestion still scales with the number of shards.
+ * The two must not be mixed on the same shard.
+ *
+ * Reads are lock-free and go through the regular {@link BipartiteGraph} interfaces: left node
+ * queries are answered by the owning shard and right node queries merge all shards. Note that
+ * segments roll over independently in each shard, and that the edges of a right node are returned
+ * shard by shard, so they are chronological within a shard but not across shards.
+ */
+public class ShardedMultiSegmentPowerLawBipartiteGraph
+    implements BipartiteGraph, DynamicBipartiteGraph {
+  private final MultiSegmentPowerLawBipartiteGraph[] shards;
+
+  /**
+   * Create a sharded bipartite graph where both the left and right degrees are characterized by
+   * power laws. The sizing parameters apply to every shard.
+   *
+   * @param numShards                the number of shards, i.e. the number of writers that can add
+   *                                 edges concurrently
+   * @param maxNumSegments           the maximum number of segments in each shard, after which the
+   *                                 oldest segment will be dropped
+   * @param maxNumEdgesPerSegment    the maximum number of edges in each segment, after which a new
+   *                                 segment will be created
+   * @param expectedNumLeftNodes     the expected number of left nodes in each segment
+   * @param expectedMaxLeftDegree    the expected maximum degree for a left node (soft upper bound)
+   * @param leftPowerLawExponent     the exponent of the power law characterizing the left degree
+   *                                 distribution
+   * @param expectedNumRightNodes    the expected number of right nodes in each segment
+   * @param expectedMaxRightDegree   the expected maximum degree for a right node (soft upper bound)
+   * @param rightPowerLawExponent    the exponent of the power law characterizing the right degree
+   *                                 distribution
+   * @param edgeTypeMask             the mask to encode edge type into the integer node id
+   * @param optimizedStorage         where optimized and restored segments keep their edges
+   * @param statsReceiver            object for tracking internal stats
+   */
+  public ShardedMultiSegmentPowerLawBipartiteGraph(
+      int numShards,
+      int maxNumSegments,
+      int maxNumEdgesPerSegment,
+      int expectedNumLeftNodes,
+      int expectedMaxLeftDegree,
+      double leftPowerLawExponent,
+      int expectedNumRightNodes,
+      int expectedMaxRightDegree,
+      double rightPowerLawExponent,
+      EdgeTypeMask edgeTypeMask,
+      BigArrayStorage optimizedStorage,
+      StatsReceiver statsReceiver) {
+    if (numShards <= 0) {
+      throw new IllegalArgumentException("The number of shards must be positive: " + numShards);
+    }
+    StatsReceiver scopedStatsReceiver = statsReceiver.scope("ShardedMultiSegmentBipartiteGraph");
+    this.shards = new MultiSegmentPowerLawBipartiteGraph[numShards];
+    for (int i = 0; i < numShards; i++) {
+      shards[i] = new MultiSegmentPowerLawBipartiteGraph(
+          maxNumSegments,
+          maxNumEdgesPerSegment,
+          expectedNumLeftNodes,
+          expectedMaxLeftDegree,
+          leftPowerLawExponent,
+          expectedNumRightNodes,
+          expectedMaxRightDegree,
+          rightPowerLawExponent,
+          edgeTypeMask,
+          optimizedStorage,
+          scopedStatsReceiver.scope("shard_" + i));
+    }
+  }
+
+  /**
+   * Create a sharded bipartite graph where both the left and right degrees are characterized by
+   * power laws, keeping optimized segments on the heap.
+   *
+   * @see #ShardedMultiSegmentPowerLawBipartiteGraph(int, int, int, int, int, double, int, int,
+   *      double, EdgeTypeMask, BigArrayStorage, StatsReceiver)
+   */
+  public ShardedMultiSegmentPowerLawBipartiteGraph(
+      int numShards,
+      int maxNumSegments,
+      int maxNumEdgesPerSegment,
+      int expectedNumLeftNodes,
+      int expectedMaxLeftDegree,
+      double leftPowerLawExponent,
+      int expectedNumRightNodes,
+      int expectedMaxRightDegree,
+      double rightPowerLawExponent,
+      EdgeTypeMask edgeTypeMask,
+      StatsReceiver statsReceiver) {
+    this(
+        numShards,
+        maxNumSegments,
+        maxNumEdgesPerSegment,
+        expectedNumLeftNodes,
+        expectedMaxLeftDegree,
+        leftPowerLawExponent,
+        expectedNumRightNodes,
+        expectedMaxRightDegree,
+        rightPowerLawExponent,
+        edgeTypeMask,
+        BigArrayStorage.HEAP,
+        statsReceiver);
+  }
+
+  public int getNumShards() {
+    return shards.length;
+  }
+
+  /**
+   * Returns the index of the shard that owns the given left node.
+   *
+   * @param leftNode  is the left node
+   * @return the shard index, between 0 and {@link #getNumShards()} - 1
+   */
+  public int getShardIndex(long leftNode) {
+    // spread the bits of the id before taking the modulo, as ids are often not uniform
+    long hash = leftNode * 0x9E3779B97F4A7C15L;
+    return (int) ((hash ^ (hash >>> 32)) & Integer.MAX_VALUE) % shards.length;
+  }
+
+  /**
+   * Returns a shard for a writer that owns it, see the class comment.
+   *
+   * @param shardIndex  is the shard index
+   * @return the shard
+   */
+  public MultiSegmentPowerLawBipartiteGraph getShard(int shardIndex) {
+    return shards[shardIndex];
+  }
+
+  /**
+   * Adds an edge to the shard that owns the left node. This is safe to call from any number of
+   * threads.
+   */
+  @Override
+  public void addEdge(long leftNode, long rightNode, byte edgeType) {
+    MultiSegmentPowerLawBipartiteGraph shard = shards[getShardIndex(leftNode)];
+    synchronized (shard) {
+      shard.addEdge(leftNode, rightNode, edgeType);
+    }
+  }
+
+  @Override
+  public void removeEdge(long leftNode, long rightNode) {
+    throw new UnsupportedOperationException("Directly removing edges is NOT supported!");
+  }
+
+  @Override
+  public int getLeftNodeDegree(long leftNode) {
+    return shards[getShardIndex(leftNode)].getLeftNodeDegree(leftNode);
+  }
+
+  @Override
+  public EdgeIterator getLeftNodeEdges(long leftNode) {
+    return shards[getShardIndex(leftNode)].getLeftNodeEdges(leftNode);
+  }
+
+  @Override
+  public EdgeIterator getRandomLeftNodeEdges(long leftNode, int numSamples, Random random) {
+    return shards[getShardIndex(leftNode)].getRandomLeftNodeEdges(leftNode, numSamples, random);
+  }
+
+  @Override
+  public int getRightNodeDegree(long rightNode) {
+    int degree = 0;
+    for (MultiSegmentPowerLawBipartiteGraph shard : shards) {
+      degree += shard.getRightNodeDegree(rightNode);
+    }
+    return degree;
+  }
+
+  @Override
+  public EdgeIterator getRightNodeEdges(long rightNode) {
+    ConcatenatedEdgeIterator edgeIterator = new ConcatenatedEdgeIterator(shards.length);
+    for (MultiSegmentPowerLawBipartiteGraph shard : shards) {
+      edgeIterator.add(shard.getRightNodeEdges(rightNode));
+    }
+    return edgeIterator;
+  }
+
+  /**
+   * Samples edges of a right node across all shards: each sample picks a shard with probability
+   * proportional to the degree of the right node in it, which is equivalent to sampling uniformly
+   * among all its edges. The samples are returned grouped by shard.
+   */
+  @Override
+  public EdgeIterator getRandomRightNodeEdges(long rightNode, int numSamples, Random random) {
+    int[] degrees = new int[shards.length];
+    int totalDegree = 0;
+    for (int i = 0; i < shards.length; i++) {
+      degrees[i] = shards[i].getRightNodeDegree(rightNode);
+      totalDegree += degrees[i];
+    }
+    ConcatenatedEdgeIterator edgeIterator = new ConcatenatedEdgeIterator(shards.length);
+    if (totalDegree == 0) {
+      return edgeIterator;
+    }
+
+    int[] numSamplesPerShard = new int[shards.length];
+    for (int i = 0; i < numSamples; i++) {
+      int sample = random.nextInt(totalDegree);
+      int shardIndex = 0;
+      while (sample >= degrees[shardIndex]) {
+        sample -= degrees[shardIndex++];
+      }
+      numSamplesPerShard[shardIndex]++;
+    }
+    for (int i = 0; i < shards.length; i++) {
+      if (numSamplesPerShard[i] > 0) {
+        edgeIterator.add(
+            shards[i].getRandomRightNodeEdges(rightNode, numSamplesPerShard[i], random));
+      }
+    }
+    return edgeIterator;
+  }
+}
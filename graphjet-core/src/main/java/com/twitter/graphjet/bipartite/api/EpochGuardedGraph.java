@@ -0,0 +1,39 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.bipartite.api;
+
+/**
+ * A graph that may reuse the memory of the edges it drops, and so needs its readers to announce
+ * their accesses. A reader brackets everything it reads from the graph, including the whole
+ * lifetime of the iterators it gets, with {@link #enterReadEpoch()} and
+ * {@link #exitReadEpoch(long)}. The algorithms do this at their entry points.
+ */
+public interface EpochGuardedGraph {
+  /**
+   * Marks the start of a read access.
+   *
+   * @return the token to pass to {@link #exitReadEpoch(long)}
+   */
+  long enterReadEpoch();
+
+  /**
+   * Marks the end of a read access started by {@link #enterReadEpoch()}.
+   *
+   * @param readEpoch  is what {@link #enterReadEpoch()} returned
+   */
+  void exitReadEpoch(long readEpoch);
+}
@@ -24,8 +24,10 @@ import org.slf4j.LoggerFactory;
 
 import com.twitter.graphjet.bipartite.api.ReusableNodeIntIterator;
 import com.twitter.graphjet.bipartite.api.ReusableNodeRandomIntIterator;
+import com.twitter.graphjet.hashing.BigArrayStorage;
 import com.twitter.graphjet.hashing.IntToIntPairArrayIndexBasedMap;
 import com.twitter.graphjet.hashing.IntToIntPairHashMap;
+import com.twitter.graphjet.hashing.PackedIntToIntPairArrayIndexBasedMap;
 import com.twitter.graphjet.stats.StatsReceiver;
 
 import it.unimi.dsi.fastutil.ints.IntIterator;
@@ -73,6 +75,23 @@ public abstract class AbstractOptimizedEdgePool implements EdgePool {
     int[] nodeDegrees,
     int maxNumEdges,
     StatsReceiver statsReceiver
+  ) {
+    this(nodeDegrees, maxNumEdges, BigArrayStorage.HEAP, statsReceiver);
+  }
+
+  /**
+   * AbstractOptimizedEdgePool
+   *
+   * @param nodeDegrees node degree map
+   * @param maxNumEdges the max number of edges will be added in the pool
+   * @param storage where the node information and the edges are kept
+   * @param statsReceiver stats receiver
+   */
+  public AbstractOptimizedEdgePool(
+    int[] nodeDegrees,
+    int maxNumEdges,
+    BigArrayStorage storage,
+    StatsReceiver statsReceiver
   ) {
     numOfNodes = nodeDegrees.length;
     currentNumEdgesStored = 0;
@@ -80,7 +99,8 @@ public abstract class AbstractOptimizedEdgePool implements EdgePool {
 
     this.maxNumEdges = maxNumEdges;
 
-    intToIntPairHashMap = new IntToIntPairArrayIndexBasedMap(numOfNodes, -1, scopedStatsReceiver);
+    intToIntPairHashMap =
+      new IntToIntPairArrayIndexBasedMap(numOfNodes, -1, storage, scopedStatsReceiver);
 
     int position = 0;
     maxDegree = 0;
@@ -98,6 +118,82 @@ public abstract class AbstractOptimizedEdgePool implements EdgePool {
     }
   }
 
+  /**
+   * Creates the compressed copy of a fully populated pool, with its node information bit-packed
+   * (see {@link PackedIntToIntPairArrayIndexBasedMap}). Subclasses pack the edges.
+   *
+   * @param edgePool the fully populated pool
+   */
+  protected AbstractOptimizedEdgePool(AbstractOptimizedEdgePool edgePool) {
+    this.currentNumEdgesStored = edgePool.currentNumEdgesStored;
+    this.maxNumEdges = edgePool.maxNumEdges;
+    this.maxDegree = edgePool.maxDegree;
+    this.numOfNodes = edgePool.numOfNodes;
+    this.scopedStatsReceiver = edgePool.scopedStatsReceiver;
+    this.intToIntPairHashMap = PackedIntToIntPairArrayIndexBasedMap.pack(
+      edgePool.intToIntPairHashMap, numOfNodes, -1, scopedStatsReceiver);
+  }
+
+  /**
+   * Creates the compressed optimized copy of a power-law degree pool, with its node information
+   * bit-packed (see {@link PackedIntToIntPairArrayIndexBasedMap}). Subclasses pack the edges,
+   * straight from the regular pools with an {@link OptimizedLayoutBlockReader}.
+   *
+   * @param edgePool the power-law degree pool, which is not written to anymore
+   */
+  protected AbstractOptimizedEdgePool(AbstractPowerLawDegreeEdgePool edgePool) {
+    int[] nodeDegrees = edgePool.getReaderAccessibleInfo().getNodeDegrees();
+    this.currentNumEdgesStored = 0;
+    this.maxNumEdges = edgePool.getCurrentNumEdgesStored();
+    this.numOfNodes = nodeDegrees.length;
+    this.scopedStatsReceiver =
+      edgePool.getStatsReceiver().scope(this.getClass().getSimpleName());
+    this.intToIntPairHashMap =
+      PackedIntToIntPairArrayIndexBasedMap.packLengths(nodeDegrees, -1, scopedStatsReceiver);
+    for (int nodeDegree : nodeDegrees) {
+      maxDegree = Math.max(maxDegree, nodeDegree);
+    }
+  }
+
+  /**
+   * Returns the compressed optimized copy of a power-law degree pool, which holds the same edges as
+   * the pool {@link com.twitter.graphjet.bipartite.optimizer.Optimizer} builds on the heap, and
+   * compresses them like {@link #compress()}. The edges are packed straight from the regular pools,
+   * so no uncompressed copy of them is ever built.
+   *
+   * @param edgePool the power-law degree pool, which is not written to anymore
+   * @return the compressed optimized copy of the pool
+   */
+  public static AbstractOptimizedEdgePool compress(AbstractPowerLawDegreeEdgePool edgePool) {
+    return edgePool.hasEdgeMetadata()
+      ? new WithEdgeMetadataOptimizedEdgePool(edgePool)
+      : new OptimizedEdgePool(edgePool);
+  }
+
+  /**
+   * Returns a copy of this fully populated pool whose edges, and edge metadata if any, are
+   * bit-packed (see {@link com.twitter.graphjet.hashing.PackedBigIntArray}), and so is its node
+   * information. The copy can be read exactly like this pool, including random sampling, but
+   * cannot be written to.
+   *
+   * @return the compressed copy of this pool
+   */
+  public abstract AbstractOptimizedEdgePool compress();
+
+  /**
+   * Compresses the given fully populated pool if the storage asks for it.
+   *
+   * @param edgePool the fully populated pool
+   * @param storage where the pool was asked to keep its edges
+   * @return the pool itself, or its compressed copy with {@link BigArrayStorage#COMPRESSED}
+   */
+  public static AbstractOptimizedEdgePool compressIfNeeded(
+    AbstractOptimizedEdgePool edgePool,
+    BigArrayStorage storage
+  ) {
+    return storage == BigArrayStorage.COMPRESSED ? edgePool.compress() : edgePool;
+  }
+
   /**
    * Get a specified edge for the node: note that it is the caller's responsibility to check that
    * the edge number is within the degree bounds.
@@ -110,6 +206,19 @@ public abstract class AbstractOptimizedEdgePool implements EdgePool {
     return readerAccessibleInfo.getEdges().getEntry(position + edgeNumber);
   }
 
+  /**
+   * Copies consecutive edges of a node, which decodes compressed edges a block at a time: note that
+   * it is the caller's responsibility to check that the edges are within the degree bounds.
+   *
+   * @param position is the position index for the node
+   * @param edgeNumber is the number of the first edge to copy
+   * @param dest is where the edges are copied to
+   * @param count is the number of edges to copy
+   */
+  protected void getNodeEdges(int position, int edgeNumber, int[] dest, int count) {
+    readerAccessibleInfo.getEdges().getEntries(position + edgeNumber, dest, 0, count);
+  }
+
   /**
    * Get the metadata of a specified edge for the node: note that it is the caller's responsibility
    * to check that the edge number is within the degree bounds.
@@ -191,6 +300,31 @@ public abstract class AbstractOptimizedEdgePool implements EdgePool {
     int length
   );
 
+  /**
+   * Allocates the memory for all the edges of the pool up front, which
+   * {@link #addEdgesAtPosition} requires.
+   */
+  public abstract void reserveEdges();
+
+  /**
+   * Batch add edges that are contiguous in the optimized layout, possibly spanning several nodes,
+   * once the edges are reserved with {@link #reserveEdges()}. Copies into disjoint ranges may then
+   * run on different threads at the same time, without any locking.
+   *
+   * @param position the position of the first edge in the optimized layout
+   * @param src  the source int edge array
+   * @param metadata the source long edge metadata array
+   * @param srcPos the starting position in the source array
+   * @param length the number of edges to be copied
+   */
+  public abstract void addEdgesAtPosition(
+    int position,
+    int[] src,
+    long[] metadata,
+    int srcPos,
+    int length
+  );
+
   @Override
   public boolean isOptimized() {
     return true;
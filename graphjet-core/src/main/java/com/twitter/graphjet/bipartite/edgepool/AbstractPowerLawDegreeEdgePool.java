@@ -23,6 +23,7 @@ import com.google.common.base.Preconditions;
 
 import com.twitter.graphjet.bipartite.api.ReusableNodeIntIterator;
 import com.twitter.graphjet.bipartite.api.ReusableNodeRandomIntIterator;
+import com.twitter.graphjet.hashing.IntShardPool;
 import com.twitter.graphjet.stats.Counter;
 import com.twitter.graphjet.stats.StatsReceiver;
 
@@ -170,6 +171,8 @@ public abstract class AbstractPowerLawDegreeEdgePool implements EdgePool {
   protected ReaderAccessibleInfo readerAccessibleInfo;
   // Writes and subsequent reads across this will cross the memory barrier
   protected volatile int currentNumEdgesStored;
+  // Where the regular pools take their new shards from, if anywhere
+  protected IntShardPool shardPool;
 
   protected final StatsReceiver statsReceiver;
   protected final Counter numEdgesCounter;
@@ -278,6 +281,21 @@ public abstract class AbstractPowerLawDegreeEdgePool implements EdgePool {
     numNodesCounter.incr();
   }
 
+  /**
+   * Makes the edges of this pool, including the regular pools it adds later on, take their new
+   * shards from the given pool. This is only meant to be called by the writer.
+   *
+   * @param pool  is where new shards are taken from, or null to always allocate them
+   */
+  public void setShardPool(IntShardPool pool) {
+    shardPool = pool;
+    for (AbstractRegularDegreeEdgePool regularDegreeEdgePool : readerAccessibleInfo.edgePools) {
+      if (regularDegreeEdgePool != null) {
+        regularDegreeEdgePool.setShardPool(pool);
+      }
+    }
+  }
+
   protected AbstractRegularDegreeEdgePool getRegularDegreeEdgePool(int poolNumber) {
     return readerAccessibleInfo.edgePools[poolNumber];
   }
@@ -23,6 +23,7 @@ import com.google.common.base.Preconditions;
 
 import com.twitter.graphjet.bipartite.api.ReusableNodeIntIterator;
 import com.twitter.graphjet.bipartite.api.ReusableNodeRandomIntIterator;
+import com.twitter.graphjet.hashing.IntShardPool;
 import com.twitter.graphjet.hashing.IntToIntPairArrayIndexBasedMap;
 import com.twitter.graphjet.hashing.ShardedBigIntArray;
 import com.twitter.graphjet.stats.Counter;
@@ -247,6 +248,25 @@ abstract public class AbstractRegularDegreeEdgePool implements EdgePool {
       getShard(readerAccessibleInfo.getNodeInfo().getFirstValue(node));
   }
 
+  /**
+   * Makes the edges of this pool take their new shards from the given pool. This is only meant to
+   * be called by the writer.
+   *
+   * @param shardPool  is where new shards are taken from, or null to always allocate them
+   */
+  public void setShardPool(IntShardPool shardPool) {
+    if (readerAccessibleInfo.getEdges() instanceof ShardedBigIntArray) {
+      ((ShardedBigIntArray) readerAccessibleInfo.getEdges()).setShardPool(shardPool);
+    }
+  }
+
+  /**
+   * @return the number of edge slots reserved so far, i.e. maxDegree slots for every node
+   */
+  public int getNumReservedEdgeSlots() {
+    return currentPositionOffset;
+  }
+
   public int getShardOffset(int node) {
     return ((ShardedBigIntArray) readerAccessibleInfo.getEdges()).
       getShardOffset(readerAccessibleInfo.getNodeInfo().getFirstValue(node));
@@ -0,0 +1,231 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.bipartite.edgepool;
+
+import java.io.IOException;
+
+import com.twitter.graphjet.hashing.BigArrayStorage;
+import com.twitter.graphjet.hashing.BigIntArray;
+import com.twitter.graphjet.hashing.BigLongArray;
+import com.twitter.graphjet.snapshot.SnapshotReader;
+import com.twitter.graphjet.snapshot.SnapshotWriter;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * Serializes edge pools of sealed segments into the layout of an {@link AbstractOptimizedEdgePool}:
+ * the degree of every node followed by all the edges (and optionally the edge metadata) laid out
+ * contiguously in node id order. Both optimized pools and power law pools that have not been
+ * optimized yet can be written, and reading always produces an optimized pool, so restoring a
+ * segment never needs to go through the {@link com.twitter.graphjet.bipartite.optimizer.Optimizer}.
+ *
+ * The layout is:
+ * hasEdgeMetadata (byte), numNodes (int), nodeDegrees (int[numNodes]), numEdges (int),
+ * edges (int[numEdges]) and, if present, metadata (long[numEdges]).
+ */
+public final class EdgePoolSnapshots {
+  private static final int CHUNK_SIZE = 1 << 16;
+
+  /**
+   * Private constructor.
+   */
+  private EdgePoolSnapshots() { }
+
+  /**
+   * Writes the given pool. This must only be called once no more edges are being added to the
+   * pool, i.e. on a sealed segment.
+   *
+   * @param edgePool  is the pool to write, either optimized or power law
+   * @param writer    is where the pool is written
+   * @throws IOException if the underlying write fails
+   */
+  public static void write(EdgePool edgePool, SnapshotWriter writer) throws IOException {
+    if (edgePool instanceof AbstractOptimizedEdgePool) {
+      writeOptimizedEdgePool((AbstractOptimizedEdgePool) edgePool, writer);
+    } else if (edgePool instanceof AbstractPowerLawDegreeEdgePool) {
+      writePowerLawDegreeEdgePool((AbstractPowerLawDegreeEdgePool) edgePool, writer);
+    } else {
+      throw new UnsupportedOperationException(
+          "Snapshots are not supported for " + edgePool.getClass().getSimpleName());
+    }
+  }
+
+  private static void writeOptimizedEdgePool(
+      AbstractOptimizedEdgePool edgePool,
+      SnapshotWriter writer) throws IOException {
+    boolean hasEdgeMetadata = edgePool instanceof WithEdgeMetadataOptimizedEdgePool;
+    int[] nodeDegrees = new int[edgePool.numOfNodes];
+    for (int i = 0; i < nodeDegrees.length; i++) {
+      // absent nodes return the default value of the node info map
+      nodeDegrees[i] = Math.max(edgePool.getNodeDegree(i), 0);
+    }
+    int numEdges = writeNodeDegrees(nodeDegrees, hasEdgeMetadata, writer);
+
+    BigIntArray edges = edgePool.readerAccessibleInfo.getEdges();
+    int[] edgeChunk = new int[Math.min(CHUNK_SIZE, Math.max(numEdges, 1))];
+    for (int start = 0; start < numEdges; start += edgeChunk.length) {
+      int length = Math.min(edgeChunk.length, numEdges - start);
+      for (int i = 0; i < length; i++) {
+        edgeChunk[i] = edges.getEntry(start + i);
+      }
+      writer.writeInts(edgeChunk, 0, length);
+    }
+
+    if (hasEdgeMetadata) {
+      BigLongArray metadata = edgePool.readerAccessibleInfo.getMetadata();
+      long[] metadataChunk = new long[edgeChunk.length];
+      for (int start = 0; start < numEdges; start += metadataChunk.length) {
+        int length = Math.min(metadataChunk.length, numEdges - start);
+        for (int i = 0; i < length; i++) {
+          metadataChunk[i] = metadata.getEntry(start + i);
+        }
+        writer.writeLongs(metadataChunk, 0, length);
+      }
+    }
+  }
+
+  private static void writePowerLawDegreeEdgePool(
+      AbstractPowerLawDegreeEdgePool edgePool,
+      SnapshotWriter writer) throws IOException {
+    AbstractPowerLawDegreeEdgePool.ReaderAccessibleInfo readerAccessibleInfo =
+        edgePool.getReaderAccessibleInfo();
+    int[] nodeDegrees = readerAccessibleInfo.getNodeDegrees();
+    AbstractRegularDegreeEdgePool[] regularDegreeEdgePools = readerAccessibleInfo.getEdgePools();
+    boolean hasEdgeMetadata = edgePool.hasEdgeMetadata();
+    writeNodeDegrees(nodeDegrees, hasEdgeMetadata, writer);
+
+    // this is the same traversal as the optimizer, so the edges land in the optimized layout
+    for (int i = 0; i < nodeDegrees.length; i++) {
+      if (nodeDegrees[i] == 0) {
+        continue;
+      }
+      int edgePoolNumber = AbstractPowerLawDegreeEdgePool.getPoolForEdgeNumber(nodeDegrees[i] - 1);
+      for (int j = 0; j <= edgePoolNumber; j++) {
+        writer.writeInts(
+            regularDegreeEdgePools[j].getShard(i),
+            regularDegreeEdgePools[j].getShardOffset(i),
+            regularDegreeEdgePools[j].getNodeDegree(i));
+      }
+    }
+
+    if (hasEdgeMetadata) {
+      for (int i = 0; i < nodeDegrees.length; i++) {
+        if (nodeDegrees[i] == 0) {
+          continue;
+        }
+        int edgePoolNumber =
+            AbstractPowerLawDegreeEdgePool.getPoolForEdgeNumber(nodeDegrees[i] - 1);
+        for (int j = 0; j <= edgePoolNumber; j++) {
+          writer.writeLongs(
+              regularDegreeEdgePools[j].getMetadataShard(i),
+              regularDegreeEdgePools[j].getShardOffset(i),
+              regularDegreeEdgePools[j].getNodeDegree(i));
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the header and the node degrees, dropping the unused tail of the degree array.
+   *
+   * @return the total number of edges, which is also written out
+   */
+  private static int writeNodeDegrees(
+      int[] nodeDegrees,
+      boolean hasEdgeMetadata,
+      SnapshotWriter writer) throws IOException {
+    int numNodes = nodeDegrees.length;
+    while (numNodes > 0 && nodeDegrees[numNodes - 1] == 0) {
+      numNodes--;
+    }
+    int numEdges = 0;
+    for (int i = 0; i < numNodes; i++) {
+      numEdges += nodeDegrees[i];
+    }
+    writer.writeByte((byte) (hasEdgeMetadata ? 1 : 0));
+    writer.writeInt(numNodes);
+    writer.writeInts(nodeDegrees, 0, numNodes);
+    writer.writeInt(numEdges);
+    return numEdges;
+  }
+
+  /**
+   * Reads back a pool written by {@link #write(EdgePool, SnapshotWriter)} onto the heap.
+   *
+   * @param reader         is the reader positioned at the start of the pool
+   * @param statsReceiver  tracks the internal stats
+   * @return an optimized pool holding exactly the edges that were written
+   * @throws IOException if the underlying read fails
+   */
+  public static AbstractOptimizedEdgePool read(
+      SnapshotReader reader,
+      StatsReceiver statsReceiver) throws IOException {
+    return read(reader, BigArrayStorage.HEAP, statsReceiver);
+  }
+
+  /**
+   * Reads back a pool written by {@link #write(EdgePool, SnapshotWriter)}. With off-heap storage
+   * the edges are not copied at all but mapped in place from the snapshot file, which must then
+   * not be modified while the pool is alive.
+   *
+   * @param reader         is the reader positioned at the start of the pool
+   * @param storage        is where the edges of the pool are kept
+   * @param statsReceiver  tracks the internal stats
+   * @return an optimized pool holding exactly the edges that were written
+   * @throws IOException if the underlying read fails
+   */
+  public static AbstractOptimizedEdgePool read(
+      SnapshotReader reader,
+      BigArrayStorage storage,
+      StatsReceiver statsReceiver) throws IOException {
+    boolean hasEdgeMetadata = reader.readByte() != 0;
+    int numNodes = reader.readInt();
+    int[] nodeDegrees = new int[numNodes];
+    reader.readInts(nodeDegrees, 0, numNodes);
+    int numEdges = reader.readInt();
+
+    if (storage == BigArrayStorage.OFF_HEAP) {
+      return hasEdgeMetadata
+          ? new WithEdgeMetadataOptimizedEdgePool(nodeDegrees, numEdges, reader, statsReceiver)
+          : new OptimizedEdgePool(nodeDegrees, numEdges, reader, statsReceiver);
+    }
+
+    AbstractOptimizedEdgePool edgePool = hasEdgeMetadata
+        ? new WithEdgeMetadataOptimizedEdgePool(nodeDegrees, numEdges, statsReceiver)
+        : new OptimizedEdgePool(nodeDegrees, numEdges, statsReceiver);
+
+    BigIntArray edges = edgePool.readerAccessibleInfo.getEdges();
+    int[] edgeChunk = new int[Math.min(CHUNK_SIZE, Math.max(numEdges, 1))];
+    for (int start = 0; start < numEdges; start += edgeChunk.length) {
+      int length = Math.min(edgeChunk.length, numEdges - start);
+      reader.readInts(edgeChunk, 0, length);
+      edges.arrayCopy(edgeChunk, 0, start, length, true /*updateStats*/);
+    }
+
+    if (hasEdgeMetadata) {
+      BigLongArray metadata = edgePool.readerAccessibleInfo.getMetadata();
+      long[] metadataChunk = new long[edgeChunk.length];
+      for (int start = 0; start < numEdges; start += metadataChunk.length) {
+        int length = Math.min(metadataChunk.length, numEdges - start);
+        reader.readLongs(metadataChunk, 0, length);
+        metadata.arrayCopy(metadataChunk, 0, start, length, true /*updateStats*/);
+      }
+    }
+    edgePool.currentNumEdgesStored = numEdges;
+    return AbstractOptimizedEdgePool.compressIfNeeded(edgePool, storage);
+  }
+}
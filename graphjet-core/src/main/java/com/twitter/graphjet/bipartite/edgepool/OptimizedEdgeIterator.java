@@ -23,14 +23,21 @@ import com.twitter.graphjet.bipartite.api.ReusableNodeIntIterator;
 
 /**
  * Returns an iterator over the edges stored in an {@link AbstractOptimizedEdgePool}. The iterator
- * is meant to be reusable via the resetForIndex method.
+ * is meant to be reusable via the resetForIndex method. The edges are fetched a few at a time, so
+ * that compressed pools decode them block-wise rather than one by one.
  */
 public class OptimizedEdgeIterator extends ReadOnlyIntIterator
   implements WithEdgeMetadataIntIterator, ReusableNodeIntIterator {
+  private static final int EDGE_BUFFER_SIZE = 64;
+
   protected final AbstractOptimizedEdgePool optimizedDegreeEdgePool;
   protected int position;
   protected int degree;
   protected int currentEdge;
+  // allocated on first use, since random iterators never need it
+  private int[] edgeBuffer;
+  private int edgeBufferPosition;
+  private int edgeBufferLength;
 
   /**
    * Creates an iterator that can be reused. Note that the client needs to call the resetForNode
@@ -54,12 +61,23 @@ public class OptimizedEdgeIterator extends ReadOnlyIntIterator
     this.position = optimizedDegreeEdgePool.getNodePosition(node);
     this.degree = optimizedDegreeEdgePool.getNodeDegree(node);
     currentEdge = 0;
+    edgeBufferPosition = 0;
+    edgeBufferLength = 0;
     return this;
   }
 
   @Override
   public int nextInt() {
-    return optimizedDegreeEdgePool.getNodeEdge(position, currentEdge++);
+    if (edgeBufferPosition == edgeBufferLength) {
+      if (edgeBuffer == null) {
+        edgeBuffer = new int[EDGE_BUFFER_SIZE];
+      }
+      edgeBufferLength = Math.min(EDGE_BUFFER_SIZE, degree - currentEdge);
+      optimizedDegreeEdgePool.getNodeEdges(position, currentEdge, edgeBuffer, edgeBufferLength);
+      edgeBufferPosition = 0;
+    }
+    currentEdge++;
+    return edgeBuffer[edgeBufferPosition++];
   }
 
   @Override
@@ -17,10 +17,15 @@
 
 package com.twitter.graphjet.bipartite.edgepool;
 
+import java.io.IOException;
+
+import com.twitter.graphjet.hashing.BigArrayStorage;
 import com.twitter.graphjet.hashing.BigIntArray;
 import com.twitter.graphjet.hashing.BigLongArray;
+import com.twitter.graphjet.hashing.DirectBigIntArray;
 import com.twitter.graphjet.hashing.IntToIntPairHashMap;
-import com.twitter.graphjet.hashing.ShardedBigIntArray;
+import com.twitter.graphjet.hashing.PackedBigIntArray;
+import com.twitter.graphjet.snapshot.SnapshotReader;
 import com.twitter.graphjet.stats.StatsReceiver;
 
 /**
@@ -77,9 +82,26 @@ public class OptimizedEdgePool extends AbstractOptimizedEdgePool {
     int maxNumEdges,
     StatsReceiver statsReceiver
   ) {
-    super(nodeDegrees, maxNumEdges, statsReceiver);
+    this(nodeDegrees, maxNumEdges, BigArrayStorage.HEAP, statsReceiver);
+  }
 
-    BigIntArray edges = new ShardedBigIntArray(maxNumEdges, maxDegree, 0, scopedStatsReceiver);
+  /**
+   * OptimizedEdgePool
+   *
+   * @param nodeDegrees node degree map
+   * @param maxNumEdges the max number of edges will be added in the pool
+   * @param storage where the node information and the edges are kept
+   * @param statsReceiver stats receiver
+   */
+  public OptimizedEdgePool(
+    int[] nodeDegrees,
+    int maxNumEdges,
+    BigArrayStorage storage,
+    StatsReceiver statsReceiver
+  ) {
+    super(nodeDegrees, maxNumEdges, storage, statsReceiver);
+
+    BigIntArray edges = storage.newIntArray(maxNumEdges, maxDegree, 0, scopedStatsReceiver);
 
     readerAccessibleInfo = new ReaderAccessibleInfo(
       edges,
@@ -91,6 +113,78 @@ public class OptimizedEdgePool extends AbstractOptimizedEdgePool {
     );
   }
 
+  /**
+   * Restores a fully populated pool whose edges are mapped in place from a snapshot.
+   *
+   * @param nodeDegrees node degree map
+   * @param numEdges the number of edges in the pool
+   * @param reader the reader positioned at the start of the edges
+   * @param statsReceiver stats receiver
+   * @throws IOException if the edges cannot be mapped
+   */
+  OptimizedEdgePool(
+    int[] nodeDegrees,
+    int numEdges,
+    SnapshotReader reader,
+    StatsReceiver statsReceiver
+  ) throws IOException {
+    super(nodeDegrees, numEdges, BigArrayStorage.OFF_HEAP, statsReceiver);
+
+    BigIntArray edges = DirectBigIntArray.map(reader, numEdges, 0, scopedStatsReceiver);
+
+    readerAccessibleInfo = new ReaderAccessibleInfo(
+      edges,
+      intToIntPairHashMap
+    );
+    currentNumEdgesStored = numEdges;
+  }
+
+  /**
+   * Creates the compressed copy of a fully populated pool.
+   *
+   * @param edgePool the fully populated pool
+   */
+  private OptimizedEdgePool(OptimizedEdgePool edgePool) {
+    super(edgePool);
+
+    PackedBigIntArray edges = PackedBigIntArray.pack(
+      edgePool.readerAccessibleInfo.getEdges(), maxNumEdges, scopedStatsReceiver);
+
+    readerAccessibleInfo = new ReaderAccessibleInfo(
+      edges,
+      intToIntPairHashMap
+    );
+
+    LOG.info("OptimizedEdgePool: compressed " + maxNumEdges + " edges into "
+      + edges.getNumBytes() + " bytes");
+  }
+
+  /**
+   * Creates the compressed optimized copy of a power-law degree pool, see
+   * {@link AbstractOptimizedEdgePool#compress(AbstractPowerLawDegreeEdgePool)}.
+   *
+   * @param edgePool the power-law degree pool
+   */
+  OptimizedEdgePool(AbstractPowerLawDegreeEdgePool edgePool) {
+    super(edgePool);
+
+    PackedBigIntArray edges = PackedBigIntArray.pack(
+      new OptimizedLayoutBlockReader(edgePool), maxNumEdges, scopedStatsReceiver);
+
+    readerAccessibleInfo = new ReaderAccessibleInfo(
+      edges,
+      intToIntPairHashMap
+    );
+
+    LOG.info("OptimizedEdgePool: packed " + maxNumEdges + " edges into "
+      + edges.getNumBytes() + " bytes");
+  }
+
+  @Override
+  public OptimizedEdgePool compress() {
+    return new OptimizedEdgePool(this);
+  }
+
   @Override
   protected long getEdgeMetadata(int position, int edgeNumber) {
     return 0;
@@ -98,14 +192,40 @@ public class OptimizedEdgePool extends AbstractOptimizedEdgePool {
 
   @Override
   public void addEdges(int node, int pool, int[] src, long[] metadata, int srcPos, int length) {
-    int position = getNodePosition(node);
+    copyEdges(getNodePosition(node) + POW_TABLE_30[pool], src, metadata, srcPos, length, true);
+  }
 
+  @Override
+  public void reserveEdges() {
+    readerAccessibleInfo.getEdges().reserve(maxNumEdges);
+  }
+
+  @Override
+  public void addEdgesAtPosition(
+    int position,
+    int[] src,
+    long[] metadata,
+    int srcPos,
+    int length
+  ) {
+    // the stats were updated for all the edges when reserving them
+    copyEdges(position, src, metadata, srcPos, length, false);
+  }
+
+  private void copyEdges(
+    int position,
+    int[] src,
+    long[] metadata,
+    int srcPos,
+    int length,
+    boolean updateStats
+  ) {
     readerAccessibleInfo.getEdges().arrayCopy(
       src,
       srcPos,
-      position + POW_TABLE_30[pool],
+      position,
       length,
-      true /*updateStats*/
+      updateStats
     );
   }
 }
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.bipartite.edgepool;
+
+import com.twitter.graphjet.hashing.BigArrayStorage;
+import com.twitter.graphjet.hashing.BigIntArray;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * Builds an {@link OptimizedEdgePool} directly from a batch of edges, without going through a
+ * {@link PowerLawDegreeEdgePool} and the {@link com.twitter.graphjet.bipartite.optimizer.Optimizer}.
+ * The caller counts the node degrees in a first pass so that the pool is allocated at its exact
+ * size, and then hands over the edges one by one: each edge is written straight into the pool at its
+ * final position, so that the edges of every node are contiguous and keep the order in which they
+ * were added. The resulting pool is thus identical to the one the optimizer would produce had the
+ * edges been added one by one, and no copy of the batch is ever made.
+ */
+public final class OptimizedEdgePoolLoader {
+  private final OptimizedEdgePool edgePool;
+  private final BigIntArray edges;
+  // the position of the next edge of every node
+  private final int[] nextPositions;
+  private final BigArrayStorage storage;
+  private int numEdgesAdded;
+
+  /**
+   * Allocates a pool that holds exactly the given number of edges per node. Note that the loader
+   * takes ownership of nodeDegrees, which it turns into the position of the next edge of every node.
+   *
+   * @param nodeDegrees    contains the degree of every node, where the largest node id is
+   *                       nodeDegrees.length - 1
+   * @param numEdges       is the number of edges in the batch, i.e. the sum of the degrees
+   * @param storage        is where the edges of the pool are kept
+   * @param statsReceiver  tracks the internal stats
+   */
+  public OptimizedEdgePoolLoader(
+    int[] nodeDegrees,
+    int numEdges,
+    BigArrayStorage storage,
+    StatsReceiver statsReceiver
+  ) {
+    this.edgePool = new OptimizedEdgePool(nodeDegrees, numEdges, storage, statsReceiver);
+    this.edges = edgePool.readerAccessibleInfo.getEdges();
+    this.storage = storage;
+    // this walks the nodes in the same order as the pool did when it laid them out
+    int position = 0;
+    for (int i = 0; i < nodeDegrees.length; i++) {
+      int nodeDegree = nodeDegrees[i];
+      nodeDegrees[i] = position;
+      position += nodeDegree;
+    }
+    this.nextPositions = nodeDegrees;
+  }
+
+  /**
+   * Writes the next edge of the given node. Each node must get exactly as many edges as its degree.
+   *
+   * @param node  is the node the edge belongs to
+   * @param edge  is the value stored for the edge
+   */
+  public void addEdge(int node, int edge) {
+    edges.addEntry(edge, nextPositions[node]++);
+    numEdgesAdded++;
+  }
+
+  /**
+   * Hands over the pool once all of its edges have been added. The loader must not be used after.
+   *
+   * @return an optimized pool holding exactly the added edges, compressed if the storage asks for it
+   */
+  public AbstractOptimizedEdgePool load() {
+    edgePool.currentNumEdgesStored = numEdgesAdded;
+    return AbstractOptimizedEdgePool.compressIfNeeded(edgePool, storage);
+  }
+}
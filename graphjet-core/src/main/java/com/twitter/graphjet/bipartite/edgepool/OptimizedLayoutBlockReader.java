@@ -0,0 +1,125 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.bipartite.edgepool;
+
+import com.google.common.base.Preconditions;
+
+import com.twitter.graphjet.hashing.PackedBigIntArray;
+import com.twitter.graphjet.hashing.PackedBigLongArray;
+
+/**
+ * Reads the edges, or the edge metadata, of a {@link AbstractPowerLawDegreeEdgePool} in the order
+ * of the optimized layout, i.e. node by node and regular pool by regular pool, so that they can be
+ * packed straight from the regular pools. The blocks need to be read in order, and reading the
+ * first block again starts over.
+ */
+final class OptimizedLayoutBlockReader
+    implements PackedBigIntArray.BlockReader, PackedBigLongArray.BlockReader {
+  private final int[] nodeDegrees;
+  private final AbstractRegularDegreeEdgePool[] regularDegreeEdgePools;
+
+  private int position;
+  private int node;
+  private int pool;
+  private int nodeDegreeInPool;
+  private int edgeNumberInPool;
+
+  OptimizedLayoutBlockReader(AbstractPowerLawDegreeEdgePool edgePool) {
+    this.nodeDegrees = edgePool.getReaderAccessibleInfo().getNodeDegrees();
+    this.regularDegreeEdgePools = edgePool.getReaderAccessibleInfo().getEdgePools();
+    reset();
+  }
+
+  private void reset() {
+    position = 0;
+    node = -1;
+    pool = 0;
+    nodeDegreeInPool = 0;
+    edgeNumberInPool = 0;
+  }
+
+  private void seek(int blockPosition) {
+    if (blockPosition == 0) {
+      reset();
+    }
+    Preconditions.checkArgument(blockPosition == position, "Blocks need to be read in order");
+  }
+
+  /**
+   * Moves on to the next regular pool holding edges of the current node, or to the next node.
+   */
+  private void nextPoolRange() {
+    do {
+      if (node >= 0
+          && pool < AbstractPowerLawDegreeEdgePool.getPoolForEdgeNumber(nodeDegrees[node] - 1)) {
+        pool++;
+      } else {
+        do {
+          node++;
+        } while (nodeDegrees[node] == 0);
+        pool = 0;
+      }
+      nodeDegreeInPool = regularDegreeEdgePools[pool].getNodeDegree(node);
+    } while (nodeDegreeInPool == 0);
+    edgeNumberInPool = 0;
+  }
+
+  @Override
+  public void readBlock(int blockPosition, int[] block, int count) {
+    seek(blockPosition);
+    int numReadEdges = 0;
+    while (numReadEdges < count) {
+      if (edgeNumberInPool == nodeDegreeInPool) {
+        nextPoolRange();
+      }
+      int length = Math.min(count - numReadEdges, nodeDegreeInPool - edgeNumberInPool);
+      AbstractRegularDegreeEdgePool regularDegreeEdgePool = regularDegreeEdgePools[pool];
+      System.arraycopy(
+          regularDegreeEdgePool.getShard(node),
+          regularDegreeEdgePool.getShardOffset(node) + edgeNumberInPool,
+          block,
+          numReadEdges,
+          length);
+      edgeNumberInPool += length;
+      numReadEdges += length;
+    }
+    position += count;
+  }
+
+  @Override
+  public void readBlock(int blockPosition, long[] block, int count) {
+    seek(blockPosition);
+    int numReadEdges = 0;
+    while (numReadEdges < count) {
+      if (edgeNumberInPool == nodeDegreeInPool) {
+        nextPoolRange();
+      }
+      int length = Math.min(count - numReadEdges, nodeDegreeInPool - edgeNumberInPool);
+      AbstractRegularDegreeEdgePool regularDegreeEdgePool = regularDegreeEdgePools[pool];
+      System.arraycopy(
+          regularDegreeEdgePool.getMetadataShard(node),
+          regularDegreeEdgePool.getShardOffset(node) + edgeNumberInPool,
+          block,
+          numReadEdges,
+          length);
+      edgeNumberInPool += length;
+      numReadEdges += length;
+    }
+    position += count;
+  }
+}
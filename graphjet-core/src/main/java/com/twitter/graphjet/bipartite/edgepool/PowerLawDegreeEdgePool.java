@@ -58,6 +58,7 @@ public class PowerLawDegreeEdgePool extends AbstractPowerLawDegreeEdgePool {
     int maxDegreeInPool = (int) Math.pow(2, poolNumber + 1);
     readerAccessibleInfo.edgePools[poolNumber] = new RegularDegreeEdgePool(
         expectedNumNodesInPool, maxDegreeInPool, statsReceiver.scope("poolNumber_" + poolNumber));
+    readerAccessibleInfo.edgePools[poolNumber].setShardPool(shardPool);
     readerAccessibleInfo.poolDegrees[poolNumber] = maxDegreeInPool;
   }
 
@@ -17,6 +17,9 @@
 
 package com.twitter.graphjet.bipartite.edgepool;
 
+import com.twitter.graphjet.hashing.IntShardPool;
+import com.twitter.graphjet.hashing.ShardedBigIntArray;
+
 /**
  * This utility class allows recycling already allocated memory for edge pools, but note that this
  * is done a manner that is NOT thread-safe.
@@ -63,4 +66,39 @@ public final class RecyclePoolMemory {
         powerLawDegreeEdgePool.readerAccessibleInfo.poolDegrees,
         new int[powerLawDegreeEdgePool.readerAccessibleInfo.nodeDegrees.length]);
   }
+
+  /**
+   * Makes a {@link AbstractPowerLawDegreeEdgePool} or a {@link AbstractRegularDegreeEdgePool} take
+   * its new edge shards from the given pool. Other kinds of edge pools are left alone.
+   *
+   * NOTE: This method is NOT thread-safe!
+   */
+  public static void setEdgePoolShardPool(EdgePool edgePool, IntShardPool shardPool) {
+    if (edgePool instanceof AbstractPowerLawDegreeEdgePool) {
+      ((AbstractPowerLawDegreeEdgePool) edgePool).setShardPool(shardPool);
+    } else if (edgePool instanceof AbstractRegularDegreeEdgePool) {
+      ((AbstractRegularDegreeEdgePool) edgePool).setShardPool(shardPool);
+    }
+  }
+
+  /**
+   * Hands the edge shards of a {@link AbstractPowerLawDegreeEdgePool} to the given pool, so that
+   * new edge pools can reuse them. Other kinds of edge pools are left alone. The edge pool must not
+   * be used anymore afterwards.
+   *
+   * NOTE: This method is only safe once no reader can reach the edge pool anymore!
+   */
+  public static void releaseEdgePoolShards(EdgePool edgePool, IntShardPool shardPool) {
+    if (!(edgePool instanceof AbstractPowerLawDegreeEdgePool)) {
+      return;
+    }
+    for (AbstractRegularDegreeEdgePool regularDegreeEdgePool
+        : ((AbstractPowerLawDegreeEdgePool) edgePool).readerAccessibleInfo.edgePools) {
+      if (regularDegreeEdgePool != null
+          && regularDegreeEdgePool.readerAccessibleInfo.getEdges() instanceof ShardedBigIntArray) {
+        ((ShardedBigIntArray) regularDegreeEdgePool.readerAccessibleInfo.getEdges())
+            .releaseShards(shardPool);
+      }
+    }
+  }
 }
@@ -17,11 +17,17 @@
 
 package com.twitter.graphjet.bipartite.edgepool;
 
+import java.io.IOException;
+
+import com.twitter.graphjet.hashing.BigArrayStorage;
 import com.twitter.graphjet.hashing.BigIntArray;
 import com.twitter.graphjet.hashing.BigLongArray;
+import com.twitter.graphjet.hashing.DirectBigIntArray;
+import com.twitter.graphjet.hashing.DirectBigLongArray;
 import com.twitter.graphjet.hashing.IntToIntPairHashMap;
-import com.twitter.graphjet.hashing.ShardedBigIntArray;
-import com.twitter.graphjet.hashing.ShardedBigLongArray;
+import com.twitter.graphjet.hashing.PackedBigIntArray;
+import com.twitter.graphjet.hashing.PackedBigLongArray;
+import com.twitter.graphjet.snapshot.SnapshotReader;
 import com.twitter.graphjet.stats.StatsReceiver;
 
 /**
@@ -83,10 +89,27 @@ public class WithEdgeMetadataOptimizedEdgePool extends AbstractOptimizedEdgePool
     int maxNumEdges,
     StatsReceiver statsReceiver
   ) {
-    super(nodeDegrees, maxNumEdges, statsReceiver);
+    this(nodeDegrees, maxNumEdges, BigArrayStorage.HEAP, statsReceiver);
+  }
+
+  /**
+   * WithEdgeMetadataOptimizedEdgePool
+   *
+   * @param nodeDegrees node degree map
+   * @param maxNumEdges the max number of edges will be added in the pool
+   * @param storage where the node information, the edges and the edge metadata are kept
+   * @param statsReceiver stats receiver
+   */
+  public WithEdgeMetadataOptimizedEdgePool(
+    int[] nodeDegrees,
+    int maxNumEdges,
+    BigArrayStorage storage,
+    StatsReceiver statsReceiver
+  ) {
+    super(nodeDegrees, maxNumEdges, storage, statsReceiver);
 
-    BigIntArray edges = new ShardedBigIntArray(maxNumEdges, maxDegree, 0, scopedStatsReceiver);
-    BigLongArray metadata = new ShardedBigLongArray(maxNumEdges, maxDegree, 0, scopedStatsReceiver);
+    BigIntArray edges = storage.newIntArray(maxNumEdges, maxDegree, 0, scopedStatsReceiver);
+    BigLongArray metadata = storage.newLongArray(maxNumEdges, maxDegree, 0, scopedStatsReceiver);
 
     readerAccessibleInfo = new WithEdgeMetadataReaderAccessibleInfo(
       edges,
@@ -99,28 +122,136 @@ public class WithEdgeMetadataOptimizedEdgePool extends AbstractOptimizedEdgePool
     );
   }
 
+  /**
+   * Restores a fully populated pool whose edges and edge metadata are mapped in place from a
+   * snapshot.
+   *
+   * @param nodeDegrees node degree map
+   * @param numEdges the number of edges in the pool
+   * @param reader the reader positioned at the start of the edges
+   * @param statsReceiver stats receiver
+   * @throws IOException if the edges cannot be mapped
+   */
+  WithEdgeMetadataOptimizedEdgePool(
+    int[] nodeDegrees,
+    int numEdges,
+    SnapshotReader reader,
+    StatsReceiver statsReceiver
+  ) throws IOException {
+    super(nodeDegrees, numEdges, BigArrayStorage.OFF_HEAP, statsReceiver);
+
+    BigIntArray edges = DirectBigIntArray.map(reader, numEdges, 0, scopedStatsReceiver);
+    BigLongArray metadata = DirectBigLongArray.map(reader, numEdges, 0L, scopedStatsReceiver);
+
+    readerAccessibleInfo = new WithEdgeMetadataReaderAccessibleInfo(
+      edges,
+      metadata,
+      intToIntPairHashMap
+    );
+    currentNumEdgesStored = numEdges;
+  }
+
+  /**
+   * Creates the compressed copy of a fully populated pool.
+   *
+   * @param edgePool the fully populated pool
+   */
+  private WithEdgeMetadataOptimizedEdgePool(WithEdgeMetadataOptimizedEdgePool edgePool) {
+    super(edgePool);
+
+    PackedBigIntArray edges = PackedBigIntArray.pack(
+      edgePool.readerAccessibleInfo.getEdges(), maxNumEdges, scopedStatsReceiver);
+    PackedBigLongArray metadata = PackedBigLongArray.pack(
+      edgePool.readerAccessibleInfo.getMetadata(), maxNumEdges, scopedStatsReceiver);
+
+    readerAccessibleInfo = new WithEdgeMetadataReaderAccessibleInfo(
+      edges,
+      metadata,
+      intToIntPairHashMap
+    );
+
+    LOG.info("WithEdgeMetadataOptimizedEdgePool: compressed " + maxNumEdges
+      + " edges into " + (edges.getNumBytes() + metadata.getNumBytes()) + " bytes");
+  }
+
+  /**
+   * Creates the compressed optimized copy of a power-law degree pool, see
+   * {@link AbstractOptimizedEdgePool#compress(AbstractPowerLawDegreeEdgePool)}.
+   *
+   * @param edgePool the power-law degree pool
+   */
+  WithEdgeMetadataOptimizedEdgePool(AbstractPowerLawDegreeEdgePool edgePool) {
+    super(edgePool);
+
+    PackedBigIntArray edges = PackedBigIntArray.pack(
+      new OptimizedLayoutBlockReader(edgePool), maxNumEdges, scopedStatsReceiver);
+    PackedBigLongArray metadata = PackedBigLongArray.pack(
+      new OptimizedLayoutBlockReader(edgePool), maxNumEdges, scopedStatsReceiver);
+
+    readerAccessibleInfo = new WithEdgeMetadataReaderAccessibleInfo(
+      edges,
+      metadata,
+      intToIntPairHashMap
+    );
+
+    LOG.info("WithEdgeMetadataOptimizedEdgePool: packed " + maxNumEdges
+      + " edges into " + (edges.getNumBytes() + metadata.getNumBytes()) + " bytes");
+  }
+
+  @Override
+  public WithEdgeMetadataOptimizedEdgePool compress() {
+    return new WithEdgeMetadataOptimizedEdgePool(this);
+  }
+
   @Override
   protected long getEdgeMetadata(int position, int edgeNumber) {
     return readerAccessibleInfo.getMetadata().getEntry(position + edgeNumber);
   }
 
   public void addEdges(int node, int pool, int[] src, long[] metadata, int srcPos, int length) {
-    int position = getNodePosition(node);
+    copyEdges(getNodePosition(node) + POW_TABLE_30[pool], src, metadata, srcPos, length, true);
+  }
 
+  @Override
+  public void reserveEdges() {
+    readerAccessibleInfo.getEdges().reserve(maxNumEdges);
+    readerAccessibleInfo.getMetadata().reserve(maxNumEdges);
+  }
+
+  @Override
+  public void addEdgesAtPosition(
+    int position,
+    int[] src,
+    long[] metadata,
+    int srcPos,
+    int length
+  ) {
+    // the stats were updated for all the edges when reserving them
+    copyEdges(position, src, metadata, srcPos, length, false);
+  }
+
+  private void copyEdges(
+    int position,
+    int[] src,
+    long[] metadata,
+    int srcPos,
+    int length,
+    boolean updateStats
+  ) {
     readerAccessibleInfo.getEdges().arrayCopy(
       src,
       srcPos,
-      position + POW_TABLE_30[pool],
+      position,
       length,
-      true /*updateStats*/
+      updateStats
     );
 
     readerAccessibleInfo.getMetadata().arrayCopy(
       metadata,
       srcPos,
-      position + POW_TABLE_30[pool],
+      position,
       length,
-      true /*updateStats*/
+      updateStats
     );
   }
 }
@@ -60,6 +60,7 @@ public class WithEdgeMetadataPowerLawDegreeEdgePool extends AbstractPowerLawDegr
     int maxDegreeInPool = (int) Math.pow(2, poolNumber + 1);
     readerAccessibleInfo.edgePools[poolNumber] = new WithEdgeMetadataRegularDegreeEdgePool(
       expectedNumNodesInPool, maxDegreeInPool, statsReceiver.scope("poolNumber_" + poolNumber));
+    readerAccessibleInfo.edgePools[poolNumber].setShardPool(shardPool);
     readerAccessibleInfo.poolDegrees[poolNumber] = maxDegreeInPool;
   }
 
@@ -17,8 +17,10 @@
 
 package com.twitter.graphjet.bipartite.optimizer;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,34 +36,41 @@ import com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePool;
 import com.twitter.graphjet.bipartite.edgepool.WithEdgeMetadataOptimizedEdgePool;
 import com.twitter.graphjet.bipartite.segment.BipartiteGraphSegment;
 import com.twitter.graphjet.bipartite.segment.LeftIndexedBipartiteGraphSegment;
+import com.twitter.graphjet.bipartite.segment.RightNodeMetadataBipartiteGraphSegment;
+import com.twitter.graphjet.bipartite.segment.RightNodeMetadataReaderAccessibleInfoProvider;
+import com.twitter.graphjet.hashing.BigArrayStorage;
+import com.twitter.graphjet.hashing.LongBloomFilter;
+import com.twitter.graphjet.hashing.LongToInternalIntBiMap;
+import com.twitter.graphjet.stats.NullStatsReceiver;
 
 /**
  * Converting an active index edge pool into an optimized read-only index edge pool. Index
- * optimization occurs in the background. A new copy of the index is created without touching the
- * original version. Upon completion, the original index will be dropped and replaced with the
- * optimized version.
+ * optimization occurs in the background on a bounded {@link OptimizerExecutor}. A new copy of the
+ * index is created without touching the original version. Upon completion, the original index will
+ * be dropped and replaced with the optimized version.
  */
 public final class Optimizer {
   private static final Logger LOG = LoggerFactory.getLogger("graph");
-  private static final ExecutorService OPTIMIZER_SERVICE = Executors.newCachedThreadPool();
-
-  private static final class GraphOptimizerJob implements Runnable {
-    private OptimizableBipartiteGraph graph;
-    private OptimizableBipartiteGraphSegment segment;
-
-    public GraphOptimizerJob(
-      OptimizableBipartiteGraph graph,
-      OptimizableBipartiteGraphSegment segment
-    ) {
-      this.graph = graph;
-      this.segment = segment;
-    }
 
-    @Override
-    public void run() {
-      graph.optimize(segment);
-    }
-  }
+  private static final int DEFAULT_NUM_THREADS =
+    Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+  private static final int DEFAULT_MAX_QUEUED_JOBS = 16;
+  private static final int DEFAULT_PARALLELISM =
+    Math.min(4, Runtime.getRuntime().availableProcessors());
+
+  // Pools with fewer edges per thread than this are not worth splitting
+  static final int MIN_EDGES_PER_PARTITION = 1 << 16;
+  // Partitions stage this many edges at a time before copying them into the optimized pool
+  private static final int PARTITION_BUFFER_SIZE = 1 << 12;
+
+  // Used by the graphs that were not given their own executor. Blocking ingestion while it is
+  // saturated keeps the optimizer from falling behind and leaving segments unoptimized.
+  private static volatile OptimizerExecutor optimizerExecutor = new OptimizerExecutor(
+    DEFAULT_NUM_THREADS,
+    DEFAULT_MAX_QUEUED_JOBS,
+    DEFAULT_PARALLELISM,
+    OptimizerExecutor.SaturationPolicy.BLOCK,
+    new NullStatsReceiver());
 
   /**
    * Private constructor.
@@ -69,8 +78,26 @@ public final class Optimizer {
   private Optimizer() { }
 
   /**
-   * Submit a runnable job to a thread pool which converts an active index edge pool into an
-   * optimized read-only index edge pool.
+   * Replaces the default executor, which runs the optimizations of all the graphs that were not
+   * given their own executor from now on. Jobs already submitted keep running on the previous
+   * executor, which the caller may then shut down.
+   *
+   * @param executor is the new executor
+   * @return the previous executor
+   */
+  public static OptimizerExecutor setOptimizerExecutor(OptimizerExecutor executor) {
+    OptimizerExecutor previousExecutor = optimizerExecutor;
+    optimizerExecutor = executor;
+    return previousExecutor;
+  }
+
+  public static OptimizerExecutor getOptimizerExecutor() {
+    return optimizerExecutor;
+  }
+
+  /**
+   * Submit a runnable job to the default thread pool which converts an active index edge pool into
+   * an optimized read-only index edge pool.
    *
    * @param graph is the graph which starts the optimization
    * @param segment is the segment to be optimized
@@ -79,7 +106,7 @@ public final class Optimizer {
     OptimizableBipartiteGraph graph,
     OptimizableBipartiteGraphSegment segment
   ) {
-    OPTIMIZER_SERVICE.submit(new GraphOptimizerJob(graph, segment));
+    optimizerExecutor.submit(graph, segment);
   }
 
   /**
@@ -89,31 +116,90 @@ public final class Optimizer {
    * @return an optimized read-only index edge pool.
    */
   public static EdgePool optimizePowerLawDegreeEdgePool(AbstractPowerLawDegreeEdgePool edgePool) {
+    return optimizePowerLawDegreeEdgePool(edgePool, BigArrayStorage.HEAP);
+  }
+
+  /**
+   * Converting active index edge pool into an optimized read-only index edge pool.
+   *
+   * @param edgePool is an active index edge pool.
+   * @param storage is where the optimized edge pool keeps its edges.
+   * @return an optimized read-only index edge pool.
+   */
+  public static EdgePool optimizePowerLawDegreeEdgePool(
+    AbstractPowerLawDegreeEdgePool edgePool,
+    BigArrayStorage storage
+  ) {
     long start = System.currentTimeMillis();
     LOG.info("PowerLawDegreeEdgePool optimization starts.");
 
     PowerLawDegreeEdgePool.ReaderAccessibleInfo readerAccessibleInfo =
       edgePool.getReaderAccessibleInfo();
+    int[] nodeDegrees = readerAccessibleInfo.getNodeDegrees();
+    AbstractRegularDegreeEdgePool[] regularDegreeEdgePools = readerAccessibleInfo.getEdgePools();
+
+    // partitions run on the executor running this optimization, if any
+    OptimizerExecutor executor = OptimizerExecutor.getRunningExecutor();
+    if (executor == null) {
+      executor = optimizerExecutor;
+    }
+    int numEdges = edgePool.getCurrentNumEdgesStored();
+    int numPartitions =
+      Math.min(executor.getParallelism(), Math.max(1, numEdges / MIN_EDGES_PER_PARTITION));
 
     AbstractOptimizedEdgePool optimizedEdgePool;
 
-    if (!edgePool.hasEdgeMetadata()) {
-      optimizedEdgePool = new OptimizedEdgePool(
-        readerAccessibleInfo.getNodeDegrees(),
-        edgePool.getCurrentNumEdgesStored(),
-        edgePool.getStatsReceiver()
-      );
+    if (storage == BigArrayStorage.COMPRESSED) {
+      // the edges are packed straight from the regular pools, without an uncompressed copy
+      optimizedEdgePool = AbstractOptimizedEdgePool.compress(edgePool);
+      numPartitions = 1;
     } else {
-      optimizedEdgePool = new WithEdgeMetadataOptimizedEdgePool(
-        readerAccessibleInfo.getNodeDegrees(),
-        edgePool.getCurrentNumEdgesStored(),
-        edgePool.getStatsReceiver()
-      );
+      if (!edgePool.hasEdgeMetadata()) {
+        optimizedEdgePool = new OptimizedEdgePool(
+          nodeDegrees,
+          numEdges,
+          storage,
+          edgePool.getStatsReceiver()
+        );
+      } else {
+        optimizedEdgePool = new WithEdgeMetadataOptimizedEdgePool(
+          nodeDegrees,
+          numEdges,
+          storage,
+          edgePool.getStatsReceiver()
+        );
+      }
+
+      if (numPartitions == 1) {
+        copyNodeEdges(nodeDegrees, regularDegreeEdgePools, optimizedEdgePool);
+      } else {
+        copyNodeEdgesInParallel(
+          nodeDegrees, regularDegreeEdgePools, optimizedEdgePool, numEdges, numPartitions,
+          executor);
+      }
     }
 
-    int[] nodeDegrees = readerAccessibleInfo.getNodeDegrees();
-    AbstractRegularDegreeEdgePool[] regularDegreeEdgePools = readerAccessibleInfo.getEdgePools();
+    long reservedEdgeSlots = 0;
+    for (AbstractRegularDegreeEdgePool regularDegreeEdgePool : regularDegreeEdgePools) {
+      if (regularDegreeEdgePool != null) {
+        reservedEdgeSlots += regularDegreeEdgePool.getNumReservedEdgeSlots();
+      }
+    }
+    int bytesPerEdge = edgePool.hasEdgeMetadata() ? 12 : 4;
+    executor.recordOptimizedEdgePool(numEdges, (reservedEdgeSlots - numEdges) * bytesPerEdge);
+
+    long end = System.currentTimeMillis();
+
+    LOG.info("PowerLawDegreeEdgePool optimization finishes in "
+      + (double) (end - start) / 1000.0 + " seconds with " + numPartitions + " partitions.");
+    return optimizedEdgePool;
+  }
 
+  private static void copyNodeEdges(
+    int[] nodeDegrees,
+    AbstractRegularDegreeEdgePool[] regularDegreeEdgePools,
+    AbstractOptimizedEdgePool optimizedEdgePool
+  ) {
     int nodeDegreeMapSize = nodeDegrees.length;
 
     for (int i = 0; i < nodeDegreeMapSize; i++) {
@@ -135,12 +221,160 @@ public final class Optimizer {
         );
       }
     }
+  }
 
-    long end = System.currentTimeMillis();
+  /**
+   * Splits the node ids into ranges holding about the same number of edges. Since the optimized
+   * layout stores the edges in node id order, the prefix sums of the degrees give the position
+   * where each range starts, and each range fills its own contiguous range of positions. All the
+   * memory of the optimized pool is allocated before the ranges get copied, so the ranges are
+   * written concurrently without any locking.
+   */
+  private static void copyNodeEdgesInParallel(
+    final int[] nodeDegrees,
+    final AbstractRegularDegreeEdgePool[] regularDegreeEdgePools,
+    final AbstractOptimizedEdgePool optimizedEdgePool,
+    int numEdges,
+    int numPartitions,
+    OptimizerExecutor executor
+  ) {
+    int[] partitionStartNodes = new int[numPartitions + 1];
+    int[] partitionStartPositions = new int[numPartitions + 1];
+    int partition = 1;
+    int position = 0;
+    for (int i = 0; i < nodeDegrees.length && partition < numPartitions; i++) {
+      if (position >= (long) numEdges * partition / numPartitions) {
+        partitionStartNodes[partition] = i;
+        partitionStartPositions[partition] = position;
+        partition++;
+      }
+      position += nodeDegrees[i];
+    }
+    for (; partition <= numPartitions; partition++) {
+      partitionStartNodes[partition] = nodeDegrees.length;
+      partitionStartPositions[partition] = numEdges;
+    }
 
-    LOG.info("PowerLawDegreeEdgePool optimization finishes in "
-      + (double) (end - start) / 1000.0 + " seconds.");
-    return optimizedEdgePool;
+    optimizedEdgePool.reserveEdges();
+    List<Future<?>> futures = new ArrayList<Future<?>>(numPartitions - 1);
+    for (int p = 1; p < numPartitions; p++) {
+      final int startNode = partitionStartNodes[p];
+      final int endNode = partitionStartNodes[p + 1];
+      final int startPosition = partitionStartPositions[p];
+      futures.add(executor.submitPartition(new Runnable() {
+        @Override
+        public void run() {
+          copyNodeEdgeRange(
+            nodeDegrees, regularDegreeEdgePools, optimizedEdgePool, startNode, endNode,
+            startPosition);
+        }
+      }));
+    }
+    // the optimizer thread copies the first range itself
+    copyNodeEdgeRange(
+      nodeDegrees, regularDegreeEdgePools, optimizedEdgePool, 0, partitionStartNodes[1], 0);
+
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while optimizing an edge pool", e);
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("Failed to optimize an edge pool", e.getCause());
+      }
+    }
+  }
+
+  private static void copyNodeEdgeRange(
+    int[] nodeDegrees,
+    AbstractRegularDegreeEdgePool[] regularDegreeEdgePools,
+    AbstractOptimizedEdgePool optimizedEdgePool,
+    int startNode,
+    int endNode,
+    int startPosition
+  ) {
+    int[] edgeBuffer = new int[PARTITION_BUFFER_SIZE];
+    // pools without edge metadata hand out a dummy metadata shard that must not be copied
+    long[] metadataBuffer = optimizedEdgePool instanceof WithEdgeMetadataOptimizedEdgePool
+      ? new long[PARTITION_BUFFER_SIZE]
+      : null;
+    int numBufferedEdges = 0;
+    int position = startPosition;
+
+    for (int i = startNode; i < endNode; i++) {
+      int nodeDegree = nodeDegrees[i];
+      if (nodeDegree == 0) {
+        continue;
+      }
+      int edgePoolNumber = AbstractPowerLawDegreeEdgePool.getPoolForEdgeNumber(nodeDegree - 1);
+
+      for (int j = 0; j <= edgePoolNumber; j++) {
+        int[] shard = regularDegreeEdgePools[j].getShard(i);
+        long[] metadataShard = regularDegreeEdgePools[j].getMetadataShard(i);
+        int shardOffset = regularDegreeEdgePools[j].getShardOffset(i);
+        int nodeDegreeInPool = regularDegreeEdgePools[j].getNodeDegree(i);
+
+        int numCopiedEdges = 0;
+        while (numCopiedEdges < nodeDegreeInPool) {
+          int length = Math.min(
+            nodeDegreeInPool - numCopiedEdges, PARTITION_BUFFER_SIZE - numBufferedEdges);
+          int srcPos = shardOffset + numCopiedEdges;
+          System.arraycopy(shard, srcPos, edgeBuffer, numBufferedEdges, length);
+          if (metadataBuffer != null) {
+            System.arraycopy(metadataShard, srcPos, metadataBuffer, numBufferedEdges, length);
+          }
+          numCopiedEdges += length;
+          numBufferedEdges += length;
+          if (numBufferedEdges == PARTITION_BUFFER_SIZE) {
+            flushEdges(optimizedEdgePool, position, edgeBuffer, metadataBuffer, numBufferedEdges);
+            position += numBufferedEdges;
+            numBufferedEdges = 0;
+          }
+        }
+      }
+    }
+    flushEdges(optimizedEdgePool, position, edgeBuffer, metadataBuffer, numBufferedEdges);
+  }
+
+  private static void flushEdges(
+    AbstractOptimizedEdgePool optimizedEdgePool,
+    int position,
+    int[] edgeBuffer,
+    long[] metadataBuffer,
+    int length
+  ) {
+    if (length == 0) {
+      return;
+    }
+    optimizedEdgePool.addEdgesAtPosition(position, edgeBuffer, metadataBuffer, 0, length);
+  }
+
+  /**
+   * Builds a Bloom filter over the external ids of the nodes that have edges in a sealed pool.
+   *
+   * @param edgePool is the sealed pool, indexed by internal node id.
+   * @param nodesToIndexBiMap maps the internal node ids of the pool back to external ids.
+   * @return a filter containing every node of the pool.
+   */
+  static LongBloomFilter buildNodeFilter(
+    AbstractPowerLawDegreeEdgePool edgePool,
+    LongToInternalIntBiMap nodesToIndexBiMap
+  ) {
+    int[] nodeDegrees = edgePool.getReaderAccessibleInfo().getNodeDegrees();
+    int numNodes = 0;
+    for (int nodeDegree : nodeDegrees) {
+      if (nodeDegree > 0) {
+        numNodes++;
+      }
+    }
+    LongBloomFilter filter = new LongBloomFilter(numNodes, LongBloomFilter.DEFAULT_BITS_PER_KEY);
+    for (int i = 0; i < nodeDegrees.length; i++) {
+      if (nodeDegrees[i] > 0) {
+        filter.add(nodesToIndexBiMap.getKey(i));
+      }
+    }
+    return filter;
   }
 
   /**
@@ -151,17 +385,39 @@ public final class Optimizer {
    */
   public static void optimizeLeftIndexedBipartiteGraphSegment(
     LeftIndexedBipartiteGraphSegment leftIndexedBipartiteGraphSegment
+  ) {
+    optimizeLeftIndexedBipartiteGraphSegment(
+      leftIndexedBipartiteGraphSegment, BigArrayStorage.HEAP);
+  }
+
+  /**
+   * Converting active index edge pool into an optimized read-only index edge pool and updating
+   * {@link LeftIndexedBipartiteGraphSegment}.
+   *
+   * @param leftIndexedBipartiteGraphSegment is the left indexed bipartite graph segment.
+   * @param storage is where the optimized edge pool keeps its edges.
+   */
+  public static void optimizeLeftIndexedBipartiteGraphSegment(
+    LeftIndexedBipartiteGraphSegment leftIndexedBipartiteGraphSegment,
+    BigArrayStorage storage
   ) {
     long start = System.currentTimeMillis();
 
     LOG.info("LeftIndexedBipartiteGraphSegment optimization starts. ");
 
-    EdgePool optimizedEdgePool = optimizePowerLawDegreeEdgePool(
+    AbstractPowerLawDegreeEdgePool leftNodeEdgePool =
       (AbstractPowerLawDegreeEdgePool) leftIndexedBipartiteGraphSegment
         .getLeftIndexedReaderAccessibleInfoProvider()
         .getLeftIndexedReaderAccessibleInfo()
-        .getLeftNodeEdgePool()
-    );
+        .getLeftNodeEdgePool();
+
+    EdgePool optimizedEdgePool = optimizePowerLawDegreeEdgePool(leftNodeEdgePool, storage);
+
+    // Right nodes are never looked up in a left-indexed segment, so only left nodes are filtered
+    leftIndexedBipartiteGraphSegment.setNodeFilters(
+      buildNodeFilter(
+        leftNodeEdgePool, leftIndexedBipartiteGraphSegment.getLeftNodesToIndexBiMap()),
+      null);
 
     LOG.info("LeftIndexedBipartiteGraphSegment optimization finishes ");
 
@@ -184,6 +440,20 @@ public final class Optimizer {
    */
   public static void optimizeBipartiteGraphSegment(
     BipartiteGraphSegment bipartiteGraphSegment
+  ) {
+    optimizeBipartiteGraphSegment(bipartiteGraphSegment, BigArrayStorage.HEAP);
+  }
+
+  /**
+   * Converting active index edge pool into an optimized read-only index edge pool and updating
+   * {@link BipartiteGraphSegment}.
+   *
+   * @param bipartiteGraphSegment is the bipartite graph segment indexed both ways.
+   * @param storage is where the optimized edge pools keep their edges.
+   */
+  public static void optimizeBipartiteGraphSegment(
+    BipartiteGraphSegment bipartiteGraphSegment,
+    BigArrayStorage storage
   ) {
     long start = System.currentTimeMillis();
 
@@ -195,7 +465,7 @@ public final class Optimizer {
         .getLeftIndexedReaderAccessibleInfo()
         .getLeftNodeEdgePool();
 
-    EdgePool leftOptimizedEdgePool = optimizePowerLawDegreeEdgePool(leftNodeEdgePool);
+    EdgePool leftOptimizedEdgePool = optimizePowerLawDegreeEdgePool(leftNodeEdgePool, storage);
 
     LOG.info("BipartiteGraphSegment left edge pool optimization finishes.");
 
@@ -205,7 +475,12 @@ public final class Optimizer {
         .getReaderAccessibleInfo()
         .getRightNodeEdgePool();
 
-    EdgePool rightOptimizedEdgePool = optimizePowerLawDegreeEdgePool(rightNodeEdgePool);
+    // Publishing the left pool right away lets the original one be collected before the right
+    // pool is copied, so that at most one pool exists twice at any time
+    bipartiteGraphSegment.getReaderAccessibleInfoProvider()
+      .updateReaderAccessibleInfoEdgePool(leftOptimizedEdgePool, rightNodeEdgePool);
+
+    EdgePool rightOptimizedEdgePool = optimizePowerLawDegreeEdgePool(rightNodeEdgePool, storage);
 
     LOG.info("BipartiteGraphSegment right edge pool optimization finishes.");
 
@@ -213,6 +488,10 @@ public final class Optimizer {
     bipartiteGraphSegment.getReaderAccessibleInfoProvider()
       .updateReaderAccessibleInfoEdgePool(leftOptimizedEdgePool, rightOptimizedEdgePool);
 
+    bipartiteGraphSegment.setNodeFilters(
+      buildNodeFilter(leftNodeEdgePool, bipartiteGraphSegment.getLeftNodesToIndexBiMap()),
+      buildNodeFilter(rightNodeEdgePool, bipartiteGraphSegment.getRightNodesToIndexBiMap()));
+
     long end = System.currentTimeMillis();
 
     LOG.info("BipartiteGraphSegment left + right edge pool optimization takes "
@@ -220,4 +499,49 @@ public final class Optimizer {
     );
   }
 
+  /**
+   * Converting active index edge pools into optimized read-only index edge pools and updating
+   * {@link RightNodeMetadataBipartiteGraphSegment}. The right node metadata is left untouched.
+   *
+   * @param segment is the right node metadata segment indexed both ways.
+   * @param storage is where the optimized edge pools keep their edges.
+   */
+  public static void optimizeRightNodeMetadataBipartiteGraphSegment(
+    RightNodeMetadataBipartiteGraphSegment segment,
+    BigArrayStorage storage
+  ) {
+    long start = System.currentTimeMillis();
+
+    LOG.info("RightNodeMetadataBipartiteGraphSegment optimization starts.");
+
+    RightNodeMetadataReaderAccessibleInfoProvider readerAccessibleInfoProvider =
+      segment.getReaderAccessibleInfoProvider();
+    AbstractPowerLawDegreeEdgePool leftNodeEdgePool = (AbstractPowerLawDegreeEdgePool)
+      readerAccessibleInfoProvider.getReaderAccessibleInfo().getLeftNodeEdgePool();
+    AbstractPowerLawDegreeEdgePool rightNodeEdgePool = (AbstractPowerLawDegreeEdgePool)
+      readerAccessibleInfoProvider.getReaderAccessibleInfo().getRightNodeEdgePool();
+
+    EdgePool leftOptimizedEdgePool = optimizePowerLawDegreeEdgePool(leftNodeEdgePool, storage);
+
+    // As for BipartiteGraphSegment, the left pool is published before the right one is copied
+    readerAccessibleInfoProvider.updateReaderAccessibleInfoEdgePool(
+      leftOptimizedEdgePool, rightNodeEdgePool);
+
+    EdgePool rightOptimizedEdgePool = optimizePowerLawDegreeEdgePool(rightNodeEdgePool, storage);
+
+    // Safe publication ensures that readers who reference the object will see the new edge pool
+    readerAccessibleInfoProvider.updateReaderAccessibleInfoEdgePool(
+      leftOptimizedEdgePool, rightOptimizedEdgePool);
+
+    segment.setNodeFilters(
+      buildNodeFilter(leftNodeEdgePool, segment.getLeftNodesToIndexBiMap()),
+      buildNodeFilter(rightNodeEdgePool, segment.getRightNodesToIndexBiMap()));
+
+    long end = System.currentTimeMillis();
+
+    LOG.info("RightNodeMetadataBipartiteGraphSegment optimization takes "
+        + (double) (end - start) / 1000.0 + " seconds."
+    );
+  }
+
 }
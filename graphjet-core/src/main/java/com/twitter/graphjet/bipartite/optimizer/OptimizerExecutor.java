@@ -0,0 +1,347 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.bipartite.optimizer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.twitter.graphjet.bipartite.api.OptimizableBipartiteGraph;
+import com.twitter.graphjet.bipartite.api.OptimizableBipartiteGraphSegment;
+import com.twitter.graphjet.stats.Counter;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * Runs segment optimizations on a bounded number of threads. Since an optimization holds both the
+ * original and the optimized copy of a segment until it is published, bounding the number of
+ * concurrent optimizations also bounds the extra memory they need. Jobs beyond the threads wait
+ * in a bounded queue, and once that is full the {@link SaturationPolicy} decides what happens to
+ * new jobs.
+ *
+ * Each optimization can further split the copy of an edge pool into up to parallelism ranges of
+ * node ids that are copied concurrently, see
+ * {@link Optimizer#optimizePowerLawDegreeEdgePool}.
+ *
+ * Graphs use the JVM-wide default executor of the {@link Optimizer}, which blocks ingestion while
+ * it is saturated, unless they were given their own executor, see
+ * {@link com.twitter.graphjet.bipartite.LeftIndexedMultiSegmentBipartiteGraph#setOptimizerExecutor}.
+ *
+ * The stats exported under the "Optimizer" scope are the number of submitted, completed, failed,
+ * deferred and dropped jobs, the number of submits that had to wait or run on the caller, the
+ * total time jobs spent queued and optimizing, the number of optimized edges and an estimate of
+ * the kilobytes reclaimed by optimization. The current queue depth is available from
+ * {@link #getNumQueuedJobs()} and {@link #getNumDeferredJobs()}.
+ */
+public class OptimizerExecutor {
+  private static final Logger LOG = LoggerFactory.getLogger("graph");
+
+  /**
+   * What to do with a job that arrives when all threads are busy and the queue is full.
+   */
+  public enum SaturationPolicy {
+    /**
+     * The submitting (i.e. the ingesting) thread waits for room in the queue, which slows down
+     * ingestion to the pace of the optimizer.
+     */
+    BLOCK,
+    /**
+     * The submitting thread runs the optimization itself, which also slows down ingestion but
+     * keeps making progress.
+     */
+    CALLER_RUNS,
+    /**
+     * The job is set aside and submitted once there is room again. At most as many jobs as the
+     * queue holds are set aside and beyond that the oldest one is dropped, leaving its segment
+     * unoptimized: it is still correct, just bigger, and it is the next one to leave the graph.
+     * Under sustained saturation this can leave most sealed segments unoptimized, so the dropped
+     * jobs are logged and counted in the numDroppedJobs stat.
+     */
+    DEFER
+  }
+
+  // The executor running the optimization on the current thread, if any
+  private static final ThreadLocal<OptimizerExecutor> RUNNING_EXECUTOR =
+    new ThreadLocal<OptimizerExecutor>();
+
+  private final class Job implements Runnable {
+    private final OptimizableBipartiteGraph graph;
+    private final OptimizableBipartiteGraphSegment segment;
+    private final long submitTimeMillis;
+
+    Job(OptimizableBipartiteGraph graph, OptimizableBipartiteGraphSegment segment) {
+      this.graph = graph;
+      this.segment = segment;
+      this.submitTimeMillis = System.currentTimeMillis();
+    }
+
+    @Override
+    public void run() {
+      long start = System.currentTimeMillis();
+      queueMillisCounter.incr((int) (start - submitTimeMillis));
+      numActiveJobs.incrementAndGet();
+      // with CALLER_RUNS, the job may run within the job of another executor
+      OptimizerExecutor previousExecutor = RUNNING_EXECUTOR.get();
+      RUNNING_EXECUTOR.set(OptimizerExecutor.this);
+      try {
+        graph.optimize(segment);
+        numCompletedJobsCounter.incr();
+      } catch (RuntimeException e) {
+        // the segment stays unoptimized, which is still correct
+        numFailedJobsCounter.incr();
+        LOG.error("Segment optimization failed", e);
+      } finally {
+        RUNNING_EXECUTOR.set(previousExecutor);
+        numActiveJobs.decrementAndGet();
+        optimizationMillisCounter.incr((int) (System.currentTimeMillis() - start));
+        submitDeferredJobs();
+      }
+    }
+  }
+
+  private final ThreadPoolExecutor jobExecutor;
+  private final ExecutorService partitionExecutor;
+  private final BlockingDeque<Job> deferredJobs;
+  private final int parallelism;
+  private final SaturationPolicy saturationPolicy;
+  private final AtomicInteger numActiveJobs = new AtomicInteger();
+
+  private final Counter numSubmittedJobsCounter;
+  private final Counter numCompletedJobsCounter;
+  private final Counter numFailedJobsCounter;
+  private final Counter numDeferredJobsCounter;
+  private final Counter numDroppedJobsCounter;
+  private final Counter numBlockedSubmitsCounter;
+  private final Counter numCallerRunsJobsCounter;
+  private final Counter queueMillisCounter;
+  private final Counter optimizationMillisCounter;
+  private final Counter numOptimizedEdgesCounter;
+  private final Counter kilobytesReclaimedCounter;
+
+  /**
+   * Creates a new executor, whose threads are daemon threads.
+   *
+   * @param numThreads        is the maximum number of segments optimized at the same time
+   * @param maxQueuedJobs     is the maximum number of jobs waiting for a thread
+   * @param parallelism       is the maximum number of threads copying a single edge pool
+   * @param saturationPolicy  decides what happens to jobs once the queue is full
+   * @param statsReceiver     tracks the internal stats
+   */
+  public OptimizerExecutor(
+    int numThreads,
+    int maxQueuedJobs,
+    int parallelism,
+    SaturationPolicy saturationPolicy,
+    StatsReceiver statsReceiver
+  ) {
+    Preconditions.checkArgument(numThreads > 0, "Need at least one optimizer thread");
+    Preconditions.checkArgument(maxQueuedJobs > 0, "Need room for at least one queued job");
+    Preconditions.checkArgument(parallelism > 0, "Parallelism must be positive");
+    this.parallelism = parallelism;
+    this.saturationPolicy = saturationPolicy;
+    this.deferredJobs = new LinkedBlockingDeque<Job>(maxQueuedJobs);
+    this.jobExecutor = new ThreadPoolExecutor(
+      numThreads,
+      numThreads,
+      0L,
+      TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<Runnable>(maxQueuedJobs),
+      new DaemonThreadFactory("graphjet-optimizer-"),
+      new SaturationHandler());
+    this.partitionExecutor = parallelism > 1
+      ? new ThreadPoolExecutor(
+          parallelism - 1,
+          parallelism - 1,
+          0L,
+          TimeUnit.MILLISECONDS,
+          new LinkedBlockingQueue<Runnable>(),
+          new DaemonThreadFactory("graphjet-optimizer-partition-"))
+      : null;
+
+    StatsReceiver scopedStatsReceiver = statsReceiver.scope("Optimizer");
+    this.numSubmittedJobsCounter = scopedStatsReceiver.counter("numSubmittedJobs");
+    this.numCompletedJobsCounter = scopedStatsReceiver.counter("numCompletedJobs");
+    this.numFailedJobsCounter = scopedStatsReceiver.counter("numFailedJobs");
+    this.numDeferredJobsCounter = scopedStatsReceiver.counter("numDeferredJobs");
+    this.numDroppedJobsCounter = scopedStatsReceiver.counter("numDroppedJobs");
+    this.numBlockedSubmitsCounter = scopedStatsReceiver.counter("numBlockedSubmits");
+    this.numCallerRunsJobsCounter = scopedStatsReceiver.counter("numCallerRunsJobs");
+    this.queueMillisCounter = scopedStatsReceiver.counter("queueMillis");
+    this.optimizationMillisCounter = scopedStatsReceiver.counter("optimizationMillis");
+    this.numOptimizedEdgesCounter = scopedStatsReceiver.counter("numOptimizedEdges");
+    this.kilobytesReclaimedCounter = scopedStatsReceiver.counter("kilobytesReclaimed");
+    scopedStatsReceiver.addGauge("numQueuedJobs", this::getNumQueuedJobs);
+    scopedStatsReceiver.addGauge("numDeferredJobs", this::getNumDeferredJobs);
+  }
+
+  private static final class DaemonThreadFactory implements ThreadFactory {
+    private final String namePrefix;
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    DaemonThreadFactory(String namePrefix) {
+      this.namePrefix = namePrefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+  private final class SaturationHandler implements RejectedExecutionHandler {
+    @Override
+    public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+      if (executor.isShutdown()) {
+        throw new RejectedExecutionException("The optimizer executor has been shut down");
+      }
+      switch (saturationPolicy) {
+        case BLOCK:
+          numBlockedSubmitsCounter.incr();
+          try {
+            executor.getQueue().put(runnable);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for the optimizer", e);
+          }
+          break;
+        case CALLER_RUNS:
+          numCallerRunsJobsCounter.incr();
+          runnable.run();
+          break;
+        case DEFER:
+        default:
+          numDeferredJobsCounter.incr();
+          while (!deferredJobs.offerLast((Job) runnable)) {
+            if (deferredJobs.pollFirst() != null) {
+              numDroppedJobsCounter.incr();
+              LOG.warn("Optimizer saturated, dropped the optimization of the oldest deferred segment");
+            }
+          }
+          // all the jobs may have completed in the meantime
+          if (executor.getQueue().remainingCapacity() > 0) {
+            submitDeferredJobs();
+          }
+          break;
+      }
+    }
+  }
+
+  /**
+   * Submits the optimization of a sealed segment of the graph.
+   *
+   * @param graph is the graph which starts the optimization
+   * @param segment is the segment to be optimized
+   */
+  public void submit(OptimizableBipartiteGraph graph, OptimizableBipartiteGraphSegment segment) {
+    numSubmittedJobsCounter.incr();
+    jobExecutor.execute(new Job(graph, segment));
+  }
+
+  // The newest deferred jobs go first as they are the segments staying longest in the graph
+  private void submitDeferredJobs() {
+    while (jobExecutor.getQueue().remainingCapacity() > 0 && !jobExecutor.isShutdown()) {
+      Job job = deferredJobs.pollLast();
+      if (job == null) {
+        return;
+      }
+      jobExecutor.execute(job);
+    }
+  }
+
+  /**
+   * Returns the executor running the optimization on the current thread, or null if the current
+   * thread is not running an optimization job.
+   */
+  static OptimizerExecutor getRunningExecutor() {
+    return RUNNING_EXECUTOR.get();
+  }
+
+  /**
+   * Runs the given partition copy on a partition thread.
+   */
+  Future<?> submitPartition(Runnable partition) {
+    return partitionExecutor.submit(partition);
+  }
+
+  int getParallelism() {
+    return parallelism;
+  }
+
+  void recordOptimizedEdgePool(int numEdges, long bytesReclaimed) {
+    numOptimizedEdgesCounter.incr(numEdges);
+    kilobytesReclaimedCounter.incr((int) (Math.max(bytesReclaimed, 0) >> 10));
+  }
+
+  /**
+   * @return the number of jobs waiting for an optimizer thread
+   */
+  public int getNumQueuedJobs() {
+    return jobExecutor.getQueue().size();
+  }
+
+  /**
+   * @return the number of jobs set aside by the {@link SaturationPolicy#DEFER} policy
+   */
+  public int getNumDeferredJobs() {
+    return deferredJobs.size();
+  }
+
+  /**
+   * @return the number of segments being optimized right now
+   */
+  public int getNumActiveJobs() {
+    return numActiveJobs.get();
+  }
+
+  /**
+   * Stops accepting new jobs. Queued jobs still run, while deferred ones are discarded.
+   */
+  public void shutdown() {
+    jobExecutor.shutdown();
+    deferredJobs.clear();
+    if (partitionExecutor != null) {
+      partitionExecutor.shutdown();
+    }
+  }
+
+  /**
+   * Waits for all the submitted jobs to complete after a {@link #shutdown()}.
+   *
+   * @param timeout is the maximum time to wait
+   * @param unit is the unit of the timeout
+   * @return true if all the jobs completed, false if the timeout elapsed first
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return jobExecutor.awaitTermination(timeout, unit);
+  }
+}
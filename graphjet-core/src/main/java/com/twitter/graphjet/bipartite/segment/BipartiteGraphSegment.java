@@ -17,6 +17,7 @@
 
 package com.twitter.graphjet.bipartite.segment;
 
+import java.io.IOException;
 import java.util.Random;
 
 import com.twitter.graphjet.bipartite.api.BipartiteGraph;
@@ -26,7 +27,9 @@ import com.twitter.graphjet.bipartite.api.ReusableNodeIntIterator;
 import com.twitter.graphjet.bipartite.api.ReusableNodeRandomIntIterator;
 import com.twitter.graphjet.bipartite.api.RightIndexedBipartiteGraph;
 import com.twitter.graphjet.bipartite.edgepool.EdgePool;
+import com.twitter.graphjet.bipartite.edgepool.EdgePoolSnapshots;
 import com.twitter.graphjet.hashing.LongToInternalIntBiMap;
+import com.twitter.graphjet.snapshot.SnapshotWriter;
 import com.twitter.graphjet.stats.StatsReceiver;
 
 /**
@@ -165,6 +168,9 @@ public abstract class BipartiteGraphSegment extends LeftIndexedBipartiteGraphSeg
       ReusableNodeIntIterator rightNodeEdgeIterator,
       ReusableInternalIdToLongIterator rightInternalIdToLongIterator) {
     int dummy = crossMemoryBarrier();
+    if (!mightContainRightNode(rightNode)) {
+      return null;
+    }
     int rightNodeIndex =
         readerAccessibleInfoProvider.getReaderAccessibleInfo().getIndexForRightNode(rightNode);
     if (rightNodeIndex == -1) {
@@ -179,6 +185,9 @@ public abstract class BipartiteGraphSegment extends LeftIndexedBipartiteGraphSeg
   @Override
   public int getRightNodeDegree(long rightNode) {
     int dummy = crossMemoryBarrier();
+    if (!mightContainRightNode(rightNode)) {
+      return 0;
+    }
     int rightNodeIndex =
         readerAccessibleInfoProvider.getReaderAccessibleInfo().getIndexForRightNode(rightNode);
     if (rightNodeIndex == -1) {
@@ -207,6 +216,9 @@ public abstract class BipartiteGraphSegment extends LeftIndexedBipartiteGraphSeg
       ReusableNodeRandomIntIterator rightNodeEdgeRandomIterator,
       ReusableInternalIdToLongIterator rightInternalIdToLongIterator) {
     int dummy = crossMemoryBarrier();
+    if (!mightContainRightNode(rightNode)) {
+      return null;
+    }
     int rightNodeIndex =
         readerAccessibleInfoProvider.getReaderAccessibleInfo().getIndexForRightNode(rightNode);
     if (rightNodeIndex == -1) {
@@ -230,6 +242,25 @@ public abstract class BipartiteGraphSegment extends LeftIndexedBipartiteGraphSeg
         .getReaderAccessibleInfo().getRightNodeEdgePool().getFillPercentage();
   }
 
+  /**
+   * Writes the node maps and both edge pools of this segment, in the layout read back by
+   * {@link BipartiteGraphSegmentProvider#restoreSegment}. This must only be called on a sealed
+   * segment, i.e. one that does not receive any more edges.
+   *
+   * @param writer  is where the segment is written
+   * @throws IOException if the underlying write fails
+   */
+  public void writeTo(SnapshotWriter writer) throws IOException {
+    ReaderAccessibleInfo readerAccessibleInfo =
+        readerAccessibleInfoProvider.getReaderAccessibleInfo();
+    writer.writeInt(getMaxNumEdges());
+    writer.writeInt(currentNumEdges);
+    readerAccessibleInfo.getLeftNodesToIndexBiMap().writeTo(writer);
+    readerAccessibleInfo.getRightNodesToIndexBiMap().writeTo(writer);
+    EdgePoolSnapshots.write(readerAccessibleInfo.getLeftNodeEdgePool(), writer);
+    EdgePoolSnapshots.write(readerAccessibleInfo.getRightNodeEdgePool(), writer);
+  }
+
   public LongToInternalIntBiMap getLeftNodesToIndexMap() {
     return readerAccessibleInfoProvider
         .getLeftIndexedReaderAccessibleInfo().getLeftNodesToIndexBiMap();
@@ -17,7 +17,12 @@
 
 package com.twitter.graphjet.bipartite.segment;
 
+import java.io.IOException;
+
 import com.twitter.graphjet.bipartite.api.EdgeTypeMask;
+import com.twitter.graphjet.hashing.BigArrayStorage;
+import com.twitter.graphjet.hashing.IntShardPool;
+import com.twitter.graphjet.snapshot.SnapshotReader;
 import com.twitter.graphjet.stats.StatsReceiver;
 
 /**
@@ -26,6 +31,8 @@ import com.twitter.graphjet.stats.StatsReceiver;
 public abstract class BipartiteGraphSegmentProvider<T extends LeftIndexedBipartiteGraphSegment> {
   protected final EdgeTypeMask edgeTypeMask;
   protected final StatsReceiver statsReceiver;
+  // Where the edge pools of new live segments take their shards from, if anywhere
+  private volatile IntShardPool shardPool;
 
   /**
    * Stores the statsReceiver that future segments would use.
@@ -56,4 +63,88 @@ public abstract class BipartiteGraphSegmentProvider<T extends LeftIndexedBiparti
    * @return the new segment
    */
   public abstract T generateNewSegment(int segmentId, int maxNumEdges);
+
+  /**
+   * Generate a new live segment through {@link #generateNewSegment}, whose edge pools then take
+   * their shards from the shard pool of this provider, if it has one.
+   *
+   * @return the new segment
+   */
+  public T generateNewLiveSegment(int segmentId, int maxNumEdges) {
+    T segment = generateNewSegment(segmentId, maxNumEdges);
+    IntShardPool pool = shardPool;
+    if (pool != null) {
+      RecycleSegmentMemory.setShardPool(segment, pool);
+    }
+    return segment;
+  }
+
+  /**
+   * Sets the pool that the edge pools of the live segments generated from now on take their shards
+   * from.
+   *
+   * @param pool  is where new shards are taken from, or null to always allocate them
+   */
+  public void setShardPool(IntShardPool pool) {
+    shardPool = pool;
+  }
+
+  /**
+   * Returns whether this provider implements {@link #restoreSegment} and {@link #loadSegment},
+   * i.e. whether the graphs built on it can be snapshotted, restored and bulk loaded. Only the
+   * power law provider of {@link com.twitter.graphjet.bipartite.MultiSegmentPowerLawBipartiteGraph}
+   * does so far.
+   *
+   * @return true if segments can be restored and loaded, false by default
+   */
+  public boolean supportsSealedSegments() {
+    return false;
+  }
+
+  /**
+   * Restore a sealed segment of type <code>T</code> that was written to a snapshot. Providers that
+   * do not support snapshots throw {@link UnsupportedOperationException}.
+   *
+   * @param segmentId  is the id of the restored segment
+   * @param reader     is the reader positioned at the start of the segment
+   * @param storage    is where the edges of the restored segment are kept. Off-heap segments are
+   *                   backed by the snapshot file itself, which must then be left untouched
+   * @return the restored segment, which accepts no further edges
+   * @throws IOException if the underlying read fails
+   */
+  public T restoreSegment(
+      int segmentId,
+      SnapshotReader reader,
+      BigArrayStorage storage) throws IOException {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " does not support restoring segments from snapshots");
+  }
+
+  /**
+   * Build a sealed segment of type <code>T</code> directly from a batch of edges, laid out exactly
+   * as an optimized segment holding the same edges added one by one. Providers that do not support
+   * bulk loading throw {@link UnsupportedOperationException}.
+   *
+   * @param segmentId    is the id of the new segment
+   * @param maxNumEdges  is the max number of edges a segment of the graph holds
+   * @param leftNodes    contains the left node of every edge
+   * @param rightNodes   contains the right node of every edge
+   * @param edgeTypes    contains the type of every edge
+   * @param offset       is the position of the first edge of the segment in the arrays
+   * @param numEdges     is the number of edges of the segment, at most maxNumEdges
+   * @param storage      is where the edges of the new segment are kept
+   * @return the new segment, which accepts no further edges
+   */
+  public T loadSegment(
+      int segmentId,
+      int maxNumEdges,
+      long[] leftNodes,
+      long[] rightNodes,
+      byte[] edgeTypes,
+      int offset,
+      int numEdges,
+      BigArrayStorage storage) {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " does not support bulk loading segments");
+  }
 }
@@ -29,6 +29,7 @@ import com.twitter.graphjet.bipartite.api.OptimizableBipartiteGraphSegment;
 import com.twitter.graphjet.bipartite.api.ReusableNodeIntIterator;
 import com.twitter.graphjet.bipartite.api.ReusableNodeRandomIntIterator;
 import com.twitter.graphjet.bipartite.edgepool.EdgePool;
+import com.twitter.graphjet.hashing.LongBloomFilter;
 import com.twitter.graphjet.hashing.LongToInternalIntBiMap;
 import com.twitter.graphjet.stats.Counter;
 import com.twitter.graphjet.stats.StatsReceiver;
@@ -90,6 +91,12 @@ public abstract class LeftIndexedBipartiteGraphSegment implements
 
   // Writes and subsequent reads across this will cross the memory barrier
   protected volatile int currentNumEdges = 0;
+  // Bounds on the time at which the edges of this segment were added, unbounded until known
+  private volatile long minTimestamp = Long.MIN_VALUE;
+  private volatile long maxTimestamp = Long.MAX_VALUE;
+  // Filters over the node ids of a sealed segment, which are null until the segment is optimized
+  private volatile LongBloomFilter leftNodeFilter;
+  private volatile LongBloomFilter rightNodeFilter;
   protected final StatsReceiver statsReceiver;
 
   protected final Counter numEdgesCounter;
@@ -169,6 +176,81 @@ public abstract class LeftIndexedBipartiteGraphSegment implements
     return maxNumberOfEdges;
   }
 
+  /**
+   * @return a lower bound on the time at which the edges of this segment were added, in millis
+   */
+  public long getMinTimestamp() {
+    return minTimestamp;
+  }
+
+  /**
+   * @return an upper bound on the time at which the edges of this segment were added, in millis
+   */
+  public long getMaxTimestamp() {
+    return maxTimestamp;
+  }
+
+  /**
+   * Records a lower bound on the time at which the edges of this segment were added. This is set
+   * by the writer when the segment goes live.
+   *
+   * @param minTimestamp  is the lower bound, in millis
+   */
+  public void setMinTimestamp(long minTimestamp) {
+    this.minTimestamp = minTimestamp;
+  }
+
+  /**
+   * Records an upper bound on the time at which the edges of this segment were added. This is set
+   * by the writer when the segment is sealed.
+   *
+   * @param maxTimestamp  is the upper bound, in millis
+   */
+  public void setMaxTimestamp(long maxTimestamp) {
+    this.maxTimestamp = maxTimestamp;
+  }
+
+  /**
+   * Returns whether any edge of this segment may have been added in the given time window. Segments
+   * whose bounds are not known are always considered to overlap.
+   *
+   * @param windowMinTimestamp  is the start of the window, in millis
+   * @param windowMaxTimestamp  is the end of the window, in millis
+   * @return false only if no edge of this segment was added in the window
+   */
+  public boolean overlapsTimeWindow(long windowMinTimestamp, long windowMaxTimestamp) {
+    return maxTimestamp >= windowMinTimestamp && minTimestamp <= windowMaxTimestamp;
+  }
+
+  /**
+   * Sets filters over the left and right node ids of this segment, which let readers skip looking
+   * up nodes the segment does not hold. This is only meant to be called once the segment is sealed
+   * as nodes added later would be wrongly filtered out.
+   *
+   * @param leftFilter   contains every left node of the segment, or is null
+   * @param rightFilter  contains every right node of the segment, or is null
+   */
+  public void setNodeFilters(LongBloomFilter leftFilter, LongBloomFilter rightFilter) {
+    this.leftNodeFilter = leftFilter;
+    this.rightNodeFilter = rightFilter;
+  }
+
+  /**
+   * Returns false if the given left node is known not to be in this segment.
+   */
+  protected boolean mightContainLeftNode(long leftNode) {
+    LongBloomFilter filter = leftNodeFilter;
+    return filter == null || filter.mightContain(leftNode);
+  }
+
+  /**
+   * Returns false if the given right node is known not to be in this segment.
+   */
+  protected boolean mightContainRightNode(long rightNode) {
+    LongBloomFilter filter = rightNodeFilter;
+    return filter == null || filter.mightContain(rightNode);
+  }
+
   @Override
   public void addEdge(long leftNode, long rightNode, byte edgeType) {
     // We need to the nodes to the map at the very top since once we write an edge, we need to be
@@ -211,6 +293,9 @@ public abstract class LeftIndexedBipartiteGraphSegment implements
   @Override
   public int getLeftNodeDegree(long leftNode) {
     int dummy = crossMemoryBarrier();
+    if (!mightContainLeftNode(leftNode)) {
+      return 0;
+    }
     int leftNodeIndex = leftIndexedReaderAccessibleInfoProvider
         .getLeftIndexedReaderAccessibleInfo().getIndexForLeftNode(leftNode);
     if (leftNodeIndex == -1) {
@@ -234,6 +319,9 @@ public abstract class LeftIndexedBipartiteGraphSegment implements
       ReusableNodeIntIterator leftNodeEdgeIterator,
       ReusableInternalIdToLongIterator leftInternalIdToLongIterator) {
     int dummy = crossMemoryBarrier();
+    if (!mightContainLeftNode(leftNode)) {
+      return null;
+    }
     int leftNodeIndex = leftIndexedReaderAccessibleInfoProvider
         .getLeftIndexedReaderAccessibleInfo().getIndexForLeftNode(leftNode);
     if (leftNodeIndex == -1) {
@@ -263,6 +351,9 @@ public abstract class LeftIndexedBipartiteGraphSegment implements
       ReusableNodeRandomIntIterator leftNodeEdgeRandomIterator,
       ReusableInternalIdToLongIterator leftInternalIdToLongIterator) {
     int dummy = crossMemoryBarrier();
+    if (!mightContainLeftNode(leftNode)) {
+      return null;
+    }
     int leftNodeIndex = leftIndexedReaderAccessibleInfoProvider
         .getLeftIndexedReaderAccessibleInfo().getIndexForLeftNode(leftNode);
     // Hopefully branch prediction should make the memory barrier check really cheap as it'll
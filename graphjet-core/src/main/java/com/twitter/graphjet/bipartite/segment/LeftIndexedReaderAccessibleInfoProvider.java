@@ -18,7 +18,7 @@
 package com.twitter.graphjet.bipartite.segment;
 
 import com.twitter.graphjet.bipartite.edgepool.EdgePool;
-import com.twitter.graphjet.hashing.ArrayBasedLongToInternalIntBiMap;
+import com.twitter.graphjet.hashing.ResizableLongToInternalIntBiMap;
 import com.twitter.graphjet.stats.StatsReceiver;
 
 /**
@@ -46,9 +46,9 @@ public class LeftIndexedReaderAccessibleInfoProvider {
       EdgePool leftNodeEdgePool,
       StatsReceiver statsReceiver) {
     this.leftIndexedReaderAccessibleInfo = new LeftIndexedReaderAccessibleInfo(
-        new ArrayBasedLongToInternalIntBiMap(
+        new ResizableLongToInternalIntBiMap(
             expectedNumLeftNodes, LOAD_FACTOR, -1, -1, statsReceiver.scope("left")),
-        new ArrayBasedLongToInternalIntBiMap(
+        new ResizableLongToInternalIntBiMap(
             expectedNumRightNodes, LOAD_FACTOR, -1, -1, statsReceiver.scope("right")),
         leftNodeEdgePool);
   }
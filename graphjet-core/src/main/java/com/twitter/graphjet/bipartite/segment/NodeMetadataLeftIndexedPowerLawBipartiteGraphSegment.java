@@ -20,9 +20,6 @@ package com.twitter.graphjet.bipartite.segment;
 import com.twitter.graphjet.bipartite.api.EdgeTypeMask;
 import com.twitter.graphjet.bipartite.api.ReusableNodeIntIterator;
 import com.twitter.graphjet.bipartite.api.ReusableNodeRandomIntIterator;
-import com.twitter.graphjet.bipartite.edgepool.AbstractPowerLawDegreeEdgePool;
-import com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgeIterator;
-import com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgeRandomIterator;
 import com.twitter.graphjet.bipartite.edgepool.WithEdgeMetadataPowerLawDegreeEdgePool;
 import com.twitter.graphjet.stats.StatsReceiver;
 
@@ -83,15 +80,13 @@ public class NodeMetadataLeftIndexedPowerLawBipartiteGraphSegment
   }
 
   public ReusableNodeIntIterator initializeLeftNodeEdgesIntIterator() {
-    return new PowerLawDegreeEdgeIterator(
-      (AbstractPowerLawDegreeEdgePool) getLeftNodeEdgePool()
-    );
+    return PowerLawBipartiteGraphSegment.EdgeIteratorFactory
+      .createEdgeIterator(getLeftNodeEdgePool());
   }
 
   public ReusableNodeRandomIntIterator initializeLeftNodeEdgesRandomIntIterator() {
-    return new PowerLawDegreeEdgeRandomIterator(
-      (AbstractPowerLawDegreeEdgePool) getLeftNodeEdgePool()
-    );
+    return PowerLawBipartiteGraphSegment.EdgeIteratorFactory
+      .createRandomEdgeIterator(getLeftNodeEdgePool());
   }
 
   /**
@@ -22,8 +22,8 @@ import java.util.List;
 
 import com.twitter.graphjet.bipartite.edgepool.EdgePool;
 import com.twitter.graphjet.hashing.ArrayBasedIntToIntArrayMap;
-import com.twitter.graphjet.hashing.ArrayBasedLongToInternalIntBiMap;
 import com.twitter.graphjet.hashing.IntToIntArrayMap;
+import com.twitter.graphjet.hashing.ResizableLongToInternalIntBiMap;
 import com.twitter.graphjet.stats.StatsReceiver;
 
 /**
@@ -52,6 +52,36 @@ public class NodeMetadataLeftIndexedReaderAccessibleInfoProvider
     int numRightNodeMetadataTypes,
     EdgePool leftNodeEdgePool,
     StatsReceiver statsReceiver) {
+    readerAccessibleInfo = new NodeMetadataLeftIndexedReaderAccessibleInfo(
+      new ResizableLongToInternalIntBiMap(
+        expectedNumLeftNodes, LOAD_FACTOR, -1, -1, statsReceiver.scope("left")),
+      new ResizableLongToInternalIntBiMap(
+        expectedNumRightNodes, LOAD_FACTOR, -1, -1, statsReceiver.scope("right")),
+      leftNodeEdgePool,
+      newRightNodesToMetadataMap(
+        expectedNumRightNodes, numRightNodeMetadataTypes, statsReceiver)
+    );
+  }
+
+  // No-op constructor that protects usage of the readerAccessibleInfo field by subclasses,
+  // enabling use of other reader info objects that extend
+  // {@link NodeMetadataLeftIndexedReaderAccessibleInfo}
+  protected NodeMetadataLeftIndexedReaderAccessibleInfoProvider() { }
+
+  /**
+   * Creates one empty metadata map per right node metadata type.
+   *
+   * @param expectedNumRightNodes      is the expected number of right nodes that would be inserted
+   *                                   in the segment
+   * @param numRightNodeMetadataTypes  is the max number of node metadata types associated with the
+   *                                   right nodes
+   * @param statsReceiver              is passed downstream for updating stats
+   * @return the list of metadata maps, indexed by metadata type
+   */
+  protected static List<IntToIntArrayMap> newRightNodesToMetadataMap(
+    int expectedNumRightNodes,
+    int numRightNodeMetadataTypes,
+    StatsReceiver statsReceiver) {
     List<IntToIntArrayMap> rightNodesToMetadataMap =
       new ArrayList<IntToIntArrayMap>(numRightNodeMetadataTypes);
 
@@ -62,15 +92,7 @@ public class NodeMetadataLeftIndexedReaderAccessibleInfoProvider
         statsReceiver
       ));
     }
-
-    readerAccessibleInfo = new NodeMetadataLeftIndexedReaderAccessibleInfo(
-      new ArrayBasedLongToInternalIntBiMap(
-        expectedNumLeftNodes, LOAD_FACTOR, -1, -1, statsReceiver.scope("left")),
-      new ArrayBasedLongToInternalIntBiMap(
-        expectedNumRightNodes, LOAD_FACTOR, -1, -1, statsReceiver.scope("right")),
-      leftNodeEdgePool,
-      rightNodesToMetadataMap
-    );
+    return rightNodesToMetadataMap;
   }
 
   @Override
@@ -81,4 +103,20 @@ public class NodeMetadataLeftIndexedReaderAccessibleInfoProvider
   public NodeMetadataLeftIndexedReaderAccessibleInfo getReaderAccessibleInfo() {
     return readerAccessibleInfo;
   }
+
+  /**
+   * Update reader accessible info with the new optimized read-only edge pool, keeping the node maps
+   * and the right node metadata.
+   *
+   * @param newLeftNodeEdgePool the optimized read-only edge pool of LHS graph
+   */
+  @Override
+  public void updateReaderAccessibleInfoLeftNodeEdgePool(EdgePool newLeftNodeEdgePool) {
+    readerAccessibleInfo = new NodeMetadataLeftIndexedReaderAccessibleInfo(
+      readerAccessibleInfo.getLeftNodesToIndexBiMap(),
+      readerAccessibleInfo.getRightNodesToIndexBiMap(),
+      newLeftNodeEdgePool,
+      readerAccessibleInfo.getRightNodesToMetadataMap()
+    );
+  }
 }
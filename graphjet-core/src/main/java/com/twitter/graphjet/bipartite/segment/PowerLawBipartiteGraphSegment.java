@@ -20,9 +20,10 @@ package com.twitter.graphjet.bipartite.segment;
 import com.twitter.graphjet.bipartite.api.EdgeTypeMask;
 import com.twitter.graphjet.bipartite.api.ReusableNodeIntIterator;
 import com.twitter.graphjet.bipartite.api.ReusableNodeRandomIntIterator;
+import com.twitter.graphjet.bipartite.edgepool.AbstractOptimizedEdgePool;
+import com.twitter.graphjet.bipartite.edgepool.AbstractPowerLawDegreeEdgePool;
 import com.twitter.graphjet.bipartite.edgepool.EdgePool;
 import com.twitter.graphjet.bipartite.edgepool.OptimizedEdgeIterator;
-import com.twitter.graphjet.bipartite.edgepool.OptimizedEdgePool;
 import com.twitter.graphjet.bipartite.edgepool.OptimizedEdgeRandomIterator;
 import com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgeIterator;
 import com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePool;
@@ -89,20 +90,48 @@ public class PowerLawBipartiteGraphSegment extends BipartiteGraphSegment {
         statsReceiver.scope("PowerLaw"));
   }
 
+  /**
+   * Wraps a sealed segment restored from a snapshot: the provider already holds the populated
+   * node maps and optimized edge pools.
+   *
+   * @param readerAccessibleInfoProvider  holds the restored maps and pools
+   * @param numEdges                      is the number of edges in the restored segment
+   * @param maxNumEdges                   the max number of edges this segment was supposed to hold
+   * @param edgeTypeMask                  is the mask to encode edge type into integer node id
+   * @param statsReceiver                 tracks the internal stats
+   */
+  PowerLawBipartiteGraphSegment(
+      ReaderAccessibleInfoProvider readerAccessibleInfoProvider,
+      int numEdges,
+      int maxNumEdges,
+      EdgeTypeMask edgeTypeMask,
+      StatsReceiver statsReceiver) {
+    super(
+        maxNumEdges,
+        maxNumEdges,
+        maxNumEdges,
+        readerAccessibleInfoProvider,
+        edgeTypeMask,
+        statsReceiver.scope("PowerLaw"));
+    numEdgesCounter.incr(numEdges);
+    // publish the restored state to the readers
+    currentNumEdges = numEdges;
+  }
+
   public static final class EdgeIteratorFactory {
     protected static ReusableNodeIntIterator createEdgeIterator(EdgePool edgePool) {
       if (edgePool.isOptimized()) {
-        return new OptimizedEdgeIterator((OptimizedEdgePool) edgePool);
+        return new OptimizedEdgeIterator((AbstractOptimizedEdgePool) edgePool);
       } else {
-        return new PowerLawDegreeEdgeIterator((PowerLawDegreeEdgePool) edgePool);
+        return new PowerLawDegreeEdgeIterator((AbstractPowerLawDegreeEdgePool) edgePool);
       }
     }
 
     protected static ReusableNodeRandomIntIterator createRandomEdgeIterator(EdgePool edgePool) {
       if (edgePool.isOptimized()) {
-        return new OptimizedEdgeRandomIterator((OptimizedEdgePool) edgePool);
+        return new OptimizedEdgeRandomIterator((AbstractOptimizedEdgePool) edgePool);
       } else {
-        return new PowerLawDegreeEdgeRandomIterator((PowerLawDegreeEdgePool) edgePool);
+        return new PowerLawDegreeEdgeRandomIterator((AbstractPowerLawDegreeEdgePool) edgePool);
       }
     }
   }
@@ -17,9 +17,19 @@
 
 package com.twitter.graphjet.bipartite.segment;
 
+import java.io.IOException;
+
 import com.twitter.graphjet.bipartite.api.EdgeTypeMask;
+import com.twitter.graphjet.bipartite.edgepool.EdgePool;
+import com.twitter.graphjet.bipartite.edgepool.EdgePoolSnapshots;
+import com.twitter.graphjet.bipartite.edgepool.OptimizedEdgePoolLoader;
+import com.twitter.graphjet.hashing.BigArrayStorage;
+import com.twitter.graphjet.hashing.ResizableLongToInternalIntBiMap;
+import com.twitter.graphjet.snapshot.SnapshotReader;
 import com.twitter.graphjet.stats.StatsReceiver;
 
+import it.unimi.dsi.fastutil.ints.IntArrays;
+
 public class PowerLawSegmentProvider extends BipartiteGraphSegmentProvider<BipartiteGraphSegment> {
   private final int expectedNumLeftNodes;
   private final int expectedMaxLeftDegree;
@@ -77,4 +87,100 @@ public class PowerLawSegmentProvider extends BipartiteGraphSegmentProvider<Bipar
         edgeTypeMask,
         statsReceiver.scope("segment_" + segmentId));
   }
+
+  @Override
+  public boolean supportsSealedSegments() {
+    return true;
+  }
+
+  @Override
+  public BipartiteGraphSegment restoreSegment(
+      int segmentId,
+      SnapshotReader reader,
+      BigArrayStorage storage) throws IOException {
+    StatsReceiver segmentStatsReceiver = statsReceiver.scope("segment_" + segmentId);
+    int maxNumEdges = reader.readInt();
+    int numEdges = reader.readInt();
+    ReaderAccessibleInfoProvider readerAccessibleInfoProvider = new ReaderAccessibleInfoProvider(
+        ResizableLongToInternalIntBiMap.readFrom(reader, segmentStatsReceiver.scope("left")),
+        ResizableLongToInternalIntBiMap.readFrom(reader, segmentStatsReceiver.scope("right")),
+        EdgePoolSnapshots.read(reader, storage, segmentStatsReceiver.scope("leftNodeEdgePool")),
+        EdgePoolSnapshots.read(reader, storage, segmentStatsReceiver.scope("rightNodeEdgePool")));
+    return new PowerLawBipartiteGraphSegment(
+        readerAccessibleInfoProvider,
+        numEdges,
+        maxNumEdges,
+        edgeTypeMask,
+        segmentStatsReceiver);
+  }
+
+  @Override
+  public BipartiteGraphSegment loadSegment(
+      int segmentId,
+      int maxNumEdges,
+      long[] leftNodes,
+      long[] rightNodes,
+      byte[] edgeTypes,
+      int offset,
+      int numEdges,
+      BigArrayStorage storage) {
+    StatsReceiver segmentStatsReceiver = statsReceiver.scope("segment_" + segmentId);
+    ResizableLongToInternalIntBiMap leftNodesToIndexBiMap = new ResizableLongToInternalIntBiMap(
+        expectedNumLeftNodes,
+        LeftIndexedReaderAccessibleInfoProvider.LOAD_FACTOR,
+        -1,
+        -1,
+        segmentStatsReceiver.scope("left"));
+    ResizableLongToInternalIntBiMap rightNodesToIndexBiMap = new ResizableLongToInternalIntBiMap(
+        expectedNumRightNodes,
+        LeftIndexedReaderAccessibleInfoProvider.LOAD_FACTOR,
+        -1,
+        -1,
+        segmentStatsReceiver.scope("right"));
+
+    // nodes get their internal ids in the same order as they would through addEdge, and the first
+    // pass counts the degrees so that both pools can be allocated at their exact size
+    int[] leftNodeDegrees = new int[expectedNumLeftNodes];
+    int[] rightNodeDegrees = new int[expectedNumRightNodes];
+    int numLeftNodeIds = 0;
+    int numRightNodeIds = 0;
+    for (int i = offset; i < offset + numEdges; i++) {
+      int leftNodeId = leftNodesToIndexBiMap.put(leftNodes[i]);
+      int rightNodeId = rightNodesToIndexBiMap.put(rightNodes[i]);
+      leftNodeDegrees = IntArrays.grow(leftNodeDegrees, leftNodeId + 1);
+      rightNodeDegrees = IntArrays.grow(rightNodeDegrees, rightNodeId + 1);
+      leftNodeDegrees[leftNodeId]++;
+      rightNodeDegrees[rightNodeId]++;
+      numLeftNodeIds = Math.max(numLeftNodeIds, leftNodeId + 1);
+      numRightNodeIds = Math.max(numRightNodeIds, rightNodeId + 1);
+    }
+
+    // the second pass writes every edge straight to its final position in both pools
+    OptimizedEdgePoolLoader leftNodeEdgePoolLoader = new OptimizedEdgePoolLoader(
+        IntArrays.trim(leftNodeDegrees, numLeftNodeIds),
+        numEdges,
+        storage,
+        segmentStatsReceiver.scope("leftNodeEdgePool"));
+    OptimizedEdgePoolLoader rightNodeEdgePoolLoader = new OptimizedEdgePoolLoader(
+        IntArrays.trim(rightNodeDegrees, numRightNodeIds),
+        numEdges,
+        storage,
+        segmentStatsReceiver.scope("rightNodeEdgePool"));
+    for (int i = offset; i < offset + numEdges; i++) {
+      int leftNodeId = leftNodesToIndexBiMap.get(leftNodes[i]);
+      int rightNodeId = rightNodesToIndexBiMap.get(rightNodes[i]);
+      leftNodeEdgePoolLoader.addEdge(leftNodeId, edgeTypeMask.encode(rightNodeId, edgeTypes[i]));
+      rightNodeEdgePoolLoader.addEdge(rightNodeId, edgeTypeMask.encode(leftNodeId, edgeTypes[i]));
+    }
+    EdgePool leftNodeEdgePool = leftNodeEdgePoolLoader.load();
+    EdgePool rightNodeEdgePool = rightNodeEdgePoolLoader.load();
+
+    return new PowerLawBipartiteGraphSegment(
+        new ReaderAccessibleInfoProvider(
+            leftNodesToIndexBiMap, rightNodesToIndexBiMap, leftNodeEdgePool, rightNodeEdgePool),
+        numEdges,
+        maxNumEdges,
+        edgeTypeMask,
+        segmentStatsReceiver);
+  }
 }
@@ -18,7 +18,8 @@
 package com.twitter.graphjet.bipartite.segment;
 
 import com.twitter.graphjet.bipartite.edgepool.EdgePool;
-import com.twitter.graphjet.hashing.ArrayBasedLongToInternalIntBiMap;
+import com.twitter.graphjet.hashing.LongToInternalIntBiMap;
+import com.twitter.graphjet.hashing.ResizableLongToInternalIntBiMap;
 import com.twitter.graphjet.stats.StatsReceiver;
 
 /**
@@ -45,14 +46,34 @@ public class ReaderAccessibleInfoProvider extends LeftIndexedReaderAccessibleInf
       EdgePool rightNodeEdgePool,
       StatsReceiver statsReceiver) {
     readerAccessibleInfo = new ReaderAccessibleInfo(
-        new ArrayBasedLongToInternalIntBiMap(
+        new ResizableLongToInternalIntBiMap(
             expectedNumLeftNodes, LOAD_FACTOR, -1, -1, statsReceiver.scope("left")),
-        new ArrayBasedLongToInternalIntBiMap(
+        new ResizableLongToInternalIntBiMap(
             expectedNumRightNodes, LOAD_FACTOR, -1, -1, statsReceiver.scope("right")),
         leftNodeEdgePool,
         rightNodeEdgePool);
   }
 
+  /**
+   * Wraps already populated maps and pools, e.g. the ones restored from a snapshot.
+   *
+   * @param leftNodesToIndexBiMap   maps the left nodes to their internal ids
+   * @param rightNodesToIndexBiMap  maps the right nodes to their internal ids
+   * @param leftNodeEdgePool        is the pool containing all the left-indexed edges
+   * @param rightNodeEdgePool       is the pool containing all the right-indexed edges
+   */
+  public ReaderAccessibleInfoProvider(
+      LongToInternalIntBiMap leftNodesToIndexBiMap,
+      LongToInternalIntBiMap rightNodesToIndexBiMap,
+      EdgePool leftNodeEdgePool,
+      EdgePool rightNodeEdgePool) {
+    readerAccessibleInfo = new ReaderAccessibleInfo(
+        leftNodesToIndexBiMap,
+        rightNodesToIndexBiMap,
+        leftNodeEdgePool,
+        rightNodeEdgePool);
+  }
+
   @Override
   public LeftIndexedReaderAccessibleInfo getLeftIndexedReaderAccessibleInfo() {
     return readerAccessibleInfo;
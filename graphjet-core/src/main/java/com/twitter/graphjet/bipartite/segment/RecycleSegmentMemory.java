@@ -17,9 +17,14 @@
 
 package com.twitter.graphjet.bipartite.segment;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.twitter.graphjet.bipartite.edgepool.EdgePool;
 import com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePool;
 import com.twitter.graphjet.bipartite.edgepool.RecyclePoolMemory;
 import com.twitter.graphjet.bipartite.edgepool.RegularDegreeEdgePool;
+import com.twitter.graphjet.hashing.IntShardPool;
 
 /**
  * This utility class allows recycling already allocated memory for segments, but note that this
@@ -50,4 +55,31 @@ public final class RecycleSegmentMemory {
 
     bipartiteGraphSegment.currentNumEdges = 0;
   }
+
+  /**
+   * Makes the edge pools of a segment take their new shards from the given pool, see
+   * {@link RecyclePoolMemory#setEdgePoolShardPool}.
+   *
+   * NOTE: This method is NOT thread-safe!
+   */
+  public static void setShardPool(LeftIndexedBipartiteGraphSegment segment, IntShardPool pool) {
+    for (EdgePool edgePool : getEdgePools(segment)) {
+      RecyclePoolMemory.setEdgePoolShardPool(edgePool, pool);
+    }
+  }
+
+  /**
+   * Returns the edge pools that a segment currently holds, e.g. to recycle their memory once the
+   * segment or the pools are not reachable by readers anymore.
+   */
+  public static List<EdgePool> getEdgePools(LeftIndexedBipartiteGraphSegment segment) {
+    List<EdgePool> edgePools = new ArrayList<EdgePool>(2);
+    edgePools.add(segment.getLeftNodeEdgePool());
+    if (segment instanceof BipartiteGraphSegment) {
+      edgePools.add(((BipartiteGraphSegment) segment).getRightNodeEdgePool());
+    } else if (segment instanceof RightNodeMetadataBipartiteGraphSegment) {
+      edgePools.add(((RightNodeMetadataBipartiteGraphSegment) segment).getRightNodeEdgePool());
+    }
+    return edgePools;
+  }
 }
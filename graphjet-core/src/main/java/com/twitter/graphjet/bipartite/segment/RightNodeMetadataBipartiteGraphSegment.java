@@ -0,0 +1,208 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.bipartite.segment;
+
+import java.util.Random;
+
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+import com.twitter.graphjet.bipartite.api.EdgeTypeMask;
+import com.twitter.graphjet.bipartite.api.ReusableNodeIntIterator;
+import com.twitter.graphjet.bipartite.api.ReusableNodeRandomIntIterator;
+import com.twitter.graphjet.bipartite.api.RightIndexedBipartiteGraph;
+import com.twitter.graphjet.bipartite.edgepool.EdgePool;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * A graph segment is a bounded portion of the graph with a cap on the number of nodes and edges
+ * one can store in it. This segment keeps the right node metadata of a
+ * {@link RightNodeMetadataLeftIndexedBipartiteGraphSegment} and, like a
+ * {@link BipartiteGraphSegment}, also indexes every edge by its right node, so that the left nodes
+ * pointing to a right node can be retrieved directly instead of scanning the left nodes' edges.
+ * <p/>
+ * This class is thread-safe even though it does not do any locking, under the same single writer
+ * assumption as {@link BipartiteGraphSegment}: an edge is first written to the left pool, then to
+ * the right pool, and only then published to the readers.
+ */
+public abstract class RightNodeMetadataBipartiteGraphSegment
+  extends RightNodeMetadataLeftIndexedBipartiteGraphSegment
+  implements RightIndexedBipartiteGraph,
+  ReusableRightIndexedBipartiteGraphSegment {
+
+  // This object contains ALL the reader-accessible data
+  private final RightNodeMetadataReaderAccessibleInfoProvider readerAccessibleInfoProvider;
+
+  /**
+   * The constructor tries to reserve most of the memory that is needed for the graph.
+   *
+   * @param expectedNumLeftNodes               is the expected number of left nodes that
+   *                                           would be inserted in the segment
+   * @param expectedNumRightNodes              is the expected number of right nodes that
+   *                                           would be inserted in the segment
+   * @param maxNumberOfEdges                   is the maximum number of edges to keep in
+   *                                           the segment
+   * @param readerAccessibleInfoProvider       provides the
+   *                                           {@link RightNodeMetadataReaderAccessibleInfo}
+   *                                           that encapsulates all the info that a
+   *                                           reader of the segment would access
+   * @param edgeTypeMask                       is the mask to encode edge type into integer node id
+   * @param statsReceiver                      tracks the internal stats
+   */
+  public RightNodeMetadataBipartiteGraphSegment(
+    int expectedNumLeftNodes,
+    int expectedNumRightNodes,
+    int maxNumberOfEdges,
+    RightNodeMetadataReaderAccessibleInfoProvider readerAccessibleInfoProvider,
+    EdgeTypeMask edgeTypeMask,
+    StatsReceiver statsReceiver) {
+    super(
+      expectedNumLeftNodes,
+      expectedNumRightNodes,
+      maxNumberOfEdges,
+      readerAccessibleInfoProvider,
+      edgeTypeMask,
+      statsReceiver.scope("RightNodeMetadataBipartiteGraphSegment")
+    );
+    this.readerAccessibleInfoProvider = readerAccessibleInfoProvider;
+  }
+
+  /**
+   * Provide an iterator over right node edges for the right node pool. Note that the edges are
+   * still internal id's as stored in the pool.
+   * @return a new iterator
+   */
+  public abstract ReusableNodeIntIterator initializeRightNodeEdgesIntIterator();
+
+  /**
+   * Provide an iterator to randomly sample right node edges for the right node pool. Note that the
+   * edges are still internal id's as stored in the pool.
+   * @return a new iterator
+   */
+  public abstract ReusableNodeRandomIntIterator initializeRightNodeEdgesRandomIntIterator();
+
+  protected EdgePool getRightNodeEdgePool() {
+    return readerAccessibleInfoProvider.getReaderAccessibleInfo().getRightNodeEdgePool();
+  }
+
+  @Override
+  protected void updateEdgePool(
+    int leftNodeInternalId,
+    int rightNodeInternalId,
+    byte edgeType
+  ) {
+    // First we add the edges to the left pool so that it is ready to be accessed
+    readerAccessibleInfoProvider.getReaderAccessibleInfo()
+      .getLeftNodeEdgePool().addEdge(
+        leftNodeInternalId,
+        edgeTypeMask.encode(rightNodeInternalId, edgeType)
+      );
+
+    readerAccessibleInfoProvider.getReaderAccessibleInfo()
+      .getRightNodeEdgePool().addEdge(
+        rightNodeInternalId,
+        edgeTypeMask.encode(leftNodeInternalId, edgeType)
+      );
+  }
+
+  @Override
+  public EdgeIterator getRightNodeEdges(long rightNode) {
+    int dummy = crossMemoryBarrier();
+    return getRightNodeEdges(rightNode,
+                             initializeRightNodeEdgesIntIterator(),
+                             initializeRightInternalIdToLongIterator());
+  }
+
+  @Override
+  public EdgeIterator getRightNodeEdges(
+    long rightNode,
+    ReusableNodeIntIterator rightNodeEdgeIterator,
+    ReusableInternalIdToLongIterator rightInternalIdToLongIterator) {
+    int dummy = crossMemoryBarrier();
+    if (!mightContainRightNode(rightNode)) {
+      return null;
+    }
+    int rightNodeIndex =
+      readerAccessibleInfoProvider.getReaderAccessibleInfo().getIndexForRightNode(rightNode);
+    if (rightNodeIndex == -1) {
+      return null;
+    }
+    return rightInternalIdToLongIterator.resetWithIntIterator(
+      readerAccessibleInfoProvider.getReaderAccessibleInfo().getRightNodeEdgePool().getNodeEdges(
+        rightNodeIndex,
+        rightNodeEdgeIterator));
+  }
+
+  @Override
+  public int getRightNodeDegree(long rightNode) {
+    int dummy = crossMemoryBarrier();
+    if (!mightContainRightNode(rightNode)) {
+      return 0;
+    }
+    int rightNodeIndex =
+      readerAccessibleInfoProvider.getReaderAccessibleInfo().getIndexForRightNode(rightNode);
+    if (rightNodeIndex == -1) {
+      return 0;
+    }
+    return readerAccessibleInfoProvider
+      .getReaderAccessibleInfo().getRightNodeEdgePool().getNodeDegree(rightNodeIndex);
+  }
+
+  @Override
+  public EdgeIterator getRandomRightNodeEdges(long rightNode, int numSamples, Random random) {
+    int dummy = crossMemoryBarrier();
+    return getRandomRightNodeEdges(
+      rightNode,
+      numSamples,
+      random,
+      initializeRightNodeEdgesRandomIntIterator(),
+      initializeRightInternalIdToLongIterator());
+  }
+
+  @Override
+  public EdgeIterator getRandomRightNodeEdges(
+    long rightNode,
+    int numSamples,
+    Random random,
+    ReusableNodeRandomIntIterator rightNodeEdgeRandomIterator,
+    ReusableInternalIdToLongIterator rightInternalIdToLongIterator) {
+    int dummy = crossMemoryBarrier();
+    if (!mightContainRightNode(rightNode)) {
+      return null;
+    }
+    int rightNodeIndex =
+      readerAccessibleInfoProvider.getReaderAccessibleInfo().getIndexForRightNode(rightNode);
+    if (rightNodeIndex == -1) {
+      return null;
+    }
+    return rightInternalIdToLongIterator.resetWithIntIterator(
+      readerAccessibleInfoProvider
+        .getReaderAccessibleInfo().getRightNodeEdgePool().getRandomNodeEdges(
+        rightNodeIndex,
+        numSamples,
+        random,
+        rightNodeEdgeRandomIterator));
+  }
+
+  public RightNodeMetadataReaderAccessibleInfoProvider getReaderAccessibleInfoProvider() {
+    return readerAccessibleInfoProvider;
+  }
+
+  public double getRightNodeEdgePoolFillPercentage() {
+    return readerAccessibleInfoProvider
+      .getReaderAccessibleInfo().getRightNodeEdgePool().getFillPercentage();
+  }
+}
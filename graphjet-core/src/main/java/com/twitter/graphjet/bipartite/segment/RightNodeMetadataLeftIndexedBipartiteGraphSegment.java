@@ -140,11 +140,7 @@ public abstract class RightNodeMetadataLeftIndexedBipartiteGraphSegment
     // so that node mappings are visible if the edge is visible
 
     // Now we can add the edge
-
-    // First we add the edges to the left pool so that it is ready to be accessed
-    readerAccessibleInfoProvider
-      .getLeftIndexedReaderAccessibleInfo().getLeftNodeEdgePool().addEdge(
-      leftNodeInternalId, edgeTypeMask.encode(rightNodeInternalId, edgeType));
+    updateEdgePool(leftNodeInternalId, rightNodeInternalId, edgeType);
 
     // Finally, explicitly flush the edge write so that the edge is visible to the readers
     currentNumEdges++;
@@ -0,0 +1,65 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.bipartite.segment;
+
+import java.util.List;
+
+import com.twitter.graphjet.bipartite.edgepool.EdgePool;
+import com.twitter.graphjet.hashing.IntToIntArrayMap;
+import com.twitter.graphjet.hashing.LongToInternalIntBiMap;
+
+/**
+ * This class encapsulates ALL the state that will be accessed by a reader of a
+ * {@link RightNodeMetadataBipartiteGraphSegment} (refer to the X, Y, Z comment in
+ * {@link BipartiteGraphSegment}). It extends {@link NodeMetadataLeftIndexedReaderAccessibleInfo}
+ * with the right node edge pool, so both sides are indexed while the right node metadata is kept.
+ * The final members in this class are used to guarantee visibility to other threads without
+ * synchronization/using volatile.
+ *
+ * As in {@link ReaderAccessibleInfo}, the two sides are updated one after the other, so a reader
+ * may see an edge on the left before it shows up on the right and must check for index existence.
+ */
+public class RightNodeMetadataReaderAccessibleInfo
+  extends NodeMetadataLeftIndexedReaderAccessibleInfo {
+  private final EdgePool rightNodeEdgePool;
+
+  /**
+   * A new instance is immediately visible to the readers due to publication safety.
+   *
+   * @param leftNodesToIndexBiMap   contains the mapping from external left node ids to internal ids
+   * @param rightNodesToIndexBiMap  contains the mapping from external right node ids to internal
+   *                                ids
+   * @param leftNodeEdgePool        contains edges for the left nodes
+   * @param rightNodeEdgePool       contains edges for the right nodes
+   * @param rightNodesToMetadataMap contains metadata of right nodes
+   */
+  public RightNodeMetadataReaderAccessibleInfo(
+    LongToInternalIntBiMap leftNodesToIndexBiMap,
+    LongToInternalIntBiMap rightNodesToIndexBiMap,
+    EdgePool leftNodeEdgePool,
+    EdgePool rightNodeEdgePool,
+    List<IntToIntArrayMap> rightNodesToMetadataMap
+  ) {
+    super(leftNodesToIndexBiMap, rightNodesToIndexBiMap, leftNodeEdgePool, rightNodesToMetadataMap);
+    this.rightNodeEdgePool = rightNodeEdgePool;
+  }
+
+  public EdgePool getRightNodeEdgePool() {
+    return rightNodeEdgePool;
+  }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.bipartite.segment;
+
+import com.twitter.graphjet.bipartite.edgepool.EdgePool;
+import com.twitter.graphjet.hashing.ResizableLongToInternalIntBiMap;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * This class provides a {@link RightNodeMetadataReaderAccessibleInfo} object, abstracting
+ * away the logic of building and updating such an object.
+ */
+public class RightNodeMetadataReaderAccessibleInfoProvider
+  extends NodeMetadataLeftIndexedReaderAccessibleInfoProvider {
+  private RightNodeMetadataReaderAccessibleInfo readerAccessibleInfo;
+
+  /**
+   * The constructor tries to reserve most of the memory that is needed for the graph.
+   *
+   * @param expectedNumLeftNodes       is the expected number of left nodes that would be inserted
+   *                                   in the segment
+   * @param expectedNumRightNodes      is the expected number of right nodes that would be inserted
+   *                                   in the segment
+   * @param numRightNodeMetadataTypes  is the max number of node metadata types associated with the
+   *                                   right nodes
+   * @param leftNodeEdgePool           is the pool containing all the left-indexed edges
+   * @param rightNodeEdgePool          is the pool containing all the right-indexed edges
+   * @param statsReceiver              is passed downstream for updating stats
+   */
+  public RightNodeMetadataReaderAccessibleInfoProvider(
+    int expectedNumLeftNodes,
+    int expectedNumRightNodes,
+    int numRightNodeMetadataTypes,
+    EdgePool leftNodeEdgePool,
+    EdgePool rightNodeEdgePool,
+    StatsReceiver statsReceiver) {
+    readerAccessibleInfo = new RightNodeMetadataReaderAccessibleInfo(
+      new ResizableLongToInternalIntBiMap(
+        expectedNumLeftNodes, LOAD_FACTOR, -1, -1, statsReceiver.scope("left")),
+      new ResizableLongToInternalIntBiMap(
+        expectedNumRightNodes, LOAD_FACTOR, -1, -1, statsReceiver.scope("right")),
+      leftNodeEdgePool,
+      rightNodeEdgePool,
+      newRightNodesToMetadataMap(
+        expectedNumRightNodes, numRightNodeMetadataTypes, statsReceiver)
+    );
+  }
+
+  @Override
+  public LeftIndexedReaderAccessibleInfo getLeftIndexedReaderAccessibleInfo() {
+    return readerAccessibleInfo;
+  }
+
+  @Override
+  public RightNodeMetadataReaderAccessibleInfo getReaderAccessibleInfo() {
+    return readerAccessibleInfo;
+  }
+
+  @Override
+  public void updateReaderAccessibleInfoLeftNodeEdgePool(EdgePool newLeftNodeEdgePool) {
+    updateReaderAccessibleInfoEdgePool(
+      newLeftNodeEdgePool, readerAccessibleInfo.getRightNodeEdgePool());
+  }
+
+  /**
+   * Update reader accessible info with the new optimized read-only edge pools, keeping the node
+   * maps and the right node metadata.
+   *
+   * @param newLeftNodeEdgePool   the optimized read-only edge pool of LHS graph
+   * @param newRightNodeEdgePool  the optimized read-only edge pool of RHS graph
+   */
+  public void updateReaderAccessibleInfoEdgePool(
+    EdgePool newLeftNodeEdgePool,
+    EdgePool newRightNodeEdgePool
+  ) {
+    readerAccessibleInfo = new RightNodeMetadataReaderAccessibleInfo(
+      readerAccessibleInfo.getLeftNodesToIndexBiMap(),
+      readerAccessibleInfo.getRightNodesToIndexBiMap(),
+      newLeftNodeEdgePool,
+      newRightNodeEdgePool,
+      readerAccessibleInfo.getRightNodesToMetadataMap()
+    );
+  }
+}
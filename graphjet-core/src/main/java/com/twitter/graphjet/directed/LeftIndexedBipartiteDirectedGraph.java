@@ -0,0 +1,71 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.directed;
+
+import java.util.Random;
+
+import com.twitter.graphjet.bipartite.ReadEpochs;
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+import com.twitter.graphjet.bipartite.api.EpochGuardedGraph;
+import com.twitter.graphjet.bipartite.api.LeftIndexedBipartiteGraph;
+import com.twitter.graphjet.directed.api.OutIndexedDirectedGraph;
+
+/**
+ * Read-only view of a {@link LeftIndexedBipartiteGraph} as an out-indexed directed graph, where the
+ * out-edges of a node are the edges of the left node with the same id. This lets algorithms written
+ * against {@link OutIndexedDirectedGraph} run over left-indexed bipartite graphs whose left and
+ * right nodes share the same domain of ids, such as a follow graph, without copying it. Read epochs
+ * are passed on to the underlying graph, see {@link EpochGuardedGraph}.
+ */
+public class LeftIndexedBipartiteDirectedGraph
+    implements OutIndexedDirectedGraph, EpochGuardedGraph {
+  private final LeftIndexedBipartiteGraph graph;
+
+  /**
+   * Creates a view of the given graph.
+   *
+   * @param graph  the left-indexed bipartite graph
+   */
+  public LeftIndexedBipartiteDirectedGraph(LeftIndexedBipartiteGraph graph) {
+    this.graph = graph;
+  }
+
+  @Override
+  public int getOutDegree(long node) {
+    return graph.getLeftNodeDegree(node);
+  }
+
+  @Override
+  public EdgeIterator getOutEdges(long node) {
+    return graph.getLeftNodeEdges(node);
+  }
+
+  @Override
+  public EdgeIterator getRandomOutEdges(long node, int numSamples, Random random) {
+    return graph.getRandomLeftNodeEdges(node, numSamples, random);
+  }
+
+  @Override
+  public long enterReadEpoch() {
+    return ReadEpochs.enter(graph);
+  }
+
+  @Override
+  public void exitReadEpoch(long readEpoch) {
+    ReadEpochs.exit(graph, readEpoch);
+  }
+}
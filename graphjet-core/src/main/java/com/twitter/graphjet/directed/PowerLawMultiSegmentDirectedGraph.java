@@ -0,0 +1,146 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.directed;
+
+import java.util.Random;
+
+import com.twitter.graphjet.bipartite.MultiSegmentPowerLawBipartiteGraph;
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+import com.twitter.graphjet.bipartite.api.EdgeTypeMask;
+import com.twitter.graphjet.directed.api.DirectedGraph;
+import com.twitter.graphjet.directed.api.DynamicDirectedGraph;
+import com.twitter.graphjet.hashing.BigArrayStorage;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * Implementation of a dynamic directed graph indexed on both the outgoing and the incoming edges. This class is
+ * implemented as a wrapper around a {@link MultiSegmentPowerLawBipartiteGraph}, which indexes every segment on both
+ * sides: the out-edges of a node are the edges of the left node with the same id, and its in-edges are the edges of
+ * the right node with the same id. Every edge is therefore only added once, and in-neighbor queries don't require
+ * maintaining a second out-indexed graph holding the reversed edges.
+ */
+public class PowerLawMultiSegmentDirectedGraph implements DirectedGraph, DynamicDirectedGraph {
+  protected final MultiSegmentPowerLawBipartiteGraph graph;
+
+  /**
+   * Constructor for a dynamic directed graph indexed on both the outgoing and the incoming edges.
+   *
+   * @param maxNumSegments         the maximum number of segments in the graph, after which the oldest segment will
+   *                               be dropped
+   * @param maxNumEdgesPerSegment  the maximum number of edges in each segment, after which a new segment will be
+   *                               created
+   * @param expectedNumNodes       the expected number of nodes in each segment
+   * @param expectedMaxOutDegree   the expected maximum outgoing degree for a node (soft upper bound)
+   * @param outPowerLawExponent    the exponent of the power law characterizing the outgoing degree distribution, see
+   *                               {@link com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePool}
+   * @param expectedMaxInDegree    the expected maximum incoming degree for a node (soft upper bound)
+   * @param inPowerLawExponent     the exponent of the power law characterizing the incoming degree distribution, see
+   *                               {@link com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePool}
+   * @param edgeTypeMask           the bit mask for edge types
+   * @param statsReceiver          object for tracking internal stats
+   */
+  public PowerLawMultiSegmentDirectedGraph(
+      int maxNumSegments,
+      int maxNumEdgesPerSegment,
+      int expectedNumNodes,
+      int expectedMaxOutDegree,
+      double outPowerLawExponent,
+      int expectedMaxInDegree,
+      double inPowerLawExponent,
+      EdgeTypeMask edgeTypeMask,
+      StatsReceiver statsReceiver) {
+    this(maxNumSegments, maxNumEdgesPerSegment, expectedNumNodes, expectedMaxOutDegree, outPowerLawExponent,
+        expectedMaxInDegree, inPowerLawExponent, edgeTypeMask, BigArrayStorage.HEAP, statsReceiver);
+  }
+
+  /**
+   * Constructor for a dynamic directed graph indexed on both the outgoing and the incoming edges, whose optimized
+   * segments keep their edges in the given storage.
+   *
+   * @param maxNumSegments         the maximum number of segments in the graph, after which the oldest segment will
+   *                               be dropped
+   * @param maxNumEdgesPerSegment  the maximum number of edges in each segment, after which a new segment will be
+   *                               created
+   * @param expectedNumNodes       the expected number of nodes in each segment
+   * @param expectedMaxOutDegree   the expected maximum outgoing degree for a node (soft upper bound)
+   * @param outPowerLawExponent    the exponent of the power law characterizing the outgoing degree distribution, see
+   *                               {@link com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePool}
+   * @param expectedMaxInDegree    the expected maximum incoming degree for a node (soft upper bound)
+   * @param inPowerLawExponent     the exponent of the power law characterizing the incoming degree distribution, see
+   *                               {@link com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePool}
+   * @param edgeTypeMask           the bit mask for edge types
+   * @param optimizedStorage       where optimized and restored segments keep their edges, see
+   *                               {@link BigArrayStorage}
+   * @param statsReceiver          object for tracking internal stats
+   */
+  public PowerLawMultiSegmentDirectedGraph(
+      int maxNumSegments,
+      int maxNumEdgesPerSegment,
+      int expectedNumNodes,
+      int expectedMaxOutDegree,
+      double outPowerLawExponent,
+      int expectedMaxInDegree,
+      double inPowerLawExponent,
+      EdgeTypeMask edgeTypeMask,
+      BigArrayStorage optimizedStorage,
+      StatsReceiver statsReceiver) {
+    this.graph = new MultiSegmentPowerLawBipartiteGraph(maxNumSegments, maxNumEdgesPerSegment,
+        expectedNumNodes, expectedMaxOutDegree, outPowerLawExponent,
+        expectedNumNodes, expectedMaxInDegree, inPowerLawExponent,
+        edgeTypeMask, optimizedStorage, statsReceiver);
+  }
+
+  @Override
+  public int getOutDegree(long node) {
+    return graph.getLeftNodeDegree(node);
+  }
+
+  @Override
+  public EdgeIterator getOutEdges(long node) {
+    return graph.getLeftNodeEdges(node);
+  }
+
+  @Override
+  public EdgeIterator getRandomOutEdges(long node, int numSamples, Random random) {
+    return graph.getRandomLeftNodeEdges(node, numSamples, random);
+  }
+
+  @Override
+  public int getInDegree(long node) {
+    return graph.getRightNodeDegree(node);
+  }
+
+  @Override
+  public EdgeIterator getInEdges(long node) {
+    return graph.getRightNodeEdges(node);
+  }
+
+  @Override
+  public EdgeIterator getRandomInEdges(long node, int numSamples, Random random) {
+    return graph.getRandomRightNodeEdges(node, numSamples, random);
+  }
+
+  @Override
+  public void addEdge(long srcNode, long destNode, byte edgeType) {
+    graph.addEdge(srcNode, destNode, edgeType);
+  }
+
+  @Override
+  public void removeEdge(long srcNode, long destNode) {
+    graph.removeEdge(srcNode, destNode);
+  }
+}
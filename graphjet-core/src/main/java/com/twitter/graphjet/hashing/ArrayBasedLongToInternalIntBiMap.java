@@ -17,6 +17,10 @@
 
 package com.twitter.graphjet.hashing;
 
+import java.io.IOException;
+
+import com.twitter.graphjet.snapshot.SnapshotReader;
+import com.twitter.graphjet.snapshot.SnapshotWriter;
 import com.twitter.graphjet.stats.Counter;
 import com.twitter.graphjet.stats.StatsReceiver;
 
@@ -38,7 +42,8 @@ import com.twitter.graphjet.stats.StatsReceiver;
  * (no hashes). See {@link ArrayBasedLongToInternalIntFixedLengthBiMap} for pointers to hashing
  * analysis. The overhead in this class is going down multiple
  * ArrayBasedLongToInternalIntFixedLengthBiMap(s), and that cost is going to be quite low as long as
- * the number of misses is small.
+ * the number of misses is small. When the expected number of keys can be far off, prefer
+ * {@link ResizableLongToInternalIntBiMap}, which grows a single table instead.
  */
 public class ArrayBasedLongToInternalIntBiMap implements LongToInternalIntBiMap {
   /**
@@ -115,6 +120,25 @@ public class ArrayBasedLongToInternalIntBiMap implements LongToInternalIntBiMap
       int defaultGetReturnValue,
       long defaultGetKeyReturnValue,
       StatsReceiver statsReceiver) {
+    this(
+        expectedNumKeys,
+        loadFactor,
+        defaultGetReturnValue,
+        defaultGetKeyReturnValue,
+        statsReceiver,
+        null);
+  }
+
+  /**
+   * Either starts a new map or, if restoredMaps is non-null, restores one from a snapshot.
+   */
+  private ArrayBasedLongToInternalIntBiMap(
+      int expectedNumKeys,
+      double loadFactor,
+      int defaultGetReturnValue,
+      long defaultGetKeyReturnValue,
+      StatsReceiver statsReceiver,
+      ArrayBasedLongToInternalIntFixedLengthBiMap[] restoredMaps) {
     this.expectedNumKeys = expectedNumKeys;
     this.loadFactor = loadFactor;
     this.defaultGetReturnValue = defaultGetReturnValue;
@@ -123,7 +147,11 @@ public class ArrayBasedLongToInternalIntBiMap implements LongToInternalIntBiMap
     numStoredKeysCounter = scopedStatsReceiver.counter("numStoredKeys");
     numFixedLengthMapsCounter = scopedStatsReceiver.counter("numFixedLengthMaps");
     totalAllocatedArrayBytesCounter = scopedStatsReceiver.counter("allocatedArrayBytes");
-    initialize();
+    if (restoredMaps == null) {
+      initialize();
+    } else {
+      restore(restoredMaps);
+    }
   }
 
   private void initialize() {
@@ -148,6 +176,31 @@ public class ArrayBasedLongToInternalIntBiMap implements LongToInternalIntBiMap
     totalAllocatedArrayBytesCounter.incr(8 * currentActiveMap.getBackingArrayLength());
   }
 
+  /**
+   * Rebuilds the reader accessible info around maps restored from a snapshot. Offsets and
+   * cumulative lengths are derived exactly as in {@link #addNewMap()}, so every key keeps its
+   * internal id.
+   */
+  private void restore(ArrayBasedLongToInternalIntFixedLengthBiMap[] maps) {
+    int numMaps = maps.length;
+    int[] cumulativeMapLengths = new int[numMaps];
+    int[] mapIndexOffsets = new int[numMaps];
+    int totalBackingArrayLength = 0;
+    for (int i = 0; i < numMaps; i++) {
+      mapIndexOffsets[i] = totalBackingArrayLength;
+      totalBackingArrayLength += maps[i].getBackingArrayLength();
+      cumulativeMapLengths[i] = totalBackingArrayLength;
+      numStoredKeysCounter.incr(maps[i].getNumStoredKeys());
+    }
+    currentActiveMapId = numMaps - 1;
+    currentActiveMap = maps[currentActiveMapId];
+    currentActiveMapIndexOffset = mapIndexOffsets[currentActiveMapId];
+    this.readerAccessibleInfo =
+        new ReaderAccessibleInfo(maps, mapIndexOffsets, cumulativeMapLengths);
+    numFixedLengthMapsCounter.incr(numMaps);
+    totalAllocatedArrayBytesCounter.incr(8 * totalBackingArrayLength);
+  }
+
   @Override
   public int get(long key) {
     int value = defaultGetReturnValue;
@@ -239,6 +292,57 @@ public class ArrayBasedLongToInternalIntBiMap implements LongToInternalIntBiMap
         .getKey(value - readerAccessibleInfo.mapIndexOffsets[mapId]);
   }
 
+  @Override
+  public void writeTo(SnapshotWriter writer) throws IOException {
+    ReaderAccessibleInfo info = readerAccessibleInfo;
+    writer.writeInt(expectedNumKeys);
+    writer.writeDouble(loadFactor);
+    writer.writeInt(defaultGetReturnValue);
+    writer.writeLong(defaultGetKeyReturnValue);
+    writer.writeInt(info.maps.length);
+    for (ArrayBasedLongToInternalIntFixedLengthBiMap map : info.maps) {
+      map.writeTo(writer);
+    }
+  }
+
+  /**
+   * Reads back a map written by {@link #writeTo(SnapshotWriter)}. The restored map hands out the
+   * same internal ids as the original one and can keep accepting new keys.
+   *
+   * @param reader         is the reader positioned at the start of the map
+   * @param statsReceiver  tracks the internal stats
+   * @return the restored map
+   * @throws IOException if the underlying read fails
+   */
+  public static ArrayBasedLongToInternalIntBiMap readFrom(
+      SnapshotReader reader,
+      StatsReceiver statsReceiver) throws IOException {
+    int expectedNumKeys = reader.readInt();
+    double loadFactor = reader.readDouble();
+    int defaultGetReturnValue = reader.readInt();
+    long defaultGetKeyReturnValue = reader.readLong();
+    int numMaps = reader.readInt();
+    StatsReceiver scopedStatsReceiver =
+        statsReceiver.scope(ArrayBasedLongToInternalIntBiMap.class.getSimpleName());
+    ArrayBasedLongToInternalIntFixedLengthBiMap[] maps =
+        new ArrayBasedLongToInternalIntFixedLengthBiMap[numMaps];
+    for (int i = 0; i < numMaps; i++) {
+      maps[i] = ArrayBasedLongToInternalIntFixedLengthBiMap.readFrom(
+          reader,
+          loadFactor,
+          defaultGetReturnValue,
+          defaultGetKeyReturnValue,
+          scopedStatsReceiver.scope(Integer.toString(i)));
+    }
+    return new ArrayBasedLongToInternalIntBiMap(
+        expectedNumKeys,
+        loadFactor,
+        defaultGetReturnValue,
+        defaultGetKeyReturnValue,
+        statsReceiver,
+        maps);
+  }
+
   /**
    * Resets the internal state, but note that size does NOT change, and also counters are NOT reset!
    */
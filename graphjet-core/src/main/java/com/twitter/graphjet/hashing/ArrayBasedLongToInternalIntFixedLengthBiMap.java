@@ -17,12 +17,15 @@
 
 package com.twitter.graphjet.hashing;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLongArray;
 
 import com.google.common.base.Preconditions;
 
+import com.twitter.graphjet.snapshot.SnapshotReader;
+import com.twitter.graphjet.snapshot.SnapshotWriter;
 import com.twitter.graphjet.stats.Counter;
 import com.twitter.graphjet.stats.StatsReceiver;
 
@@ -70,6 +73,8 @@ public class ArrayBasedLongToInternalIntFixedLengthBiMap implements LongToIntern
   private final AtomicInteger size = new AtomicInteger(0);
   private final Counter numStoredKeysCounter;
 
+  private static final int SNAPSHOT_CHUNK_SIZE = 1 << 16;
+
   /**
    * Returns a new instance that allocates a large array internally. Note that the used memory
    * here will be 8*pow(2, ceil(lg(capacity / loadFactor))) bytes. In case capacity is flexible,
@@ -91,25 +96,52 @@ public class ArrayBasedLongToInternalIntFixedLengthBiMap implements LongToIntern
       int defaultGetReturnValue,
       long defaultGetKeyReturnValue,
       StatsReceiver statsReceiver) {
-    int arraySize = (int) (capacity / loadFactor);
-    // Keep the number of buckets to be power of 2 so that we can use bit-masks instead of mod
-    // the min values here address some pathological cases
-    int arrayLength = Math.max(Integer.highestOneBit(arraySize - 1) << 1, 16);
-    this.capacity = (int) (arrayLength * loadFactor);
+    this(
+        newDataArray(capacity, loadFactor, defaultGetKeyReturnValue),
+        0,
+        loadFactor,
+        defaultGetReturnValue,
+        defaultGetKeyReturnValue,
+        statsReceiver);
+    Preconditions.checkArgument(defaultGetReturnValue < 0 || defaultGetReturnValue >= capacity,
+        "defaultGetReturnValue must NOT be one of the indices that can be returned otherwise.");
+  }
+
+  /**
+   * Restores a map around an already populated backing array, e.g. one read from a snapshot.
+   */
+  private ArrayBasedLongToInternalIntFixedLengthBiMap(
+      long[] dataArray,
+      int numStoredKeys,
+      double loadFactor,
+      int defaultGetReturnValue,
+      long defaultGetKeyReturnValue,
+      StatsReceiver statsReceiver) {
     // Note that 'arrayLength' is always a power of 2.
-    long[] dataArray = new long[arrayLength];
-    if (defaultGetKeyReturnValue != 0L) {
-      Arrays.fill(dataArray, defaultGetKeyReturnValue);
-    }
+    int arrayLength = dataArray.length;
+    this.capacity = (int) (arrayLength * loadFactor);
     this.array = new AtomicLongArray(dataArray);
+    this.size.set(numStoredKeys);
     bitMask = dataArray.length - 1;
-    Preconditions.checkArgument(defaultGetReturnValue < 0 || defaultGetReturnValue >= capacity,
-        "defaultGetReturnValue must NOT be one of the indices that can be returned otherwise.");
     this.defaultGetReturnValue = defaultGetReturnValue;
     this.defaultGetKeyReturnValue = defaultGetKeyReturnValue;
     // initialize counters
     StatsReceiver scopedStatsReceiver = statsReceiver.scope(this.getClass().getSimpleName());
     numStoredKeysCounter = scopedStatsReceiver.counter("numStoredKeys");
+    numStoredKeysCounter.incr(numStoredKeys);
+  }
+
+  private static long[] newDataArray(
+      int capacity, double loadFactor, long defaultGetKeyReturnValue) {
+    int arraySize = (int) (capacity / loadFactor);
+    // Keep the number of buckets to be power of 2 so that we can use bit-masks instead of mod
+    // the min values here address some pathological cases
+    int arrayLength = Math.max(Integer.highestOneBit(arraySize - 1) << 1, 16);
+    long[] dataArray = new long[arrayLength];
+    if (defaultGetKeyReturnValue != 0L) {
+      Arrays.fill(dataArray, defaultGetKeyReturnValue);
+    }
+    return dataArray;
   }
 
   // Thomas Wang's long hash function: https://gist.github.com/badboy/6267743
@@ -227,6 +259,56 @@ public class ArrayBasedLongToInternalIntFixedLengthBiMap implements LongToIntern
     size.set(0);
   }
 
+  /**
+   * Writes the backing array as is: since internal ids are bucket positions, restoring the array
+   * restores the exact same key to id mapping.
+   */
+  @Override
+  public void writeTo(SnapshotWriter writer) throws IOException {
+    int arrayLength = array.length();
+    writer.writeInt(arrayLength);
+    writer.writeInt(size.get());
+    long[] chunk = new long[Math.min(arrayLength, SNAPSHOT_CHUNK_SIZE)];
+    for (int start = 0; start < arrayLength; start += chunk.length) {
+      int length = Math.min(chunk.length, arrayLength - start);
+      for (int i = 0; i < length; i++) {
+        chunk[i] = array.get(start + i);
+      }
+      writer.writeLongs(chunk, 0, length);
+    }
+  }
+
+  /**
+   * Reads back a map written by {@link #writeTo(SnapshotWriter)}.
+   *
+   * @param reader                    is the reader positioned at the start of the map
+   * @param loadFactor                must be the load factor of the map that was written
+   * @param defaultGetReturnValue     must be the defaultGetReturnValue of the map that was written
+   * @param defaultGetKeyReturnValue  must be the defaultGetKeyReturnValue of the map that was
+   *                                  written
+   * @param statsReceiver             tracks the internal stats
+   * @return the restored map
+   * @throws IOException if the underlying read fails
+   */
+  static ArrayBasedLongToInternalIntFixedLengthBiMap readFrom(
+      SnapshotReader reader,
+      double loadFactor,
+      int defaultGetReturnValue,
+      long defaultGetKeyReturnValue,
+      StatsReceiver statsReceiver) throws IOException {
+    int arrayLength = reader.readInt();
+    int numStoredKeys = reader.readInt();
+    long[] dataArray = new long[arrayLength];
+    reader.readLongs(dataArray, 0, arrayLength);
+    return new ArrayBasedLongToInternalIntFixedLengthBiMap(
+        dataArray,
+        numStoredKeys,
+        loadFactor,
+        defaultGetReturnValue,
+        defaultGetKeyReturnValue,
+        statsReceiver);
+  }
+
   protected boolean isAtCapacity() {
     return size.get() == capacity;
   }
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.hashing;
+
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * Selects where large fixed-size arrays are kept. Heap arrays can grow and are what the mutable
+ * structures use; off-heap arrays are sized once and live in direct (or memory-mapped) buffers
+ * that the garbage collector never scans or copies, which suits immutable data such as the edges
+ * of optimized segments.
+ *
+ * Off-heap memory is only released once the small buffer objects that own it are collected, and
+ * it is bounded by -XX:MaxDirectMemorySize rather than by the heap size.
+ */
+public enum BigArrayStorage {
+  HEAP {
+    @Override
+    public BigIntArray newIntArray(
+        int numEntries, int minShardSize, int nullEntry, StatsReceiver statsReceiver) {
+      return new ShardedBigIntArray(numEntries, minShardSize, nullEntry, statsReceiver);
+    }
+
+    @Override
+    public BigLongArray newLongArray(
+        int numEntries, int minShardSize, long nullEntry, StatsReceiver statsReceiver) {
+      return new ShardedBigLongArray(numEntries, minShardSize, nullEntry, statsReceiver);
+    }
+  },
+  OFF_HEAP {
+    @Override
+    public BigIntArray newIntArray(
+        int numEntries, int minShardSize, int nullEntry, StatsReceiver statsReceiver) {
+      return new DirectBigIntArray(numEntries, nullEntry, statsReceiver);
+    }
+
+    @Override
+    public BigLongArray newLongArray(
+        int numEntries, int minShardSize, long nullEntry, StatsReceiver statsReceiver) {
+      return new DirectBigLongArray(numEntries, nullEntry, statsReceiver);
+    }
+  },
+  /**
+   * Heap arrays, except that the edges and node information of optimized pools are bit-packed once
+   * the pool is fully written, see {@link PackedBigIntArray} and
+   * {@link PackedIntToIntPairArrayIndexBasedMap}. This trades a little decoding work on every read for
+   * keeping a lot more segments in the same heap.
+   */
+  COMPRESSED {
+    @Override
+    public BigIntArray newIntArray(
+        int numEntries, int minShardSize, int nullEntry, StatsReceiver statsReceiver) {
+      return HEAP.newIntArray(numEntries, minShardSize, nullEntry, statsReceiver);
+    }
+
+    @Override
+    public BigLongArray newLongArray(
+        int numEntries, int minShardSize, long nullEntry, StatsReceiver statsReceiver) {
+      return HEAP.newLongArray(numEntries, minShardSize, nullEntry, statsReceiver);
+    }
+  };
+
+  /**
+   * Creates an int array for numEntries entries. Heap arrays grow past numEntries as needed while
+   * off-heap ones are fixed to exactly numEntries entries.
+   *
+   * @param numEntries     is the number of entries to hold
+   * @param minShardSize   is the minimum shard size, only used by heap arrays
+   * @param nullEntry      is the value returned for positions that have not been filled
+   * @param statsReceiver  is used to update storage stats
+   * @return the new array
+   */
+  public abstract BigIntArray newIntArray(
+      int numEntries, int minShardSize, int nullEntry, StatsReceiver statsReceiver);
+
+  /**
+   * Creates a long array for numEntries entries. Heap arrays grow past numEntries as needed while
+   * off-heap ones are fixed to exactly numEntries entries.
+   *
+   * @param numEntries     is the number of entries to hold
+   * @param minShardSize   is the minimum shard size, only used by heap arrays
+   * @param nullEntry      is the value returned for positions that have not been filled
+   * @param statsReceiver  is used to update storage stats
+   * @return the new array
+   */
+  public abstract BigLongArray newLongArray(
+      int numEntries, int minShardSize, long nullEntry, StatsReceiver statsReceiver);
+}
@@ -40,6 +40,20 @@ public interface BigIntArray {
    */
   int getEntry(int position);
 
+  /**
+   * Fetches consecutive entries, which implementations may do faster than one entry at a time.
+   *
+   * @param position  is the position of the first entry to fetch
+   * @param dest      is where the entries are copied to
+   * @param destPos   is the position in dest of the first entry
+   * @param count     is the number of entries to fetch
+   */
+  default void getEntries(int position, int[] dest, int destPos, int count) {
+    for (int i = 0; i < count; i++) {
+      dest[destPos + i] = getEntry(position + i);
+    }
+  }
+
   /**
    * Increments the stored entry at a position by delta.
    *
@@ -60,6 +74,15 @@ public interface BigIntArray {
    */
   void arrayCopy(int[] src, int srcPos, int desPos, int length, boolean updateStats);
 
+  /**
+   * Allocates the memory for the first numEntries positions up front and counts them as stored,
+   * for an array that is then filled by {@link #arrayCopy} calls that do not update the stats.
+   * Such calls may write disjoint ranges of these positions from several threads at once.
+   *
+   * @param numEntries the number of positions that are going to be filled
+   */
+  void reserve(int numEntries);
+
   /**
    * The fill percentage is the percentage of memory allocated that is being occupied. This should
    * be very cheap to get and will be exported as a stat counter.
@@ -60,6 +60,15 @@ public interface BigLongArray {
    */
   void arrayCopy(long[] src, int srcPos, int desPos, int length, boolean updateStats);
 
+  /**
+   * Allocates the memory for the first numEntries positions up front and counts them as stored,
+   * for an array that is then filled by {@link #arrayCopy} calls that do not update the stats.
+   * Such calls may write disjoint ranges of these positions from several threads at once.
+   *
+   * @param numEntries the number of positions that are going to be filled
+   */
+  void reserve(int numEntries);
+
   /**
    * The fill percentage is the percentage of memory allocated that is being occupied. This should
    * be very cheap to get and will be exported as a stat counter.
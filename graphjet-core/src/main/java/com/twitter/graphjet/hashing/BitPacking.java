@@ -0,0 +1,76 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.hashing;
+
+/**
+ * Helpers for reading and writing values of a fixed bit width at arbitrary bit positions of a
+ * long array, shared by the bit-packed arrays.
+ */
+final class BitPacking {
+  // Entries are packed in blocks of 2^BLOCK_SIZE_NUM_BITS, each with its own base and bit width
+  static final int BLOCK_SIZE_NUM_BITS = 7;
+  static final int BLOCK_SIZE = 1 << BLOCK_SIZE_NUM_BITS;
+  static final int BLOCK_OFFSET_MASK = BLOCK_SIZE - 1;
+
+  /**
+   * Private constructor.
+   */
+  private BitPacking() { }
+
+  /**
+   * @return the number of bits needed to store the given unsigned value
+   */
+  static int bitWidth(long unsignedValue) {
+    return Long.SIZE - Long.numberOfLeadingZeros(unsignedValue);
+  }
+
+  static int numWords(long numBits) {
+    return (int) ((numBits + Long.SIZE - 1) >>> 6);
+  }
+
+  /**
+   * Writes the lowest width bits of value at bitPosition, which must not have been written yet.
+   */
+  static void write(long[] words, long bitPosition, long value, int width) {
+    if (width == 0) {
+      return;
+    }
+    int word = (int) (bitPosition >>> 6);
+    int shift = (int) (bitPosition & 63);
+    words[word] |= value << shift;
+    if (shift + width > Long.SIZE) {
+      words[word + 1] |= value >>> (Long.SIZE - shift);
+    }
+  }
+
+  /**
+   * Reads width bits at bitPosition.
+   */
+  static long read(long[] words, long bitPosition, int width) {
+    if (width == 0) {
+      return 0L;
+    }
+    int word = (int) (bitPosition >>> 6);
+    int shift = (int) (bitPosition & 63);
+    long value = words[word] >>> shift;
+    if (shift + width > Long.SIZE) {
+      value |= words[word + 1] << (Long.SIZE - shift);
+    }
+    return width == Long.SIZE ? value : value & ((1L << width) - 1);
+  }
+}
@@ -0,0 +1,227 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.hashing;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Preconditions;
+
+import com.twitter.graphjet.stats.Counter;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * An alternative to {@link ArrayBasedLongToInternalIntFixedLengthBiMap} that keeps the same
+ * contract -- a fixed-length long array whose indices serve as the internal int ids, safe under the
+ * single writer and multiple readers model -- but probes cache lines instead of scattered slots.
+ *
+ * Layout: the slots are grouped in buckets of 8, i.e. the 64 bytes of a typical cache line, and a
+ * key hashes to a bucket and to a 7-bit fingerprint. Every bucket has a long holding one
+ * fingerprint byte per slot, with the high bit of the byte marking the slot as used. A lookup
+ * compares the 8 fingerprints of a bucket at once with a few word operations and only reads the
+ * keys whose fingerprint matches, which is 1/128 of the other keys on average. Slots in a bucket
+ * are filled in order, so a lookup can stop at the first bucket that has a free slot, and otherwise
+ * moves on to the next bucket. At a load factor of 0.75 almost all the lookups, successful or not,
+ * touch a single bucket, as opposed to the 2 to 4 random slots of double hashing.
+ *
+ * Memory usage: 9*n/load_factor bytes, where n is the maximum number of keys that will be inserted.
+ *
+ * Notes on thread-safety: the writer sets the key of a slot before the fingerprint byte that marks
+ * the slot as used, and both arrays are {@link AtomicLongArray}s, so a reader that sees the
+ * fingerprint of a slot also sees its key. Keys never move once inserted, which is what makes the
+ * slot index usable as an internal id.
+ */
+public class BucketizedLongToInternalIntFixedLengthBiMap implements LongToInternalIntBiMap {
+  private static final int SLOTS_PER_BUCKET_SHIFT = 3;
+  private static final long LOW_BITS = 0x0101010101010101L;
+  private static final long HIGH_BITS = 0x8080808080808080L;
+
+  private final AtomicLongArray keys;
+  private final AtomicLongArray fingerprints;
+  private final long defaultGetKeyReturnValue;
+  private final int defaultGetReturnValue;
+  private final int bucketMask;
+  private final int capacity;
+  private final AtomicInteger size = new AtomicInteger(0);
+  private final Counter numStoredKeysCounter;
+
+  /**
+   * Returns a new instance that allocates a large array internally. Note that the used memory
+   * here will be 9*pow(2, ceil(lg(capacity / loadFactor))) bytes.
+   *
+   * @param capacity                  is the maximum number of keys that can be inserted in this
+   *                                  map. Inserting more than these number of keys will throw
+   *                                  a RuntimeException.
+   * @param loadFactor                is the load factor to set, in (0, 1). It can go higher than
+   *                                  for {@link ArrayBasedLongToInternalIntFixedLengthBiMap} but
+   *                                  should stay below 0.9.
+   * @param defaultGetReturnValue     is what a get returns to indicate empty.
+   * @param defaultGetKeyReturnValue  is what a getKey returns to indicate empty. Unlike for
+   *                                  {@link ArrayBasedLongToInternalIntFixedLengthBiMap}, it does
+   *                                  not need to be disjoint from the keys in the map.
+   */
+  public BucketizedLongToInternalIntFixedLengthBiMap(
+      int capacity,
+      double loadFactor,
+      int defaultGetReturnValue,
+      long defaultGetKeyReturnValue,
+      StatsReceiver statsReceiver) {
+    Preconditions.checkArgument(loadFactor > 0.0 && loadFactor < 1.0,
+        "loadFactor must be in (0, 1).");
+    Preconditions.checkArgument(defaultGetReturnValue < 0 || defaultGetReturnValue >= capacity,
+        "defaultGetReturnValue must NOT be one of the indices that can be returned otherwise.");
+    int arraySize = (int) (capacity / loadFactor);
+    // Keep the number of buckets to be power of 2 so that we can use bit-masks instead of mod
+    int arrayLength = Math.max(Integer.highestOneBit(arraySize - 1) << 1, 16);
+    int numBuckets = arrayLength >> SLOTS_PER_BUCKET_SHIFT;
+    // the last free slot is never filled, which guarantees that every probe terminates
+    this.capacity = Math.min((int) (arrayLength * loadFactor), arrayLength - 1);
+    this.keys = new AtomicLongArray(arrayLength);
+    this.fingerprints = new AtomicLongArray(numBuckets);
+    this.bucketMask = numBuckets - 1;
+    this.defaultGetReturnValue = defaultGetReturnValue;
+    this.defaultGetKeyReturnValue = defaultGetKeyReturnValue;
+    fillKeys();
+    StatsReceiver scopedStatsReceiver = statsReceiver.scope(this.getClass().getSimpleName());
+    numStoredKeysCounter = scopedStatsReceiver.counter("numStoredKeys");
+  }
+
+  private void fillKeys() {
+    for (int i = 0; i < keys.length(); i++) {
+      keys.lazySet(i, defaultGetKeyReturnValue);
+    }
+  }
+
+  // MurmurHash3's 64-bit finalizer, which mixes every input bit into the low bits that pick the
+  // bucket as well as into the high bits that make the fingerprint
+  private static long hash(long key) {
+    long h = key;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  // a byte in [0x80, 0xff], so that 0 can mark a free slot
+  private static long fingerprint(long hash) {
+    return (hash >>> 57) | 0x80;
+  }
+
+  // Returns a word with the high bit set in the bytes of bucketFingerprints that may equal the
+  // fingerprint replicated in pattern. Bytes that follow an actual match can be false positives,
+  // which the caller weeds out by comparing keys, but free slots never match.
+  private static long matchFingerprints(long bucketFingerprints, long pattern) {
+    long x = bucketFingerprints ^ pattern;
+    return (x - LOW_BITS) & ~x & HIGH_BITS;
+  }
+
+  // Returns defaultGetReturnValue if the key is not found, and slot otherwise
+  @Override
+  public int get(long key) {
+    long hash = hash(key);
+    long pattern = fingerprint(hash) * LOW_BITS;
+    int bucket = (int) hash & bucketMask;
+    while (true) {
+      long bucketFingerprints = fingerprints.get(bucket);
+      long matches = matchFingerprints(bucketFingerprints, pattern);
+      while (matches != 0) {
+        int slot = (bucket << SLOTS_PER_BUCKET_SHIFT)
+            + (Long.numberOfTrailingZeros(matches) >>> 3);
+        if (keys.get(slot) == key) {
+          return slot;
+        }
+        matches &= matches - 1;
+      }
+      // the key would have gone to the free slot of this bucket if it had been inserted
+      if ((bucketFingerprints & HIGH_BITS) != HIGH_BITS) {
+        return defaultGetReturnValue;
+      }
+      bucket = (bucket + 1) & bucketMask;
+    }
+  }
+
+  /**
+   * Only a single writer can call this at one time. This method is NOT thread-safe!
+   */
+  @Override
+  public int put(long key) {
+    long hash = hash(key);
+    long fingerprint = fingerprint(hash);
+    long pattern = fingerprint * LOW_BITS;
+    int bucket = (int) hash & bucketMask;
+    while (true) {
+      long bucketFingerprints = fingerprints.get(bucket);
+      long matches = matchFingerprints(bucketFingerprints, pattern);
+      while (matches != 0) {
+        int slot = (bucket << SLOTS_PER_BUCKET_SHIFT)
+            + (Long.numberOfTrailingZeros(matches) >>> 3);
+        if (keys.get(slot) == key) {
+          return slot;
+        }
+        matches &= matches - 1;
+      }
+      int numUsedSlots = Long.bitCount(bucketFingerprints & HIGH_BITS);
+      if (numUsedSlots < (1 << SLOTS_PER_BUCKET_SHIFT)) {
+        if (isAtCapacity()) {
+          throw new RuntimeException("Exceeded the maximum number of insertions");
+        }
+        int slot = (bucket << SLOTS_PER_BUCKET_SHIFT) + numUsedSlots;
+        // the key has to be visible before the fingerprint that lets readers find it
+        keys.set(slot, key);
+        fingerprints.set(bucket, bucketFingerprints | (fingerprint << (numUsedSlots << 3)));
+        size.getAndIncrement();
+        numStoredKeysCounter.incr();
+        return slot;
+      }
+      bucket = (bucket + 1) & bucketMask;
+    }
+  }
+
+  @Override
+  public long getKey(int value) {
+    if (value < 0 || value >= keys.length()) {
+      throw new IndexOutOfBoundsException("index " + value);
+    }
+    return keys.get(value);
+  }
+
+  /**
+   * Resets the internal state, but note that counters are NOT reset!
+   */
+  @Override
+  public void clear() {
+    for (int i = 0; i < fingerprints.length(); i++) {
+      fingerprints.set(i, 0L);
+    }
+    fillKeys();
+    size.set(0);
+  }
+
+  protected boolean isAtCapacity() {
+    return size.get() == capacity;
+  }
+
+  protected int getBackingArrayLength() {
+    return keys.length();
+  }
+
+  protected int getNumStoredKeys() {
+    return size.get();
+  }
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.hashing;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import com.google.common.base.Preconditions;
+
+import com.twitter.graphjet.snapshot.SnapshotReader;
+import com.twitter.graphjet.stats.Counter;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * A fixed-size int array kept outside the Java heap, in direct buffers or in buffers mapped from a
+ * snapshot file. Since a single buffer cannot exceed 2GB, the array is split into shards of
+ * 2^SHARD_LENGTH_NUM_BITS entries with only the last shard being smaller.
+ *
+ * This array is meant for data that is written once and then only read, such as the edges of an
+ * optimized segment: like the optimized edge pools, it does not grow, and entries are only
+ * guaranteed to be visible to readers once the array has been published through a final field
+ * or a volatile write. Positions past the end of the array read as the null entry.
+ *
+ * Buffer positions are moved through {@link Buffer} so that the class keeps running on Java 8
+ * runtimes when compiled with a newer JDK.
+ */
+public class DirectBigIntArray implements BigIntArray {
+  // 1GB of ints per buffer
+  static final int SHARD_LENGTH_NUM_BITS = 28;
+  private static final int SHARD_LENGTH = 1 << SHARD_LENGTH_NUM_BITS;
+  private static final int OFFSET_MASK = SHARD_LENGTH - 1;
+
+  private final IntBuffer[] shards;
+  private final int length;
+  private final int nullEntry;
+  private final Counter numArrayEntries;
+
+  private int numStoredEntries;
+
+  /**
+   * Allocates direct buffers for exactly length entries, all set to nullEntry.
+   *
+   * @param length         is the number of entries in the array
+   * @param nullEntry      is the value of entries that have not been filled
+   * @param statsReceiver  is used to update storage stats
+   */
+  public DirectBigIntArray(int length, int nullEntry, StatsReceiver statsReceiver) {
+    this(allocateShards(length), length, nullEntry, 0, statsReceiver);
+    if (nullEntry != 0) {
+      fill(nullEntry);
+    }
+  }
+
+  private DirectBigIntArray(
+      IntBuffer[] shards,
+      int length,
+      int nullEntry,
+      int numStoredEntries,
+      StatsReceiver statsReceiver) {
+    Preconditions.checkArgument(length >= 0, "Array length must be non-negative");
+    this.shards = shards;
+    this.length = length;
+    this.nullEntry = nullEntry;
+    this.numStoredEntries = numStoredEntries;
+    StatsReceiver scopedStatsReceiver = statsReceiver.scope("DirectBigIntArray");
+    this.numArrayEntries = scopedStatsReceiver.counter("numArrayEntries");
+    scopedStatsReceiver.counter("numAllocatedEntries").incr(length);
+    numArrayEntries.incr(numStoredEntries);
+  }
+
+  /**
+   * Maps the next length ints of a snapshot in place, without copying them to the heap. The
+   * returned array is read-only.
+   *
+   * @param reader         is the reader positioned at the start of the ints
+   * @param length         is the number of ints to map
+   * @param nullEntry      is the value returned for positions past the end of the array
+   * @param statsReceiver  is used to update storage stats
+   * @return a read-only array backed by the snapshot file
+   * @throws IOException if the ints cannot be mapped
+   */
+  public static DirectBigIntArray map(
+      SnapshotReader reader,
+      int length,
+      int nullEntry,
+      StatsReceiver statsReceiver) throws IOException {
+    IntBuffer[] shards = new IntBuffer[numShards(length)];
+    for (int i = 0; i < shards.length; i++) {
+      shards[i] = reader.mapInts(shardLength(length, i));
+    }
+    return new DirectBigIntArray(shards, length, nullEntry, length, statsReceiver);
+  }
+
+  private static int numShards(int length) {
+    return (int) (((long) length + SHARD_LENGTH - 1) >> SHARD_LENGTH_NUM_BITS);
+  }
+
+  private static int shardLength(int length, int shard) {
+    return Math.min(SHARD_LENGTH, length - (shard << SHARD_LENGTH_NUM_BITS));
+  }
+
+  private static IntBuffer[] allocateShards(int length) {
+    IntBuffer[] shards = new IntBuffer[numShards(length)];
+    for (int i = 0; i < shards.length; i++) {
+      shards[i] = ByteBuffer.allocateDirect(shardLength(length, i) * Integer.BYTES)
+          .order(ByteOrder.nativeOrder())
+          .asIntBuffer();
+    }
+    return shards;
+  }
+
+  private void fill(int value) {
+    for (IntBuffer shard : shards) {
+      for (int i = 0; i < shard.capacity(); i++) {
+        shard.put(i, value);
+      }
+    }
+  }
+
+  @Override
+  public void addEntry(int entry, int position) {
+    shards[position >> SHARD_LENGTH_NUM_BITS].put(position & OFFSET_MASK, entry);
+    numStoredEntries++;
+    numArrayEntries.incr();
+  }
+
+  @Override
+  public int getEntry(int position) {
+    if (position >= length) {
+      return nullEntry;
+    }
+    return shards[position >> SHARD_LENGTH_NUM_BITS].get(position & OFFSET_MASK);
+  }
+
+  @Override
+  public int incrementEntry(int position, int delta) {
+    IntBuffer shard = shards[position >> SHARD_LENGTH_NUM_BITS];
+    int offset = position & OFFSET_MASK;
+    int value = shard.get(offset) + delta;
+    shard.put(offset, value);
+    return value;
+  }
+
+  /**
+   * Each copy moves the position of its own view of a buffer, so that copies into disjoint ranges
+   * may run concurrently: readers only use absolute gets, which do not depend on positions.
+   */
+  @Override
+  public void arrayCopy(int[] src, int srcPos, int desPos, int length, boolean updateStats) {
+    int copied = 0;
+    while (copied < length) {
+      int position = desPos + copied;
+      IntBuffer shard = shards[position >> SHARD_LENGTH_NUM_BITS].duplicate();
+      int offset = position & OFFSET_MASK;
+      int chunk = Math.min(length - copied, shard.capacity() - offset);
+      ((Buffer) shard).position(offset);
+      shard.put(src, srcPos + copied, chunk);
+      copied += chunk;
+    }
+
+    if (updateStats) {
+      numStoredEntries += length;
+      numArrayEntries.incr(length);
+    }
+  }
+
+  @Override
+  public void reserve(int numEntries) {
+    Preconditions.checkArgument(numEntries <= length, "Cannot reserve past the end of the array");
+    // all the memory is allocated up front
+    numStoredEntries += numEntries;
+    numArrayEntries.incr(numEntries);
+  }
+
+  @Override
+  public double getFillPercentage() {
+    return length == 0 ? 0.0 : 100.0 * numStoredEntries / length;
+  }
+
+  @Override
+  public void reset() {
+    fill(nullEntry);
+    numStoredEntries = 0;
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.hashing;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+
+import com.twitter.graphjet.stats.Counter;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * A pool of int arrays that {@link ShardedBigIntArray}s hand back once nothing can read them
+ * anymore and take their new shards from, so that the shards of expired segments end up in new
+ * segments instead of going through the garbage collector, see
+ * {@link ShardedBigIntArray#setShardPool(IntShardPool)}.
+ *
+ * The pool keeps a queue of arrays per length and holds at most maxPooledInts ints in total: past
+ * that, released arrays are simply left to the garbage collector. This class is thread-safe.
+ */
+public class IntShardPool {
+  private final ConcurrentMap<Integer, Queue<int[]>> shardsByLength =
+      new ConcurrentHashMap<Integer, Queue<int[]>>();
+  private final long maxPooledInts;
+  private final AtomicLong numPooledInts = new AtomicLong();
+
+  private final Counter numReusedShardsCounter;
+  private final Counter numReleasedShardsCounter;
+  private final Counter numDroppedShardsCounter;
+
+  /**
+   * Creates an empty pool.
+   *
+   * @param maxPooledInts  is the maximum number of ints held by the pool across all the arrays,
+   *                       which should be about the size of the edge pools of one segment
+   * @param statsReceiver  tracks the internal stats
+   */
+  public IntShardPool(long maxPooledInts, StatsReceiver statsReceiver) {
+    Preconditions.checkArgument(maxPooledInts >= 0, "maxPooledInts must not be negative.");
+    this.maxPooledInts = maxPooledInts;
+    StatsReceiver scopedStatsReceiver = statsReceiver.scope(this.getClass().getSimpleName());
+    this.numReusedShardsCounter = scopedStatsReceiver.counter("numReusedShards");
+    this.numReleasedShardsCounter = scopedStatsReceiver.counter("numReleasedShards");
+    this.numDroppedShardsCounter = scopedStatsReceiver.counter("numDroppedShards");
+    scopedStatsReceiver.addGauge("numPooledInts", numPooledInts::get);
+  }
+
+  /**
+   * Takes an array of the given length out of the pool.
+   *
+   * @param length     is the length of the array
+   * @param nullEntry  is the value every entry of the returned array is set to
+   * @return an array of the given length, or null if the pool has none
+   */
+  public int[] acquire(int length, int nullEntry) {
+    Queue<int[]> shards = shardsByLength.get(length);
+    int[] shard = shards == null ? null : shards.poll();
+    if (shard == null) {
+      return null;
+    }
+    numPooledInts.addAndGet(-length);
+    Arrays.fill(shard, nullEntry);
+    numReusedShardsCounter.incr();
+    return shard;
+  }
+
+  /**
+   * Hands an array to the pool. The caller must guarantee that no thread reads or writes the array
+   * anymore.
+   *
+   * @param shard  is the array to put back
+   */
+  public void release(int[] shard) {
+    if (numPooledInts.addAndGet(shard.length) > maxPooledInts) {
+      numPooledInts.addAndGet(-shard.length);
+      numDroppedShardsCounter.incr();
+      return;
+    }
+    Queue<int[]> shards = shardsByLength.get(shard.length);
+    if (shards == null) {
+      Queue<int[]> newShards = new ConcurrentLinkedQueue<int[]>();
+      shards = shardsByLength.putIfAbsent(shard.length, newShards);
+      if (shards == null) {
+        shards = newShards;
+      }
+    }
+    shards.add(shard);
+    numReleasedShardsCounter.incr();
+  }
+
+  public long getNumPooledInts() {
+    return numPooledInts.get();
+  }
+}
@@ -52,9 +52,26 @@ public class IntToIntPairArrayIndexBasedMap implements IntToIntPairHashMap {
       int expectedNumNodes,
       int defaultReturnValue,
       StatsReceiver statsReceiver) {
+    this(expectedNumNodes, defaultReturnValue, BigArrayStorage.HEAP, statsReceiver);
+  }
+
+  /**
+   * Returns a new instance backed by the given storage. Off-heap storage cannot grow, so only keys
+   * below expectedNumNodes can then be inserted.
+   *
+   * @param expectedNumNodes          is the expected number of keys that can be inserted in this
+   *                                  map.
+   * @param defaultReturnValue        is what a get returns to indicate empty.
+   * @param storage                   is where the backing array is kept
+   */
+  public IntToIntPairArrayIndexBasedMap(
+      int expectedNumNodes,
+      int defaultReturnValue,
+      BigArrayStorage storage,
+      StatsReceiver statsReceiver) {
     StatsReceiver scopedStatsReceiver = statsReceiver.scope(this.getClass().getSimpleName());
     int arraySize = Math.max(expectedNumNodes << 1, 8);
-    this.array = new ShardedBigIntArray(
+    this.array = storage.newIntArray(
         arraySize,
         ShardedBigIntArray.PREFERRED_EDGES_PER_SHARD,
         defaultReturnValue,
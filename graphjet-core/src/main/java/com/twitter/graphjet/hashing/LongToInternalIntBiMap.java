@@ -17,6 +17,10 @@
 
 package com.twitter.graphjet.hashing;
 
+import java.io.IOException;
+
+import com.twitter.graphjet.snapshot.SnapshotWriter;
+
 /**
  * This interface specifies the contract for a bi-directional long -> int map. This differs from
  * usual maps in that the given long keys are mapped _internally_ to some ints where the mapping is
@@ -54,4 +58,17 @@ public interface LongToInternalIntBiMap {
    * Clears the state of the map and re-initializes for use. This method is NOT thread-safe!
    */
   void clear();
+
+  /**
+   * Writes the complete state of the map, including the internal ids handed out so far, so that
+   * an identical map can be restored from it. Implementations that cannot be restored throw
+   * {@link UnsupportedOperationException}. This method must not race with writers of the map.
+   *
+   * @param writer is where the map is written to.
+   * @throws IOException if the underlying write fails.
+   */
+  default void writeTo(SnapshotWriter writer) throws IOException {
+    throw new UnsupportedOperationException(
+        getClass().getSimpleName() + " does not support snapshots");
+  }
 }
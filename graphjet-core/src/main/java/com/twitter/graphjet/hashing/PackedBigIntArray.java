@@ -0,0 +1,292 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.hashing;
+
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * A read-only int array compressed with frame-of-reference bit-packing: the entries are cut into
+ * blocks of {@link BitPacking#BLOCK_SIZE}, and each block stores its minimum entry along with the
+ * difference of every entry to it using just as many bits as the largest difference needs. Unlike
+ * variable length encodings, every entry can still be decoded in constant time from its position,
+ * so random access and sampling work just as on a plain array.
+ *
+ * Edges carry their type in their highest bits (see
+ * {@link com.twitter.graphjet.bipartite.api.EdgeTypeMask}), so a block mixing a few edge types
+ * would need all 32 bits per entry with a single base. Every block is therefore split at the bit
+ * that makes it smallest: the bits below the split and the bits above it are each stored relative
+ * to their own minimum, with their own width, and both parts of an entry sit next to each other so
+ * that it is still decoded with a single read.
+ *
+ * The array is built in one go from fully written entries, e.g. the edges of an optimized segment,
+ * and can then only be read. Positions past the end of the array read as 0.
+ */
+public class PackedBigIntArray implements BigIntArray {
+  private static final long UNSIGNED_INT_MASK = 0xFFFFFFFFL;
+
+  private final int length;
+  // the bits below the split of a block are its low part, the ones above it its high part
+  private final byte[] blockSplits;
+  private final int[] blockLowBases;
+  private final int[] blockHighBases;
+  private final byte[] blockLowWidths;
+  private final byte[] blockWidths;
+  private final int[] blockStartWords;
+  private final long[] words;
+
+  private PackedBigIntArray(
+      int length,
+      byte[] blockSplits,
+      int[] blockLowBases,
+      int[] blockHighBases,
+      byte[] blockLowWidths,
+      byte[] blockWidths,
+      int[] blockStartWords,
+      long[] words) {
+    this.length = length;
+    this.blockSplits = blockSplits;
+    this.blockLowBases = blockLowBases;
+    this.blockHighBases = blockHighBases;
+    this.blockLowWidths = blockLowWidths;
+    this.blockWidths = blockWidths;
+    this.blockStartWords = blockStartWords;
+    this.words = words;
+  }
+
+  /**
+   * Packs the first length entries of the given array.
+   *
+   * @param source         is the array to pack
+   * @param length         is the number of entries to pack
+   * @param statsReceiver  is used to update storage stats
+   * @return the packed copy of the entries
+   */
+  public static PackedBigIntArray pack(
+      BigIntArray source, int length, StatsReceiver statsReceiver) {
+    return pack(
+        (position, block, count) -> source.getEntries(position, block, 0, count),
+        length,
+        statsReceiver);
+  }
+
+  /**
+   * Packs the first length entries of the given array.
+   *
+   * @param source         is the array to pack
+   * @param length         is the number of entries to pack
+   * @param statsReceiver  is used to update storage stats
+   * @return the packed copy of the entries
+   */
+  public static PackedBigIntArray pack(int[] source, int length, StatsReceiver statsReceiver) {
+    return pack(
+        (position, block, count) -> System.arraycopy(source, position, block, 0, count),
+        length,
+        statsReceiver);
+  }
+
+  /**
+   * Reads the entries to pack, one block at a time. Packing reads all the blocks in order twice,
+   * so a reader may rely on being asked for the next block or for the first one.
+   */
+  public interface BlockReader {
+    /**
+     * Copies the entries of a block.
+     *
+     * @param position  is the position of the first entry of the block
+     * @param block     is where the entries are copied to
+     * @param count     is the number of entries in the block
+     */
+    void readBlock(int position, int[] block, int count);
+  }
+
+  /**
+   * Packs the entries that the given reader returns, which lets them be packed without being
+   * written to an array first.
+   *
+   * @param source         is where the entries are read from
+   * @param length         is the number of entries to pack
+   * @param statsReceiver  is used to update storage stats
+   * @return the packed entries
+   */
+  public static PackedBigIntArray pack(
+      BlockReader source, int length, StatsReceiver statsReceiver) {
+    int numBlocks = (length + BitPacking.BLOCK_SIZE - 1) >>> BitPacking.BLOCK_SIZE_NUM_BITS;
+    byte[] blockSplits = new byte[numBlocks];
+    int[] blockLowBases = new int[numBlocks];
+    int[] blockHighBases = new int[numBlocks];
+    byte[] blockLowWidths = new byte[numBlocks];
+    byte[] blockWidths = new byte[numBlocks];
+    int[] blockStartWords = new int[numBlocks];
+    int[] block = new int[BitPacking.BLOCK_SIZE];
+
+    // the first pass sizes the blocks, the second one packs them
+    long numBits = 0;
+    for (int b = 0; b < numBlocks; b++) {
+      int blockLength = readBlock(source, length, b, block);
+      // a block split at 32 bits is plain frame-of-reference, which wins ties
+      int bestSplit = Integer.SIZE;
+      int bestLowWidth = Integer.SIZE + 1;
+      int bestWidth = Integer.SIZE + 1;
+      for (int split = Integer.SIZE; split >= 0; split--) {
+        long lowMask = (1L << split) - 1;
+        long minLow = Long.MAX_VALUE;
+        long maxLow = 0;
+        long minHigh = Long.MAX_VALUE;
+        long maxHigh = 0;
+        for (int i = 0; i < blockLength; i++) {
+          long entry = block[i] & UNSIGNED_INT_MASK;
+          minLow = Math.min(minLow, entry & lowMask);
+          maxLow = Math.max(maxLow, entry & lowMask);
+          minHigh = Math.min(minHigh, entry >>> split);
+          maxHigh = Math.max(maxHigh, entry >>> split);
+        }
+        int lowWidth = BitPacking.bitWidth(maxLow - minLow);
+        int width = lowWidth + BitPacking.bitWidth(maxHigh - minHigh);
+        if (width < bestWidth) {
+          bestSplit = split;
+          bestLowWidth = lowWidth;
+          bestWidth = width;
+          blockLowBases[b] = (int) minLow;
+          blockHighBases[b] = (int) minHigh;
+        }
+      }
+      blockSplits[b] = (byte) bestSplit;
+      blockLowWidths[b] = (byte) bestLowWidth;
+      blockWidths[b] = (byte) bestWidth;
+      blockStartWords[b] = BitPacking.numWords(numBits);
+      numBits = ((long) blockStartWords[b] << 6) + (long) blockLength * blockWidths[b];
+    }
+
+    long[] words = new long[BitPacking.numWords(numBits)];
+    for (int b = 0; b < numBlocks; b++) {
+      int blockLength = readBlock(source, length, b, block);
+      int split = blockSplits[b];
+      long lowMask = (1L << split) - 1;
+      long lowBase = blockLowBases[b] & UNSIGNED_INT_MASK;
+      long highBase = blockHighBases[b] & UNSIGNED_INT_MASK;
+      long bitPosition = (long) blockStartWords[b] << 6;
+      for (int i = 0; i < blockLength; i++) {
+        long entry = block[i] & UNSIGNED_INT_MASK;
+        long packedEntry = ((entry & lowMask) - lowBase)
+            | (((entry >>> split) - highBase) << blockLowWidths[b]);
+        BitPacking.write(words, bitPosition, packedEntry, blockWidths[b]);
+        bitPosition += blockWidths[b];
+      }
+    }
+
+    StatsReceiver scopedStatsReceiver = statsReceiver.scope("PackedBigIntArray");
+    scopedStatsReceiver.counter("numArrayEntries").incr(length);
+    scopedStatsReceiver.counter("numAllocatedWords").incr(words.length);
+    return new PackedBigIntArray(length, blockSplits, blockLowBases, blockHighBases,
+        blockLowWidths, blockWidths, blockStartWords, words);
+  }
+
+  private static int readBlock(BlockReader source, int length, int blockNumber, int[] block) {
+    int start = blockNumber << BitPacking.BLOCK_SIZE_NUM_BITS;
+    int blockLength = Math.min(BitPacking.BLOCK_SIZE, length - start);
+    source.readBlock(start, block, blockLength);
+    return blockLength;
+  }
+
+  private int decode(int blockNumber, long packedEntry) {
+    int lowWidth = blockLowWidths[blockNumber];
+    long low = (blockLowBases[blockNumber] & UNSIGNED_INT_MASK)
+        + (packedEntry & ((1L << lowWidth) - 1));
+    long high = (blockHighBases[blockNumber] & UNSIGNED_INT_MASK) + (packedEntry >>> lowWidth);
+    return (int) ((high << blockSplits[blockNumber]) | low);
+  }
+
+  @Override
+  public int getEntry(int position) {
+    if (position >= length) {
+      return 0;
+    }
+    int blockNumber = position >>> BitPacking.BLOCK_SIZE_NUM_BITS;
+    int width = blockWidths[blockNumber];
+    long bitPosition = ((long) blockStartWords[blockNumber] << 6)
+        + (long) (position & BitPacking.BLOCK_OFFSET_MASK) * width;
+    return decode(blockNumber, BitPacking.read(words, bitPosition, width));
+  }
+
+  /**
+   * Decodes consecutive entries, which is cheaper than getting them one by one as the block
+   * header is only read once per block.
+   */
+  @Override
+  public void getEntries(int position, int[] dest, int destPos, int count) {
+    int decoded = 0;
+    while (decoded < count) {
+      int current = position + decoded;
+      int blockNumber = current >>> BitPacking.BLOCK_SIZE_NUM_BITS;
+      int offset = current & BitPacking.BLOCK_OFFSET_MASK;
+      int chunk = Math.min(count - decoded, BitPacking.BLOCK_SIZE - offset);
+      int split = blockSplits[blockNumber];
+      int lowWidth = blockLowWidths[blockNumber];
+      long lowMask = (1L << lowWidth) - 1;
+      long lowBase = blockLowBases[blockNumber] & UNSIGNED_INT_MASK;
+      long highBase = blockHighBases[blockNumber] & UNSIGNED_INT_MASK;
+      int width = blockWidths[blockNumber];
+      long bitPosition = ((long) blockStartWords[blockNumber] << 6) + (long) offset * width;
+      for (int i = 0; i < chunk; i++) {
+        long packedEntry = BitPacking.read(words, bitPosition, width);
+        dest[destPos + decoded + i] = (int) (((highBase + (packedEntry >>> lowWidth)) << split)
+            | (lowBase + (packedEntry & lowMask)));
+        bitPosition += width;
+      }
+      decoded += chunk;
+    }
+  }
+
+  /**
+   * @return the number of bytes used to store the entries
+   */
+  public long getNumBytes() {
+    return (long) words.length * Long.BYTES
+        + (long) blockStartWords.length * (3 * Integer.BYTES + 3);
+  }
+
+  @Override
+  public void addEntry(int entry, int position) {
+    throw new UnsupportedOperationException("PackedBigIntArray is read-only");
+  }
+
+  @Override
+  public int incrementEntry(int position, int delta) {
+    throw new UnsupportedOperationException("PackedBigIntArray is read-only");
+  }
+
+  @Override
+  public void arrayCopy(int[] src, int srcPos, int desPos, int length, boolean updateStats) {
+    throw new UnsupportedOperationException("PackedBigIntArray is read-only");
+  }
+
+  @Override
+  public void reserve(int numEntries) {
+    throw new UnsupportedOperationException("PackedBigIntArray is read-only");
+  }
+
+  @Override
+  public double getFillPercentage() {
+    return length == 0 ? 0.0 : 100.0;
+  }
+
+  @Override
+  public void reset() {
+    throw new UnsupportedOperationException("PackedBigIntArray is read-only");
+  }
+}
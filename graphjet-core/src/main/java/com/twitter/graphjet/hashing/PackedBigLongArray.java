@@ -0,0 +1,220 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.hashing;
+
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * A read-only long array compressed with frame-of-reference bit-packing: the entries are cut into
+ * blocks of {@link BitPacking#BLOCK_SIZE}, and each block stores its minimum entry along with the
+ * difference of every entry to it using just as many bits as the largest difference needs. Unlike
+ * variable length encodings, every entry can still be decoded in constant time from its position,
+ * so random access and sampling work just as on a plain array.
+ *
+ * The array is built in one go from fully written entries, e.g. the edges of an optimized segment,
+ * and can then only be read. Positions past the end of the array read as 0.
+ */
+public class PackedBigLongArray implements BigLongArray {
+  private final int length;
+  private final long[] blockBases;
+  private final byte[] blockWidths;
+  private final int[] blockStartWords;
+  private final long[] words;
+
+  private PackedBigLongArray(
+      int length,
+      long[] blockBases,
+      byte[] blockWidths,
+      int[] blockStartWords,
+      long[] words) {
+    this.length = length;
+    this.blockBases = blockBases;
+    this.blockWidths = blockWidths;
+    this.blockStartWords = blockStartWords;
+    this.words = words;
+  }
+
+  /**
+   * Packs the first length entries of the given array.
+   *
+   * @param source         is the array to pack
+   * @param length         is the number of entries to pack
+   * @param statsReceiver  is used to update storage stats
+   * @return the packed copy of the entries
+   */
+  public static PackedBigLongArray pack(
+      BigLongArray source, int length, StatsReceiver statsReceiver) {
+    return pack(
+        (position, block, count) -> {
+          for (int i = 0; i < count; i++) {
+            block[i] = source.getEntry(position + i);
+          }
+        },
+        length,
+        statsReceiver);
+  }
+
+  /**
+   * Reads the entries to pack, one block at a time. Packing reads all the blocks in order twice,
+   * so a reader may rely on being asked for the next block or for the first one.
+   */
+  public interface BlockReader {
+    /**
+     * Copies the entries of a block.
+     *
+     * @param position  is the position of the first entry of the block
+     * @param block     is where the entries are copied to
+     * @param count     is the number of entries in the block
+     */
+    void readBlock(int position, long[] block, int count);
+  }
+
+  /**
+   * Packs the entries that the given reader returns, which lets them be packed without being
+   * written to an array first.
+   *
+   * @param source         is where the entries are read from
+   * @param length         is the number of entries to pack
+   * @param statsReceiver  is used to update storage stats
+   * @return the packed entries
+   */
+  public static PackedBigLongArray pack(
+      BlockReader source, int length, StatsReceiver statsReceiver) {
+    int numBlocks = (length + BitPacking.BLOCK_SIZE - 1) >>> BitPacking.BLOCK_SIZE_NUM_BITS;
+    long[] blockBases = new long[numBlocks];
+    byte[] blockWidths = new byte[numBlocks];
+    int[] blockStartWords = new int[numBlocks];
+    long[] block = new long[BitPacking.BLOCK_SIZE];
+
+    // the first pass sizes the blocks, the second one packs them
+    long numBits = 0;
+    for (int b = 0; b < numBlocks; b++) {
+      int blockLength = readBlock(source, length, b, block);
+      long base = block[0];
+      long max = block[0];
+      for (int i = 1; i < blockLength; i++) {
+        base = Math.min(base, block[i]);
+        max = Math.max(max, block[i]);
+      }
+      blockBases[b] = base;
+      // the difference fits in 64 bits when read as an unsigned value
+      blockWidths[b] = (byte) BitPacking.bitWidth(max - base);
+      blockStartWords[b] = BitPacking.numWords(numBits);
+      numBits = ((long) blockStartWords[b] << 6) + (long) blockLength * blockWidths[b];
+    }
+
+    long[] words = new long[BitPacking.numWords(numBits)];
+    for (int b = 0; b < numBlocks; b++) {
+      int blockLength = readBlock(source, length, b, block);
+      long bitPosition = (long) blockStartWords[b] << 6;
+      for (int i = 0; i < blockLength; i++) {
+        BitPacking.write(words, bitPosition, block[i] - blockBases[b], blockWidths[b]);
+        bitPosition += blockWidths[b];
+      }
+    }
+
+    StatsReceiver scopedStatsReceiver = statsReceiver.scope("PackedBigLongArray");
+    scopedStatsReceiver.counter("numArrayEntries").incr(length);
+    scopedStatsReceiver.counter("numAllocatedWords").incr(words.length);
+    return new PackedBigLongArray(length, blockBases, blockWidths, blockStartWords, words);
+  }
+
+  private static int readBlock(BlockReader source, int length, int blockNumber, long[] block) {
+    int start = blockNumber << BitPacking.BLOCK_SIZE_NUM_BITS;
+    int blockLength = Math.min(BitPacking.BLOCK_SIZE, length - start);
+    source.readBlock(start, block, blockLength);
+    return blockLength;
+  }
+
+  @Override
+  public long getEntry(int position) {
+    if (position >= length) {
+      return 0L;
+    }
+    int blockNumber = position >>> BitPacking.BLOCK_SIZE_NUM_BITS;
+    int width = blockWidths[blockNumber];
+    long bitPosition = ((long) blockStartWords[blockNumber] << 6)
+        + (long) (position & BitPacking.BLOCK_OFFSET_MASK) * width;
+    return blockBases[blockNumber] + BitPacking.read(words, bitPosition, width);
+  }
+
+  /**
+   * Decodes consecutive entries, which is cheaper than getting them one by one as the block
+   * header is only read once per block.
+   *
+   * @param position  is the position of the first entry to decode
+   * @param dest      is where the entries are decoded to
+   * @param destPos   is the position in dest of the first decoded entry
+   * @param count     is the number of entries to decode
+   */
+  public void decode(int position, long[] dest, int destPos, int count) {
+    int decoded = 0;
+    while (decoded < count) {
+      int current = position + decoded;
+      int blockNumber = current >>> BitPacking.BLOCK_SIZE_NUM_BITS;
+      int offset = current & BitPacking.BLOCK_OFFSET_MASK;
+      int chunk = Math.min(count - decoded, BitPacking.BLOCK_SIZE - offset);
+      long base = blockBases[blockNumber];
+      int width = blockWidths[blockNumber];
+      long bitPosition = ((long) blockStartWords[blockNumber] << 6) + (long) offset * width;
+      for (int i = 0; i < chunk; i++) {
+        dest[destPos + decoded + i] = base + BitPacking.read(words, bitPosition, width);
+        bitPosition += width;
+      }
+      decoded += chunk;
+    }
+  }
+
+  /**
+   * @return the number of bytes used to store the entries
+   */
+  public long getNumBytes() {
+    return (long) words.length * Long.BYTES
+        + (long) blockBases.length * (Long.BYTES + Integer.BYTES + 1);
+  }
+
+  @Override
+  public void addEntry(long entry, int position) {
+    throw new UnsupportedOperationException("PackedBigLongArray is read-only");
+  }
+
+  @Override
+  public long incrementEntry(int position, long delta) {
+    throw new UnsupportedOperationException("PackedBigLongArray is read-only");
+  }
+
+  @Override
+  public void arrayCopy(long[] src, int srcPos, int desPos, int length, boolean updateStats) {
+    throw new UnsupportedOperationException("PackedBigLongArray is read-only");
+  }
+
+  @Override
+  public void reserve(int numEntries) {
+    throw new UnsupportedOperationException("PackedBigLongArray is read-only");
+  }
+
+  @Override
+  public double getFillPercentage() {
+    return length == 0 ? 0.0 : 100.0;
+  }
+
+  @Override
+  public void reset() {
+    throw new UnsupportedOperationException("PackedBigLongArray is read-only");
+  }
+}
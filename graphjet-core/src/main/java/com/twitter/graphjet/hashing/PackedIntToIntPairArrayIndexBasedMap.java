@@ -0,0 +1,164 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.hashing;
+
+import com.google.common.base.Preconditions;
+
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * A read-only {@link IntToIntPairHashMap} from the keys 0 to numKeys - 1 to the start position and
+ * the length of a range of some larger array, where the ranges are laid out one after the other in
+ * key order. This is how optimized edge pools keep the position and the degree of every node. Only
+ * the start positions are stored, bit-packed in a {@link PackedBigIntArray} since they only grow,
+ * and the length of a range is the distance to the next one. Keys with an empty range are absent.
+ *
+ * Memory usage: a few bits per key, i.e. the number of bits of the total length of the ranges of
+ * 128 consecutive keys, instead of 8 bytes per key for {@link IntToIntPairArrayIndexBasedMap}.
+ */
+public class PackedIntToIntPairArrayIndexBasedMap implements IntToIntPairHashMap {
+  private final PackedBigIntArray positions;
+  private final int numKeys;
+  private final int defaultReturnValue;
+
+  private PackedIntToIntPairArrayIndexBasedMap(
+      PackedBigIntArray positions, int numKeys, int defaultReturnValue) {
+    this.positions = positions;
+    this.numKeys = numKeys;
+    this.defaultReturnValue = defaultReturnValue;
+  }
+
+  /**
+   * Packs the given map, whose present keys must map to consecutive ranges in key order.
+   *
+   * @param map                 is the map to pack
+   * @param numKeys             is one more than the largest key of the map
+   * @param defaultReturnValue  is what the map returns for absent keys
+   * @param statsReceiver       is used to update storage stats
+   * @return the packed copy of the map
+   */
+  public static PackedIntToIntPairArrayIndexBasedMap pack(
+      IntToIntPairHashMap map,
+      int numKeys,
+      int defaultReturnValue,
+      StatsReceiver statsReceiver) {
+    int[] startPositions = new int[numKeys + 1];
+    int position = 0;
+    for (int key = 0; key < numKeys; key++) {
+      startPositions[key] = position;
+      int length = map.getSecondValue(key);
+      if (length != defaultReturnValue && length > 0) {
+        Preconditions.checkArgument(map.getFirstValue(key) == position,
+            "The ranges of the map need to be consecutive in key order.");
+        position += length;
+      }
+    }
+    startPositions[numKeys] = position;
+    return pack(startPositions, numKeys, defaultReturnValue, statsReceiver);
+  }
+
+  /**
+   * Packs a map whose keys are mapped to consecutive ranges of the given lengths in key order,
+   * without building the map first. Keys with a length of 0 are absent.
+   *
+   * @param lengths             are the lengths of the ranges, indexed by key
+   * @param defaultReturnValue  is what the map returns for absent keys
+   * @param statsReceiver       is used to update storage stats
+   * @return the packed map
+   */
+  public static PackedIntToIntPairArrayIndexBasedMap packLengths(
+      int[] lengths,
+      int defaultReturnValue,
+      StatsReceiver statsReceiver) {
+    int numKeys = lengths.length;
+    int[] startPositions = new int[numKeys + 1];
+    for (int key = 0; key < numKeys; key++) {
+      startPositions[key + 1] = startPositions[key] + lengths[key];
+    }
+    return pack(startPositions, numKeys, defaultReturnValue, statsReceiver);
+  }
+
+  private static PackedIntToIntPairArrayIndexBasedMap pack(
+      int[] startPositions,
+      int numKeys,
+      int defaultReturnValue,
+      StatsReceiver statsReceiver) {
+    return new PackedIntToIntPairArrayIndexBasedMap(
+        PackedBigIntArray.pack(startPositions, numKeys + 1, statsReceiver),
+        numKeys,
+        defaultReturnValue);
+  }
+
+  @Override
+  public int getFirstValue(int key) {
+    if (key < 0 || key >= numKeys) {
+      return defaultReturnValue;
+    }
+    int position = positions.getEntry(key);
+    return positions.getEntry(key + 1) == position ? defaultReturnValue : position;
+  }
+
+  @Override
+  public int getSecondValue(int key) {
+    if (key < 0 || key >= numKeys) {
+      return defaultReturnValue;
+    }
+    int length = positions.getEntry(key + 1) - positions.getEntry(key);
+    return length == 0 ? defaultReturnValue : length;
+  }
+
+  @Override
+  public long getBothValues(int key) {
+    if (key < 0 || key >= numKeys) {
+      return defaultReturnValue;
+    }
+    int position = positions.getEntry(key);
+    int length = positions.getEntry(key + 1) - position;
+    if (length == 0) {
+      return defaultReturnValue;
+    }
+    return ((long) position << 32) + length;
+  }
+
+  /**
+   * @return the number of bytes used to store the map
+   */
+  public long getNumBytes() {
+    return positions.getNumBytes();
+  }
+
+  @Override
+  public boolean put(int key, int firstValue, int secondValue) {
+    throw new UnsupportedOperationException("PackedIntToIntPairArrayIndexBasedMap is read-only");
+  }
+
+  @Override
+  public int incrementFirstValue(int key) {
+    throw new UnsupportedOperationException("PackedIntToIntPairArrayIndexBasedMap is read-only");
+  }
+
+  @Override
+  public int incrementSecondValue(int key, int delta) {
+    throw new UnsupportedOperationException("PackedIntToIntPairArrayIndexBasedMap is read-only");
+  }
+
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException("PackedIntToIntPairArrayIndexBasedMap is read-only");
+  }
+}
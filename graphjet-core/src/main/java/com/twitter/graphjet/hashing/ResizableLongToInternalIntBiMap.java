@@ -0,0 +1,355 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.hashing;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.google.common.base.Preconditions;
+
+import com.twitter.graphjet.snapshot.SnapshotReader;
+import com.twitter.graphjet.snapshot.SnapshotWriter;
+import com.twitter.graphjet.stats.Counter;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+/**
+ * A bi-indexed map that grows with the number of keys instead of chaining fixed-length maps like
+ * {@link ArrayBasedLongToInternalIntBiMap}, so that lookups stay a single linear probe sequence no
+ * matter how far off the expected number of keys was. All the operations in this class are
+ * thread-safe under the single writer and multiple readers model.
+ *
+ * Internal ids are handed out densely in insertion order and are kept in a separate array indexed
+ * by id, so they never change when the hash table is resized. The hash table only maps keys to ids:
+ * once it fills up to the load factor, the writer allocates a table twice as large and moves the
+ * old entries over a few slots at a time on the following puts, instead of rehashing all of them at
+ * once. Until the move is done, lookups check the new table and then the old one, which the writer
+ * leaves untouched, so they cost at most two probe sequences.
+ *
+ * Memory usage: let n be the number of keys inserted. The hash table takes 12*n/load_factor bytes
+ * rounded up to a power of two, and the id array 8*n bytes rounded up to a power of two. While a
+ * resize is in progress the old table is kept around as well.
+ */
+public class ResizableLongToInternalIntBiMap implements LongToInternalIntBiMap {
+  /**
+   * This class encapsulates ALL the state that will be accessed by a reader, and is replaced as a
+   * whole whenever the writer allocates new arrays.
+   */
+  private static final class ReaderAccessibleInfo {
+    private final long[] keysById;
+    private final long[] tableKeys;
+    // id + 1 of the key in the same slot of tableKeys, with 0 marking a free slot
+    private final AtomicIntegerArray tableIds;
+    // the table that is being moved into tableKeys and tableIds, if any
+    private final long[] oldTableKeys;
+    private final AtomicIntegerArray oldTableIds;
+
+    private ReaderAccessibleInfo(
+        long[] keysById,
+        long[] tableKeys,
+        AtomicIntegerArray tableIds,
+        long[] oldTableKeys,
+        AtomicIntegerArray oldTableIds) {
+      this.keysById = keysById;
+      this.tableKeys = tableKeys;
+      this.tableIds = tableIds;
+      this.oldTableKeys = oldTableKeys;
+      this.oldTableIds = oldTableIds;
+    }
+  }
+
+  private static final int MIN_TABLE_LENGTH = 16;
+  // this is enough to finish a move before the next resize for load factors down to 1/8, and a
+  // smaller load factor simply finishes the move at the next resize
+  private static final int MIGRATED_SLOTS_PER_PUT = 8;
+  private static final int NOT_FOUND = -1;
+
+  private final int expectedNumKeys;
+  private final double loadFactor;
+  private final int defaultGetReturnValue;
+  private final long defaultGetKeyReturnValue;
+
+  // stats
+  private final Counter numStoredKeysCounter;
+  private final Counter numResizesCounter;
+  private final Counter totalAllocatedArrayBytesCounter;
+
+  private volatile ReaderAccessibleInfo readerAccessibleInfo;
+
+  // only seen by the writer
+  private int numKeys;
+  private int resizeThreshold;
+  private int migrationCursor;
+
+  /**
+   * Returns a new instance that allocates arrays for the expected number of keys up front.
+   *
+   * @param expectedNumKeys           is the expected number of keys that will be inserted in this
+   *                                  map. Inserting more keys than this grows the map, which costs
+   *                                  some memory churn but does not slow down lookups.
+   * @param loadFactor                is the load factor of the hash table, in (0, 1): stay below
+   *                                  0.75, and if you want very fast performance, at 0.5.
+   * @param defaultGetReturnValue     is what a get returns to indicate empty, and must be negative.
+   * @param defaultGetKeyReturnValue  is what a getKey returns to indicate empty. Please note that
+   *                                  it is the client's responsibility to ensure that this value is
+   *                                  disjoint from the keys in the map.
+   * @param statsReceiver             enables keeping stats for this class
+   */
+  public ResizableLongToInternalIntBiMap(
+      int expectedNumKeys,
+      double loadFactor,
+      int defaultGetReturnValue,
+      long defaultGetKeyReturnValue,
+      StatsReceiver statsReceiver) {
+    Preconditions.checkArgument(loadFactor > 0.0 && loadFactor < 1.0,
+        "loadFactor must be in (0, 1).");
+    Preconditions.checkArgument(defaultGetReturnValue < 0,
+        "defaultGetReturnValue must NOT be one of the indices that can be returned otherwise.");
+    this.expectedNumKeys = Math.max(expectedNumKeys, 1);
+    this.loadFactor = loadFactor;
+    this.defaultGetReturnValue = defaultGetReturnValue;
+    this.defaultGetKeyReturnValue = defaultGetKeyReturnValue;
+    StatsReceiver scopedStatsReceiver = statsReceiver.scope(this.getClass().getSimpleName());
+    numStoredKeysCounter = scopedStatsReceiver.counter("numStoredKeys");
+    numResizesCounter = scopedStatsReceiver.counter("numResizes");
+    totalAllocatedArrayBytesCounter = scopedStatsReceiver.counter("allocatedArrayBytes");
+    initialize();
+  }
+
+  private void initialize() {
+    int tableLength = Math.max(
+        Integer.highestOneBit((int) (expectedNumKeys / loadFactor) - 1) << 1, MIN_TABLE_LENGTH);
+    long[] keysById = newKeysById(Integer.highestOneBit(expectedNumKeys - 1) << 1);
+    numKeys = 0;
+    migrationCursor = 0;
+    resizeThreshold = resizeThreshold(tableLength);
+    readerAccessibleInfo = new ReaderAccessibleInfo(
+        keysById, new long[tableLength], newTableIds(tableLength), null, null);
+  }
+
+  private long[] newKeysById(int length) {
+    long[] keysById = new long[Math.max(length, 1)];
+    if (defaultGetKeyReturnValue != 0) {
+      Arrays.fill(keysById, defaultGetKeyReturnValue);
+    }
+    totalAllocatedArrayBytesCounter.incr(8 * keysById.length);
+    return keysById;
+  }
+
+  private AtomicIntegerArray newTableIds(int tableLength) {
+    totalAllocatedArrayBytesCounter.incr(12 * tableLength);
+    return new AtomicIntegerArray(tableLength);
+  }
+
+  private int resizeThreshold(int tableLength) {
+    return Math.min((int) (tableLength * loadFactor), tableLength - 1);
+  }
+
+  // MurmurHash3's 64-bit finalizer, so that sequential ids spread over the whole table
+  private static int hash(long key) {
+    long h = key;
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return (int) h;
+  }
+
+  // Returns the id of the key in the given table, or NOT_FOUND
+  private static int find(long[] tableKeys, AtomicIntegerArray tableIds, long key) {
+    int mask = tableKeys.length - 1;
+    int slot = hash(key) & mask;
+    while (true) {
+      // reading the id first guarantees that the key in the slot is visible
+      int idPlusOne = tableIds.get(slot);
+      if (idPlusOne == 0) {
+        return NOT_FOUND;
+      }
+      if (tableKeys[slot] == key) {
+        return idPlusOne - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  // Only called by the writer, for a key that is known to be missing from the table
+  private static void insert(long[] tableKeys, AtomicIntegerArray tableIds, long key, int id) {
+    int mask = tableKeys.length - 1;
+    int slot = hash(key) & mask;
+    while (tableIds.get(slot) != 0) {
+      slot = (slot + 1) & mask;
+    }
+    tableKeys[slot] = key;
+    // this publishes the key to the readers, which read the id before the key
+    tableIds.set(slot, id + 1);
+  }
+
+  @Override
+  public int get(long key) {
+    ReaderAccessibleInfo info = readerAccessibleInfo;
+    int id = find(info.tableKeys, info.tableIds, key);
+    if (id == NOT_FOUND && info.oldTableIds != null) {
+      id = find(info.oldTableKeys, info.oldTableIds, key);
+    }
+    return id == NOT_FOUND ? defaultGetReturnValue : id;
+  }
+
+  /**
+   * Only a single writer can call this at one time. This method is NOT thread-safe!
+   */
+  @Override
+  public int put(long key) {
+    int id = get(key);
+    if (id != defaultGetReturnValue) {
+      return id;
+    }
+    id = numKeys;
+    ReaderAccessibleInfo info = readerAccessibleInfo;
+    if (id == info.keysById.length) {
+      Preconditions.checkState(id < Integer.MAX_VALUE / 2,
+          "Exceeded the max storage capacity for ResizableLongToInternalIntBiMap");
+      long[] newKeysById = newKeysById(2 * id);
+      System.arraycopy(info.keysById, 0, newKeysById, 0, id);
+      info = new ReaderAccessibleInfo(
+          newKeysById, info.tableKeys, info.tableIds, info.oldTableKeys, info.oldTableIds);
+      readerAccessibleInfo = info;
+    }
+    // the key is visible before the id gets out through the table
+    info.keysById[id] = key;
+    insert(info.tableKeys, info.tableIds, key, id);
+    numKeys++;
+    numStoredKeysCounter.incr();
+    if (info.oldTableIds != null) {
+      migrate(MIGRATED_SLOTS_PER_PUT);
+    }
+    if (numKeys >= resizeThreshold) {
+      resize();
+    }
+    return id;
+  }
+
+  // Moves the next numSlots slots of the old table into the current one, and drops the old table
+  // once it has been fully moved
+  private void migrate(int numSlots) {
+    ReaderAccessibleInfo info = readerAccessibleInfo;
+    int end = Math.min(migrationCursor + numSlots, info.oldTableKeys.length);
+    for (; migrationCursor < end; migrationCursor++) {
+      int idPlusOne = info.oldTableIds.get(migrationCursor);
+      if (idPlusOne != 0) {
+        insert(info.tableKeys, info.tableIds, info.oldTableKeys[migrationCursor], idPlusOne - 1);
+      }
+    }
+    if (migrationCursor == info.oldTableKeys.length) {
+      readerAccessibleInfo =
+          new ReaderAccessibleInfo(info.keysById, info.tableKeys, info.tableIds, null, null);
+    }
+  }
+
+  private void resize() {
+    ReaderAccessibleInfo info = readerAccessibleInfo;
+    if (info.oldTableIds != null) {
+      // only happens for very small load factors
+      migrate(Integer.MAX_VALUE);
+      info = readerAccessibleInfo;
+    }
+    int newTableLength = info.tableKeys.length << 1;
+    Preconditions.checkState(newTableLength > 0,
+        "Exceeded the max storage capacity for ResizableLongToInternalIntBiMap");
+    migrationCursor = 0;
+    resizeThreshold = resizeThreshold(newTableLength);
+    readerAccessibleInfo = new ReaderAccessibleInfo(
+        info.keysById,
+        new long[newTableLength],
+        newTableIds(newTableLength),
+        info.tableKeys,
+        info.tableIds);
+    numResizesCounter.incr();
+  }
+
+  @Override
+  public long getKey(int value) {
+    long[] keysById = readerAccessibleInfo.keysById;
+    if (value < 0 || value >= keysById.length) {
+      return defaultGetKeyReturnValue;
+    }
+    return keysById[value];
+  }
+
+  @Override
+  public void writeTo(SnapshotWriter writer) throws IOException {
+    ReaderAccessibleInfo info = readerAccessibleInfo;
+    writer.writeInt(expectedNumKeys);
+    writer.writeDouble(loadFactor);
+    writer.writeInt(defaultGetReturnValue);
+    writer.writeLong(defaultGetKeyReturnValue);
+    writer.writeInt(numKeys);
+    writer.writeLongs(info.keysById, 0, numKeys);
+  }
+
+  /**
+   * Reads back a map written by {@link #writeTo(SnapshotWriter)}. The restored map hands out the
+   * same internal ids as the original one and can keep accepting new keys.
+   *
+   * @param reader         is the reader positioned at the start of the map
+   * @param statsReceiver  tracks the internal stats
+   * @return the restored map
+   * @throws IOException if the underlying read fails
+   */
+  public static ResizableLongToInternalIntBiMap readFrom(
+      SnapshotReader reader,
+      StatsReceiver statsReceiver) throws IOException {
+    int expectedNumKeys = reader.readInt();
+    double loadFactor = reader.readDouble();
+    int defaultGetReturnValue = reader.readInt();
+    long defaultGetKeyReturnValue = reader.readLong();
+    int numKeys = reader.readInt();
+    long[] keys = new long[numKeys];
+    reader.readLongs(keys, 0, numKeys);
+    ResizableLongToInternalIntBiMap map = new ResizableLongToInternalIntBiMap(
+        Math.max(expectedNumKeys, numKeys),
+        loadFactor,
+        defaultGetReturnValue,
+        defaultGetKeyReturnValue,
+        statsReceiver);
+    // ids are handed out in insertion order, so inserting the keys in id order restores the ids
+    for (long key : keys) {
+      map.put(key);
+    }
+    return map;
+  }
+
+  /**
+   * Resets the internal state to the initial size, but note that counters are NOT reset!
+   */
+  @Override
+  public void clear() {
+    initialize();
+  }
+
+  protected int getNumStoredKeys() {
+    return numKeys;
+  }
+
+  protected int getTableLength() {
+    return readerAccessibleInfo.tableKeys.length;
+  }
+
+  protected boolean isResizing() {
+    return readerAccessibleInfo.oldTableIds != null;
+  }
+}
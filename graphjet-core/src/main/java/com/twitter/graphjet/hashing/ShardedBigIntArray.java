@@ -112,6 +112,10 @@ public class ShardedBigIntArray implements BigIntArray {
   private int numShards;
   private int numAllocatedSlotsForEntries;
   private int numStoredEntries;
+  // Where new shards are taken from before allocating fresh ones, if anywhere
+  private IntShardPool shardPool;
+  // Set once the shards are handed back to a pool, after which reads are a bug
+  private volatile boolean isReleased;
 
   /**
    * Reserves the needed memory for a {@link ShardedBigIntArray}, and initializes most of the
@@ -166,10 +170,25 @@ public class ShardedBigIntArray implements BigIntArray {
     numShards = newNumShards;
   }
 
+  /**
+   * Sets the pool that this array takes its new shards from, as long as it has shards of the right
+   * length. Shards only get back into the pool through {@link #releaseShards(IntShardPool)}. This
+   * is only meant to be called by the writer.
+   *
+   * @param pool is the new pool, or null to always allocate new shards
+   */
+  public void setShardPool(IntShardPool pool) {
+    shardPool = pool;
+  }
+
   private void allocateMemoryForShard(int shardId) {
-    int[] newShard = new int[shardLength];
-    if (nullEntry != 0) {
-      Arrays.fill(newShard, nullEntry);
+    IntShardPool pool = shardPool;
+    int[] newShard = pool == null ? null : pool.acquire(shardLength, nullEntry);
+    if (newShard == null) {
+      newShard = new int[shardLength];
+      if (nullEntry != 0) {
+        Arrays.fill(newShard, nullEntry);
+      }
     }
     readerAccessibleInfo.array[shardId] = newShard;
     numAllocatedSlotsForEntries += shardLength;
@@ -248,11 +267,20 @@ public class ShardedBigIntArray implements BigIntArray {
     int offset = position & offsetMask;
     // we may need more shards
     if ((shard >= numShards) || (readerAccessibleInfo.array[shard] == null)) {
+      checkNotReleased();
       return nullEntry;
     }
     return readerAccessibleInfo.array[shard][offset];
   }
 
+  // only checked on the path that finds no shard, which is what a released array looks like
+  private void checkNotReleased() {
+    if (isReleased) {
+      throw new IllegalStateException(
+          "Read from a ShardedBigIntArray whose shards were handed back to a pool");
+    }
+  }
+
   @Override
   public int incrementEntry(int position, int delta) {
     int shard = position >> shardLengthNumBits;
@@ -268,19 +296,59 @@ public class ShardedBigIntArray implements BigIntArray {
 
   public int[] getShard(int position) {
     int shard = position >> shardLengthNumBits;
-
-    return readerAccessibleInfo.array[shard];
+    int[] shardArray = readerAccessibleInfo.array[shard];
+    if (shardArray == null) {
+      checkNotReleased();
+    }
+    return shardArray;
   }
 
   public int getShardOffset(int position) {
     return position & offsetMask;
   }
 
+  @Override
+  public void reserve(int numEntries) {
+    if (numEntries == 0) {
+      return;
+    }
+    int lastShard = (numEntries - 1) >> shardLengthNumBits;
+    if (lastShard >= numShards) {
+      expandArray(lastShard);
+    }
+    for (int shard = 0; shard <= lastShard; shard++) {
+      if (readerAccessibleInfo.array[shard] == null) {
+        allocateMemoryForShard(shard);
+      }
+    }
+    numStoredEntries += numEntries;
+    numArrayEntries.incr(numEntries);
+  }
+
   @Override
   public double getFillPercentage() {
     return 100.0 * numStoredEntries / (double) numAllocatedSlotsForEntries;
   }
 
+  /**
+   * Hands all the shards of this array to the given pool, after which the array must not be used
+   * anymore. This is only safe once no reader can reach the array, which is for the caller to
+   * guarantee, e.g. through an {@link com.twitter.graphjet.bipartite.EpochReclaimer}.
+   *
+   * @param pool is where the shards go
+   */
+  public void releaseShards(IntShardPool pool) {
+    isReleased = true;
+    int[][] array = readerAccessibleInfo.array;
+    for (int i = 0; i < array.length; i++) {
+      if (array[i] != null) {
+        pool.release(array[i]);
+        array[i] = null;
+      }
+    }
+    numStoredEntries = 0;
+  }
+
   @Override
   public void reset() {
     numStoredEntries = 0;
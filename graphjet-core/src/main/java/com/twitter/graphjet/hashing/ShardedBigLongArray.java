@@ -261,6 +261,24 @@ public class ShardedBigLongArray implements BigLongArray {
     return position & offsetMask;
   }
 
+  @Override
+  public void reserve(int numEntries) {
+    if (numEntries == 0) {
+      return;
+    }
+    int lastShard = (numEntries - 1) >> shardLengthNumBits;
+    if (lastShard >= numShards) {
+      expandArray(lastShard);
+    }
+    for (int shard = 0; shard <= lastShard; shard++) {
+      if (readerAccessibleInfo.array[shard] == null) {
+        allocateMemoryForShard(shard);
+      }
+    }
+    numStoredEntries += numEntries;
+    numArrayEntries.incr(numEntries);
+  }
+
   @Override
   public double getFillPercentage() {
     return 100.0 * numStoredEntries / (double) numAllocatedSlotsForEntries;
@@ -91,6 +91,8 @@ public class SmallArrayBasedLongToDoubleMap {
   private int uniqueKeysSize;
   private LongSet keySet;
   private ObjectSet<Pair> keyMetadataPairSet;
+  // Reused for lookups in keyMetadataPairSet, so that only added pairs are allocated
+  private final Pair probePair = new Pair(0L, 0L);
 
   /**
    * Create a new empty array map.
@@ -177,19 +179,24 @@ public class SmallArrayBasedLongToDoubleMap {
       // If the size of the array is no less than ADD_KEYS_TO_SET_THRESHOLD, check against
       // keyMetadataPairSet for dedupping.
       if (keySet == null) {
-        keySet = new LongOpenHashSet(keys, 0.75f /* load factor */);
+        keySet = new LongOpenHashSet(size, 0.75f /* load factor */);
         keyMetadataPairSet = new ObjectOpenHashSet<>();
+      }
+      // The sets are empty when the map has just crossed the threshold, possibly after a clear
+      if (keySet.isEmpty()) {
         for (int i = 0; i < size; i++) {
+          keySet.add(keys[i]);
           keyMetadataPairSet.add(new Pair(keys[i], metadataArray[i]));
         }
       }
-      Pair pair = new Pair(key, metadata);
+      probePair.key = key;
+      probePair.metadata = metadata;
 
-      if (keyMetadataPairSet.contains(pair)) {
+      if (keyMetadataPairSet.contains(probePair)) {
         return false;
       } else {
         isUniqueKey = keySet.add(key);
-        keyMetadataPairSet.add(pair);
+        keyMetadataPairSet.add(new Pair(key, metadata));
       }
     }
 
@@ -207,6 +214,19 @@ public class SmallArrayBasedLongToDoubleMap {
     return true;
   }
 
+  /**
+   * Remove all the pairs from the map while keeping the allocated arrays and dedupping sets, so
+   * that the map can be reused.
+   */
+  public void clear() {
+    size = 0;
+    uniqueKeysSize = 0;
+    if (keySet != null) {
+      keySet.clear();
+      keyMetadataPairSet.clear();
+    }
+  }
+
   /**
    * Sort keys, values and metadataArray in the order of decreasing values.
    */
@@ -0,0 +1,196 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.snapshot;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+
+/**
+ * Reads back files written by {@link SnapshotWriter}. The file is memory-mapped read-only via
+ * {@link FileChannel#map} so that restoring a snapshot is bounded by page-cache/disk throughput
+ * rather than by per-element read calls. Since a single mapping is limited to 2GB, the file is
+ * mapped through a sliding window that is moved forward as the reader advances.
+ *
+ * This class is NOT thread-safe.
+ */
+public class SnapshotReader implements Closeable {
+  private static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+
+  private final FileChannel channel;
+  private final long fileSize;
+  private final long windowSize;
+  private MappedByteBuffer window;
+  private long windowStart;
+
+  /**
+   * Opens and maps the given file.
+   *
+   * @param file  is the file to read from
+   * @throws IOException if the file cannot be opened or mapped
+   */
+  public SnapshotReader(File file) throws IOException {
+    this(file, DEFAULT_WINDOW_SIZE);
+  }
+
+  @VisibleForTesting
+  SnapshotReader(File file, long windowSize) throws IOException {
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    this.fileSize = channel.size();
+    this.windowSize = windowSize;
+    mapWindow(0);
+  }
+
+  private void mapWindow(long start) throws IOException {
+    window = channel.map(
+        FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, fileSize - start));
+    window.order(SnapshotWriter.BYTE_ORDER);
+    windowStart = start;
+  }
+
+  private void ensureAvailable(int numBytes) throws IOException {
+    if (window.remaining() < numBytes) {
+      long position = getPosition();
+      if (fileSize - position < numBytes) {
+        throw new EOFException("Unexpected end of snapshot at offset " + position);
+      }
+      mapWindow(position);
+    }
+  }
+
+  public byte readByte() throws IOException {
+    ensureAvailable(Byte.BYTES);
+    return window.get();
+  }
+
+  public int readInt() throws IOException {
+    ensureAvailable(Integer.BYTES);
+    return window.getInt();
+  }
+
+  public long readLong() throws IOException {
+    ensureAvailable(Long.BYTES);
+    return window.getLong();
+  }
+
+  public double readDouble() throws IOException {
+    ensureAvailable(Double.BYTES);
+    return window.getDouble();
+  }
+
+  /**
+   * Reads ints into a range of the given array.
+   *
+   * @param dst     is the array to read into
+   * @param offset  is the first index in dst to fill
+   * @param length  is the number of ints to read
+   * @throws IOException if the file ends before length ints are read
+   */
+  public void readInts(int[] dst, int offset, int length) throws IOException {
+    int read = 0;
+    while (read < length) {
+      ensureAvailable(Integer.BYTES);
+      int chunk = Math.min(length - read, window.remaining() / Integer.BYTES);
+      window.asIntBuffer().get(dst, offset + read, chunk);
+      ((Buffer) window).position(window.position() + chunk * Integer.BYTES);
+      read += chunk;
+    }
+  }
+
+  /**
+   * Reads longs into a range of the given array.
+   *
+   * @param dst     is the array to read into
+   * @param offset  is the first index in dst to fill
+   * @param length  is the number of longs to read
+   * @throws IOException if the file ends before length longs are read
+   */
+  public void readLongs(long[] dst, int offset, int length) throws IOException {
+    int read = 0;
+    while (read < length) {
+      ensureAvailable(Long.BYTES);
+      int chunk = Math.min(length - read, window.remaining() / Long.BYTES);
+      window.asLongBuffer().get(dst, offset + read, chunk);
+      ((Buffer) window).position(window.position() + chunk * Long.BYTES);
+      read += chunk;
+    }
+  }
+
+  /**
+   * Maps the next length ints of the file as a read-only buffer, without copying them, and
+   * advances past them. The mapping stays valid after this reader is closed.
+   *
+   * @param length  is the number of ints to map, at most 2GB worth of them
+   * @return a read-only view of the ints
+   * @throws IOException if the file ends before length ints
+   */
+  public IntBuffer mapInts(int length) throws IOException {
+    return mapRegion((long) length * Integer.BYTES).asIntBuffer();
+  }
+
+  /**
+   * Maps the next length longs of the file as a read-only buffer, without copying them, and
+   * advances past them. The mapping stays valid after this reader is closed.
+   *
+   * @param length  is the number of longs to map, at most 2GB worth of them
+   * @return a read-only view of the longs
+   * @throws IOException if the file ends before length longs
+   */
+  public LongBuffer mapLongs(int length) throws IOException {
+    return mapRegion((long) length * Long.BYTES).asLongBuffer();
+  }
+
+  private MappedByteBuffer mapRegion(long numBytes) throws IOException {
+    long position = getPosition();
+    Preconditions.checkArgument(numBytes <= Integer.MAX_VALUE, "Cannot map more than 2GB at once");
+    if (fileSize - position < numBytes) {
+      throw new EOFException("Unable to map " + numBytes + " bytes at offset " + position);
+    }
+    MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, numBytes);
+    region.order(SnapshotWriter.BYTE_ORDER);
+    mapWindow(position + numBytes);
+    return region;
+  }
+
+  /**
+   * Returns the offset in the file of the next byte to be read.
+   */
+  public long getPosition() {
+    return windowStart + window.position();
+  }
+
+  /**
+   * Closes the file. Arrays filled by this reader are on-heap copies and, like the buffers handed
+   * out by {@link #mapInts(int)} and {@link #mapLongs(int)}, remain valid.
+   *
+   * @throws IOException if closing the file fails
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
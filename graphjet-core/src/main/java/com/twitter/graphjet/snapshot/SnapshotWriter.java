@@ -0,0 +1,166 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.snapshot;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes primitives and primitive arrays to a file in the binary layout read back by
+ * {@link SnapshotReader}. All writes go through a single direct buffer so that large arrays are
+ * copied in bulk rather than element by element.
+ *
+ * Buffer positions are moved through {@link Buffer} so that the class keeps running on Java 8
+ * runtimes when compiled with a newer JDK.
+ *
+ * This class is NOT thread-safe.
+ */
+public class SnapshotWriter implements Closeable {
+  static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private long position;
+
+  /**
+   * Creates (or truncates) the given file for writing.
+   *
+   * @param file  is the file to write to
+   * @throws IOException if the file cannot be opened
+   */
+  public SnapshotWriter(File file) throws IOException {
+    this.channel = FileChannel.open(
+        file.toPath(),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+    this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(BYTE_ORDER);
+  }
+
+  private void ensureRemaining(int numBytes) throws IOException {
+    if (buffer.remaining() < numBytes) {
+      flush();
+    }
+  }
+
+  public void writeByte(byte value) throws IOException {
+    ensureRemaining(Byte.BYTES);
+    buffer.put(value);
+    position += Byte.BYTES;
+  }
+
+  public void writeInt(int value) throws IOException {
+    ensureRemaining(Integer.BYTES);
+    buffer.putInt(value);
+    position += Integer.BYTES;
+  }
+
+  public void writeLong(long value) throws IOException {
+    ensureRemaining(Long.BYTES);
+    buffer.putLong(value);
+    position += Long.BYTES;
+  }
+
+  public void writeDouble(double value) throws IOException {
+    ensureRemaining(Double.BYTES);
+    buffer.putDouble(value);
+    position += Double.BYTES;
+  }
+
+  /**
+   * Writes a range of an int array.
+   *
+   * @param src     is the array to write from
+   * @param offset  is the first index in src to write
+   * @param length  is the number of ints to write
+   * @throws IOException if the underlying write fails
+   */
+  public void writeInts(int[] src, int offset, int length) throws IOException {
+    int written = 0;
+    while (written < length) {
+      ensureRemaining(Integer.BYTES);
+      int chunk = Math.min(length - written, buffer.remaining() / Integer.BYTES);
+      buffer.asIntBuffer().put(src, offset + written, chunk);
+      ((Buffer) buffer).position(buffer.position() + chunk * Integer.BYTES);
+      written += chunk;
+    }
+    position += (long) length * Integer.BYTES;
+  }
+
+  /**
+   * Writes a range of a long array.
+   *
+   * @param src     is the array to write from
+   * @param offset  is the first index in src to write
+   * @param length  is the number of longs to write
+   * @throws IOException if the underlying write fails
+   */
+  public void writeLongs(long[] src, int offset, int length) throws IOException {
+    int written = 0;
+    while (written < length) {
+      ensureRemaining(Long.BYTES);
+      int chunk = Math.min(length - written, buffer.remaining() / Long.BYTES);
+      buffer.asLongBuffer().put(src, offset + written, chunk);
+      ((Buffer) buffer).position(buffer.position() + chunk * Long.BYTES);
+      written += chunk;
+    }
+    position += (long) length * Long.BYTES;
+  }
+
+  /**
+   * Returns the number of bytes written so far, which is the offset in the file at which the
+   * next write will land.
+   */
+  public long getPosition() {
+    return position;
+  }
+
+  /**
+   * Hands all the buffered bytes to the file system.
+   *
+   * @throws IOException if the underlying write fails
+   */
+  public void flush() throws IOException {
+    ((Buffer) buffer).flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    ((Buffer) buffer).clear();
+  }
+
+  /**
+   * Flushes, forces the file contents to the storage device and closes the file.
+   *
+   * @throws IOException if the underlying write fails
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+      channel.force(true);
+    } finally {
+      channel.close();
+    }
+  }
+}
@@ -17,27 +17,29 @@
 
 package com.twitter.graphjet.stats;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * A default Counter for use in the GraphJet library.
+ * A default Counter for use in the GraphJet library. Counts are kept in a {@link LongAdder}, so
+ * counters that are bumped concurrently from many request threads do not contend on a single
+ * cache line.
  */
 public class DefaultCounter implements Counter {
-    private AtomicLong count;
+    private final LongAdder count;
 
     public DefaultCounter() {
-        count = new AtomicLong();
+        count = new LongAdder();
     }
 
     public void incr() {
-        count.incrementAndGet();
+        count.increment();
     }
 
     public void incr(int delta) {
-        count.addAndGet(delta);
+        count.add(delta);
     }
 
     public long getCount() {
-        return count.get();
+        return count.sum();
     }
 }
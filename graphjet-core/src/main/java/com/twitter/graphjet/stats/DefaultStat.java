@@ -0,0 +1,114 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A default Stat for use in the GraphJet library. Values are counted in log-linear buckets: every
+ * power of two is split into {@link #SUB_BUCKETS} equal buckets, so percentiles are reported with
+ * a relative error of at most 1/{@link #SUB_BUCKETS} while recording a value is a couple of atomic
+ * increments and never allocates. Negative values are recorded as 0.
+ */
+public class DefaultStat implements Stat {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // values below SUB_BUCKETS get a bucket each, then SUB_BUCKETS buckets per power of two
+    private static final int NUM_BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets;
+    private final LongAdder count;
+    private final LongAdder sum;
+    private final AtomicLong max;
+
+    public DefaultStat() {
+        buckets = new AtomicLongArray(NUM_BUCKETS);
+        count = new LongAdder();
+        sum = new LongAdder();
+        max = new AtomicLong();
+    }
+
+    public void add(long value) {
+        long clampedValue = Math.max(value, 0L);
+        buckets.incrementAndGet(getBucket(clampedValue));
+        count.increment();
+        sum.add(clampedValue);
+        long currentMax = max.get();
+        while (clampedValue > currentMax && !max.compareAndSet(currentMax, clampedValue)) {
+            currentMax = max.get();
+        }
+    }
+
+    static int getBucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long getBucketLowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns an estimate of the given percentile of all the values recorded so far. The estimate
+     * is the lower bound of the bucket holding the percentile, capped by the largest value seen.
+     *
+     * @param percentile is the percentile to compute, between 0 and 100
+     * @return the estimated percentile, or 0 if nothing has been recorded
+     */
+    public long getPercentile(double percentile) {
+        long totalCount = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            totalCount += buckets.get(i);
+        }
+        if (totalCount == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(totalCount * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(getBucketLowerBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+}
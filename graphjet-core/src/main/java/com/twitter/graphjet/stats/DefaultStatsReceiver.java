@@ -25,6 +25,8 @@ import java.util.concurrent.ConcurrentHashMap;
 public class DefaultStatsReceiver implements StatsReceiver {
 
     private static ConcurrentHashMap<String, DefaultCounter> counters = new ConcurrentHashMap<>();
+    private static ConcurrentHashMap<String, DefaultStat> stats = new ConcurrentHashMap<>();
+    private static ConcurrentHashMap<String, Gauge> gauges = new ConcurrentHashMap<>();
     private static final long ZERO_COUNT = 0L;
     private String name;
 
@@ -37,9 +39,15 @@ public class DefaultStatsReceiver implements StatsReceiver {
     }
 
     public DefaultCounter counter(String counterName) {
-        DefaultCounter defaultCounter = new DefaultCounter();
-        counters.putIfAbsent(name + "/" + counterName, defaultCounter);
-        return defaultCounter;
+        return counters.computeIfAbsent(name + "/" + counterName, key -> new DefaultCounter());
+    }
+
+    public DefaultStat stat(String statName) {
+        return stats.computeIfAbsent(name + "/" + statName, key -> new DefaultStat());
+    }
+
+    public void addGauge(String gaugeName, Gauge gauge) {
+        gauges.put(name + "/" + gaugeName, gauge);
     }
 
     /**
@@ -53,4 +61,23 @@ public class DefaultStatsReceiver implements StatsReceiver {
             return ZERO_COUNT;
         }
     }
+
+    /**
+     * A method for getting a particular stat, or null if nothing has registered it.
+     */
+    public static DefaultStat getStat(String statName) {
+        return stats.get(statName);
+    }
+
+    /**
+     * A method for reading the current value of a particular gauge, or 0 if there is no such gauge.
+     */
+    public static double getGaugeValue(String gaugeName) {
+        Gauge gauge = gauges.get(gaugeName);
+        if (gauge != null) {
+            return gauge.getValue();
+        } else {
+            return ZERO_COUNT;
+        }
+    }
 }
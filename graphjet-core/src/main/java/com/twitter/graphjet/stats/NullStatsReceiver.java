@@ -27,6 +27,10 @@ public class NullStatsReceiver implements StatsReceiver {
         public void incr(int delta) { }
     };
 
+    static final Stat NULL_STAT = new Stat() {
+        public void add(long value) { }
+    };
+
     public StatsReceiver scope(String namespace) {
         return this;
     }
@@ -34,4 +38,10 @@ public class NullStatsReceiver implements StatsReceiver {
     public Counter counter(String counterName) {
         return nullCounter;
     }
+
+    public Stat stat(String statName) {
+        return NULL_STAT;
+    }
+
+    public void addGauge(String gaugeName, Gauge gauge) { }
 }
@@ -0,0 +1,31 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.stats;
+
+/**
+ * A Stat records a distribution of values, e.g. request latencies or the amount of work done per
+ * request, so that percentiles can be reported instead of only totals.
+ */
+public interface Stat {
+    /**
+     * Record a single value in this stat.
+     *
+     * @param value is the value to record
+     */
+    void add(long value);
+}
@@ -36,4 +36,24 @@ public interface StatsReceiver {
      * @return Counter
      */
     Counter counter(String counterName);
+
+    /**
+     * This is used to produce a Stat. The default implementation drops all values, so that
+     * existing receivers keep working unchanged.
+     *
+     * @param statName is the name of the Stat to be returned
+     * @return Stat
+     */
+    default Stat stat(String statName) {
+        return NullStatsReceiver.NULL_STAT;
+    }
+
+    /**
+     * This is used to register a Gauge that is read whenever the stats are exported. The default
+     * implementation ignores the gauge.
+     *
+     * @param gaugeName is the name of the Gauge
+     * @param gauge     is read to produce the current value
+     */
+    default void addGauge(String gaugeName, Gauge gauge) { }
 }
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.algorithms;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.twitter.graphjet.hashing.SmallArrayBasedLongToDoubleMap;
+
+public class NodeInfoPoolTest {
+
+  @Test
+  public void testRecycling() {
+    NodeInfoPool nodeInfoPool = new NodeInfoPool();
+    NodeInfo first = nodeInfoPool.acquire(1L, 1.0, 4);
+    first.addToWeight(2.0);
+    first.addToSocialProof(10L, (byte) 1, 0L, 2.0);
+    first.addToSocialProof(11L, (byte) 3, 0L, 1.0);
+    SmallArrayBasedLongToDoubleMap firstSocialProof = first.getSocialProofs()[1];
+    NodeInfo second = nodeInfoPool.acquire(2L, 1.0, 4);
+    assertEquals(2, nodeInfoPool.size());
+
+    nodeInfoPool.reset();
+    assertEquals(0, nodeInfoPool.size());
+    assertEquals(2, nodeInfoPool.capacity());
+
+    // The recycled instance looks exactly like a fresh one
+    NodeInfo recycled = nodeInfoPool.acquire(3L, 0.5, 4);
+    assertSame(first, recycled);
+    assertEquals(3L, recycled.getNodeId());
+    assertEquals(0.5, recycled.getWeight(), 0.0);
+    assertEquals(1, recycled.getNumVisits());
+    assertEquals(4, recycled.getSocialProofs().length);
+    for (SmallArrayBasedLongToDoubleMap socialProof : recycled.getSocialProofs()) {
+      assertNull(socialProof);
+    }
+
+    // and reuses the social proof maps of the previous node
+    recycled.addToSocialProof(12L, (byte) 1, 5L, 0.5);
+    assertSame(firstSocialProof, recycled.getSocialProofs()[1]);
+    assertEquals(1, recycled.getSocialProofs()[1].size());
+    assertEquals(12L, recycled.getSocialProofs()[1].keys()[0]);
+    assertEquals(5L, recycled.getSocialProofs()[1].metadata()[0]);
+
+    assertSame(second, nodeInfoPool.acquire(4L, 1.0, 4));
+    assertEquals(5L, nodeInfoPool.acquire(5L, 1.0, 4).getNodeId());
+    assertEquals(3, nodeInfoPool.capacity());
+  }
+
+  @Test
+  public void testChangingSocialProofTypeSize() {
+    NodeInfoPool nodeInfoPool = new NodeInfoPool();
+    int[][] nodeMetadata = new int[][] {{1, 2}, {3}};
+    nodeInfoPool.acquire(1L, nodeMetadata, 1.0, 4).addToSocialProof(10L, (byte) 3, 0L, 1.0);
+    nodeInfoPool.reset();
+
+    NodeInfo nodeInfo = nodeInfoPool.acquire(2L, 1.0, 9);
+    assertEquals(9, nodeInfo.getSocialProofs().length);
+    assertNull(nodeInfo.getSocialProofs()[3]);
+    assertEquals(1, nodeInfo.getNodeMetadata(0).length);
+  }
+}
@@ -37,7 +37,7 @@ public class PageRankTest {
   // D. E. Knuth, The Stanford GraphBase: A Platform for Combinatorial Computing, Addison-Wesley, Reading, MA (1993).
   // Downloaded from http://www-personal.umich.edu/~mejn/netdata/
   // Note that the graph is undirected, but here we're treating it (arbitrarily) as a direct graph.
-  private static final long[][] LES_MIS_GRAPH = {
+  public static final long[][] LES_MIS_GRAPH = {
       {1, 0},
       {2, 0},
       {3, 0},
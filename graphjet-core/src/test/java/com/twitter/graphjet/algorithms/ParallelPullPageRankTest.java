@@ -0,0 +1,113 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.algorithms;
+
+import java.util.concurrent.ForkJoinPool;
+
+import com.twitter.graphjet.bipartite.segment.IdentityEdgeTypeMask;
+import com.twitter.graphjet.directed.CompactDirectedGraph;
+import com.twitter.graphjet.directed.OutIndexedPowerLawMultiSegmentDirectedGraph;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelPullPageRankTest {
+  @Test
+  public void testLesMisGraph() throws Exception {
+    OutIndexedPowerLawMultiSegmentDirectedGraph graph = PullPageRankTest.buildLesMisGraph(0);
+    LongOpenHashSet nodes = PullPageRankTest.getLesMisNodes(0);
+    CompactDirectedGraph snapshot = CompactDirectedGraph.build(graph, nodes);
+
+    PullPageRank pullPR = new PullPageRank(snapshot, 0.85, 10, 1e-15);
+    int numIterations = pullPR.run();
+
+    for (int threads : new int[]{1, 3, 8}) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      try {
+        ParallelPullPageRank parallelPR = new ParallelPullPageRank(snapshot, 0.85, 10, 1e-15, pool);
+        assertEquals(numIterations, parallelPR.run());
+        assertEquals(pullPR.getL1Norm(), parallelPR.getL1Norm(), 1e-12);
+        assertArrayEquals(pullPR.getPageRankVector(), parallelPR.getPageRankVector(), 1e-12);
+        assertEquals(0.1088995, parallelPR.getPageRank(11), 10e-4);
+
+        // the pool is kept across runs
+        assertEquals(numIterations, parallelPR.run());
+        assertArrayEquals(pullPR.getPageRankVector(), parallelPR.getPageRankVector(), 1e-12);
+      } finally {
+        pool.shutdown();
+      }
+    }
+  }
+
+  @Test
+  public void testRunAfterConvergence() throws Exception {
+    OutIndexedPowerLawMultiSegmentDirectedGraph graph = PullPageRankTest.buildLesMisGraph(0);
+    LongOpenHashSet nodes = PullPageRankTest.getLesMisNodes(0);
+    CompactDirectedGraph snapshot = CompactDirectedGraph.build(graph, nodes);
+
+    ForkJoinPool pool = new ForkJoinPool(3);
+    try {
+      ParallelPullPageRank parallelPR = new ParallelPullPageRank(snapshot, 0.85, 1000, 1e-6, pool);
+      int numIterations = parallelPR.run();
+      assertTrue(numIterations < 1000);
+      assertTrue(parallelPR.getL1Norm() <= 1e-6);
+      double[] pagerank = parallelPR.getPageRankVector().clone();
+
+      // a second run starts over instead of stopping on the converged norm of the first one
+      assertEquals(numIterations, parallelPR.run());
+      assertArrayEquals(pagerank, parallelPR.getPageRankVector(), 0.0);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testPartitionByEdges() throws Exception {
+    // node 0 has 90 in-edges and nodes 1 to 90 have none
+    OutIndexedPowerLawMultiSegmentDirectedGraph graph =
+        new OutIndexedPowerLawMultiSegmentDirectedGraph(1, 1000, 100, 10, 2,
+            new IdentityEdgeTypeMask(), new NullStatsReceiver());
+    LongArrayList nodes = new LongArrayList();
+    nodes.add(0);
+    for (int i = 1; i <= 90; i++) {
+      graph.addEdge(i, 0, (byte) 0);
+      nodes.add(i);
+    }
+    CompactDirectedGraph snapshot = CompactDirectedGraph.build(graph, nodes);
+
+    int[] partitions = ParallelPullPageRank.partitionByEdges(snapshot, 2);
+    // node 0 alone weighs as much as all the other nodes
+    assertArrayEquals(new int[]{0, 1, 91}, partitions);
+
+    partitions = ParallelPullPageRank.partitionByEdges(snapshot, 10);
+    assertEquals(11, partitions.length);
+    assertEquals(0, partitions[0]);
+    assertEquals(91, partitions[10]);
+    for (int p = 1; p < partitions.length; p++) {
+      assertTrue(partitions[p - 1] <= partitions[p]);
+    }
+
+    // no more partitions than nodes
+    assertArrayEquals(new int[]{0, 1}, ParallelPullPageRank.partitionByEdges(
+        CompactDirectedGraph.build(graph, new LongArrayList(new long[]{0})), 10));
+  }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.algorithms;
+
+import java.util.Random;
+
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+import com.twitter.graphjet.bipartite.segment.IdentityEdgeTypeMask;
+import com.twitter.graphjet.directed.CompactDirectedGraph;
+import com.twitter.graphjet.directed.OutIndexedPowerLawMultiSegmentDirectedGraph;
+import com.twitter.graphjet.directed.api.OutIndexedDirectedGraph;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PullPageRankTest {
+  static OutIndexedPowerLawMultiSegmentDirectedGraph buildLesMisGraph(long idOffset) {
+    OutIndexedPowerLawMultiSegmentDirectedGraph graph =
+        new OutIndexedPowerLawMultiSegmentDirectedGraph(1, 1000, 100, 10, 2,
+            new IdentityEdgeTypeMask(), new NullStatsReceiver());
+    for (long[] edge : PageRankTest.LES_MIS_GRAPH) {
+      graph.addEdge(edge[0] + idOffset, edge[1] + idOffset, (byte) 0);
+    }
+    return graph;
+  }
+
+  static LongOpenHashSet getLesMisNodes(long idOffset) {
+    LongOpenHashSet nodes = new LongOpenHashSet();
+    for (long[] edge : PageRankTest.LES_MIS_GRAPH) {
+      nodes.add(edge[0] + idOffset);
+      nodes.add(edge[1] + idOffset);
+    }
+    return nodes;
+  }
+
+  @Test
+  public void testCompactDirectedGraph() throws Exception {
+    OutIndexedPowerLawMultiSegmentDirectedGraph graph = buildLesMisGraph(0);
+    LongArrayList nodes = new LongArrayList(new long[]{11, 10, 3, 2, 0, 76});
+    CompactDirectedGraph snapshot = CompactDirectedGraph.build(graph, nodes);
+
+    assertEquals(6, snapshot.getNumNodes());
+    // only the edges 11 -> {10, 3, 2, 0}, 3 -> {2, 0} and 2 -> 0 are within the nodes
+    assertEquals(7, snapshot.getNumEdges());
+    assertEquals(11, snapshot.getNodeId(0));
+    assertEquals(5, snapshot.getNodeIndex(76));
+    assertEquals(-1, snapshot.getNodeIndex(12));
+    assertEquals(4, snapshot.getOutDegree(0));
+    assertEquals(2, snapshot.getOutDegree(2));
+    assertEquals(0, snapshot.getOutDegree(5));
+
+    // the in-edges of node 0 come from 11, 3 and 2
+    int node0 = snapshot.getNodeIndex(0);
+    assertEquals(3, snapshot.getInDegree(node0));
+    LongArrayList inNodes = new LongArrayList();
+    for (int i = snapshot.getInEdgesStart(node0); i < snapshot.getInEdgesStart(node0 + 1); i++) {
+      inNodes.add(snapshot.getNodeId(snapshot.getInEdge(i)));
+    }
+    assertEquals(new LongArrayList(new long[]{11, 3, 2}), inNodes);
+    assertEquals(0, snapshot.getInDegree(snapshot.getNodeIndex(11)));
+  }
+
+  @Test
+  public void testCompactDirectedGraphWithUnderstatedDegrees() throws Exception {
+    final OutIndexedPowerLawMultiSegmentDirectedGraph graph = buildLesMisGraph(0);
+    LongOpenHashSet nodes = getLesMisNodes(0);
+    // Degrees of 0 stand in for edges that are added while the snapshot is being built, so the
+    // edge buffer has to grow
+    OutIndexedDirectedGraph understatedGraph = new OutIndexedDirectedGraph() {
+      @Override
+      public int getOutDegree(long node) {
+        return 0;
+      }
+
+      @Override
+      public EdgeIterator getOutEdges(long node) {
+        return graph.getOutEdges(node);
+      }
+
+      @Override
+      public EdgeIterator getRandomOutEdges(long node, int numSamples, Random random) {
+        return graph.getRandomOutEdges(node, numSamples, random);
+      }
+    };
+
+    CompactDirectedGraph snapshot = CompactDirectedGraph.build(graph, nodes);
+    CompactDirectedGraph grownSnapshot = CompactDirectedGraph.build(understatedGraph, nodes);
+    assertEquals(snapshot.getNumEdges(), grownSnapshot.getNumEdges());
+    for (int i = 0; i < snapshot.getNumNodes(); i++) {
+      assertEquals(snapshot.getOutDegree(i), grownSnapshot.getOutDegree(i));
+      assertEquals(snapshot.getInEdgesStart(i), grownSnapshot.getInEdgesStart(i));
+    }
+    for (int i = 0; i < snapshot.getNumEdges(); i++) {
+      assertEquals(snapshot.getInEdge(i), grownSnapshot.getInEdge(i));
+    }
+  }
+
+  @Test
+  public void testLesMisGraph() throws Exception {
+    OutIndexedPowerLawMultiSegmentDirectedGraph graph = buildLesMisGraph(0);
+    LongOpenHashSet nodes = getLesMisNodes(0);
+
+    PageRank pr = new PageRank(graph, nodes, 76, 0.85, 10, 1e-15);
+    PullPageRank pullPR = new PullPageRank(graph, nodes, 0.85, 10, 1e-15);
+    assertEquals(pr.run(), pullPR.run());
+    assertEquals(pr.getL1Norm(), pullPR.getL1Norm(), 1e-12);
+
+    // The results are the same as the push-based implementation, which has been verified against
+    // an external implementation (JUNG).
+    double[] pagerank = pr.getPageRankVector();
+    double totalMass = 0.0;
+    for (long node : nodes) {
+      assertEquals(pagerank[(int) node], pullPR.getPageRank(node), 1e-12);
+      totalMass += pullPR.getPageRank(node);
+    }
+    assertEquals(0.1088995, pullPR.getPageRank(11), 10e-4);
+    assertEquals(0.09538347, pullPR.getPageRank(0), 10e-4);
+    assertEquals(0.0, pullPR.getPageRank(77), 0.0);
+    assertEquals(1.0, totalMass, 10e-10);
+  }
+
+  @Test
+  public void testRunAfterConvergence() throws Exception {
+    OutIndexedPowerLawMultiSegmentDirectedGraph graph = buildLesMisGraph(0);
+    LongOpenHashSet nodes = getLesMisNodes(0);
+
+    PullPageRank pullPR = new PullPageRank(graph, nodes, 0.85, 1000, 1e-6);
+    try {
+      pullPR.getPageRank(11);
+      fail("Expecting exception: IllegalStateException");
+    } catch (IllegalStateException e) {
+      // PageRank has not been run yet
+    }
+    int numIterations = pullPR.run();
+    assertTrue(numIterations < 1000);
+    assertTrue(pullPR.getL1Norm() <= 1e-6);
+    double[] pagerank = pullPR.getPageRankVector().clone();
+
+    // a second run starts over instead of stopping on the converged norm of the first one
+    assertEquals(numIterations, pullPR.run());
+    assertArrayEquals(pagerank, pullPR.getPageRankVector(), 0.0);
+  }
+
+  @Test
+  public void testLargeNodeIds() throws Exception {
+    // ids past Integer.MAX_VALUE are fine since the vectors are indexed by dense indices
+    long idOffset = 1L << 40;
+    PullPageRank pullPR = new PullPageRank(
+        buildLesMisGraph(idOffset), getLesMisNodes(idOffset), 0.85, 10, 1e-15);
+    assertEquals(10, pullPR.run());
+    assertEquals(77, pullPR.getPageRankVector().length);
+    assertEquals(0.1088995, pullPR.getPageRank(idOffset + 11), 10e-4);
+    assertEquals(0.09538347, pullPR.getPageRank(idOffset), 10e-4);
+  }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.algorithms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TopKSelectorTest {
+
+  @Test
+  public void testSelectsTopK() {
+    Random random = new Random(90238490238409L);
+    TopKSelector<Integer> selector = new TopKSelector<>(10);
+    // Several rounds on the same instance, with k both below and above the number of items
+    for (int k : new int[] {10, 3, 50, 1, 2500}) {
+      selector.reset(k);
+      List<Double> scores = new ArrayList<>();
+      for (int i = 0; i < 1000; i++) {
+        // few distinct values, so that there are plenty of ties
+        double score = random.nextInt(100);
+        scores.add(score);
+        selector.offer(i, score);
+      }
+      assertEquals(Math.min(k, scores.size()), selector.size());
+
+      List<Double> expectedScores = new ArrayList<>(scores);
+      Collections.sort(expectedScores, Collections.reverseOrder());
+      expectedScores = expectedScores.subList(0, Math.min(k, scores.size()));
+
+      List<Integer> selected = selector.drainDescending();
+      assertEquals(0, selector.size());
+      List<Double> selectedScores = new ArrayList<>();
+      for (int item : selected) {
+        selectedScores.add(scores.get(item));
+      }
+      assertEquals(expectedScores, selectedScores);
+    }
+  }
+
+  @Test
+  public void testTieBreakers() {
+    // Items 0 to 99, with scores 0 to 9: the selection must not depend on the order of the items
+    List<Long> ids = new ArrayList<>();
+    for (long i = 0; i < 100; i++) {
+      ids.add(i);
+    }
+    List<Long> expected = null;
+    Random random = new Random(5134890234L);
+    TopKSelector<Long> selector = new TopKSelector<>(15);
+    for (int round = 0; round < 5; round++) {
+      Collections.shuffle(ids, random);
+      selector.reset(15);
+      for (long id : ids) {
+        assertEquals(selector.wouldAccept(id % 10, id), selector.offer(id, id % 10, id));
+      }
+      List<Long> selected = selector.drainDescending();
+      if (expected == null) {
+        expected = selected;
+      }
+      assertEquals(expected, selected);
+    }
+
+    // all the items with score 9 first, then the highest ids among the items with score 8
+    List<Long> topIds = new ArrayList<>();
+    for (long i = 99; i >= 9; i -= 10) {
+      topIds.add(i);
+    }
+    for (long i = 98; i >= 58; i -= 10) {
+      topIds.add(i);
+    }
+    assertEquals(topIds, expected);
+  }
+
+  @Test
+  public void testWouldAccept() {
+    TopKSelector<String> selector = new TopKSelector<>(2);
+    assertTrue(selector.wouldAccept(-1.0));
+    assertTrue(selector.offer("a", 1.0));
+    assertTrue(selector.offer("b", 2.0));
+    // ties with the lowest selected score do not replace it
+    assertFalse(selector.wouldAccept(1.0));
+    assertFalse(selector.offer("c", 1.0));
+    assertTrue(selector.wouldAccept(1.5));
+    assertTrue(selector.offer("d", 1.5));
+
+    List<String> unordered = selector.drainUnordered();
+    Collections.sort(unordered);
+    assertEquals(2, unordered.size());
+    assertEquals("b", unordered.get(0));
+    assertEquals("d", unordered.get(1));
+    assertEquals(0, selector.size());
+  }
+
+  @Test
+  public void testZeroK() {
+    TopKSelector<String> selector = new TopKSelector<>(0);
+    assertFalse(selector.wouldAccept(Double.MAX_VALUE));
+    assertFalse(selector.offer("a", 1.0));
+    assertTrue(selector.drainDescending().isEmpty());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeK() {
+    new TopKSelector<String>(-1);
+  }
+}
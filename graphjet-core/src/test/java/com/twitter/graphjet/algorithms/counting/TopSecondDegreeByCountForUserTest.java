@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.collect.Lists;
 
@@ -39,6 +40,8 @@ import com.twitter.graphjet.algorithms.counting.user.TopSecondDegreeByCountForUs
 import com.twitter.graphjet.algorithms.counting.user.TopSecondDegreeByCountRequestForUser;
 import com.twitter.graphjet.algorithms.counting.user.UserRecommendationInfo;
 import com.twitter.graphjet.bipartite.NodeMetadataLeftIndexedMultiSegmentBipartiteGraph;
+import com.twitter.graphjet.bipartite.NodeMetadataLeftIndexedPowerLawMultiSegmentBipartiteGraph;
+import com.twitter.graphjet.bipartite.segment.HigherBitsEdgeTypeMask;
 import com.twitter.graphjet.stats.NullStatsReceiver;
 
 import it.unimi.dsi.fastutil.longs.Long2DoubleArrayMap;
@@ -163,6 +166,151 @@ public class TopSecondDegreeByCountForUserTest {
       expectedTopSecondDegreeByCountStats);
   }
 
+  @Test
+  public void testTopSecondDegreeByCountForUsersBatch() throws Exception {
+    NodeMetadataLeftIndexedMultiSegmentBipartiteGraph bipartiteGraph =
+      BipartiteGraphTestHelper.buildSmallTestNodeMetadataLeftIndexedMultiSegmentBipartiteGraphWithEdgeTypes();
+    // The requests overlap on their seeds and share a filter chain
+    ResultFilterChain resultFilterChain = new ResultFilterChain(Lists.<ResultFilter>newArrayList(
+      new RequestedSetFilter(new NullStatsReceiver())));
+    List<TopSecondDegreeByCountRequestForUser> requests = Lists.newArrayList(
+      buildRequest(1, new Long2DoubleArrayMap(new long[]{1, 2, 3}, new double[]{1.5, 1.0, 0.5}),
+        new LongOpenHashSet(new long[]{}), new byte[] {0, 1, 2, 3}, resultFilterChain),
+      buildRequest(2, new Long2DoubleArrayMap(new long[]{2, 3}, new double[]{1.0, 2.0}),
+        new LongOpenHashSet(new long[]{3}), new byte[] {0, 1, 2, 3}, resultFilterChain),
+      buildRequest(3, new Long2DoubleArrayMap(new long[]{1, 4}, new double[]{1.0, 1.0}),
+        new LongOpenHashSet(new long[]{}), new byte[] {0, 3}, resultFilterChain),
+      buildRequest(4, new Long2DoubleArrayMap(new long[]{}, new double[]{}),
+        new LongOpenHashSet(new long[]{}), new byte[] {0, 1, 2, 3}, resultFilterChain));
+
+    TopSecondDegreeByCountForUser topSecondDegreeByCountForUser = new TopSecondDegreeByCountForUser(
+      bipartiteGraph,
+      100,
+      new NullStatsReceiver());
+    Random random = new Random(918324701982347L);
+
+    // Single requests share their stats object across calls, so each one gets its own instance
+    List<TopSecondDegreeByCountResponse> expectedResponses = new ArrayList<>();
+    for (TopSecondDegreeByCountRequestForUser request: requests) {
+      expectedResponses.add(
+        new TopSecondDegreeByCountForUser(bipartiteGraph, 100, new NullStatsReceiver())
+          .computeRecommendations(request, random));
+    }
+    // Twice, so that the second batch runs on reused state
+    for (int i = 0; i < 2; i++) {
+      List<TopSecondDegreeByCountResponse> responses =
+        topSecondDegreeByCountForUser.computeRecommendations(requests, random);
+      assertEquals(requests.size(), responses.size());
+      for (int j = 0; j < requests.size(); j++) {
+        assertEquals(
+          expectedResponses.get(j).getTopSecondDegreeByCountStats(),
+          responses.get(j).getTopSecondDegreeByCountStats());
+        assertEquals(
+          Lists.newArrayList(expectedResponses.get(j).getRankedRecommendations()),
+          Lists.newArrayList(responses.get(j).getRankedRecommendations()));
+      }
+    }
+  }
+
+  @Test
+  public void testTopSecondDegreeByCountForUsersBatchWithEdgeAgeLimits() throws Exception {
+    final long now = System.currentTimeMillis();
+    final long[] clock = new long[]{now - TimeUnit.DAYS.toMillis(10)};
+    NodeMetadataLeftIndexedMultiSegmentBipartiteGraph bipartiteGraph =
+      new NodeMetadataLeftIndexedPowerLawMultiSegmentBipartiteGraph(
+        3, 400, 4, 400, 2.0, 1000, 2, new HigherBitsEdgeTypeMask(), new NullStatsReceiver()) {
+        @Override
+        protected long currentTimeMillis() {
+          return clock[0];
+        }
+      };
+    int[][] nodeMetadata = new int[][]{};
+    // The seed has old edges in a segment sealed two days ago, followed by recent ones, so the
+    // per-seed edge cap reaches the old edges only when the edge age limit lets them in
+    for (int i = 0; i < 400; i++) {
+      bipartiteGraph.addEdge(
+        1, 1000 + i, (byte) 0, now - TimeUnit.DAYS.toMillis(9), nodeMetadata, nodeMetadata);
+    }
+    clock[0] = now - TimeUnit.DAYS.toMillis(2);
+    for (int i = 0; i < 400; i++) {
+      bipartiteGraph.addEdge(
+        1, 2000 + i, (byte) 0, now - TimeUnit.HOURS.toMillis(1), nodeMetadata, nodeMetadata);
+    }
+
+    ResultFilterChain resultFilterChain = new ResultFilterChain(Lists.<ResultFilter>newArrayList(
+      new RequestedSetFilter(new NullStatsReceiver())));
+    List<TopSecondDegreeByCountRequestForUser> requests = Lists.newArrayList(
+      buildRequest(1, new Long2DoubleArrayMap(new long[]{1}, new double[]{1.0}),
+        Long.MAX_VALUE, resultFilterChain),
+      buildRequest(2, new Long2DoubleArrayMap(new long[]{1}, new double[]{1.0}),
+        TimeUnit.DAYS.toMillis(1), resultFilterChain));
+
+    Random random = new Random(918324701982347L);
+    List<TopSecondDegreeByCountResponse> expectedResponses = new ArrayList<>();
+    for (TopSecondDegreeByCountRequestForUser request: requests) {
+      expectedResponses.add(
+        new TopSecondDegreeByCountForUser(bipartiteGraph, 100, new NullStatsReceiver())
+          .computeRecommendations(request, random));
+    }
+    assertEquals(
+      500, expectedResponses.get(0).getTopSecondDegreeByCountStats().getNumRightNodesReached());
+    assertEquals(
+      400, expectedResponses.get(1).getTopSecondDegreeByCountStats().getNumRightNodesReached());
+
+    List<TopSecondDegreeByCountResponse> responses =
+      new TopSecondDegreeByCountForUser(bipartiteGraph, 100, new NullStatsReceiver())
+        .computeRecommendations(requests, random);
+    for (int i = 0; i < requests.size(); i++) {
+      assertEquals(
+        expectedResponses.get(i).getTopSecondDegreeByCountStats(),
+        responses.get(i).getTopSecondDegreeByCountStats());
+      assertEquals(
+        Lists.newArrayList(expectedResponses.get(i).getRankedRecommendations()),
+        Lists.newArrayList(responses.get(i).getRankedRecommendations()));
+    }
+  }
+
+  private static TopSecondDegreeByCountRequestForUser buildRequest(
+    long queryNode,
+    Long2DoubleMap seedsMap,
+    long maxEdgeAgeInMillis,
+    ResultFilterChain resultFilterChain
+  ) {
+    return new TopSecondDegreeByCountRequestForUser(
+      queryNode,
+      seedsMap,
+      new LongOpenHashSet(new long[]{}),
+      3,
+      100,
+      4,
+      new HashMap<Byte, Integer>(),
+      new byte[] {0},
+      Long.MAX_VALUE,
+      maxEdgeAgeInMillis,
+      resultFilterChain);
+  }
+
+  private static TopSecondDegreeByCountRequestForUser buildRequest(
+    long queryNode,
+    Long2DoubleMap seedsMap,
+    LongSet toBeFiltered,
+    byte[] socialProofTypes,
+    ResultFilterChain resultFilterChain
+  ) {
+    return new TopSecondDegreeByCountRequestForUser(
+      queryNode,
+      seedsMap,
+      toBeFiltered,
+      3,
+      100,
+      4,
+      new HashMap<Byte, Integer>(),
+      socialProofTypes,
+      Long.MAX_VALUE,
+      Long.MAX_VALUE,
+      resultFilterChain);
+  }
+
   private void testTopSecondDegreeByCountHelper(
     int maxNumResults,
     Map<Byte, Integer> minUserPerSocialProof,
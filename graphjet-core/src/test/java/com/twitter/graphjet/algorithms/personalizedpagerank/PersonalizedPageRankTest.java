@@ -0,0 +1,200 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.algorithms.personalizedpagerank;
+
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.collect.Lists;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.twitter.graphjet.algorithms.PageRankTest;
+import com.twitter.graphjet.algorithms.RecommendationInfo;
+import com.twitter.graphjet.algorithms.RecommendationType;
+import com.twitter.graphjet.algorithms.counting.user.UserRecommendationInfo;
+import com.twitter.graphjet.bipartite.LeftIndexedPowerLawMultiSegmentBipartiteGraph;
+import com.twitter.graphjet.bipartite.segment.IdentityEdgeTypeMask;
+import com.twitter.graphjet.directed.LeftIndexedBipartiteDirectedGraph;
+import com.twitter.graphjet.directed.OutIndexedPowerLawMultiSegmentDirectedGraph;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+import it.unimi.dsi.fastutil.longs.Long2DoubleMap;
+import it.unimi.dsi.fastutil.longs.Long2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+public class PersonalizedPageRankTest {
+  private static final int NUM_NODES = 77;
+  private static final double RESET_PROBABILITY = 0.3;
+
+  // The Les Miserables graph with the edges in both directions, so that no node is dangling
+  private static OutIndexedPowerLawMultiSegmentDirectedGraph buildGraph() {
+    OutIndexedPowerLawMultiSegmentDirectedGraph graph =
+        new OutIndexedPowerLawMultiSegmentDirectedGraph(1, 1000, 100, 10, 2,
+            new IdentityEdgeTypeMask(), new NullStatsReceiver());
+    for (long[] edge : PageRankTest.LES_MIS_GRAPH) {
+      graph.addEdge(edge[0], edge[1], (byte) 0);
+      graph.addEdge(edge[1], edge[0], (byte) 0);
+    }
+    return graph;
+  }
+
+  // Exact personalized PageRank with respect to a single node, by power iteration
+  private static double[] computeExactPersonalizedPageRank(long queryNode) {
+    int[] degrees = new int[NUM_NODES];
+    for (long[] edge : PageRankTest.LES_MIS_GRAPH) {
+      degrees[(int) edge[0]]++;
+      degrees[(int) edge[1]]++;
+    }
+    double[] pr = new double[NUM_NODES];
+    pr[(int) queryNode] = 1.0;
+    for (int iteration = 0; iteration < 200; iteration++) {
+      double[] nextPR = new double[NUM_NODES];
+      nextPR[(int) queryNode] = RESET_PROBABILITY;
+      for (long[] edge : PageRankTest.LES_MIS_GRAPH) {
+        int u = (int) edge[0];
+        int v = (int) edge[1];
+        nextPR[v] += (1.0 - RESET_PROBABILITY) * pr[u] / degrees[u];
+        nextPR[u] += (1.0 - RESET_PROBABILITY) * pr[v] / degrees[v];
+      }
+      pr = nextPR;
+    }
+    return pr;
+  }
+
+  private static PersonalizedPageRankRequest buildRequest(
+      long queryNode, Long2DoubleMap seeds, LongSet toBeFiltered, int maxNumResults) {
+    return new PersonalizedPageRankRequest(queryNode, seeds, toBeFiltered, RESET_PROBABILITY,
+        maxNumResults, 200000, 30, 1e-7, 100000, null);
+  }
+
+  private static void assertCloseToExact(
+      double[] exact, PersonalizedPageRankResponse response, double delta) {
+    List<RecommendationInfo> results = Lists.newArrayList(response.getRankedRecommendations());
+    assertFalse(results.isEmpty());
+    double previousWeight = Double.MAX_VALUE;
+    for (RecommendationInfo result : results) {
+      assertEquals(RecommendationType.USER, result.getRecommendationType());
+      long node = ((UserRecommendationInfo) result).getRecommendation();
+      assertEquals(exact[(int) node], result.getWeight(), delta);
+      assertTrue(result.getWeight() <= previousWeight);
+      previousWeight = result.getWeight();
+    }
+  }
+
+  @Test
+  public void testForwardPush() {
+    double[] exact = computeExactPersonalizedPageRank(11);
+    ForwardPushPersonalizedPageRank forwardPush =
+        new ForwardPushPersonalizedPageRank(buildGraph(), 100, new NullStatsReceiver());
+
+    PersonalizedPageRankResponse response = forwardPush.computeRecommendations(
+        buildRequest(11, new Long2DoubleOpenHashMap(), new LongOpenHashSet(), 10),
+        new Random(90238490238409L));
+    assertCloseToExact(exact, response, 1e-4);
+    List<RecommendationInfo> results = Lists.newArrayList(response.getRankedRecommendations());
+    assertEquals(10, results.size());
+    // the query node is never returned
+    for (RecommendationInfo result : results) {
+      assertTrue(((UserRecommendationInfo) result).getRecommendation() != 11);
+    }
+    assertEquals(36, response.getRecommendationStats().getNumDirectNeighbors());
+    assertEquals(NUM_NODES, response.getRecommendationStats().getNumRightNodesReached());
+
+    // a coarse threshold bounds the work
+    PersonalizedPageRankResponse coarseResponse = forwardPush.computeRecommendations(
+        new PersonalizedPageRankRequest(11, new Long2DoubleOpenHashMap(), new LongOpenHashSet(),
+            RESET_PROBABILITY, 10, 0, 0, 1e-2, 100000, null),
+        new Random(90238490238409L));
+    assertTrue(coarseResponse.getRecommendationStats().getNumRHSVisits()
+        < response.getRecommendationStats().getNumRHSVisits());
+    PersonalizedPageRankResponse boundedResponse = forwardPush.computeRecommendations(
+        new PersonalizedPageRankRequest(11, new Long2DoubleOpenHashMap(), new LongOpenHashSet(),
+            RESET_PROBABILITY, 10, 0, 0, 1e-7, 1, null),
+        new Random(90238490238409L));
+    // a single push of the query node reaches its direct neighbors only
+    assertEquals(36, boundedResponse.getRecommendationStats().getNumRHSVisits());
+  }
+
+  @Test
+  public void testMonteCarlo() {
+    double[] exact = computeExactPersonalizedPageRank(11);
+    MonteCarloPersonalizedPageRank monteCarlo =
+        new MonteCarloPersonalizedPageRank(buildGraph(), 100, new NullStatsReceiver());
+
+    PersonalizedPageRankResponse response = monteCarlo.computeRecommendations(
+        buildRequest(11, new Long2DoubleOpenHashMap(), new LongOpenHashSet(), 5),
+        new Random(90238490238409L));
+    assertCloseToExact(exact, response, 3e-3);
+    assertEquals(5, Lists.newArrayList(response.getRankedRecommendations()).size());
+    // walks stop on reset, so there are far fewer visits than walks times maximum length
+    int numVisits = response.getRecommendationStats().getNumRHSVisits();
+    assertTrue(numVisits > 200000 && numVisits < 200000 * 5);
+  }
+
+  @Test
+  public void testSeedsAndFilters() {
+    Long2DoubleMap seeds = new Long2DoubleOpenHashMap(new long[]{16, 48}, new double[]{1.0, 3.0});
+    LongSet toBeFiltered = new LongOpenHashSet(new long[]{16, 48, 55});
+    OutIndexedPowerLawMultiSegmentDirectedGraph graph = buildGraph();
+
+    ForwardPushPersonalizedPageRank forwardPush =
+        new ForwardPushPersonalizedPageRank(graph, 100, new NullStatsReceiver());
+    MonteCarloPersonalizedPageRank monteCarlo =
+        new MonteCarloPersonalizedPageRank(graph, 100, new NullStatsReceiver());
+    for (PersonalizedPageRankResponse response : Lists.newArrayList(
+        forwardPush.computeRecommendations(
+            buildRequest(0, seeds, toBeFiltered, 10), new Random(90238490238409L)),
+        monteCarlo.computeRecommendations(
+            buildRequest(0, seeds, toBeFiltered, 10), new Random(90238490238409L)))) {
+      LongSet resultNodes = new LongOpenHashSet();
+      for (RecommendationInfo result : response.getRankedRecommendations()) {
+        resultNodes.add(((UserRecommendationInfo) result).getRecommendation());
+      }
+      assertEquals(10, resultNodes.size());
+      assertFalse(resultNodes.contains(0));
+      assertFalse(resultNodes.contains(16));
+      assertFalse(resultNodes.contains(48));
+      assertFalse(resultNodes.contains(55));
+      assertEquals(3, response.getRecommendationStats().getNumRightNodesFiltered());
+    }
+  }
+
+  @Test
+  public void testLeftIndexedBipartiteGraph() {
+    LeftIndexedPowerLawMultiSegmentBipartiteGraph bipartiteGraph =
+        new LeftIndexedPowerLawMultiSegmentBipartiteGraph(1, 1000, 100, 10, 2.0, 100,
+            new IdentityEdgeTypeMask(), new NullStatsReceiver());
+    for (long[] edge : PageRankTest.LES_MIS_GRAPH) {
+      bipartiteGraph.addEdge(edge[0], edge[1], (byte) 0);
+      bipartiteGraph.addEdge(edge[1], edge[0], (byte) 0);
+    }
+    PersonalizedPageRankResponse expected =
+        new MonteCarloPersonalizedPageRank(buildGraph(), 100, new NullStatsReceiver())
+            .computeRecommendations(buildRequest(11, null, null, 10), new Random(1L));
+    PersonalizedPageRankResponse actual = new MonteCarloPersonalizedPageRank(
+        new LeftIndexedBipartiteDirectedGraph(bipartiteGraph), 100, new NullStatsReceiver())
+            .computeRecommendations(buildRequest(11, null, null, 10), new Random(1L));
+    assertEquals(Lists.newArrayList(expected.getRankedRecommendations()),
+        Lists.newArrayList(actual.getRankedRecommendations()));
+  }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.algorithms.salsa;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DenseWalkCountsTest {
+
+  @Test
+  public void testAddAndClearWalks() throws Exception {
+    DenseWalkCounts walkCounts = new DenseWalkCounts(2);
+    // more nodes than expected makes the arrays grow
+    for (int i = 0; i < 40; i++) {
+      walkCounts.addWalks(100L + i % 20, i + 1);
+    }
+    assertEquals(20, walkCounts.getNumSlots());
+    assertEquals(20, walkCounts.getNumActiveSlots());
+    for (int i = 0; i < 20; i++) {
+      int slot = walkCounts.getActiveSlot(i);
+      // slots are handed out in the order the nodes are first seen
+      assertEquals(i, slot);
+      assertEquals(100L + i, walkCounts.getNode(slot));
+      assertEquals((i + 1) + (i + 21), walkCounts.getNumWalks(slot));
+    }
+
+    // clearing the walks keeps the slots for the rest of the request
+    walkCounts.clearWalks();
+    assertEquals(0, walkCounts.getNumActiveSlots());
+    assertEquals(20, walkCounts.getNumSlots());
+    walkCounts.addWalks(105L, 3);
+    walkCounts.addWalks(200L, 1);
+    assertEquals(2, walkCounts.getNumActiveSlots());
+    assertEquals(5, walkCounts.getActiveSlot(0));
+    assertEquals(3, walkCounts.getNumWalks(5));
+    assertEquals(20, walkCounts.getActiveSlot(1));
+    assertEquals(0, walkCounts.getNumWalks(6));
+
+    // degrees are recorded once per node and are kept with the slots
+    assertEquals(-1, walkCounts.getDegree(5));
+    walkCounts.setDegree(5, 7);
+    walkCounts.clearWalks();
+    assertEquals(7, walkCounts.getDegree(5));
+
+    walkCounts.reset();
+    assertEquals(0, walkCounts.getNumActiveSlots());
+    assertEquals(0, walkCounts.getNumSlots());
+    assertEquals(0, walkCounts.getSlot(200L));
+    assertEquals(0, walkCounts.getNumWalks(0));
+    assertEquals(-1, walkCounts.getDegree(0));
+  }
+}
@@ -23,6 +23,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import com.twitter.graphjet.algorithms.BipartiteGraphTestHelper;
@@ -120,4 +121,28 @@ public class SalsaNodeVisitorTest {
 
     assertEquals(expectedVisitedRightNodesMap, salsaInternalState.getVisitedRightNodes());
   }
+
+  @Test
+  public void testNodeVisitorWithSocialProofOnNodeInfo() throws Exception {
+    SalsaNodeVisitor.NodeVisitorWithSocialProof nodeVisitorWithSocialProof =
+        new SalsaNodeVisitor.NodeVisitorWithSocialProof(
+            salsaInternalState.getVisitedRightNodes());
+    nodeVisitorWithSocialProof.resetWithRequest(salsaRequest);
+
+    NodeInfo visitedNode2 =
+        nodeVisitorWithSocialProof.visitRightNodeInfo(null, 1, 2, (byte) 0, 0L, 1);
+    NodeInfo visitedNode3 =
+        nodeVisitorWithSocialProof.visitRightNodeInfo(null, 2, 3, (byte) 0, 0L, 1);
+    assertSame(visitedNode3,
+        nodeVisitorWithSocialProof.visitRightNodeInfo(visitedNode3, 1, 3, (byte) 0, 0L, 1));
+
+    NodeInfo node2 = new NodeInfo(2, 1, 1);
+    NodeInfo node3 = new NodeInfo(3, 2, 1);
+    assertTrue(node3.addToSocialProof(2, (byte) 0, 0L, 1));
+    assertEquals(node2, visitedNode2);
+    assertEquals(node3, visitedNode3);
+    assertEquals(2, visitedNode3.getNumVisits());
+    // the caller keeps the NodeInfo, so the map is not touched
+    assertTrue(salsaInternalState.getVisitedRightNodes().isEmpty());
+  }
 }
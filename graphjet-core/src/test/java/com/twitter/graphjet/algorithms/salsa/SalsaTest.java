@@ -22,6 +22,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -38,10 +43,15 @@ import com.twitter.graphjet.algorithms.filters.RequestedSetFilter;
 import com.twitter.graphjet.algorithms.filters.ResultFilter;
 import com.twitter.graphjet.algorithms.filters.ResultFilterChain;
 import com.twitter.graphjet.algorithms.counting.tweet.TweetRecommendationInfo;
+import com.twitter.graphjet.algorithms.salsa.fullgraph.DenseSalsa;
+import com.twitter.graphjet.algorithms.salsa.fullgraph.ParallelSalsa;
 import com.twitter.graphjet.algorithms.salsa.fullgraph.Salsa;
 import com.twitter.graphjet.algorithms.salsa.subgraph.SubgraphSalsa;
+import com.twitter.graphjet.bipartite.MultiSegmentPowerLawBipartiteGraph;
 import com.twitter.graphjet.bipartite.SmallLeftRegularBipartiteGraph;
 import com.twitter.graphjet.bipartite.api.BipartiteGraph;
+import com.twitter.graphjet.bipartite.segment.IdentityEdgeTypeMask;
+import com.twitter.graphjet.hashing.IntShardPool;
 import com.twitter.graphjet.stats.NullStatsReceiver;
 
 import it.unimi.dsi.fastutil.longs.Long2DoubleOpenHashMap;
@@ -179,6 +189,194 @@ public class SalsaTest {
     assertEquals(expectedTopResultsSubgraph, salsaResults);
   }
 
+  @Test
+  public void testParallelSalsa() throws Exception {
+    BipartiteGraph bipartiteGraph = BipartiteGraphTestHelper.buildSmallTestBipartiteGraph();
+    long randomSeed = 918324701982347L;
+    int expectedNodesToHit = 50000;
+    SalsaRequest salsaRequest = buildSmallTestGraphSalsaRequest();
+
+    SalsaResponse expectedResponse = new Salsa(
+        bipartiteGraph,
+        expectedNodesToHit,
+        new NullStatsReceiver())
+        .computeRecommendations(salsaRequest, new Random(randomSeed));
+
+    ExecutorService executorService = Executors.newFixedThreadPool(3);
+    try {
+      // a single worker walks exactly like the single threaded version
+      SalsaResponse salsaResponse = new ParallelSalsa(
+          bipartiteGraph,
+          expectedNodesToHit,
+          1,
+          executorService,
+          new NullStatsReceiver())
+          .computeRecommendations(salsaRequest, new Random(randomSeed));
+      assertEquals(expectedResponse.getSalsaStats(), salsaResponse.getSalsaStats());
+      assertEquals(
+          Lists.newArrayList(expectedResponse.getRankedRecommendations()),
+          Lists.newArrayList(salsaResponse.getRankedRecommendations()));
+
+      ParallelSalsa parallelSalsa = new ParallelSalsa(
+          bipartiteGraph,
+          expectedNodesToHit,
+          4,
+          executorService,
+          new NullStatsReceiver());
+      salsaResponse = parallelSalsa.computeRecommendations(salsaRequest, new Random(randomSeed));
+      List<RecommendationInfo> salsaResults =
+          Lists.newArrayList(salsaResponse.getRankedRecommendations());
+      SalsaStats salsaStats = salsaResponse.getSalsaStats();
+      assertEquals(expectedResponse.getSalsaStats().getNumSeedNodes(), salsaStats.getNumSeedNodes());
+      assertEquals(
+          expectedResponse.getSalsaStats().getNumDirectNeighbors(),
+          salsaStats.getNumDirectNeighbors());
+      assertEquals(
+          expectedResponse.getSalsaStats().getNumRightNodesReached(),
+          salsaStats.getNumRightNodesReached());
+      // the walks follow the same distribution, so the same nodes come out on top
+      assertEquals(getTopNodes(expectedResponse), getTopNodes(salsaResponse));
+
+      // the worker random number generators are derived from the given one
+      salsaResponse = parallelSalsa.computeRecommendations(salsaRequest, new Random(randomSeed));
+      assertEquals(salsaStats, salsaResponse.getSalsaStats());
+      assertEquals(salsaResults, Lists.newArrayList(salsaResponse.getRankedRecommendations()));
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testDenseSalsa() throws Exception {
+    BipartiteGraph bipartiteGraph = BipartiteGraphTestHelper.buildSmallTestBipartiteGraph();
+    long randomSeed = 918324701982347L;
+    int expectedNodesToHit = 50000;
+    SalsaRequest salsaRequest = buildSmallTestGraphSalsaRequest();
+
+    SalsaResponse expectedResponse = new Salsa(
+        bipartiteGraph,
+        expectedNodesToHit,
+        new NullStatsReceiver())
+        .computeRecommendations(salsaRequest, new Random(randomSeed));
+
+    DenseSalsa denseSalsa = new DenseSalsa(
+        bipartiteGraph,
+        expectedNodesToHit,
+        new NullStatsReceiver());
+    SalsaResponse salsaResponse =
+        denseSalsa.computeRecommendations(salsaRequest, new Random(randomSeed));
+    SalsaStats salsaStats = salsaResponse.getSalsaStats();
+    assertEquals(expectedResponse.getSalsaStats().getNumSeedNodes(), salsaStats.getNumSeedNodes());
+    assertEquals(
+        expectedResponse.getSalsaStats().getNumDirectNeighbors(),
+        salsaStats.getNumDirectNeighbors());
+    assertEquals(
+        expectedResponse.getSalsaStats().getNumRightNodesReached(),
+        salsaStats.getNumRightNodesReached());
+    // the walks follow the same distribution, so the same nodes come out on top
+    assertEquals(getTopNodes(expectedResponse), getTopNodes(salsaResponse));
+
+    // Things should reset properly on a rerun
+    List<RecommendationInfo> salsaResults =
+        Lists.newArrayList(salsaResponse.getRankedRecommendations());
+    salsaResponse = denseSalsa.computeRecommendations(salsaRequest, new Random(randomSeed));
+    assertEquals(salsaStats, salsaResponse.getSalsaStats());
+    assertEquals(salsaResults, Lists.newArrayList(salsaResponse.getRankedRecommendations()));
+  }
+
+  private static SalsaRequest buildSmallTestGraphSalsaRequest() {
+    return new SalsaRequestBuilder(1)
+        .withLeftSeedNodes(null)
+        .withToBeFiltered(new LongOpenHashSet(new long[]{3}))
+        .withMaxNumResults(3)
+        .withResetProbability(0.3)
+        .withMaxRandomWalkLength(5)
+        .withNumRandomWalks(1000)
+        .withMaxSocialProofSize(2)
+        .withMaxSocialProofTypeSize(4)
+        .withResultFilterChain(new ResultFilterChain(Lists.<ResultFilter>newArrayList(
+            new RequestedSetFilter(new NullStatsReceiver()))))
+        .build();
+  }
+
+  @Test
+  public void testSalsaWithSegmentMemoryRecycling() throws Exception {
+    // every edge joins nodes of the same class, so the walks never leave the class of the query
+    // node unless they read edges of another segment from recycled memory
+    final int numClasses = 8;
+    final int numLeftNodes = 64;
+    final MultiSegmentPowerLawBipartiteGraph graph = new MultiSegmentPowerLawBipartiteGraph(
+        2, 2000, numLeftNodes, 100, 2.0, 1000, 100, 2.0, new IdentityEdgeTypeMask(),
+        new NullStatsReceiver());
+    IntShardPool shardPool = new IntShardPool(1 << 26, new NullStatsReceiver());
+    graph.enableSegmentMemoryRecycling(shardPool);
+    final Random writerRandom = new Random(2376458234523L);
+    for (int i = 0; i < 5000; i++) {
+      addSameClassEdge(graph, numClasses, numLeftNodes, writerRandom);
+    }
+
+    final AtomicBoolean done = new AtomicBoolean();
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    ExecutorService executorService = Executors.newFixedThreadPool(3);
+    try {
+      List<Future<?>> readers = Lists.newArrayList();
+      for (int i = 0; i < 2; i++) {
+        final long readerSeed = i;
+        readers.add(executorService.submit(() -> {
+          Random random = new Random(readerSeed);
+          Salsa salsa = new Salsa(graph, 10000, new NullStatsReceiver());
+          while (!done.get()) {
+            long queryNode = random.nextInt(numLeftNodes);
+            SalsaRequest salsaRequest = new SalsaRequestBuilder(queryNode)
+                .withNumRandomWalks(100)
+                .withMaxRandomWalkLength(5)
+                .withResetProbability(0.3)
+                .withMaxNumResults(10)
+                .withMaxSocialProofSize(2)
+                .withMaxSocialProofTypeSize(4)
+                .build();
+            try {
+              for (long node : getTopNodes(salsa.computeRecommendations(salsaRequest, random))) {
+                assertEquals(queryNode % numClasses, node % numClasses);
+              }
+            } catch (Throwable t) {
+              failure.compareAndSet(null, t);
+              return;
+            }
+          }
+        }));
+      }
+
+      // many rollovers, each of which recycles the shards of a dropped segment
+      for (int i = 0; i < 400000 && failure.get() == null; i++) {
+        addSameClassEdge(graph, numClasses, numLeftNodes, writerRandom);
+      }
+      done.set(true);
+      for (Future<?> reader : readers) {
+        reader.get();
+      }
+    } finally {
+      executorService.shutdownNow();
+    }
+    if (failure.get() != null) {
+      throw new AssertionError("A reader saw recycled memory", failure.get());
+    }
+  }
+
+  private static void addSameClassEdge(
+      MultiSegmentPowerLawBipartiteGraph graph, int numClasses, int numLeftNodes, Random random) {
+    int leftNode = random.nextInt(numLeftNodes);
+    graph.addEdge(leftNode, numClasses * random.nextInt(1000) + leftNode % numClasses, (byte) 0);
+  }
+
+  private static Set<Long> getTopNodes(SalsaResponse salsaResponse) {
+    Set<Long> topNodes = Sets.newHashSet();
+    for (RecommendationInfo recommendationInfo : salsaResponse.getRankedRecommendations()) {
+      topNodes.add(((TweetRecommendationInfo) recommendationInfo).getRecommendation());
+    }
+    return topNodes;
+  }
+
   @Test
   public void testSalsaWithRandomGraph() throws Exception {
     Random random = new Random(12653467345382L);
@@ -27,6 +27,7 @@ import org.junit.Test;
 import com.twitter.graphjet.algorithms.BipartiteGraphTestHelper;
 import com.twitter.graphjet.algorithms.RecommendationInfo;
 import com.twitter.graphjet.bipartite.LeftIndexedMultiSegmentBipartiteGraph;
+import com.twitter.graphjet.stats.DefaultStatsReceiver;
 
 import it.unimi.dsi.fastutil.bytes.Byte2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2DoubleArrayMap;
@@ -66,8 +67,13 @@ public class MomentSocialProofTest {
     );
 
     SocialProofResponse socialProofResponse = new MomentSocialProofGenerator(
-      bipartiteGraph
+      bipartiteGraph,
+      new DefaultStatsReceiver("testMomentSocialProof")
     ).computeRecommendations(socialProofRequest, random);
+    assertEquals(1L,
+      DefaultStatsReceiver.getCount("testMomentSocialProof/SocialProofGenerator/numRequests"));
+    assertEquals(1L, DefaultStatsReceiver.getStat(
+      "testMomentSocialProof/SocialProofGenerator/numRightNodesReached").getCount());
 
     List<RecommendationInfo> socialProofResults =
         Lists.newArrayList(socialProofResponse.getRankedRecommendations());
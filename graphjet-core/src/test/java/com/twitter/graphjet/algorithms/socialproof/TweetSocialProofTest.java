@@ -22,8 +22,14 @@ import org.junit.Test;
 
 import com.twitter.graphjet.algorithms.BipartiteGraphTestHelper;
 import com.twitter.graphjet.algorithms.RecommendationType;
+import com.twitter.graphjet.algorithms.TweetIDMask;
 import com.twitter.graphjet.bipartite.LeftIndexedPowerLawMultiSegmentBipartiteGraph;
 import com.twitter.graphjet.bipartite.NodeMetadataLeftIndexedMultiSegmentBipartiteGraph;
+import com.twitter.graphjet.bipartite.RightNodeMetadataLeftIndexedMultiSegmentBipartiteGraph;
+import com.twitter.graphjet.bipartite.RightNodeMetadataLeftIndexedPowerLawMultiSegmentBipartiteGraph;
+import com.twitter.graphjet.bipartite.RightNodeMetadataPowerLawMultiSegmentBipartiteGraph;
+import com.twitter.graphjet.bipartite.segment.HigherBitsEdgeTypeMask;
+import com.twitter.graphjet.stats.NullStatsReceiver;
 
 import it.unimi.dsi.fastutil.bytes.Byte2ObjectArrayMap;
 import it.unimi.dsi.fastutil.bytes.Byte2ObjectMap;
@@ -422,4 +428,144 @@ public class TweetSocialProofTest {
     expected = new SocialProofResult(tweet13, expectedProofs, 2, RecommendationType.TWEET);
     assertEqualSocialProofResults(expected, results.get(tweet13));
   }
+
+  private static void addTweetEngagements(
+    RightNodeMetadataLeftIndexedMultiSegmentBipartiteGraph graph) {
+    int[][] metadata = new int[][]{{1}};
+    graph.addEdge(1, 1, FAVORITE_SOCIAL_PROOF_TYPE, metadata);
+    graph.addEdge(2, 1, RETWEET_SOCIAL_PROOF_TYPE, metadata);
+    graph.addEdge(3, 1, FAVORITE_SOCIAL_PROOF_TYPE, metadata);
+    graph.addEdge(3, 1, UNFAVORITE_SOCIAL_PROOF_TYPE, metadata);
+    // engagements with a tagged tweet id are attributed to the tweet itself
+    graph.addEdge(4, TweetIDMask.photo(2), FAVORITE_SOCIAL_PROOF_TYPE, metadata);
+    graph.addEdge(5, 2, FAVORITE_SOCIAL_PROOF_TYPE, metadata);
+    graph.addEdge(1, 3, REPLY_SOCIAL_PROOF_TYPE, metadata);
+    // neither a seed nor a requested tweet
+    graph.addEdge(6, 2, FAVORITE_SOCIAL_PROOF_TYPE, metadata);
+    graph.addEdge(1, 4, FAVORITE_SOCIAL_PROOF_TYPE, metadata);
+  }
+
+  @Test
+  public void testTweetSocialProofsFromRightIndexedGraph() {
+    RightNodeMetadataLeftIndexedMultiSegmentBipartiteGraph leftIndexedGraph =
+      new RightNodeMetadataLeftIndexedPowerLawMultiSegmentBipartiteGraph(
+        10, 100, 10, 10, 2.0, 100, 1, new HigherBitsEdgeTypeMask(), new NullStatsReceiver());
+    RightNodeMetadataPowerLawMultiSegmentBipartiteGraph rightIndexedGraph =
+      new RightNodeMetadataPowerLawMultiSegmentBipartiteGraph(
+        10, 100, 10, 10, 2.0, 100, 10, 2.0, 1, new HigherBitsEdgeTypeMask(),
+        new NullStatsReceiver());
+    addTweetEngagements(leftIndexedGraph);
+    addTweetEngagements(rightIndexedGraph);
+
+    Long2DoubleMap seedsMap = new Long2DoubleArrayMap(
+      new long[] {user1, user2, user3, user4, user5}, new double[] {1.0, 0.5, 1.0, 2.0, 1.0});
+    LongSet tweets = new LongArraySet(new long[] {tweet1, tweet2, tweet3});
+    SocialProofRequest socialProofRequest = new SocialProofRequest(
+      tweets,
+      seedsMap,
+      new byte[] {FAVORITE_SOCIAL_PROOF_TYPE, RETWEET_SOCIAL_PROOF_TYPE}
+    );
+
+    HashMap<Long, SocialProofResult> results = new HashMap<>();
+    new TweetSocialProofGenerator(rightIndexedGraph)
+      .computeRecommendations(socialProofRequest, new Random(0))
+      .getRankedRecommendations().forEach( recInfo ->
+        results.put(((SocialProofResult)recInfo).getNode(), (SocialProofResult)recInfo));
+    HashMap<Long, SocialProofResult> leftIndexedResults = new HashMap<>();
+    new TweetSocialProofGenerator(leftIndexedGraph)
+      .computeRecommendations(socialProofRequest, new Random(0))
+      .getRankedRecommendations().forEach( recInfo -> leftIndexedResults.put(
+        ((SocialProofResult)recInfo).getNode(), (SocialProofResult)recInfo));
+
+    assertEquals(2, results.size());
+    assertEquals(leftIndexedResults.keySet(), results.keySet());
+
+    Byte2ObjectMap<LongSet> expectedProofs;
+    SocialProofResult expected;
+
+    // Test social proofs for tweet 1, whose favorite from user 3 was undone
+    expectedProofs = new Byte2ObjectArrayMap<>();
+    expectedProofs.put(FAVORITE_SOCIAL_PROOF_TYPE, new LongArraySet(new long[] {user1}));
+    expectedProofs.put(RETWEET_SOCIAL_PROOF_TYPE, new LongArraySet(new long[] {user2}));
+    expected = new SocialProofResult(tweet1, expectedProofs, 1.5, RecommendationType.TWEET);
+    assertEqualSocialProofResults(expected, results.get(tweet1));
+    assertEqualSocialProofResults(leftIndexedResults.get(tweet1), results.get(tweet1));
+
+    // Test social proofs for tweet 2
+    expectedProofs = new Byte2ObjectArrayMap<>();
+    expectedProofs.put(FAVORITE_SOCIAL_PROOF_TYPE, new LongArraySet(new long[] {user4, user5}));
+    expected = new SocialProofResult(tweet2, expectedProofs, 3.0, RecommendationType.TWEET);
+    assertEqualSocialProofResults(expected, results.get(tweet2));
+    assertEqualSocialProofResults(leftIndexedResults.get(tweet2), results.get(tweet2));
+  }
+
+  private static void addEngagementsWithHeavySeed(
+    RightNodeMetadataLeftIndexedMultiSegmentBipartiteGraph graph) {
+    int[][] metadata = new int[][]{{1}};
+    // user 1 has more edges than a seed's scan visits, and its engagement with tweet 2 comes last
+    graph.addEdge(1, 1, FAVORITE_SOCIAL_PROOF_TYPE, metadata);
+    for (int i = 0; i < 600; i++) {
+      graph.addEdge(1, 1000 + i, FAVORITE_SOCIAL_PROOF_TYPE, metadata);
+    }
+    graph.addEdge(1, 2, FAVORITE_SOCIAL_PROOF_TYPE, metadata);
+    // users 2 to 6 have few edges, but enough that the right node edges are cheaper to intersect
+    for (long user = 2; user <= 6; user++) {
+      graph.addEdge(user, user % 2 == 0 ? 1 : 2, RETWEET_SOCIAL_PROOF_TYPE, metadata);
+      for (int i = 0; i < 50; i++) {
+        graph.addEdge(user, 5000 + 100 * user + i, FAVORITE_SOCIAL_PROOF_TYPE, metadata);
+      }
+    }
+  }
+
+  @Test
+  public void testRightIndexedGraphWithHeavySeed() {
+    RightNodeMetadataLeftIndexedMultiSegmentBipartiteGraph leftIndexedGraph =
+      new RightNodeMetadataLeftIndexedPowerLawMultiSegmentBipartiteGraph(
+        2, 10000, 10, 10, 2.0, 1000, 1, new HigherBitsEdgeTypeMask(), new NullStatsReceiver());
+    RightNodeMetadataPowerLawMultiSegmentBipartiteGraph rightIndexedGraph =
+      new RightNodeMetadataPowerLawMultiSegmentBipartiteGraph(
+        2, 10000, 10, 10, 2.0, 1000, 10, 2.0, 1, new HigherBitsEdgeTypeMask(),
+        new NullStatsReceiver());
+    addEngagementsWithHeavySeed(leftIndexedGraph);
+    addEngagementsWithHeavySeed(rightIndexedGraph);
+
+    Long2DoubleMap seedsMap = new Long2DoubleArrayMap(
+      new long[] {user1, user2, user3, user4, user5, user6},
+      new double[] {1.0, 1.0, 1.0, 1.0, 1.0, 1.0});
+    LongSet tweets = new LongArraySet(new long[] {tweet1, tweet2});
+    SocialProofRequest socialProofRequest = new SocialProofRequest(
+      tweets,
+      seedsMap,
+      new byte[] {FAVORITE_SOCIAL_PROOF_TYPE, RETWEET_SOCIAL_PROOF_TYPE}
+    );
+
+    HashMap<Long, SocialProofResult> results = new HashMap<>();
+    new TweetSocialProofGenerator(rightIndexedGraph)
+      .computeRecommendations(socialProofRequest, new Random(0))
+      .getRankedRecommendations().forEach( recInfo ->
+        results.put(((SocialProofResult)recInfo).getNode(), (SocialProofResult)recInfo));
+    HashMap<Long, SocialProofResult> leftIndexedResults = new HashMap<>();
+    new TweetSocialProofGenerator(leftIndexedGraph)
+      .computeRecommendations(socialProofRequest, new Random(0))
+      .getRankedRecommendations().forEach( recInfo -> leftIndexedResults.put(
+        ((SocialProofResult)recInfo).getNode(), (SocialProofResult)recInfo));
+
+    // Both graphs give the same results, where the engagement of user 1 with tweet 2 is not a
+    // social proof as it is beyond the edges of user 1 that are visited
+    assertEquals(leftIndexedResults.keySet(), results.keySet());
+    Byte2ObjectMap<LongSet> expectedProofs = new Byte2ObjectArrayMap<>();
+    expectedProofs.put(FAVORITE_SOCIAL_PROOF_TYPE, new LongArraySet(new long[] {user1}));
+    expectedProofs.put(
+      RETWEET_SOCIAL_PROOF_TYPE, new LongArraySet(new long[] {user2, user4, user6}));
+    SocialProofResult expected =
+      new SocialProofResult(tweet1, expectedProofs, 4.0, RecommendationType.TWEET);
+    assertEqualSocialProofResults(expected, results.get(tweet1));
+    assertEqualSocialProofResults(leftIndexedResults.get(tweet1), results.get(tweet1));
+
+    expectedProofs = new Byte2ObjectArrayMap<>();
+    expectedProofs.put(RETWEET_SOCIAL_PROOF_TYPE, new LongArraySet(new long[] {user3, user5}));
+    expected = new SocialProofResult(tweet2, expectedProofs, 2.0, RecommendationType.TWEET);
+    assertEqualSocialProofResults(expected, results.get(tweet2));
+    assertEqualSocialProofResults(leftIndexedResults.get(tweet2), results.get(tweet2));
+  }
 }
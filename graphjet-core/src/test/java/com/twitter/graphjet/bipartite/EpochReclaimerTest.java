@@ -0,0 +1,108 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.bipartite;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class EpochReclaimerTest {
+  @Test
+  public void testReclaimWithoutReaders() {
+    EpochReclaimer epochReclaimer = new EpochReclaimer();
+    AtomicInteger numReclaimed = new AtomicInteger();
+    assertEquals(0, epochReclaimer.reclaim());
+
+    epochReclaimer.retire(numReclaimed::incrementAndGet);
+    assertEquals(1, epochReclaimer.getNumPendingRetirements());
+    assertEquals(1, epochReclaimer.reclaim());
+    assertEquals(1, numReclaimed.get());
+    assertEquals(0, epochReclaimer.getNumPendingRetirements());
+  }
+
+  @Test
+  public void testReadersDelayReclamation() {
+    EpochReclaimer epochReclaimer = new EpochReclaimer();
+    AtomicInteger numReclaimed = new AtomicInteger();
+
+    long oldReader = epochReclaimer.enter();
+    epochReclaimer.retire(numReclaimed::incrementAndGet);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, epochReclaimer.reclaim());
+    }
+    assertEquals(0, numReclaimed.get());
+    // a reader that enters in a later epoch cannot have seen the retired memory
+    long newReader = epochReclaimer.enter();
+
+    epochReclaimer.exit(oldReader);
+    assertEquals(1, epochReclaimer.reclaim());
+    assertEquals(1, numReclaimed.get());
+
+    // the new reader holds back whatever gets retired next
+    epochReclaimer.retire(numReclaimed::incrementAndGet);
+    assertEquals(0, epochReclaimer.reclaim());
+    epochReclaimer.exit(newReader);
+    assertEquals(1, epochReclaimer.reclaim());
+    assertEquals(2, numReclaimed.get());
+  }
+
+  @Test
+  public void testConcurrentReaders() throws Exception {
+    final EpochReclaimer epochReclaimer = new EpochReclaimer();
+    final int numRetirements = 10000;
+    // each retirement invalidates one slot, which readers must never see invalidated
+    final boolean[] invalidated = new boolean[numRetirements];
+    final AtomicInteger published = new AtomicInteger();
+    final AtomicInteger numViolations = new AtomicInteger();
+    final AtomicInteger done = new AtomicInteger();
+
+    Thread[] readers = new Thread[4];
+    for (int r = 0; r < readers.length; r++) {
+      readers[r] = new Thread(() -> {
+        while (done.get() == 0) {
+          long readerEpoch = epochReclaimer.enter();
+          int slot = published.get();
+          for (int i = 0; i < 100; i++) {
+            if (slot < numRetirements && invalidated[slot]) {
+              numViolations.incrementAndGet();
+            }
+          }
+          epochReclaimer.exit(readerEpoch);
+        }
+      });
+      readers[r].start();
+    }
+
+    for (int i = 0; i < numRetirements; i++) {
+      final int slot = i;
+      // unpublish the slot, then retire it
+      published.set(i + 1);
+      epochReclaimer.retire(() -> invalidated[slot] = true);
+      epochReclaimer.reclaim();
+    }
+    done.set(1);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    while (epochReclaimer.getNumPendingRetirements() > 0) {
+      epochReclaimer.reclaim();
+    }
+    assertEquals(0, numViolations.get());
+  }
+}
@@ -29,7 +29,13 @@ import org.junit.Test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+import com.twitter.graphjet.bipartite.api.OptimizableBipartiteGraph;
+import com.twitter.graphjet.bipartite.api.OptimizableBipartiteGraphSegment;
+import com.twitter.graphjet.bipartite.optimizer.OptimizerExecutor;
 import com.twitter.graphjet.bipartite.segment.IdentityEdgeTypeMask;
+import com.twitter.graphjet.hashing.IntShardPool;
+import com.twitter.graphjet.stats.DefaultStatsReceiver;
 import com.twitter.graphjet.stats.NullStatsReceiver;
 
 import it.unimi.dsi.fastutil.longs.LongArrayList;
@@ -183,6 +189,184 @@ public class MultiSegmentLeftIndexedPowerLawBipartiteGraphTest {
     testGraphAfterSegmentDrop(smallMultiSegmentPowerLawBipartiteGraph);
   }
 
+  @Test
+  public void testSegmentMemoryRecycling() throws Exception {
+    IntShardPool shardPool = new IntShardPool(1 << 24, new NullStatsReceiver());
+    LeftIndexedPowerLawMultiSegmentBipartiteGraph multiSegmentLeftIndexedPowerLawBipartiteGraph =
+        new LeftIndexedPowerLawMultiSegmentBipartiteGraph(
+            2, 100, 4, 1, 2.0, 3, new IdentityEdgeTypeMask(), new NullStatsReceiver());
+    multiSegmentLeftIndexedPowerLawBipartiteGraph.enableSegmentMemoryRecycling(shardPool);
+
+    addEdges(multiSegmentLeftIndexedPowerLawBipartiteGraph);
+    multiSegmentLeftIndexedPowerLawBipartiteGraph.rollForwardSegment();
+    assertEquals(0, shardPool.getNumPooledInts());
+
+    // a reader that is still around holds on to the shards of the segment that gets dropped
+    long readEpoch = multiSegmentLeftIndexedPowerLawBipartiteGraph.enterReadEpoch();
+    EdgeIterator iterator = multiSegmentLeftIndexedPowerLawBipartiteGraph.getLeftNodeEdges(1);
+    addEdges(multiSegmentLeftIndexedPowerLawBipartiteGraph);
+    multiSegmentLeftIndexedPowerLawBipartiteGraph.rollForwardSegment();
+    assertEquals(0, shardPool.getNumPooledInts());
+    assertEquals(Sets.newHashSet(11L, 12L, 13L), Sets.newHashSet(iterator));
+    multiSegmentLeftIndexedPowerLawBipartiteGraph.exitReadEpoch(readEpoch);
+
+    // the next rollover recycles them, and the new live segment takes them back
+    multiSegmentLeftIndexedPowerLawBipartiteGraph.rollForwardSegment();
+    long numPooledInts = shardPool.getNumPooledInts();
+    assertTrue(numPooledInts > 0);
+    addEdges(multiSegmentLeftIndexedPowerLawBipartiteGraph);
+    assertTrue(shardPool.getNumPooledInts() < numPooledInts);
+
+    // only the edges added to the recycled shards are left
+    assertEquals(3, multiSegmentLeftIndexedPowerLawBipartiteGraph.getLeftNodeDegree(1));
+    assertEquals(Sets.newHashSet(11L, 12L, 13L), Sets.newHashSet(
+        multiSegmentLeftIndexedPowerLawBipartiteGraph.getLeftNodeEdges(1)));
+    assertEquals(Sets.newHashSet(41L, 42L, 43L), Sets.newHashSet(
+        multiSegmentLeftIndexedPowerLawBipartiteGraph.getLeftNodeEdges(4)));
+    assertEquals(Sets.newHashSet(11L), Sets.newHashSet(
+        multiSegmentLeftIndexedPowerLawBipartiteGraph.getLeftNodeEdges(5)));
+  }
+
+  @Test
+  public void testSegmentMemoryRecyclingWithDeferredOptimizations() throws Exception {
+    final List<Runnable> deferredJobs = Lists.newArrayList();
+    OptimizerExecutor optimizerExecutor = new OptimizerExecutor(
+        1, 1, 1, OptimizerExecutor.SaturationPolicy.DEFER, new NullStatsReceiver()) {
+      @Override
+      public void submit(
+          OptimizableBipartiteGraph graph, OptimizableBipartiteGraphSegment segment) {
+        deferredJobs.add(() -> graph.optimize(segment));
+      }
+    };
+    IntShardPool shardPool =
+        new IntShardPool(1 << 24, new DefaultStatsReceiver("testDeferredOptimizations"));
+    try {
+      LeftIndexedPowerLawMultiSegmentBipartiteGraph multiSegmentLeftIndexedPowerLawBipartiteGraph =
+          new LeftIndexedPowerLawMultiSegmentBipartiteGraph(
+              2, 3, 4, 1, 2.0, 3, new IdentityEdgeTypeMask(),
+              new DefaultStatsReceiver("testDeferredOptimizations"));
+      multiSegmentLeftIndexedPowerLawBipartiteGraph.setOptimizerExecutor(optimizerExecutor);
+      multiSegmentLeftIndexedPowerLawBipartiteGraph.enableSegmentMemoryRecycling(shardPool);
+
+      // segment k holds the edges (1, 100k), (2, 100k + 1) and (3, 100k + 2)
+      for (int k = 0; k < 4; k++) {
+        for (int j = 0; j < 3; j++) {
+          multiSegmentLeftIndexedPowerLawBipartiteGraph.addEdge(j + 1, 100 * k + j, (byte) 0);
+        }
+      }
+      multiSegmentLeftIndexedPowerLawBipartiteGraph.addEdge(1, 400, (byte) 0);
+      assertEquals(4, deferredJobs.size());
+      // the dropped segments have been recycled before their optimization got to run
+      assertTrue(DefaultStatsReceiver.getCount(
+          "testDeferredOptimizations/IntShardPool/numReleasedShards") > 0);
+      assertEquals((double) shardPool.getNumPooledInts(), DefaultStatsReceiver.getGaugeValue(
+          "testDeferredOptimizations/IntShardPool/numPooledInts"), 0.0);
+      // the sealed segment holds 3 edges and the live one 1
+      assertEquals(4.0, DefaultStatsReceiver.getGaugeValue(
+          "testDeferredOptimizations/LeftIndexedMultiSegmentBipartiteGraph/numEdges"), 0.0);
+      assertEquals(2.0, DefaultStatsReceiver.getGaugeValue(
+          "testDeferredOptimizations/LeftIndexedMultiSegmentBipartiteGraph/numSegments"), 0.0);
+
+      for (Runnable job : deferredJobs) {
+        job.run();
+      }
+
+      assertEquals(Sets.newHashSet(300L, 400L), Sets.newHashSet(
+          multiSegmentLeftIndexedPowerLawBipartiteGraph.getLeftNodeEdges(1)));
+      assertEquals(Sets.newHashSet(301L), Sets.newHashSet(
+          multiSegmentLeftIndexedPowerLawBipartiteGraph.getLeftNodeEdges(2)));
+      assertEquals(Sets.newHashSet(302L), Sets.newHashSet(
+          multiSegmentLeftIndexedPowerLawBipartiteGraph.getLeftNodeEdges(3)));
+      // the optimized segment is dropped like any other
+      multiSegmentLeftIndexedPowerLawBipartiteGraph.rollForwardSegment();
+      assertEquals(Sets.newHashSet(400L), Sets.newHashSet(
+          multiSegmentLeftIndexedPowerLawBipartiteGraph.getLeftNodeEdges(1)));
+    } finally {
+      optimizerExecutor.shutdown();
+    }
+  }
+
+  @Test
+  public void testReusableIteratorAfterOptimization() throws Exception {
+    final List<Runnable> deferredJobs = Lists.newArrayList();
+    OptimizerExecutor optimizerExecutor = new OptimizerExecutor(
+        1, 1, 1, OptimizerExecutor.SaturationPolicy.DEFER, new NullStatsReceiver()) {
+      @Override
+      public void submit(
+          OptimizableBipartiteGraph graph, OptimizableBipartiteGraphSegment segment) {
+        deferredJobs.add(() -> graph.optimize(segment));
+      }
+    };
+    try {
+      LeftIndexedPowerLawMultiSegmentBipartiteGraph multiSegmentLeftIndexedPowerLawBipartiteGraph =
+          new LeftIndexedPowerLawMultiSegmentBipartiteGraph(
+              3, 1 << 20, 4, 1, 2.0, 3, new IdentityEdgeTypeMask(), new NullStatsReceiver());
+      multiSegmentLeftIndexedPowerLawBipartiteGraph.setOptimizerExecutor(optimizerExecutor);
+      IntShardPool shardPool =
+          new IntShardPool(1 << 24, new DefaultStatsReceiver("testReusableIteratorAfterOptimization"));
+      multiSegmentLeftIndexedPowerLawBipartiteGraph.enableSegmentMemoryRecycling(shardPool);
+
+      multiSegmentLeftIndexedPowerLawBipartiteGraph.addEdge(1, 10, (byte) 0);
+      multiSegmentLeftIndexedPowerLawBipartiteGraph.addEdge(1, 11, (byte) 0);
+      multiSegmentLeftIndexedPowerLawBipartiteGraph.addEdge(2, 12, (byte) 0);
+      multiSegmentLeftIndexedPowerLawBipartiteGraph.sealLiveSegment();
+      ReusableNodeLongIterator iterator =
+          multiSegmentLeftIndexedPowerLawBipartiteGraph.initializeLeftNodeEdgesLongIterator();
+      assertEquals(Sets.newHashSet(10L, 11L), Sets.newHashSet(iterator.resetForNode(1)));
+
+      // the sealed segment gets optimized, and the writer recycles its replaced edge pools into
+      // the live segment without any rollover
+      assertEquals(1, deferredJobs.size());
+      deferredJobs.get(0).run();
+      for (int i = 0; i <= 1 << 16; i++) {
+        multiSegmentLeftIndexedPowerLawBipartiteGraph.addEdge(3, 100 + i, (byte) 0);
+      }
+      assertTrue(DefaultStatsReceiver.getCount(
+          "testReusableIteratorAfterOptimization/IntShardPool/numReleasedShards") > 0);
+      multiSegmentLeftIndexedPowerLawBipartiteGraph.addEdge(1, 30, (byte) 0);
+
+      // the iterator moves on to the optimized edge pool instead of reading the recycled one
+      assertEquals(
+          Sets.newHashSet(10L, 11L, 30L), Sets.newHashSet(iterator.resetForNode(1)));
+    } finally {
+      optimizerExecutor.shutdown();
+    }
+  }
+
+  @Test
+  public void testTimeWindow() throws Exception {
+    final long[] clock = new long[]{1000L};
+    LeftIndexedPowerLawMultiSegmentBipartiteGraph multiSegmentLeftIndexedPowerLawBipartiteGraph =
+        new LeftIndexedPowerLawMultiSegmentBipartiteGraph(
+            4, 3, 4, 10, 2.0, 10, new IdentityEdgeTypeMask(), new NullStatsReceiver()) {
+          @Override
+          protected long currentTimeMillis() {
+            return clock[0];
+          }
+        };
+
+    // the first segment holds [11, 12, 13], the second [14, 15, 16] and the live one [17]
+    for (int i = 11; i <= 17; i++) {
+      clock[0] = 1000L * ((i - 11) / 3 + 1);
+      multiSegmentLeftIndexedPowerLawBipartiteGraph.addEdge(1, i, (byte) 0);
+    }
+
+    assertEquals(Sets.newHashSet(11L, 12L, 13L, 14L, 15L, 16L, 17L), Sets.newHashSet(
+        multiSegmentLeftIndexedPowerLawBipartiteGraph.getLeftNodeEdges(1)));
+    assertEquals(Sets.newHashSet(11L, 12L, 13L), Sets.newHashSet(
+        multiSegmentLeftIndexedPowerLawBipartiteGraph.getLeftNodeEdges(1, Long.MIN_VALUE, 1500L)));
+    assertEquals(Sets.newHashSet(14L, 15L, 16L, 17L), Sets.newHashSet(
+        multiSegmentLeftIndexedPowerLawBipartiteGraph.getLeftNodeEdges(1, 2500L, Long.MAX_VALUE)));
+    assertEquals(Sets.newHashSet(14L, 15L, 16L), Sets.newHashSet(
+        multiSegmentLeftIndexedPowerLawBipartiteGraph.getLeftNodeEdges(1, 2500L, 2900L)));
+    assertEquals(Sets.newHashSet(17L), Sets.newHashSet(
+        multiSegmentLeftIndexedPowerLawBipartiteGraph.getLeftNodeEdges(1, 3500L, Long.MAX_VALUE)));
+    assertTrue(Sets.newHashSet(
+        multiSegmentLeftIndexedPowerLawBipartiteGraph.getLeftNodeEdges(2, 2500L, 2900L)).isEmpty());
+    // the degree is not restricted to the window
+    assertEquals(7, multiSegmentLeftIndexedPowerLawBipartiteGraph.getLeftNodeDegree(1));
+  }
+
   @Test
   public void testRandomSegmentConstruction() throws Exception {
     int maxNumSegments = 10;
@@ -17,6 +17,7 @@
 
 package com.twitter.graphjet.bipartite;
 
+import java.io.File;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
@@ -25,13 +26,16 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import com.twitter.graphjet.bipartite.segment.IdentityEdgeTypeMask;
 import com.twitter.graphjet.bipartite.segment.LeftIndexedBipartiteGraphSegment;
+import com.twitter.graphjet.hashing.BigArrayStorage;
 import com.twitter.graphjet.stats.NullStatsReceiver;
 
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
@@ -42,6 +46,9 @@ import static com.twitter.graphjet.bipartite.GraphConcurrentTestHelper.testRando
 
 
 public class MultiSegmentPowerLawBipartiteGraphTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private void addEdges(LeftIndexedMultiSegmentBipartiteGraph leftIndexedMultiSegmentBipartiteGraph) {
     leftIndexedMultiSegmentBipartiteGraph.addEdge(1, 11, (byte) 0);
     leftIndexedMultiSegmentBipartiteGraph.addEdge(1, 12, (byte) 0);
@@ -470,4 +477,220 @@ public class MultiSegmentPowerLawBipartiteGraphTest {
       System.out.println("Free memory (bytes): " + Runtime.getRuntime().freeMemory());
     }
   }
+
+  private static MultiSegmentPowerLawBipartiteGraph newSnapshotTestGraph(int maxNumSegments) {
+    return newSnapshotTestGraph(maxNumSegments, BigArrayStorage.HEAP);
+  }
+
+  private static MultiSegmentPowerLawBipartiteGraph newSnapshotTestGraph(
+      int maxNumSegments,
+      BigArrayStorage optimizedStorage) {
+    return new MultiSegmentPowerLawBipartiteGraph(
+        maxNumSegments, 100, 10, 10, 2.0, 10, 10, 2.0, new IdentityEdgeTypeMask(),
+        optimizedStorage, new NullStatsReceiver());
+  }
+
+  private static void waitForOptimizedSegments(
+      MultiSegmentPowerLawBipartiteGraph graph,
+      int numSealedSegments) throws InterruptedException {
+    while (graph.getNumOptimizedSegments() < numSealedSegments) {
+      Thread.sleep(1);
+    }
+  }
+
+  private static void assertSameGraph(
+      MultiSegmentPowerLawBipartiteGraph expected,
+      MultiSegmentPowerLawBipartiteGraph actual,
+      int leftSize,
+      int rightSize) {
+    for (int i = 0; i < leftSize; i++) {
+      assertEquals(expected.getLeftNodeDegree(i), actual.getLeftNodeDegree(i));
+      if (expected.getLeftNodeDegree(i) > 0) {
+        assertEquals(new LongArrayList(expected.getLeftNodeEdges(i)),
+            new LongArrayList(actual.getLeftNodeEdges(i)));
+      }
+    }
+    for (int j = 0; j < rightSize; j++) {
+      assertEquals(expected.getRightNodeDegree(j), actual.getRightNodeDegree(j));
+      if (expected.getRightNodeDegree(j) > 0) {
+        assertEquals(new LongArrayList(expected.getRightNodeEdges(j)),
+            new LongArrayList(actual.getRightNodeEdges(j)));
+      }
+    }
+  }
+
+  @Test
+  public void testSnapshotAndRestore() throws Exception {
+    int leftSize = 40;
+    int rightSize = 40;
+    Random random = new Random(2938749283749L);
+    MultiSegmentPowerLawBipartiteGraph graph = newSnapshotTestGraph(4);
+    LongArrayList leftNodes = new LongArrayList();
+    LongArrayList rightNodes = new LongArrayList();
+    for (int i = 0; i < leftSize; i++) {
+      for (int j = 0; j < rightSize; j++) {
+        if (random.nextDouble() < 0.3) {
+          graph.addEdge(i, j, (byte) 0);
+          leftNodes.add(i);
+          rightNodes.add(j);
+        }
+      }
+    }
+    int numEdges = leftNodes.size();
+    // enough edges for the oldest segments to have been dropped already
+    assertTrue(numEdges > 4 * 100);
+    int numEdgesInLiveSegment = graph.getLiveSegment().getCurrentNumEdges();
+    assertTrue(numEdgesInLiveSegment > 0);
+    int liveSegmentId = graph.getReaderAccessibleInfo().liveSegmentId;
+
+    File directory = temporaryFolder.newFolder();
+    graph.snapshot(directory, numEdges);
+    // the live segment is not sealed early, and not written out
+    assertEquals(liveSegmentId, graph.getReaderAccessibleInfo().liveSegmentId);
+    assertEquals(numEdgesInLiveSegment, graph.getLiveSegment().getCurrentNumEdges());
+
+    MultiSegmentPowerLawBipartiteGraph restoredGraph = newSnapshotTestGraph(4);
+    long replayOffset = restoredGraph.restore(directory);
+    assertEquals(numEdges - numEdgesInLiveSegment, replayOffset);
+    for (int i = (int) replayOffset; i < numEdges; i++) {
+      restoredGraph.addEdge(leftNodes.getLong(i), rightNodes.getLong(i), (byte) 0);
+    }
+    assertEquals(
+        graph.getReaderAccessibleInfo().oldestSegmentId,
+        restoredGraph.getReaderAccessibleInfo().oldestSegmentId);
+    assertEquals(liveSegmentId, restoredGraph.getReaderAccessibleInfo().liveSegmentId);
+    assertEquals(
+        graph.getNumEdgesInNonLiveSegments(), restoredGraph.getNumEdgesInNonLiveSegments());
+    assertSameGraph(graph, restoredGraph, leftSize, rightSize);
+
+    // replaying the stream past the snapshot behaves exactly like the original graph
+    for (int i = 0; i < 250; i++) {
+      long leftNode = random.nextInt(leftSize);
+      long rightNode = random.nextInt(rightSize);
+      graph.addEdge(leftNode, rightNode, (byte) 0);
+      restoredGraph.addEdge(leftNode, rightNode, (byte) 0);
+    }
+    assertSameGraph(graph, restoredGraph, leftSize, rightSize);
+
+    // a second snapshot into the same directory keeps only the files it still needs
+    graph.snapshot(directory, numEdges + 250);
+    assertEquals(
+        graph.getReaderAccessibleInfo().liveSegmentId
+            - graph.getReaderAccessibleInfo().oldestSegmentId + 1,
+        directory.list().length);
+
+    // restoring into a graph with fewer segments only keeps the newest ones
+    MultiSegmentPowerLawBipartiteGraph smallerGraph = newSnapshotTestGraph(2);
+    assertEquals(
+        numEdges + 250 - graph.getLiveSegment().getCurrentNumEdges(),
+        smallerGraph.restore(directory));
+    assertEquals(1, smallerGraph.getReaderAccessibleInfo().getSegments().size() - 1);
+    assertEquals(
+        graph.getReaderAccessibleInfo().liveSegmentId,
+        smallerGraph.getReaderAccessibleInfo().liveSegmentId);
+  }
+
+  @Test
+  public void testOffHeapSnapshotAndRestore() throws Exception {
+    int leftSize = 40;
+    int rightSize = 40;
+    Random random = new Random(2938749283749L);
+    MultiSegmentPowerLawBipartiteGraph heapGraph = newSnapshotTestGraph(4);
+    MultiSegmentPowerLawBipartiteGraph offHeapGraph =
+        newSnapshotTestGraph(4, BigArrayStorage.OFF_HEAP);
+    LongArrayList leftNodes = new LongArrayList();
+    LongArrayList rightNodes = new LongArrayList();
+    for (int i = 0; i < leftSize; i++) {
+      for (int j = 0; j < rightSize; j++) {
+        if (random.nextDouble() < 0.3) {
+          heapGraph.addEdge(i, j, (byte) 0);
+          offHeapGraph.addEdge(i, j, (byte) 0);
+          leftNodes.add(i);
+          rightNodes.add(j);
+        }
+      }
+    }
+    int numEdges = leftNodes.size();
+    // sealed segments get optimized into off-heap pools in the background, and the snapshot
+    // should write those rather than the regular pools they replace
+    waitForOptimizedSegments(offHeapGraph, (numEdges - 1) / 100);
+    assertSameGraph(heapGraph, offHeapGraph, leftSize, rightSize);
+
+    File directory = temporaryFolder.newFolder();
+    offHeapGraph.snapshot(directory, numEdges);
+
+    // the restored segments are mapped from the snapshot files rather than copied
+    MultiSegmentPowerLawBipartiteGraph restoredGraph =
+        newSnapshotTestGraph(4, BigArrayStorage.OFF_HEAP);
+    long replayOffset = restoredGraph.restore(directory);
+    for (int i = (int) replayOffset; i < numEdges; i++) {
+      restoredGraph.addEdge(leftNodes.getLong(i), rightNodes.getLong(i), (byte) 0);
+    }
+    assertSameGraph(heapGraph, restoredGraph, leftSize, rightSize);
+
+    for (int i = 0; i < 250; i++) {
+      long leftNode = random.nextInt(leftSize);
+      long rightNode = random.nextInt(rightSize);
+      heapGraph.addEdge(leftNode, rightNode, (byte) 0);
+      restoredGraph.addEdge(leftNode, rightNode, (byte) 0);
+    }
+    assertSameGraph(heapGraph, restoredGraph, leftSize, rightSize);
+  }
+
+  @Test
+  public void testBulkLoad() throws Exception {
+    int leftSize = 40;
+    int rightSize = 40;
+    int numEdges = 650;
+    Random random = new Random(90238490238409L);
+    long[] leftNodes = new long[numEdges];
+    long[] rightNodes = new long[numEdges];
+    byte[] edgeTypes = new byte[numEdges];
+    MultiSegmentPowerLawBipartiteGraph graph = newSnapshotTestGraph(4);
+    for (int i = 0; i < numEdges; i++) {
+      leftNodes[i] = random.nextInt(leftSize);
+      rightNodes[i] = random.nextInt(rightSize);
+      graph.addEdge(leftNodes[i], rightNodes[i], edgeTypes[i]);
+    }
+    graph.rollForwardSegment();
+
+    MultiSegmentPowerLawBipartiteGraph loadedGraph = newSnapshotTestGraph(4);
+    loadedGraph.bulkLoad(leftNodes, rightNodes, edgeTypes, numEdges);
+    assertEquals(
+        graph.getReaderAccessibleInfo().oldestSegmentId,
+        loadedGraph.getReaderAccessibleInfo().oldestSegmentId);
+    assertEquals(
+        graph.getReaderAccessibleInfo().liveSegmentId,
+        loadedGraph.getReaderAccessibleInfo().liveSegmentId);
+    assertEquals(
+        graph.getNumEdgesInNonLiveSegments(), loadedGraph.getNumEdgesInNonLiveSegments());
+    assertSameGraph(graph, loadedGraph, leftSize, rightSize);
+
+    // the loaded graph keeps ingesting edges from the stream like any other graph
+    for (int i = 0; i < 250; i++) {
+      long leftNode = random.nextInt(leftSize);
+      long rightNode = random.nextInt(rightSize);
+      graph.addEdge(leftNode, rightNode, (byte) 0);
+      loadedGraph.addEdge(leftNode, rightNode, (byte) 0);
+    }
+    assertSameGraph(graph, loadedGraph, leftSize, rightSize);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testBulkLoadIntoNonEmptyGraph() throws Exception {
+    MultiSegmentPowerLawBipartiteGraph graph = newSnapshotTestGraph(4);
+    addEdges(graph);
+
+    graph.bulkLoad(new long[] {1}, new long[] {2}, new byte[] {0}, 1);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRestoreIntoNonEmptyGraph() throws Exception {
+    MultiSegmentPowerLawBipartiteGraph graph = newSnapshotTestGraph(4);
+    addEdges(graph);
+    File directory = temporaryFolder.newFolder();
+    graph.snapshot(directory, 10);
+
+    graph.restore(directory);
+  }
 }
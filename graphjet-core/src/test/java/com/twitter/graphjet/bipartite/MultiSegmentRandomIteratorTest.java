@@ -0,0 +1,184 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.bipartite;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+import com.twitter.graphjet.bipartite.api.ReusableNodeRandomIntIterator;
+import com.twitter.graphjet.bipartite.segment.IdentityEdgeTypeMask;
+import com.twitter.graphjet.bipartite.segment.LeftIndexedBipartiteGraphSegment;
+import com.twitter.graphjet.bipartite.segment.ReusableInternalIdToLongIterator;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+public class MultiSegmentRandomIteratorTest {
+  private static LeftIndexedPowerLawMultiSegmentBipartiteGraph buildGraph(
+      int maxNumEdgesPerSegment) {
+    return new LeftIndexedPowerLawMultiSegmentBipartiteGraph(
+        4,
+        maxNumEdgesPerSegment,
+        10,
+        10,
+        2.0,
+        100,
+        new IdentityEdgeTypeMask(),
+        new NullStatsReceiver());
+  }
+
+  private static MultiSegmentRandomIterator<LeftIndexedBipartiteGraphSegment> buildIterator(
+      LeftIndexedPowerLawMultiSegmentBipartiteGraph graph, int minDegreeToCache) {
+    return new MultiSegmentRandomIterator<LeftIndexedBipartiteGraphSegment>(
+        graph,
+        new LeftSegmentRandomEdgeAccessor<LeftIndexedBipartiteGraphSegment>(
+            graph.getReaderAccessibleInfo(),
+            new Int2ObjectOpenHashMap<ReusableInternalIdToLongIterator>(graph.getMaxNumSegments()),
+            new Int2ObjectOpenHashMap<ReusableNodeRandomIntIterator>(graph.getMaxNumSegments())),
+        4,
+        minDegreeToCache);
+  }
+
+  private static LongSet sample(
+      MultiSegmentRandomIterator<LeftIndexedBipartiteGraphSegment> iterator,
+      long node,
+      int numSamples,
+      Random random) {
+    EdgeIterator edges = iterator.resetForNode(node, numSamples, random);
+    assertNotNull(edges);
+    LongSet sampled = new LongOpenHashSet();
+    int numSampled = 0;
+    while (edges.hasNext()) {
+      sampled.add(edges.nextLong());
+      numSampled++;
+    }
+    assertEquals(numSamples, numSampled);
+    return sampled;
+  }
+
+  @Test
+  public void testCachedAliasTableIsReusedAcrossSegments() throws Exception {
+    LeftIndexedPowerLawMultiSegmentBipartiteGraph graph = buildGraph(4);
+    // node 1 spans three segments, with the third one still live
+    for (int i = 0; i < 9; i++) {
+      graph.addEdge(1, 10 + i, (byte) 0);
+    }
+    MultiSegmentRandomIterator<LeftIndexedBipartiteGraphSegment> iterator =
+        buildIterator(graph, 2);
+    Random random = new Random(90238490238409L);
+
+    LongSet sampled = sample(iterator, 1, 100, random);
+    assertEquals(0, iterator.getNumCacheHits());
+    assertEquals(1, iterator.getNumCacheMisses());
+    sampled.addAll(sample(iterator, 1, 100, random));
+    assertEquals(1, iterator.getNumCacheHits());
+    assertEquals(1, iterator.getNumCacheMisses());
+    // the cached table still reaches every segment
+    assertEquals(9, sampled.size());
+
+    // nodes that are empty or below the degree threshold are never cached, and so count as
+    // neither hits nor misses
+    graph.addEdge(2, 20, (byte) 0);
+    assertNull(iterator.resetForNode(3, 10, random));
+    sample(iterator, 2, 10, random);
+    sample(iterator, 2, 10, random);
+    assertEquals(1, iterator.getNumCacheHits());
+    assertEquals(1, iterator.getNumCacheMisses());
+  }
+
+  @Test
+  public void testCachedAliasTableIsInvalidatedOnSegmentRoll() throws Exception {
+    LeftIndexedPowerLawMultiSegmentBipartiteGraph graph = buildGraph(4);
+    for (int i = 0; i < 6; i++) {
+      graph.addEdge(1, 10 + i, (byte) 0);
+    }
+    MultiSegmentRandomIterator<LeftIndexedBipartiteGraphSegment> iterator =
+        buildIterator(graph, 2);
+    Random random = new Random(90238490238409L);
+
+    sample(iterator, 1, 10, random);
+    sample(iterator, 1, 10, random);
+    assertEquals(1, iterator.getNumCacheMisses());
+
+    // fills up the live segment and starts a new one, which has no edges of node 1 yet
+    for (int i = 0; i < 3; i++) {
+      graph.addEdge(2, 20 + i, (byte) 0);
+    }
+    sample(iterator, 1, 10, random);
+    assertEquals(1, iterator.getNumCacheHits());
+    assertEquals(2, iterator.getNumCacheMisses());
+    sample(iterator, 1, 10, random);
+    assertEquals(2, iterator.getNumCacheHits());
+  }
+
+  @Test
+  public void testCachedAliasTableIsInvalidatedOnDegreeChange() throws Exception {
+    LeftIndexedPowerLawMultiSegmentBipartiteGraph graph = buildGraph(100);
+    for (int i = 0; i < 16; i++) {
+      graph.addEdge(1, 10 + i, (byte) 0);
+    }
+    MultiSegmentRandomIterator<LeftIndexedBipartiteGraphSegment> iterator =
+        buildIterator(graph, 2);
+    Random random = new Random(90238490238409L);
+
+    sample(iterator, 1, 10, random);
+    // a small change of the degree keeps the cached table
+    graph.addEdge(1, 30, (byte) 0);
+    graph.addEdge(1, 31, (byte) 0);
+    sample(iterator, 1, 10, random);
+    assertEquals(1, iterator.getNumCacheHits());
+    assertEquals(1, iterator.getNumCacheMisses());
+
+    // a larger one rebuilds it
+    graph.addEdge(1, 32, (byte) 0);
+    sample(iterator, 1, 10, random);
+    assertEquals(1, iterator.getNumCacheHits());
+    assertEquals(2, iterator.getNumCacheMisses());
+  }
+
+  @Test
+  public void testSampleBuffersAreReused() throws Exception {
+    LeftIndexedPowerLawMultiSegmentBipartiteGraph graph = buildGraph(4);
+    for (int i = 0; i < 6; i++) {
+      graph.addEdge(1, 10 + i, (byte) 0);
+    }
+    MultiSegmentRandomIterator<LeftIndexedBipartiteGraphSegment> iterator =
+        buildIterator(graph, 2);
+    Random random = new Random(90238490238409L);
+
+    sample(iterator, 1, 50, random);
+    // a smaller request on a larger buffer only returns what it asked for
+    EdgeIterator edges = iterator.resetForNode(1, 3, random);
+    for (int i = 0; i < 3; i++) {
+      assertTrue(edges.hasNext());
+      long edge = edges.nextLong();
+      assertTrue(edge >= 10 && edge < 16);
+    }
+    assertFalse(edges.hasNext());
+  }
+}
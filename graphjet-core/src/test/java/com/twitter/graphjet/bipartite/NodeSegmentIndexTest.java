@@ -0,0 +1,159 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.bipartite;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.twitter.graphjet.bipartite.segment.IdentityEdgeTypeMask;
+import com.twitter.graphjet.bipartite.segment.LeftIndexedBipartiteGraphSegment;
+import com.twitter.graphjet.hashing.BigArrayStorage;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+public class NodeSegmentIndexTest {
+  @Test
+  public void testAddAndGrow() throws Exception {
+    NodeSegmentIndex index = new NodeSegmentIndex(4, 0);
+    int numNodes = 1000;
+    for (int i = 0; i < numNodes; i++) {
+      index.addNodeToSegment(i * 31L, i % 3);
+      index.addNodeToSegment(i * 31L, 3);
+    }
+    assertEquals(numNodes, index.getNumNodes());
+    for (int i = 0; i < numNodes; i++) {
+      long segments = index.getSegments(i * 31L);
+      for (int segmentId = 0; segmentId < 3; segmentId++) {
+        assertEquals(segmentId == i % 3, index.containsSegment(segments, segmentId));
+      }
+      assertTrue(index.containsSegment(segments, 3));
+    }
+    long missingSegments = index.getSegments(-1L);
+    assertEquals(0L, missingSegments);
+    assertFalse(index.containsSegment(missingSegments, 0));
+  }
+
+  @Test
+  public void testDropSegment() throws Exception {
+    NodeSegmentIndex index = new NodeSegmentIndex(16, 0);
+    index.addNodeToSegment(1L, 0);
+    index.addNodeToSegment(1L, 1);
+    index.addNodeToSegment(2L, 0);
+    index.addNodeToSegment(3L, 1);
+
+    // dropping a segment leaves the table as is for the readers
+    index.dropSegment(0);
+    assertEquals(3, index.getNumNodes());
+    assertEquals((1L << 0) | (1L << 1), index.getSegments(1L));
+    assertTrue(index.containsSegment(index.getSegments(2L), 0));
+
+    // the dropped segment's bit is reused by segment 64, whose writes clear the stale bits
+    index.addNodeToSegment(1L, 65);
+    assertEquals(1L << 1, index.getSegments(1L));
+    index.addNodeToSegment(2L, 64);
+    assertEquals(1L << 0, index.getSegments(2L));
+    assertFalse(index.containsSegment(index.getSegments(3L), 64));
+    index.addNodeToSegment(3L, 129);
+    assertEquals(1L << 1, index.getSegments(3L));
+  }
+
+  @Test
+  public void testRebuildDropsNodesOfDroppedSegments() throws Exception {
+    NodeSegmentIndex index = new NodeSegmentIndex(16, 0);
+    int numNodesPerSegment = 10;
+    for (int segmentId = 0; segmentId < 100; segmentId++) {
+      if (segmentId >= 2) {
+        index.dropSegment(segmentId - 2);
+      }
+      for (int i = 0; i < numNodesPerSegment; i++) {
+        index.addNodeToSegment(segmentId * numNodesPerSegment + i, segmentId);
+      }
+      // the nodes of the two live segments are always found
+      for (int i = Math.max(0, segmentId - 1) * numNodesPerSegment;
+           i < (segmentId + 1) * numNodesPerSegment; i++) {
+        assertTrue(index.containsSegment(index.getSegments(i), i / numNodesPerSegment));
+      }
+    }
+    // the table is rebuilt instead of growing with the nodes of dropped segments
+    assertTrue(index.getNumNodes() < 6 * numNodesPerSegment);
+  }
+
+  @Test
+  public void testUnindexedSegments() throws Exception {
+    NodeSegmentIndex index = new NodeSegmentIndex(16, 5);
+    index.addNodeToSegment(1L, 5);
+    long segments = index.getSegments(2L);
+    assertTrue(index.containsSegment(segments, 4));
+    assertFalse(index.containsSegment(segments, 5));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooManySegments() throws Exception {
+    new MultiSegmentReaderAccessibleInfoProvider<LeftIndexedBipartiteGraphSegment>(65, 10, true);
+  }
+
+  private static LeftIndexedPowerLawMultiSegmentBipartiteGraph buildGraph(boolean indexed) {
+    return new LeftIndexedPowerLawMultiSegmentBipartiteGraph(
+        4,
+        20,
+        10,
+        10,
+        2.0,
+        100,
+        new IdentityEdgeTypeMask(),
+        BigArrayStorage.HEAP,
+        indexed,
+        new NullStatsReceiver());
+  }
+
+  @Test
+  public void testIndexedGraphMatchesUnindexedGraph() throws Exception {
+    LeftIndexedPowerLawMultiSegmentBipartiteGraph graph = buildGraph(false);
+    LeftIndexedPowerLawMultiSegmentBipartiteGraph indexedGraph = buildGraph(true);
+    Random random = new Random(90238490238409L);
+    // enough edges for several segments to be dropped
+    for (int i = 0; i < 300; i++) {
+      long leftNode = random.nextInt(30);
+      long rightNode = 100 + random.nextInt(50);
+      graph.addEdge(leftNode, rightNode, (byte) 0);
+      indexedGraph.addEdge(leftNode, rightNode, (byte) 0);
+
+      if (i % 37 == 0) {
+        for (long node = 0; node < 31; node++) {
+          assertEquals(graph.getLeftNodeDegree(node), indexedGraph.getLeftNodeDegree(node));
+          assertEquals(
+              new LongArrayList(graph.getLeftNodeEdges(node)),
+              new LongArrayList(indexedGraph.getLeftNodeEdges(node)));
+          long seed = random.nextLong();
+          if (graph.getLeftNodeDegree(node) > 0) {
+            assertEquals(
+                new LongArrayList(graph.getRandomLeftNodeEdges(node, 10, new Random(seed))),
+                new LongArrayList(
+                    indexedGraph.getRandomLeftNodeEdges(node, 10, new Random(seed))));
+          }
+        }
+      }
+    }
+  }
+}
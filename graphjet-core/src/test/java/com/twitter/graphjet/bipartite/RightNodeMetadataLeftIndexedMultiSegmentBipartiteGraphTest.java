@@ -1,11 +1,22 @@
 package com.twitter.graphjet.bipartite;
 
+import java.util.List;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import com.twitter.graphjet.bipartite.api.EdgeIterator;
+import com.twitter.graphjet.bipartite.api.OptimizableBipartiteGraph;
+import com.twitter.graphjet.bipartite.api.OptimizableBipartiteGraphSegment;
+import com.twitter.graphjet.bipartite.optimizer.OptimizerExecutor;
 import com.twitter.graphjet.bipartite.segment.IdentityEdgeTypeMask;
+import com.twitter.graphjet.hashing.IntShardPool;
+import com.twitter.graphjet.stats.DefaultStatsReceiver;
 import com.twitter.graphjet.stats.NullStatsReceiver;
 
 import it.unimi.dsi.fastutil.ints.IntArrayList;
@@ -123,4 +134,103 @@ public class RightNodeMetadataLeftIndexedMultiSegmentBipartiteGraphTest {
     addEdges(multiSegmentPowerLawBipartiteGraph);
     testGraph(multiSegmentPowerLawBipartiteGraph);
   }
+
+  /**
+   * Returns an executor that only queues the optimizations, so that the tests decide when they run.
+   */
+  private static OptimizerExecutor deferringOptimizerExecutor(final List<Runnable> deferredJobs) {
+    return new OptimizerExecutor(
+        1, 1, 1, OptimizerExecutor.SaturationPolicy.DEFER, new NullStatsReceiver()) {
+      @Override
+      public void submit(
+          OptimizableBipartiteGraph graph, OptimizableBipartiteGraphSegment segment) {
+        deferredJobs.add(() -> graph.optimize(segment));
+      }
+    };
+  }
+
+  @Test
+  public void testSegmentMemoryRecycling() throws Exception {
+    List<Runnable> deferredJobs = Lists.newArrayList();
+    OptimizerExecutor optimizerExecutor = deferringOptimizerExecutor(deferredJobs);
+    IntShardPool shardPool = new IntShardPool(
+        1 << 24, new DefaultStatsReceiver("testRightNodeMetadataSegmentMemoryRecycling"));
+    try {
+      RightNodeMetadataLeftIndexedMultiSegmentBipartiteGraph graph =
+          buildRandomMultiSegmentBipartiteGraph(2, 3, 8, 2000);
+      graph.setOptimizerExecutor(optimizerExecutor);
+      graph.enableSegmentMemoryRecycling(shardPool);
+
+      int[][] metadata = new int[][]{new int[FEATURE_SIZE]};
+      // segment k holds the edges (1, 100k), (2, 100k + 1) and (3, 100k + 2)
+      for (int k = 0; k < 4; k++) {
+        for (int j = 0; j < 3; j++) {
+          graph.addEdge(j + 1, 100 * k + j, (byte) 0, metadata);
+        }
+      }
+      graph.addEdge(1, 400, (byte) 0, metadata);
+      // every rollover went through the recycling path, which dropped and recycled two segments
+      assertEquals(4, deferredJobs.size());
+      assertTrue(DefaultStatsReceiver.getCount(
+          "testRightNodeMetadataSegmentMemoryRecycling/IntShardPool/numReleasedShards") > 0);
+
+      for (Runnable job : deferredJobs) {
+        job.run();
+      }
+
+      long readEpoch = graph.enterReadEpoch();
+      try {
+        assertEquals(2, graph.getLeftNodeDegree(1));
+        assertEquals(Sets.newHashSet(300L, 400L), Sets.newHashSet(graph.getLeftNodeEdges(1)));
+        assertEquals(Sets.newHashSet(301L), Sets.newHashSet(graph.getLeftNodeEdges(2)));
+        assertEquals(Sets.newHashSet(302L), Sets.newHashSet(graph.getLeftNodeEdges(3)));
+      } finally {
+        graph.exitReadEpoch(readEpoch);
+      }
+    } finally {
+      optimizerExecutor.shutdown();
+    }
+  }
+
+  @Test
+  public void testNodeMetadataSegmentMemoryRecycling() throws Exception {
+    List<Runnable> deferredJobs = Lists.newArrayList();
+    OptimizerExecutor optimizerExecutor = deferringOptimizerExecutor(deferredJobs);
+    IntShardPool shardPool = new IntShardPool(
+        1 << 24, new DefaultStatsReceiver("testNodeMetadataSegmentMemoryRecycling"));
+    try {
+      NodeMetadataLeftIndexedMultiSegmentBipartiteGraph graph =
+          new NodeMetadataLeftIndexedPowerLawMultiSegmentBipartiteGraph(
+              2, 3, 4, 10, 2.0, 1000, 1, new IdentityEdgeTypeMask(), new NullStatsReceiver());
+      graph.setOptimizerExecutor(optimizerExecutor);
+      graph.enableSegmentMemoryRecycling(shardPool);
+
+      int[][] emptyMetadata = new int[][]{};
+      for (int k = 0; k < 4; k++) {
+        for (int j = 0; j < 3; j++) {
+          graph.addEdge(j + 1, 100 * k + j, (byte) 0, 0L, emptyMetadata, emptyMetadata);
+        }
+      }
+      graph.addEdge(1, 400, (byte) 0, 0L, emptyMetadata, emptyMetadata);
+      assertEquals(4, deferredJobs.size());
+      assertTrue(DefaultStatsReceiver.getCount(
+          "testNodeMetadataSegmentMemoryRecycling/IntShardPool/numReleasedShards") > 0);
+
+      for (Runnable job : deferredJobs) {
+        job.run();
+      }
+
+      long readEpoch = graph.enterReadEpoch();
+      try {
+        assertEquals(2, graph.getLeftNodeDegree(1));
+        assertEquals(Sets.newHashSet(300L, 400L), Sets.newHashSet(graph.getLeftNodeEdges(1)));
+        assertEquals(Sets.newHashSet(301L), Sets.newHashSet(graph.getLeftNodeEdges(2)));
+        assertEquals(Sets.newHashSet(302L), Sets.newHashSet(graph.getLeftNodeEdges(3)));
+      } finally {
+        graph.exitReadEpoch(readEpoch);
+      }
+    } finally {
+      optimizerExecutor.shutdown();
+    }
+  }
 }
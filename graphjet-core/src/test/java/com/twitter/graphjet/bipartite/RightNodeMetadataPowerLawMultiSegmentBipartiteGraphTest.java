@@ -0,0 +1,180 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.bipartite;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+import com.twitter.graphjet.bipartite.segment.IdentityEdgeTypeMask;
+import com.twitter.graphjet.bipartite.segment.RightNodeMetadataBipartiteGraphSegment;
+import com.twitter.graphjet.bipartite.segment.RightNodeMetadataLeftIndexedBipartiteGraphSegment;
+import com.twitter.graphjet.bipartite.segment.RightNodeMetadataReaderAccessibleInfo;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RightNodeMetadataPowerLawMultiSegmentBipartiteGraphTest {
+  private static final int FEATURE_SIZE = 5;
+  private static final int NUM_INTEGER_TO_UNPACK_SHORT = 2;
+
+  private static RightNodeMetadataPowerLawMultiSegmentBipartiteGraph buildGraph() {
+    return new RightNodeMetadataPowerLawMultiSegmentBipartiteGraph(
+      10,
+      100,
+      50,
+      10,
+      2.0,
+      500,
+      10,
+      2.0,
+      1,
+      new IdentityEdgeTypeMask(),
+      new NullStatsReceiver());
+  }
+
+  private static void addEdges(RightNodeMetadataPowerLawMultiSegmentBipartiteGraph graph) {
+    int[][] metadata = new int[1][];
+    metadata[0] = new int[] {0, 0, 2, 3, 0};
+
+    graph.addEdge(1, 11, (byte) 1, metadata);
+    graph.addEdge(1, 12, (byte) 2, metadata);
+    graph.addEdge(2, 11, (byte) 3, metadata);
+    graph.addEdge(3, 11, (byte) 1, metadata);
+    // seal the first segment, so the edges of 11 and 12 are spread over two segments
+    graph.rollForwardSegment();
+    graph.addEdge(4, 11, (byte) 1, metadata);
+    graph.addEdge(4, 12, (byte) 3, metadata);
+    graph.addEdge(2, 13, (byte) 2, metadata);
+  }
+
+  private static LongOpenHashSet collectLeftNodes(EdgeIterator edgeIterator) {
+    LongOpenHashSet leftNodes = new LongOpenHashSet();
+    while (edgeIterator.hasNext()) {
+      leftNodes.add(edgeIterator.nextLong());
+    }
+    return leftNodes;
+  }
+
+  private static LongArrayList collectSamples(EdgeIterator edgeIterator) {
+    LongArrayList samples = new LongArrayList();
+    while (edgeIterator.hasNext()) {
+      samples.add(edgeIterator.nextLong());
+    }
+    return samples;
+  }
+
+  private static void testRandomEdges(RightNodeMetadataPowerLawMultiSegmentBipartiteGraph graph) {
+    Random random = new Random(90238490238409L);
+    int numSamples = 1000;
+
+    // the samples of node 11 come from both segments
+    LongArrayList rightSamples =
+      collectSamples(graph.getRandomRightNodeEdges(11, numSamples, random));
+    assertEquals(numSamples, rightSamples.size());
+    assertEquals(new LongOpenHashSet(new long[] {1, 2, 3, 4}), new LongOpenHashSet(rightSamples));
+    LongArrayList singleSamples =
+      collectSamples(graph.getRandomRightNodeEdges(13, numSamples, random));
+    assertEquals(numSamples, singleSamples.size());
+    assertEquals(new LongOpenHashSet(new long[] {2}), new LongOpenHashSet(singleSamples));
+
+    LongArrayList leftSamples = collectSamples(graph.getRandomLeftNodeEdges(1, numSamples, random));
+    assertEquals(numSamples, leftSamples.size());
+    assertEquals(new LongOpenHashSet(new long[] {11, 12}), new LongOpenHashSet(leftSamples));
+  }
+
+  private static void testGraph(RightNodeMetadataPowerLawMultiSegmentBipartiteGraph graph) {
+    assertEquals(4, graph.getRightNodeDegree(11));
+    assertEquals(2, graph.getRightNodeDegree(12));
+    assertEquals(1, graph.getRightNodeDegree(13));
+    assertEquals(0, graph.getRightNodeDegree(14));
+
+    assertEquals(
+      new LongOpenHashSet(new long[] {1, 2, 3, 4}), collectLeftNodes(graph.getRightNodeEdges(11)));
+    assertEquals(
+      new LongOpenHashSet(new long[] {1, 4}), collectLeftNodes(graph.getRightNodeEdges(12)));
+    assertEquals(
+      new LongOpenHashSet(new long[] {2}), collectLeftNodes(graph.getRightNodeEdges(13)));
+    assertEquals(new LongOpenHashSet(), collectLeftNodes(graph.getRightNodeEdges(14)));
+
+    EdgeIterator rightEdgeIterator = graph.getRightNodeEdges(13);
+    assertTrue(rightEdgeIterator.hasNext());
+    assertEquals(2, rightEdgeIterator.nextLong());
+    assertFalse(rightEdgeIterator.hasNext());
+
+    // the left side is unchanged from the left-indexed graph, including the right node metadata
+    assertEquals(2, graph.getLeftNodeDegree(1));
+    assertEquals(2, graph.getLeftNodeDegree(4));
+    LongArrayList rightNodes = new LongArrayList();
+    EdgeIterator leftEdgeIterator = graph.getLeftNodeEdges(4);
+    while (leftEdgeIterator.hasNext()) {
+      long rightNode = leftEdgeIterator.nextLong();
+      rightNodes.add(rightNode);
+      if (rightNode == 12) {
+        int[] features = new int[FEATURE_SIZE + NUM_INTEGER_TO_UNPACK_SHORT];
+        ((RightNodeMetadataMultiSegmentIterator) leftEdgeIterator).fetchFeatureArrayForNode(
+          rightNode, 0, features, NUM_INTEGER_TO_UNPACK_SHORT);
+        // one retweet and one reply, the latter in the second segment
+        assertEquals(new IntArrayList(new int[] {1, 0, 0, 1, 2, 3, 0}), new IntArrayList(features));
+      }
+    }
+    assertEquals(new LongArrayList(new long[] {11, 12}), rightNodes);
+
+    testRandomEdges(graph);
+  }
+
+  @Test
+  public void testRightNodeEdges() throws Exception {
+    RightNodeMetadataPowerLawMultiSegmentBipartiteGraph graph = buildGraph();
+    addEdges(graph);
+    testGraph(graph);
+  }
+
+  @Test
+  public void testRightNodeEdgesAfterOptimization() throws Exception {
+    RightNodeMetadataPowerLawMultiSegmentBipartiteGraph graph = buildGraph();
+    addEdges(graph);
+
+    // rolling forward does not submit an optimizer job, so the segment is only optimized here
+    RightNodeMetadataLeftIndexedBipartiteGraphSegment sealedSegment = graph.getSegments().get(0);
+    graph.optimize(sealedSegment);
+    RightNodeMetadataReaderAccessibleInfo readerAccessibleInfo =
+      ((RightNodeMetadataBipartiteGraphSegment) sealedSegment)
+        .getReaderAccessibleInfoProvider().getReaderAccessibleInfo();
+    assertTrue(readerAccessibleInfo.getLeftNodeEdgePool().isOptimized());
+    assertTrue(readerAccessibleInfo.getRightNodeEdgePool().isOptimized());
+    testGraph(graph);
+  }
+
+  @Test
+  public void testMissingRightNode() throws Exception {
+    RightNodeMetadataPowerLawMultiSegmentBipartiteGraph graph = buildGraph();
+    graph.addEdge(1, 11, (byte) 1, new int[][] {new int[FEATURE_SIZE]});
+
+    RightNodeMetadataLeftIndexedBipartiteGraphSegment liveSegment = graph.getLiveSegment();
+    assertNull(((RightNodeMetadataBipartiteGraphSegment) liveSegment).getRightNodeEdges(12));
+  }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.bipartite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.twitter.graphjet.bipartite.api.EdgeIterator;
+import com.twitter.graphjet.bipartite.segment.IdentityEdgeTypeMask;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+public class ShardedMultiSegmentPowerLawBipartiteGraphTest {
+  private static final int NUM_LEFT_NODES = 200;
+  private static final int NUM_RIGHT_NODES = 100;
+  private static final int NUM_EDGES = 20000;
+
+  // Enough segments that no edge is ever dropped, so shards can be compared with a single graph
+  private static ShardedMultiSegmentPowerLawBipartiteGraph newShardedGraph(int numShards) {
+    return new ShardedMultiSegmentPowerLawBipartiteGraph(
+        numShards, 50, 1000, 100, 20, 2.0, 100, 20, 2.0,
+        new IdentityEdgeTypeMask(), new NullStatsReceiver());
+  }
+
+  private static long[][] randomEdges(Random random) {
+    long[][] edges = new long[NUM_EDGES][];
+    for (int i = 0; i < NUM_EDGES; i++) {
+      edges[i] = new long[] {random.nextInt(NUM_LEFT_NODES), random.nextInt(NUM_RIGHT_NODES)};
+    }
+    return edges;
+  }
+
+  private static LongArrayList sortedEdges(EdgeIterator edgeIterator) {
+    LongArrayList nodes = new LongArrayList();
+    while (edgeIterator.hasNext()) {
+      nodes.add(edgeIterator.nextLong());
+    }
+    Arrays.sort(nodes.elements(), 0, nodes.size());
+    return nodes;
+  }
+
+  @Test
+  public void testConcurrentWritersMatchSingleWriter() throws Exception {
+    final ShardedMultiSegmentPowerLawBipartiteGraph shardedGraph = newShardedGraph(4);
+    MultiSegmentPowerLawBipartiteGraph graph = new MultiSegmentPowerLawBipartiteGraph(
+        50, 1000, 100, 20, 2.0, 100, 20, 2.0, new IdentityEdgeTypeMask(), new NullStatsReceiver());
+    final long[][] edges = randomEdges(new Random(90238490238409L));
+    for (long[] edge : edges) {
+      graph.addEdge(edge[0], edge[1], (byte) 0);
+    }
+
+    // Writers see arbitrary, interleaved edges and go through the per-shard locks
+    int numWriters = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(numWriters);
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < numWriters; i++) {
+      final int writer = i;
+      final int numWriterThreads = numWriters;
+      futures.add(executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            startLatch.await();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          }
+          for (int j = writer; j < edges.length; j += numWriterThreads) {
+            shardedGraph.addEdge(edges[j][0], edges[j][1], (byte) 0);
+          }
+        }
+      }));
+    }
+    startLatch.countDown();
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+    for (long leftNode = 0; leftNode < NUM_LEFT_NODES; leftNode++) {
+      assertEquals(graph.getLeftNodeDegree(leftNode), shardedGraph.getLeftNodeDegree(leftNode));
+      assertEquals(
+          sortedEdges(graph.getLeftNodeEdges(leftNode)),
+          sortedEdges(shardedGraph.getLeftNodeEdges(leftNode)));
+    }
+    for (long rightNode = 0; rightNode < NUM_RIGHT_NODES; rightNode++) {
+      assertEquals(graph.getRightNodeDegree(rightNode), shardedGraph.getRightNodeDegree(rightNode));
+      assertEquals(
+          sortedEdges(graph.getRightNodeEdges(rightNode)),
+          sortedEdges(shardedGraph.getRightNodeEdges(rightNode)));
+    }
+  }
+
+  @Test
+  public void testShardOwningWriters() throws Exception {
+    ShardedMultiSegmentPowerLawBipartiteGraph shardedGraph = newShardedGraph(3);
+    long[][] edges = randomEdges(new Random(1234567L));
+    // A writer that owns a shard adds the edges of its left nodes directly
+    for (long[] edge : edges) {
+      shardedGraph.getShard(shardedGraph.getShardIndex(edge[0]))
+          .addEdge(edge[0], edge[1], (byte) 0);
+    }
+
+    int totalLeftDegree = 0;
+    for (long leftNode = 0; leftNode < NUM_LEFT_NODES; leftNode++) {
+      totalLeftDegree += shardedGraph.getLeftNodeDegree(leftNode);
+      for (int i = 0; i < shardedGraph.getNumShards(); i++) {
+        if (i != shardedGraph.getShardIndex(leftNode)) {
+          assertEquals(0, shardedGraph.getShard(i).getLeftNodeDegree(leftNode));
+        }
+      }
+    }
+    assertEquals(NUM_EDGES, totalLeftDegree);
+
+    int totalRightDegree = 0;
+    for (long rightNode = 0; rightNode < NUM_RIGHT_NODES; rightNode++) {
+      totalRightDegree += shardedGraph.getRightNodeDegree(rightNode);
+    }
+    assertEquals(NUM_EDGES, totalRightDegree);
+  }
+
+  @Test
+  public void testRandomRightNodeEdges() {
+    ShardedMultiSegmentPowerLawBipartiteGraph shardedGraph = newShardedGraph(4);
+    // right node 1 has edges from left nodes in every shard
+    for (long leftNode = 0; leftNode < 50; leftNode++) {
+      shardedGraph.addEdge(leftNode, 1, (byte) 0);
+    }
+    LongSet leftNodes = new LongOpenHashSet(sortedEdges(shardedGraph.getRightNodeEdges(1)));
+    assertEquals(50, leftNodes.size());
+
+    Random random = new Random(90238490238409L);
+    EdgeIterator samples = shardedGraph.getRandomRightNodeEdges(1, 1000, random);
+    int numSamples = 0;
+    LongSet sampledLeftNodes = new LongOpenHashSet();
+    while (samples.hasNext()) {
+      long leftNode = samples.nextLong();
+      assertTrue(leftNodes.contains(leftNode));
+      sampledLeftNodes.add(leftNode);
+      numSamples++;
+    }
+    assertEquals(1000, numSamples);
+    // with 1000 samples out of 50 nodes, every node is sampled with overwhelming probability
+    assertEquals(50, sampledLeftNodes.size());
+
+    assertFalse(shardedGraph.getRandomRightNodeEdges(2, 10, random).hasNext());
+    assertFalse(shardedGraph.getRightNodeEdges(2).hasNext());
+    assertEquals(0, shardedGraph.getRightNodeDegree(2));
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.bipartite.edgepool;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.twitter.graphjet.bipartite.optimizer.Optimizer;
+import com.twitter.graphjet.bipartite.segment.HigherBitsEdgeTypeMask;
+import com.twitter.graphjet.bipartite.segment.PowerLawBipartiteGraphSegment;
+import com.twitter.graphjet.hashing.BigArrayStorage;
+import com.twitter.graphjet.hashing.PackedBigIntArray;
+import com.twitter.graphjet.hashing.PackedIntToIntPairArrayIndexBasedMap;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+public class OptimizedEdgePoolTest {
+  private static long getNumCompressedBytes(AbstractOptimizedEdgePool edgePool) {
+    return ((PackedBigIntArray) edgePool.readerAccessibleInfo.getEdges()).getNumBytes()
+      + ((PackedIntToIntPairArrayIndexBasedMap) edgePool.intToIntPairHashMap).getNumBytes();
+  }
+
+  private static void assertSameEdges(
+    AbstractOptimizedEdgePool edgePool,
+    AbstractOptimizedEdgePool compressedEdgePool
+  ) {
+    OptimizedEdgeIterator iterator = new OptimizedEdgeIterator(compressedEdgePool);
+    for (int node = 0; node <= edgePool.numOfNodes; node++) {
+      assertEquals(edgePool.getNodeDegree(node), compressedEdgePool.getNodeDegree(node));
+      assertEquals(edgePool.getNodePosition(node), compressedEdgePool.getNodePosition(node));
+      if (edgePool.getNodeDegree(node) > 0) {
+        assertEquals(
+          new IntArrayList(edgePool.getNodeEdges(node)),
+          new IntArrayList(compressedEdgePool.getNodeEdges(node, iterator)));
+      }
+    }
+  }
+
+  @Test
+  public void testCompressOptimizedSegment() {
+    Random random = new Random(90238490238409L);
+    int numEdges = 1 << 17;
+    PowerLawBipartiteGraphSegment segment = new PowerLawBipartiteGraphSegment(
+      1 << 12, 1 << 10, 2.0, 1 << 14, 1 << 10, 2.0, numEdges,
+      new HigherBitsEdgeTypeMask(), new NullStatsReceiver());
+    for (int i = 0; i < numEdges; i++) {
+      // power law degrees on both sides, and edges of a few types
+      long leftNode = (long) ((1 << 14) * Math.pow(random.nextDouble(), 3));
+      long rightNode = (long) ((1 << 18) * Math.pow(random.nextDouble(), 3));
+      segment.addEdge(leftNode, rightNode, (byte) random.nextInt(4));
+    }
+
+    EdgePool[] edgePools = new EdgePool[] {
+      segment.getLeftIndexedReaderAccessibleInfoProvider().getLeftIndexedReaderAccessibleInfo()
+        .getLeftNodeEdgePool(),
+      segment.getReaderAccessibleInfoProvider().getReaderAccessibleInfo().getRightNodeEdgePool()
+    };
+    for (EdgePool powerLawEdgePool : edgePools) {
+      AbstractOptimizedEdgePool edgePool = (AbstractOptimizedEdgePool)
+        Optimizer.optimizePowerLawDegreeEdgePool(
+          (AbstractPowerLawDegreeEdgePool) powerLawEdgePool, BigArrayStorage.HEAP);
+      AbstractOptimizedEdgePool compressedEdgePool = (AbstractOptimizedEdgePool)
+        Optimizer.optimizePowerLawDegreeEdgePool(
+          (AbstractPowerLawDegreeEdgePool) powerLawEdgePool, BigArrayStorage.COMPRESSED);
+      assertSameEdges(edgePool, compressedEdgePool);
+      // packing straight from the regular pools gives the same layout as packing the heap pool
+      assertEquals(
+        getNumCompressedBytes(edgePool.compress()), getNumCompressedBytes(compressedEdgePool));
+
+      // about 20 bits per edge, as the edge types are packed apart from the node ids, and about
+      // 10 bits per node rather than 4 bytes per edge and 8 bytes per node
+      long numBytes = (long) numEdges * Integer.BYTES + (long) edgePool.numOfNodes * Long.BYTES;
+      assertTrue(getNumCompressedBytes(compressedEdgePool) < numBytes * 6 / 10);
+    }
+  }
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.bipartite.optimizer;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.twitter.graphjet.bipartite.api.OptimizableBipartiteGraph;
+import com.twitter.graphjet.bipartite.api.OptimizableBipartiteGraphSegment;
+import com.twitter.graphjet.bipartite.api.WithEdgeMetadataIntIterator;
+import com.twitter.graphjet.bipartite.edgepool.AbstractPowerLawDegreeEdgePool;
+import com.twitter.graphjet.bipartite.edgepool.EdgePool;
+import com.twitter.graphjet.bipartite.edgepool.WithEdgeMetadataPowerLawDegreeEdgePool;
+import com.twitter.graphjet.hashing.BigArrayStorage;
+import com.twitter.graphjet.stats.DefaultStatsReceiver;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+public class OptimizerExecutorTest {
+  private static final OptimizableBipartiteGraphSegment SEGMENT =
+    new OptimizableBipartiteGraphSegment() { };
+
+  /**
+   * A graph whose optimizations wait for a latch, which keeps the optimizer threads busy.
+   */
+  private static final class BlockingGraph implements OptimizableBipartiteGraph {
+    private final CountDownLatch latch;
+    private final AtomicInteger numOptimizedSegments = new AtomicInteger();
+
+    BlockingGraph(CountDownLatch latch) {
+      this.latch = latch;
+    }
+
+    @Override
+    public void optimize(OptimizableBipartiteGraphSegment segment) {
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      numOptimizedSegments.incrementAndGet();
+    }
+  }
+
+  private static void waitForActiveJobs(OptimizerExecutor executor, int numActiveJobs)
+    throws InterruptedException {
+    while (executor.getNumActiveJobs() != numActiveJobs) {
+      Thread.sleep(1);
+    }
+  }
+
+  @Test
+  public void testDeferDropsOldestJobs() throws Exception {
+    OptimizerExecutor executor = new OptimizerExecutor(
+      1, 1, 1, OptimizerExecutor.SaturationPolicy.DEFER,
+      new DefaultStatsReceiver("testDeferDropsOldestJobs"));
+    CountDownLatch latch = new CountDownLatch(1);
+    BlockingGraph graph = new BlockingGraph(latch);
+
+    executor.submit(graph, SEGMENT);
+    waitForActiveJobs(executor, 1);
+    // one job waits in the queue, one is deferred and the first deferred one is dropped
+    for (int i = 0; i < 3; i++) {
+      executor.submit(graph, SEGMENT);
+    }
+    assertEquals(1, executor.getNumQueuedJobs());
+    assertEquals(1, executor.getNumDeferredJobs());
+    assertEquals(1, DefaultStatsReceiver.getCount(
+      "testDeferDropsOldestJobs/Optimizer/numDroppedJobs"));
+
+    latch.countDown();
+    while (graph.numOptimizedSegments.get() < 3) {
+      Thread.sleep(1);
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(3, graph.numOptimizedSegments.get());
+    assertEquals(0, executor.getNumDeferredJobs());
+  }
+
+  @Test
+  public void testCallerRunsWhenSaturated() throws Exception {
+    OptimizerExecutor executor = new OptimizerExecutor(
+      1, 1, 1, OptimizerExecutor.SaturationPolicy.CALLER_RUNS, new NullStatsReceiver());
+    CountDownLatch latch = new CountDownLatch(1);
+    BlockingGraph graph = new BlockingGraph(latch);
+
+    executor.submit(graph, SEGMENT);
+    waitForActiveJobs(executor, 1);
+    executor.submit(graph, SEGMENT);
+
+    final Thread callerThread = Thread.currentThread();
+    final AtomicInteger numCallerRuns = new AtomicInteger();
+    executor.submit(new OptimizableBipartiteGraph() {
+      @Override
+      public void optimize(OptimizableBipartiteGraphSegment segment) {
+        if (Thread.currentThread() == callerThread) {
+          numCallerRuns.incrementAndGet();
+        }
+      }
+    }, SEGMENT);
+    assertEquals(1, numCallerRuns.get());
+
+    latch.countDown();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(2, graph.numOptimizedSegments.get());
+  }
+
+  @Test
+  public void testBlockWaitsForRoom() throws Exception {
+    final OptimizerExecutor executor = new OptimizerExecutor(
+      1, 1, 1, OptimizerExecutor.SaturationPolicy.BLOCK, new NullStatsReceiver());
+    CountDownLatch latch = new CountDownLatch(1);
+    final BlockingGraph graph = new BlockingGraph(latch);
+
+    executor.submit(graph, SEGMENT);
+    waitForActiveJobs(executor, 1);
+    executor.submit(graph, SEGMENT);
+
+    Thread submitter = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        executor.submit(graph, SEGMENT);
+      }
+    });
+    submitter.start();
+    submitter.join(100);
+    assertTrue(submitter.isAlive());
+
+    latch.countDown();
+    submitter.join();
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(3, graph.numOptimizedSegments.get());
+  }
+
+  @Test
+  public void testJobsRunWithinTheirExecutor() throws Exception {
+    final OptimizerExecutor executor = new OptimizerExecutor(
+      1, 1, 2, OptimizerExecutor.SaturationPolicy.BLOCK, new NullStatsReceiver());
+    final AtomicInteger numJobsWithinExecutor = new AtomicInteger();
+    executor.submit(new OptimizableBipartiteGraph() {
+      @Override
+      public void optimize(OptimizableBipartiteGraphSegment segment) {
+        // so that the partitions of the optimization go to this executor, not the default one
+        if (OptimizerExecutor.getRunningExecutor() == executor) {
+          numJobsWithinExecutor.incrementAndGet();
+        }
+      }
+    }, SEGMENT);
+
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    assertEquals(1, numJobsWithinExecutor.get());
+    assertEquals(null, OptimizerExecutor.getRunningExecutor());
+  }
+
+  @Test
+  public void testParallelOptimization() {
+    int numNodes = 1 << 12;
+    int numEdges = 5 * Optimizer.MIN_EDGES_PER_PARTITION;
+    Random random = new Random(90238490238409L);
+    WithEdgeMetadataPowerLawDegreeEdgePool edgePool =
+      new WithEdgeMetadataPowerLawDegreeEdgePool(numNodes, 1 << 10, 2.0, new NullStatsReceiver());
+    for (int i = 0; i < numEdges; i++) {
+      // skewed degrees spread the edges across many regular pools
+      int node = (int) (numNodes * Math.pow(random.nextDouble(), 3));
+      edgePool.addEdge(node, random.nextInt(), random.nextLong());
+    }
+
+    OptimizerExecutor previousExecutor = Optimizer.setOptimizerExecutor(new OptimizerExecutor(
+      1, 1, 4, OptimizerExecutor.SaturationPolicy.BLOCK, new NullStatsReceiver()));
+    try {
+      for (BigArrayStorage storage : BigArrayStorage.values()) {
+        EdgePool optimizedPool = Optimizer.optimizePowerLawDegreeEdgePool(edgePool, storage);
+        assertSameEdges(edgePool, optimizedPool, numNodes);
+      }
+    } finally {
+      Optimizer.setOptimizerExecutor(previousExecutor).shutdown();
+    }
+  }
+
+  private static void assertSameEdges(
+    AbstractPowerLawDegreeEdgePool expected,
+    EdgePool actual,
+    int numNodes
+  ) {
+    for (int node = 0; node < numNodes; node++) {
+      assertEquals(expected.getNodeDegree(node), actual.getNodeDegree(node));
+      WithEdgeMetadataIntIterator expectedEdges =
+        (WithEdgeMetadataIntIterator) expected.getNodeEdges(node);
+      WithEdgeMetadataIntIterator actualEdges =
+        (WithEdgeMetadataIntIterator) actual.getNodeEdges(node);
+      while (expectedEdges.hasNext()) {
+        assertTrue(actualEdges.hasNext());
+        assertEquals(expectedEdges.nextInt(), actualEdges.nextInt());
+        assertEquals(expectedEdges.currentMetadata(), actualEdges.currentMetadata());
+      }
+      assertFalse(actualEdges.hasNext());
+    }
+  }
+}
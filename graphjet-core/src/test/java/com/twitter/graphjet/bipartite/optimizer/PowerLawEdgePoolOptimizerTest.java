@@ -24,21 +24,16 @@ import static org.junit.Assert.assertEquals;
 import com.twitter.graphjet.bipartite.edgepool.EdgePool;
 import com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePool;
 import com.twitter.graphjet.bipartite.edgepool.PowerLawDegreeEdgePoolTest;
+import com.twitter.graphjet.bipartite.segment.IdentityEdgeTypeMask;
+import com.twitter.graphjet.bipartite.segment.LeftIndexedPowerLawBipartiteGraphSegment;
+import com.twitter.graphjet.bipartite.segment.PowerLawBipartiteGraphSegment;
+import com.twitter.graphjet.hashing.BigArrayStorage;
 import com.twitter.graphjet.stats.NullStatsReceiver;
 
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 
 public class PowerLawEdgePoolOptimizerTest {
-  @Test
-  public void testOptimizeSegment() {
-    int maxNumNodes = 4;
-    int maxDegree = 6;
-    PowerLawDegreeEdgePool powerLawDegreeEdgePool =
-      new PowerLawDegreeEdgePool(maxNumNodes, maxDegree, 2.0, new NullStatsReceiver());
-
-    PowerLawDegreeEdgePoolTest.addEdgesToPool(powerLawDegreeEdgePool);
-
-    EdgePool optimizedPool = Optimizer.optimizePowerLawDegreeEdgePool(powerLawDegreeEdgePool);
+  private static void assertOptimizedEdges(EdgePool optimizedPool) {
     assertEquals(new IntArrayList(new int[]{11, 12, 13, 14, 15, 16, 17}),
       new IntArrayList(optimizedPool.getNodeEdges(1)));
     assertEquals(new IntArrayList(new int[]{21, 22, 23}),
@@ -50,5 +45,77 @@ public class PowerLawEdgePoolOptimizerTest {
     assertEquals(new IntArrayList(new int[]{51}),
       new IntArrayList(optimizedPool.getNodeEdges(5)));
   }
-}
 
+  @Test
+  public void testOptimizeSegment() {
+    int maxNumNodes = 4;
+    int maxDegree = 6;
+    PowerLawDegreeEdgePool powerLawDegreeEdgePool =
+      new PowerLawDegreeEdgePool(maxNumNodes, maxDegree, 2.0, new NullStatsReceiver());
+
+    PowerLawDegreeEdgePoolTest.addEdgesToPool(powerLawDegreeEdgePool);
+
+    EdgePool optimizedPool = Optimizer.optimizePowerLawDegreeEdgePool(powerLawDegreeEdgePool);
+    assertOptimizedEdges(optimizedPool);
+  }
+
+  @Test
+  public void testOptimizeSegmentOffHeap() {
+    int maxNumNodes = 4;
+    int maxDegree = 6;
+    PowerLawDegreeEdgePool powerLawDegreeEdgePool =
+      new PowerLawDegreeEdgePool(maxNumNodes, maxDegree, 2.0, new NullStatsReceiver());
+
+    PowerLawDegreeEdgePoolTest.addEdgesToPool(powerLawDegreeEdgePool);
+
+    EdgePool optimizedPool = Optimizer.optimizePowerLawDegreeEdgePool(
+      powerLawDegreeEdgePool, BigArrayStorage.OFF_HEAP);
+    assertOptimizedEdges(optimizedPool);
+    assertEquals(7, optimizedPool.getNodeDegree(1));
+    // nodes past the end of the off-heap node info read as absent
+    assertEquals(-1, optimizedPool.getNodeDegree(1 << 20));
+  }
+
+  @Test
+  public void testOptimizeBipartiteGraphSegmentFiltersNodes() {
+    PowerLawBipartiteGraphSegment segment = new PowerLawBipartiteGraphSegment(
+      4, 6, 2.0, 4, 6, 2.0, 100, new IdentityEdgeTypeMask(), new NullStatsReceiver());
+    for (int i = 0; i < 50; i++) {
+      segment.addEdge(i % 10, 100 + i % 7, (byte) 0);
+    }
+
+    Optimizer.optimizeBipartiteGraphSegment(segment);
+
+    // the filters let every node of the segment through, and nothing else is found
+    for (int i = 0; i < 10; i++) {
+      assertEquals(5, segment.getLeftNodeDegree(i));
+    }
+    for (int i = 0; i < 7; i++) {
+      assertEquals(i < 1 ? 8 : 7, segment.getRightNodeDegree(100 + i));
+    }
+    for (int i = 200; i < 1000; i++) {
+      assertEquals(0, segment.getLeftNodeDegree(i));
+      assertEquals(0, segment.getRightNodeDegree(i));
+      assertEquals(null, segment.getLeftNodeEdges(i));
+    }
+  }
+
+  @Test
+  public void testOptimizeLeftIndexedBipartiteGraphSegmentFiltersNodes() {
+    LeftIndexedPowerLawBipartiteGraphSegment segment =
+      new LeftIndexedPowerLawBipartiteGraphSegment(
+        4, 6, 2.0, 4, 100, new IdentityEdgeTypeMask(), new NullStatsReceiver());
+    for (int i = 0; i < 50; i++) {
+      segment.addEdge(i % 10, 100 + i % 7, (byte) 0);
+    }
+
+    Optimizer.optimizeLeftIndexedBipartiteGraphSegment(segment);
+
+    for (int i = 0; i < 10; i++) {
+      assertEquals(5, segment.getLeftNodeDegree(i));
+    }
+    for (int i = 200; i < 1000; i++) {
+      assertEquals(0, segment.getLeftNodeDegree(i));
+    }
+  }
+}
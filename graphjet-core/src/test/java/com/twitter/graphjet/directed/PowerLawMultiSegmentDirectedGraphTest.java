@@ -0,0 +1,105 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.directed;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+import com.twitter.graphjet.bipartite.segment.IdentityEdgeTypeMask;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+// Just like OutIndexedPowerLawMultiSegmentDirectedGraph, PowerLawMultiSegmentDirectedGraph is a lightweight wrapper,
+// here around MultiSegmentPowerLawBipartiteGraph, so the test cases mostly confirm that the in-edges are wired to the
+// right side of the underlying graph.
+public class PowerLawMultiSegmentDirectedGraphTest {
+
+  private static PowerLawMultiSegmentDirectedGraph buildGraph(int maxNumSegments, int maxNumEdgesPerSegment) {
+    PowerLawMultiSegmentDirectedGraph graph = new PowerLawMultiSegmentDirectedGraph(maxNumSegments,
+        maxNumEdgesPerSegment, 5, 2, 2.0, 2, 2.0, new IdentityEdgeTypeMask(), new NullStatsReceiver());
+
+    graph.addEdge(1, 11, (byte) 0);
+    graph.addEdge(1, 12, (byte) 0);
+    graph.addEdge(4, 41, (byte) 0);
+    graph.addEdge(2, 21, (byte) 0);
+    graph.addEdge(4, 42, (byte) 0);
+    graph.addEdge(3, 31, (byte) 0);
+    graph.addEdge(2, 22, (byte) 0);
+    graph.addEdge(1, 13, (byte) 0);
+    graph.addEdge(4, 43, (byte) 0);
+    graph.addEdge(5, 11, (byte) 0);
+    graph.addEdge(11, 1, (byte) 0);
+    graph.addEdge(12, 11, (byte) 0);
+    return graph;
+  }
+
+  @Test
+  public void testBasicGraph() throws Exception {
+    PowerLawMultiSegmentDirectedGraph graph = buildGraph(1, 20);
+
+    assertEquals(3, graph.getOutDegree(1));
+    assertEquals(3, graph.getOutDegree(4));
+    assertEquals(1, graph.getOutDegree(11));
+    assertEquals(0, graph.getOutDegree(13));
+
+    assertEquals(new LongArrayList(new long[]{11, 12, 13}), new LongArrayList(graph.getOutEdges(1)));
+    assertEquals(new LongArrayList(new long[]{1}), new LongArrayList(graph.getOutEdges(11)));
+
+    assertEquals(3, graph.getInDegree(11));
+    assertEquals(1, graph.getInDegree(1));
+    assertEquals(1, graph.getInDegree(42));
+    assertEquals(0, graph.getInDegree(4));   // links out, but has no incoming edges
+
+    assertEquals(new LongArrayList(new long[]{1, 5, 12}), new LongArrayList(graph.getInEdges(11)));
+    assertEquals(new LongArrayList(new long[]{11}), new LongArrayList(graph.getInEdges(1)));
+    assertEquals(new LongArrayList(new long[]{2}), new LongArrayList(graph.getInEdges(22)));
+    assertEquals(new LongArrayList(new long[]{4}), new LongArrayList(graph.getInEdges(43)));
+
+    Random random = new Random(90238490238409L);
+    int numSamples = 100;
+    LongArrayList samples = new LongArrayList(graph.getRandomInEdges(11, numSamples, random));
+    assertEquals(numSamples, samples.size());
+    LongSet sampledNodes = new LongOpenHashSet(samples);
+    assertEquals(new LongOpenHashSet(new long[]{1, 5, 12}), sampledNodes);
+    assertEquals(new LongArrayList(new long[]{31, 31, 31}),
+        new LongArrayList(graph.getRandomOutEdges(3, 3, random)));
+  }
+
+  @Test
+  public void testMultipleSegments() throws Exception {
+    // four edges per segment and at most two segments, so that only the last 8 edges are kept
+    PowerLawMultiSegmentDirectedGraph graph = buildGraph(2, 4);
+
+    assertEquals(1, graph.getOutDegree(1));
+    assertEquals(new LongArrayList(new long[]{13}), new LongArrayList(graph.getOutEdges(1)));
+    assertEquals(0, graph.getInDegree(41));
+    assertEquals(new LongArrayList(new long[]{4}), new LongArrayList(graph.getInEdges(42)));
+    assertEquals(2, graph.getInDegree(11));
+    assertEquals(new LongArrayList(new long[]{5, 12}), new LongArrayList(graph.getInEdges(11)));
+    assertEquals(new LongArrayList(new long[]{11}), new LongArrayList(graph.getInEdges(1)));
+
+    Random random = new Random(90238490238409L);
+    LongSet sampledNodes = new LongOpenHashSet(graph.getRandomInEdges(11, 100, random));
+    assertEquals(new LongOpenHashSet(new long[]{5, 12}), sampledNodes);
+  }
+}
@@ -17,16 +17,26 @@
 
 package com.twitter.graphjet.hashing;
 
+import java.io.File;
 import java.util.Random;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import com.twitter.graphjet.snapshot.SnapshotReader;
+import com.twitter.graphjet.snapshot.SnapshotWriter;
 import com.twitter.graphjet.stats.NullStatsReceiver;
 import com.twitter.graphjet.stats.StatsReceiver;
 
+import static org.junit.Assert.assertEquals;
+
 public class ArrayBasedLongToInternalIntBiMapTest {
   private final StatsReceiver nullStatsReceiver = new NullStatsReceiver();
 
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @Test
   public void testSimpleKeyInsertion() throws Exception {
     int maxNumKeys = (int) (0.75 * (1 << 20)); // 1M
@@ -78,4 +88,41 @@ public class ArrayBasedLongToInternalIntBiMapTest {
     InternalIdMapConcurrentTestHelper.testRandomConcurrentReadWriteThreads(
         map, -1, 600, maxNumKeys, random);
   }
+
+  @Test
+  public void testSnapshotRoundTrip() throws Exception {
+    Random random = new Random(2347862348762L);
+    int numKeys = 10000;
+    // small enough that the map needs to chain several fixed-length maps
+    ArrayBasedLongToInternalIntBiMap map = new ArrayBasedLongToInternalIntBiMap(
+        numKeys / 16, 0.75, -1, -1L, nullStatsReceiver);
+    long[] keys = new long[numKeys];
+    int[] ids = new int[numKeys];
+    for (int i = 0; i < numKeys; i++) {
+      keys[i] = random.nextLong() >>> 1;
+      ids[i] = map.put(keys[i]);
+    }
+
+    File file = temporaryFolder.newFile();
+    try (SnapshotWriter writer = new SnapshotWriter(file)) {
+      map.writeTo(writer);
+    }
+    ArrayBasedLongToInternalIntBiMap restoredMap;
+    try (SnapshotReader reader = new SnapshotReader(file)) {
+      restoredMap = ArrayBasedLongToInternalIntBiMap.readFrom(reader, nullStatsReceiver);
+    }
+
+    for (int i = 0; i < numKeys; i++) {
+      assertEquals(ids[i], restoredMap.get(keys[i]));
+      assertEquals(keys[i], restoredMap.getKey(ids[i]));
+    }
+    assertEquals(-1, restoredMap.get(-5L));
+
+    // the restored map keeps accepting keys without reusing any of the restored ids
+    long newKey = Long.MAX_VALUE - 1;
+    int newId = restoredMap.put(newKey);
+    assertEquals(newId, map.put(newKey));
+    assertEquals(newKey, restoredMap.getKey(newId));
+    assertEquals(ids[0], restoredMap.put(keys[0]));
+  }
 }
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.hashing;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.twitter.graphjet.stats.NullStatsReceiver;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class BucketizedLongToInternalIntFixedLengthBiMapTest {
+  private final StatsReceiver nullStatsReceiver = new NullStatsReceiver();
+
+  @Test
+  public void testSimpleKeyInsertion() throws Exception {
+    int maxNumKeys = (int) (0.75 * (1 << 20)); // 1M
+    double loadFactor = 0.75;
+    BucketizedLongToInternalIntFixedLengthBiMap map =
+        new BucketizedLongToInternalIntFixedLengthBiMap(
+            maxNumKeys, loadFactor, -1, -1L, nullStatsReceiver);
+    InternalIdMapTestHelper.KeyTestInfo keyTestInfo =
+        InternalIdMapTestHelper.generateSimpleKeys(maxNumKeys);
+    InternalIdMapTestHelper.testKeyRetrievals(map, maxNumKeys, keyTestInfo);
+  }
+
+  @Test
+  public void testRandomKeyInsertion() throws Exception {
+    Random random = new Random(89457098347123125L);
+    int maxNumKeys = (int) (0.9 * (1 << 21)); // 2M, at a higher load factor
+    double loadFactor = 0.9;
+    for (int i = 0; i < 4; i++) {
+      BucketizedLongToInternalIntFixedLengthBiMap map =
+          new BucketizedLongToInternalIntFixedLengthBiMap(
+              maxNumKeys, loadFactor, -1, -1L, nullStatsReceiver);
+      InternalIdMapTestHelper.KeyTestInfo keyTestInfo =
+          InternalIdMapTestHelper.generateRandomKeys(random, maxNumKeys);
+      InternalIdMapTestHelper.testKeyRetrievals(map, maxNumKeys, keyTestInfo);
+    }
+  }
+
+  @Test
+  public void testConcurrentReadWrites() {
+    int maxNumKeys = (int) (0.75 * (1 << 8)); // this should be small
+    double loadFactor = 0.75;
+    BucketizedLongToInternalIntFixedLengthBiMap map =
+        new BucketizedLongToInternalIntFixedLengthBiMap(
+            maxNumKeys, loadFactor, -1, -1L, nullStatsReceiver);
+
+    InternalIdMapTestHelper.KeyTestInfo keyTestInfo =
+        InternalIdMapTestHelper.generateSimpleKeys(maxNumKeys);
+    InternalIdMapConcurrentTestHelper.testConcurrentReadWrites(map, keyTestInfo);
+  }
+
+  @Test
+  public void testRandomConcurrentReadWrites() {
+    int maxNumKeys = (int) (0.75 * (1 << 20)); // 1M
+    double loadFactor = 0.75;
+    BucketizedLongToInternalIntFixedLengthBiMap map =
+        new BucketizedLongToInternalIntFixedLengthBiMap(
+            maxNumKeys, loadFactor, -1, -1L, nullStatsReceiver);
+
+    // Sets up a concurrent read-write situation with the given map
+    Random random = new Random(89234758923475L);
+    InternalIdMapConcurrentTestHelper.testRandomConcurrentReadWriteThreads(
+        map, -1, 600, maxNumKeys, random);
+  }
+
+  @Test
+  public void testFullTable() {
+    // a table of 16 slots, i.e. 2 buckets, that is filled up to its last free slot
+    BucketizedLongToInternalIntFixedLengthBiMap map =
+        new BucketizedLongToInternalIntFixedLengthBiMap(
+            15, 0.99, -1, -1L, nullStatsReceiver);
+    assertEquals(16, map.getBackingArrayLength());
+    for (long key = 0; key < 15; key++) {
+      int value = map.put(key);
+      assertEquals(key, map.getKey(value));
+      assertEquals(value, map.put(key));
+    }
+    for (long key = 0; key < 15; key++) {
+      assertEquals(key, map.getKey(map.get(key)));
+    }
+    // lookups of missing keys stop at the last free slot
+    for (long key = 15; key < 1000; key++) {
+      assertEquals(-1, map.get(key));
+    }
+    try {
+      map.put(15L);
+      fail("Expecting exception: RuntimeException");
+    } catch (RuntimeException e) {
+      assertEquals("Exceeded the maximum number of insertions", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testClear() {
+    BucketizedLongToInternalIntFixedLengthBiMap map =
+        new BucketizedLongToInternalIntFixedLengthBiMap(10, 0.75, -1, 0L, nullStatsReceiver);
+
+    int value = map.put(1L);
+    assertEquals(1, map.getNumStoredKeys());
+    assertEquals(16, map.getBackingArrayLength());
+
+    map.clear();
+
+    assertEquals(0, map.getNumStoredKeys());
+    assertEquals(16, map.getBackingArrayLength());
+    assertEquals(-1, map.get(1L));
+    assertEquals(0L, map.getKey(value));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidLoadFactor() {
+    new BucketizedLongToInternalIntFixedLengthBiMap(10, 1.0, -1, -1L, nullStatsReceiver);
+  }
+}
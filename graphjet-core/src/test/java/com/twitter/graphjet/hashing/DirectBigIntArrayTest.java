@@ -0,0 +1,140 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.hashing;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+import com.twitter.graphjet.snapshot.SnapshotReader;
+import com.twitter.graphjet.snapshot.SnapshotWriter;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+public class DirectBigIntArrayTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testSequentialReadWrites() {
+    int maxNumNodes = 1 << 16;
+    int nullEntry = -1;
+    DirectBigIntArray directBigIntArray =
+        new DirectBigIntArray(maxNumNodes, nullEntry, new NullStatsReceiver());
+
+    for (int i = 0; i < maxNumNodes; i++) {
+      int entry = i * 2;
+      assertEquals(nullEntry, directBigIntArray.getEntry(i));
+      directBigIntArray.addEntry(entry, i);
+      assertEquals(entry, directBigIntArray.getEntry(i));
+    }
+    assertEquals(100.0, directBigIntArray.getFillPercentage(), 0.0);
+
+    for (int i = 0; i < maxNumNodes; i++) {
+      assertEquals(nullEntry, directBigIntArray.getEntry(maxNumNodes + i));
+    }
+
+    directBigIntArray.reset();
+    assertEquals(nullEntry, directBigIntArray.getEntry(0));
+    assertEquals(0.0, directBigIntArray.getFillPercentage(), 0.0);
+  }
+
+  @Test
+  public void testArrayCopyAndIncrement() {
+    int length = 1000;
+    DirectBigIntArray directBigIntArray =
+        new DirectBigIntArray(length, 0, new NullStatsReceiver());
+    int[] src = new int[length];
+    for (int i = 0; i < length; i++) {
+      src[i] = i + 1;
+    }
+
+    directBigIntArray.arrayCopy(src, 10, 100, 500, true /*updateStats*/);
+    assertEquals(0, directBigIntArray.getEntry(99));
+    for (int i = 0; i < 500; i++) {
+      assertEquals(i + 11, directBigIntArray.getEntry(100 + i));
+    }
+    assertEquals(0, directBigIntArray.getEntry(600));
+    assertEquals(50.0, directBigIntArray.getFillPercentage(), 0.0);
+
+    assertEquals(12, directBigIntArray.incrementEntry(100, 1));
+    assertEquals(12, directBigIntArray.getEntry(100));
+  }
+
+  @Test
+  public void testMapFromSnapshot() throws Exception {
+    int length = 12345;
+    int[] entries = new int[length];
+    for (int i = 0; i < length; i++) {
+      entries[i] = i * 3;
+    }
+    File file = temporaryFolder.newFile();
+    try (SnapshotWriter writer = new SnapshotWriter(file)) {
+      writer.writeInt(length);
+      writer.writeInts(entries, 0, length);
+      writer.writeInt(-7);
+    }
+
+    try (SnapshotReader reader = new SnapshotReader(file)) {
+      assertEquals(length, reader.readInt());
+      DirectBigIntArray directBigIntArray =
+          DirectBigIntArray.map(reader, length, -1, new NullStatsReceiver());
+      // the reader moves past the mapped ints
+      assertEquals(-7, reader.readInt());
+      for (int i = 0; i < length; i++) {
+        assertEquals(i * 3, directBigIntArray.getEntry(i));
+      }
+      assertEquals(-1, directBigIntArray.getEntry(length));
+    }
+  }
+
+  @Test
+  public void testConcurrentCopiesIntoReservedEntries() throws Exception {
+    final int length = 5 * (1 << 16) + 123;
+    final int numThreads = 4;
+    final DirectBigIntArray array = new DirectBigIntArray(length, -1, new NullStatsReceiver());
+    array.reserve(length);
+    final int[] src = new int[1000];
+
+    Thread[] threads = new Thread[numThreads];
+    for (int t = 0; t < numThreads; t++) {
+      final int thread = t;
+      threads[t] = new Thread(() -> {
+        // each thread fills every numThreads-th chunk of the array
+        for (int start = thread * src.length; start < length; start += numThreads * src.length) {
+          array.arrayCopy(src, 0, start, Math.min(src.length, length - start), false);
+        }
+      });
+    }
+    for (int i = 0; i < src.length; i++) {
+      src[i] = i + 1;
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    for (int i = 0; i < length; i++) {
+      assertEquals(i % src.length + 1, array.getEntry(i));
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.hashing;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+
+import com.twitter.graphjet.snapshot.SnapshotReader;
+import com.twitter.graphjet.snapshot.SnapshotWriter;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+public class DirectBigLongArrayTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testSequentialReadWrites() {
+    int maxNumNodes = 1 << 16;
+    long nullEntry = -1L;
+    DirectBigLongArray directBigLongArray =
+        new DirectBigLongArray(maxNumNodes, nullEntry, new NullStatsReceiver());
+
+    for (int i = 0; i < maxNumNodes; i++) {
+      long entry = i * 2L;
+      assertEquals(nullEntry, directBigLongArray.getEntry(i));
+      directBigLongArray.addEntry(entry, i);
+      assertEquals(entry, directBigLongArray.getEntry(i));
+    }
+    assertEquals(100.0, directBigLongArray.getFillPercentage(), 0.0);
+
+    for (int i = 0; i < maxNumNodes; i++) {
+      assertEquals(nullEntry, directBigLongArray.getEntry(maxNumNodes + i));
+    }
+
+    directBigLongArray.reset();
+    assertEquals(nullEntry, directBigLongArray.getEntry(0));
+    assertEquals(0.0, directBigLongArray.getFillPercentage(), 0.0);
+  }
+
+  @Test
+  public void testArrayCopyAndIncrement() {
+    int length = 1000;
+    DirectBigLongArray directBigLongArray =
+        new DirectBigLongArray(length, 0, new NullStatsReceiver());
+    long[] src = new long[length];
+    for (int i = 0; i < length; i++) {
+      src[i] = i + 1;
+    }
+
+    directBigLongArray.arrayCopy(src, 10, 100, 500, true /*updateStats*/);
+    assertEquals(0L, directBigLongArray.getEntry(99));
+    for (int i = 0; i < 500; i++) {
+      assertEquals(i + 11L, directBigLongArray.getEntry(100 + i));
+    }
+    assertEquals(0L, directBigLongArray.getEntry(600));
+    assertEquals(50.0, directBigLongArray.getFillPercentage(), 0.0);
+
+    assertEquals(12L, directBigLongArray.incrementEntry(100, 1));
+    assertEquals(12L, directBigLongArray.getEntry(100));
+  }
+
+  @Test
+  public void testMapFromSnapshot() throws Exception {
+    int length = 12345;
+    long[] entries = new long[length];
+    for (int i = 0; i < length; i++) {
+      entries[i] = i * 3L << 32;
+    }
+    File file = temporaryFolder.newFile();
+    try (SnapshotWriter writer = new SnapshotWriter(file)) {
+      writer.writeInt(length);
+      writer.writeLongs(entries, 0, length);
+      writer.writeInt(-7);
+    }
+
+    try (SnapshotReader reader = new SnapshotReader(file)) {
+      assertEquals(length, reader.readInt());
+      DirectBigLongArray directBigLongArray =
+          DirectBigLongArray.map(reader, length, -1L, new NullStatsReceiver());
+      // the reader moves past the mapped longs
+      assertEquals(-7, reader.readInt());
+      for (int i = 0; i < length; i++) {
+        assertEquals(i * 3L << 32, directBigLongArray.getEntry(i));
+      }
+      assertEquals(-1L, directBigLongArray.getEntry(length));
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.hashing;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class IntShardPoolTest {
+  @Test
+  public void testAcquireAndRelease() {
+    IntShardPool pool = new IntShardPool(40, new NullStatsReceiver());
+    assertNull(pool.acquire(16, 0));
+
+    int[] shard = new int[16];
+    shard[3] = 42;
+    pool.release(shard);
+    assertEquals(16, pool.getNumPooledInts());
+    // only arrays of the same length are handed out
+    assertNull(pool.acquire(32, 0));
+
+    int[] reusedShard = pool.acquire(16, -1);
+    assertSame(shard, reusedShard);
+    int[] expected = new int[16];
+    Arrays.fill(expected, -1);
+    assertArrayEquals(expected, reusedShard);
+    assertEquals(0, pool.getNumPooledInts());
+    assertNull(pool.acquire(16, 0));
+  }
+
+  @Test
+  public void testMaxPooledInts() {
+    IntShardPool pool = new IntShardPool(40, new NullStatsReceiver());
+    pool.release(new int[16]);
+    pool.release(new int[16]);
+    // this one would go over the limit
+    pool.release(new int[16]);
+    assertEquals(32, pool.getNumPooledInts());
+  }
+
+  @Test
+  public void testShardedBigIntArrayRecycling() {
+    IntShardPool pool = new IntShardPool(1 << 20, new NullStatsReceiver());
+    ShardedBigIntArray array = new ShardedBigIntArray(16, 16, 0, new NullStatsReceiver());
+    array.addEntry(7, 70000);
+    int shardLength = array.getShard(70000).length;
+    array.releaseShards(pool);
+    assertEquals(shardLength, pool.getNumPooledInts());
+
+    // arrays without the pool allocate their own shards
+    ShardedBigIntArray otherArray = new ShardedBigIntArray(16, 16, -1, new NullStatsReceiver());
+    otherArray.addEntry(3, 1);
+    assertEquals(shardLength, pool.getNumPooledInts());
+
+    ShardedBigIntArray newArray = new ShardedBigIntArray(16, 16, -1, new NullStatsReceiver());
+    newArray.setShardPool(pool);
+    newArray.addEntry(5, 1);
+    assertEquals(0, pool.getNumPooledInts());
+    assertEquals(5, newArray.getEntry(1));
+    assertEquals(-1, newArray.getEntry(0));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testReadAfterRelease() {
+    ShardedBigIntArray array = new ShardedBigIntArray(16, 16, 0, new NullStatsReceiver());
+    array.addEntry(7, 5);
+    array.releaseShards(new IntShardPool(1 << 20, new NullStatsReceiver()));
+    array.getEntry(5);
+  }
+}
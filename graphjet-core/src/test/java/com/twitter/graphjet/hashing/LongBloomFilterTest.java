@@ -0,0 +1,66 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.hashing;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongBloomFilterTest {
+  @Test
+  public void testNoFalseNegatives() throws Exception {
+    int numKeys = 10000;
+    LongBloomFilter filter = new LongBloomFilter(numKeys, LongBloomFilter.DEFAULT_BITS_PER_KEY);
+    Random random = new Random(90238490238409L);
+    long[] keys = new long[numKeys];
+    for (int i = 0; i < numKeys; i++) {
+      keys[i] = random.nextLong();
+      filter.add(keys[i]);
+    }
+    for (long key : keys) {
+      assertTrue(filter.mightContain(key));
+    }
+  }
+
+  @Test
+  public void testFalsePositiveRate() throws Exception {
+    int numKeys = 10000;
+    LongBloomFilter filter = new LongBloomFilter(numKeys, LongBloomFilter.DEFAULT_BITS_PER_KEY);
+    // consecutive ids, as is common for node ids
+    for (int i = 0; i < numKeys; i++) {
+      filter.add(i);
+    }
+    int numFalsePositives = 0;
+    int numLookups = 100000;
+    for (int i = numKeys; i < numKeys + numLookups; i++) {
+      if (filter.mightContain(i)) {
+        numFalsePositives++;
+      }
+    }
+    assertTrue(
+        "Too many false positives: " + numFalsePositives, numFalsePositives < numLookups / 50);
+  }
+
+  @Test
+  public void testEmptyFilter() throws Exception {
+    LongBloomFilter filter = new LongBloomFilter(0, LongBloomFilter.DEFAULT_BITS_PER_KEY);
+    assertFalse(filter.mightContain(1L));
+  }
+}
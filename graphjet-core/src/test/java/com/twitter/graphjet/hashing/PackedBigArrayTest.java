@@ -0,0 +1,173 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.hashing;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.twitter.graphjet.stats.NullStatsReceiver;
+
+public class PackedBigArrayTest {
+  private static PackedBigIntArray packInts(int[] entries) {
+    BigIntArray source = new ShardedBigIntArray(entries.length, 1 << 10, 0, new NullStatsReceiver());
+    source.arrayCopy(entries, 0, 0, entries.length, false /*updateStats*/);
+    return PackedBigIntArray.pack(source, entries.length, new NullStatsReceiver());
+  }
+
+  private static PackedBigLongArray packLongs(long[] entries) {
+    BigLongArray source =
+        new ShardedBigLongArray(entries.length, 1 << 10, 0L, new NullStatsReceiver());
+    source.arrayCopy(entries, 0, 0, entries.length, false /*updateStats*/);
+    return PackedBigLongArray.pack(source, entries.length, new NullStatsReceiver());
+  }
+
+  @Test
+  public void testIntRoundTrip() {
+    Random random = new Random(90238490238409L);
+    // not a multiple of the block size, with blocks of small, constant and extreme entries
+    int length = 1000;
+    int[] entries = new int[length];
+    for (int i = 0; i < length; i++) {
+      if (i < 128) {
+        entries[i] = random.nextInt(100);
+      } else if (i < 256) {
+        entries[i] = 42;
+      } else if (i < 384) {
+        entries[i] = i % 2 == 0 ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+      } else {
+        entries[i] = random.nextInt();
+      }
+    }
+    PackedBigIntArray packedArray = packInts(entries);
+
+    for (int i = 0; i < length; i++) {
+      assertEquals(entries[i], packedArray.getEntry(i));
+    }
+    assertEquals(0, packedArray.getEntry(length));
+
+    int[] decoded = new int[length + 2];
+    packedArray.getEntries(100, decoded, 2, length - 100);
+    for (int i = 100; i < length; i++) {
+      assertEquals(entries[i], decoded[i - 98]);
+    }
+  }
+
+  @Test
+  public void testIntCompression() {
+    int length = 1 << 14;
+    int[] entries = new int[length];
+    for (int i = 0; i < length; i++) {
+      entries[i] = 1000000 + (i * 7919) % 1000;
+    }
+    PackedBigIntArray packedArray = packInts(entries);
+    // 10 bits per entry rather than 32
+    assertTrue(packedArray.getNumBytes() < (long) length * Integer.BYTES / 2);
+    for (int i = 0; i < length; i++) {
+      assertEquals(entries[i], packedArray.getEntry(i));
+    }
+  }
+
+  @Test
+  public void testIntCompressionWithTypesInHighBits() {
+    Random random = new Random(90238490238409L);
+    int length = 1 << 14;
+    int[] entries = new int[length];
+    for (int i = 0; i < length; i++) {
+      // unsorted node ids with one of four edge types in the highest byte, the last one negative
+      entries[i] = (random.nextInt(4) << 30) | random.nextInt(1 << 20);
+    }
+    PackedBigIntArray packedArray = packInts(entries);
+    // 22 bits per entry, rather than the 32 bits a single base per block would need
+    assertTrue(packedArray.getNumBytes() < (long) length * 23 / 8);
+    int[] decoded = new int[length];
+    packedArray.getEntries(0, decoded, 0, length);
+    for (int i = 0; i < length; i++) {
+      assertEquals(entries[i], packedArray.getEntry(i));
+      assertEquals(entries[i], decoded[i]);
+    }
+  }
+
+  @Test
+  public void testPackedIntToIntPairMap() {
+    IntToIntPairHashMap map = new IntToIntPairArrayIndexBasedMap(8, -1, new NullStatsReceiver());
+    map.put(1, 0, 3);
+    map.put(2, 3, 1);
+    map.put(5, 4, 200);
+    PackedIntToIntPairArrayIndexBasedMap packedMap =
+        PackedIntToIntPairArrayIndexBasedMap.pack(map, 6, -1, new NullStatsReceiver());
+
+    for (int key = -1; key < 10; key++) {
+      assertEquals(map.getFirstValue(key < 0 ? 100 : key), packedMap.getFirstValue(key));
+      assertEquals(map.getSecondValue(key < 0 ? 100 : key), packedMap.getSecondValue(key));
+      assertEquals(map.getBothValues(key < 0 ? 100 : key), packedMap.getBothValues(key));
+    }
+    assertEquals(200, packedMap.getSecondValue(5));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testPackedIntToIntPairMapNeedsConsecutiveRanges() {
+    IntToIntPairHashMap map = new IntToIntPairArrayIndexBasedMap(8, -1, new NullStatsReceiver());
+    map.put(1, 5, 3);
+    PackedIntToIntPairArrayIndexBasedMap.pack(map, 2, -1, new NullStatsReceiver());
+  }
+
+  @Test
+  public void testLongRoundTrip() {
+    Random random = new Random(90238490238409L);
+    int length = 777;
+    long[] entries = new long[length];
+    for (int i = 0; i < length; i++) {
+      if (i < 128) {
+        entries[i] = i % 2 == 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+      } else if (i < 256) {
+        entries[i] = -1L;
+      } else if (i < 384) {
+        entries[i] = 1234567890123L + random.nextInt(1 << 20);
+      } else {
+        entries[i] = random.nextLong();
+      }
+    }
+    PackedBigLongArray packedArray = packLongs(entries);
+
+    for (int i = 0; i < length; i++) {
+      assertEquals(entries[i], packedArray.getEntry(i));
+    }
+    assertEquals(0L, packedArray.getEntry(length));
+
+    long[] decoded = new long[length];
+    packedArray.decode(0, decoded, 0, length);
+    for (int i = 0; i < length; i++) {
+      assertEquals(entries[i], decoded[i]);
+    }
+  }
+
+  @Test
+  public void testEmpty() {
+    PackedBigIntArray packedArray = packInts(new int[0]);
+    assertEquals(0, packedArray.getEntry(0));
+    assertEquals(0L, packedArray.getNumBytes());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testReadOnly() {
+    packInts(new int[] {1, 2, 3}).addEntry(4, 0);
+  }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.hashing;
+
+import java.io.File;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.twitter.graphjet.snapshot.SnapshotReader;
+import com.twitter.graphjet.snapshot.SnapshotWriter;
+import com.twitter.graphjet.stats.NullStatsReceiver;
+import com.twitter.graphjet.stats.StatsReceiver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResizableLongToInternalIntBiMapTest {
+  private final StatsReceiver nullStatsReceiver = new NullStatsReceiver();
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testSimpleKeyInsertion() throws Exception {
+    int maxNumKeys = (int) (0.75 * (1 << 20)); // 1M
+    double loadFactor = 0.75;
+    ResizableLongToInternalIntBiMap map = new ResizableLongToInternalIntBiMap(
+        maxNumKeys / 4, loadFactor, -1, -1L, nullStatsReceiver);
+    InternalIdMapTestHelper.KeyTestInfo keyTestInfo =
+        InternalIdMapTestHelper.generateSimpleKeys(maxNumKeys);
+    InternalIdMapTestHelper.testKeyRetrievals(map, maxNumKeys, keyTestInfo);
+  }
+
+  @Test
+  public void testRandomKeyInsertion() throws Exception {
+    Random random = new Random(75623987456293L);
+    int maxNumKeys = (int) (0.75 * (1 << 21)); // 2M
+    double loadFactor = 0.75;
+    for (int i = 0; i < 4; i++) {
+      // the last map starts out 4096 times smaller than needed
+      int factor = 1 << (4 * i);
+      ResizableLongToInternalIntBiMap map =
+          new ResizableLongToInternalIntBiMap(
+              maxNumKeys / factor, loadFactor, -1, -1L, nullStatsReceiver);
+      InternalIdMapTestHelper.KeyTestInfo keyTestInfo =
+          InternalIdMapTestHelper.generateRandomKeys(random, maxNumKeys);
+      InternalIdMapTestHelper.testKeyRetrievals(map, maxNumKeys, keyTestInfo);
+    }
+  }
+
+  @Test
+  public void testConcurrentReadWrites() {
+    int maxNumKeys = (int) (0.75 * (1 << 8)); // this should be small
+    double loadFactor = 0.75;
+    ResizableLongToInternalIntBiMap map = new ResizableLongToInternalIntBiMap(
+        maxNumKeys / 8, loadFactor, -1, -1L, nullStatsReceiver);
+
+    InternalIdMapTestHelper.KeyTestInfo keyTestInfo =
+        InternalIdMapTestHelper.generateSimpleKeys(maxNumKeys);
+    InternalIdMapConcurrentTestHelper.testConcurrentReadWrites(map, keyTestInfo);
+  }
+
+  @Test
+  public void testRandomConcurrentReadWrites() {
+    int maxNumKeys = (int) (0.75 * (1 << 20)); // 1M
+    double loadFactor = 0.75;
+    // starting this small makes the readers run into many resizes
+    ResizableLongToInternalIntBiMap map = new ResizableLongToInternalIntBiMap(
+        16, loadFactor, -1, -1L, nullStatsReceiver);
+
+    // Sets up a concurrent read-write situation with the given map
+    Random random = new Random(89234758923475L);
+    InternalIdMapConcurrentTestHelper.testRandomConcurrentReadWriteThreads(
+        map, -1, 600, maxNumKeys, random);
+  }
+
+  @Test
+  public void testIdsSurviveResizes() {
+    ResizableLongToInternalIntBiMap map =
+        new ResizableLongToInternalIntBiMap(4, 0.5, -1, -1L, nullStatsReceiver);
+    int numKeys = 10000;
+    boolean sawResize = false;
+    for (int i = 0; i < numKeys; i++) {
+      long key = 31L * i + 7;
+      // ids are dense and in insertion order
+      assertEquals(i, map.put(key));
+      sawResize |= map.isResizing();
+      // every key inserted so far is found while the old table is being moved
+      for (int j = Math.max(0, i - 64); j <= i; j++) {
+        assertEquals(j, map.get(31L * j + 7));
+      }
+    }
+    assertTrue(sawResize);
+    assertEquals(numKeys, map.getNumStoredKeys());
+    for (int i = 0; i < numKeys; i++) {
+      long key = 31L * i + 7;
+      assertEquals(i, map.get(key));
+      assertEquals(i, map.put(key));
+      assertEquals(key, map.getKey(i));
+    }
+    assertEquals(-1, map.get(-5L));
+    assertEquals(-1L, map.getKey(numKeys));
+    // the table stays at most twice as large as what the load factor needs
+    assertTrue(map.getTableLength() <= 4 * numKeys);
+  }
+
+  @Test
+  public void testClear() {
+    ResizableLongToInternalIntBiMap map =
+        new ResizableLongToInternalIntBiMap(10, 0.75, -1, 0L, nullStatsReceiver);
+    for (long key = 1; key <= 100; key++) {
+      map.put(key);
+    }
+    int tableLength = map.getTableLength();
+
+    map.clear();
+
+    assertEquals(0, map.getNumStoredKeys());
+    assertFalse(map.isResizing());
+    assertTrue(map.getTableLength() < tableLength);
+    assertEquals(-1, map.get(1L));
+    assertEquals(0L, map.getKey(0));
+    assertEquals(0, map.put(100L));
+  }
+
+  @Test
+  public void testSnapshotRoundTrip() throws Exception {
+    Random random = new Random(2347862348762L);
+    int numKeys = 10000;
+    // small enough that the map needs to resize several times
+    ResizableLongToInternalIntBiMap map = new ResizableLongToInternalIntBiMap(
+        numKeys / 16, 0.75, -1, -1L, nullStatsReceiver);
+    long[] keys = new long[numKeys];
+    int[] ids = new int[numKeys];
+    for (int i = 0; i < numKeys; i++) {
+      keys[i] = random.nextLong() >>> 1;
+      ids[i] = map.put(keys[i]);
+    }
+
+    File file = temporaryFolder.newFile();
+    try (SnapshotWriter writer = new SnapshotWriter(file)) {
+      map.writeTo(writer);
+    }
+    ResizableLongToInternalIntBiMap restoredMap;
+    try (SnapshotReader reader = new SnapshotReader(file)) {
+      restoredMap = ResizableLongToInternalIntBiMap.readFrom(reader, nullStatsReceiver);
+    }
+
+    for (int i = 0; i < numKeys; i++) {
+      assertEquals(ids[i], restoredMap.get(keys[i]));
+      assertEquals(keys[i], restoredMap.getKey(ids[i]));
+    }
+    assertEquals(-1, restoredMap.get(-5L));
+
+    // the restored map keeps accepting keys without reusing any of the restored ids
+    long newKey = Long.MAX_VALUE - 1;
+    int newId = restoredMap.put(newKey);
+    assertEquals(newId, map.put(newKey));
+    assertEquals(newKey, restoredMap.getKey(newId));
+    assertEquals(ids[0], restoredMap.put(keys[0]));
+  }
+}
@@ -80,4 +80,38 @@ public class ShardedBigIntArrayTest {
       assertEquals(nullEntry, shardedBigIntArray.getEntry(maxNumNodes + i));
     }
   }
+
+  @Test
+  public void testConcurrentCopiesIntoReservedEntries() throws Exception {
+    final int length = 5 * (1 << 16) + 123;
+    final int numThreads = 4;
+    final ShardedBigIntArray array = new ShardedBigIntArray(
+        1 << 10, 1 << 10, -1, new NullStatsReceiver());
+    array.reserve(length);
+    final int[] src = new int[1000];
+
+    Thread[] threads = new Thread[numThreads];
+    for (int t = 0; t < numThreads; t++) {
+      final int thread = t;
+      threads[t] = new Thread(() -> {
+        // each thread fills every numThreads-th chunk of the array
+        for (int start = thread * src.length; start < length; start += numThreads * src.length) {
+          array.arrayCopy(src, 0, start, Math.min(src.length, length - start), false);
+        }
+      });
+    }
+    for (int i = 0; i < src.length; i++) {
+      src[i] = i + 1;
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    for (int i = 0; i < length; i++) {
+      assertEquals(i % src.length + 1, array.getEntry(i));
+    }
+  }
 }
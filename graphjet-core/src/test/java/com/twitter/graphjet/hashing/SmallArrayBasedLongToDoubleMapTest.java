@@ -137,4 +137,30 @@ public class SmallArrayBasedLongToDoubleMapTest {
 
     assertEquals(15, mapTwo.uniqueKeysSize());
   }
+
+  @Test
+  public void testClearAndReuse() {
+    SmallArrayBasedLongToDoubleMap map = new SmallArrayBasedLongToDoubleMap();
+    for (int i = 1; i <= 100; i++) {
+      map.put(i, i * 0.01, 1000 + i);
+    }
+    map.clear();
+
+    assertEquals(0, map.size());
+    assertEquals(0, map.uniqueKeysSize());
+    assertEquals(false, map.contains(1));
+
+    // The reused map dedups exactly like a fresh one, both below and above the set threshold
+    SmallArrayBasedLongToDoubleMap freshMap = new SmallArrayBasedLongToDoubleMap();
+    Random random = new Random(90238490238409L);
+    for (int i = 1; i <= 300; i++) {
+      long key = random.nextInt(20);
+      long metadata = random.nextInt(3);
+      assertEquals(freshMap.put(key, i * 0.01, metadata), map.put(key, i * 0.01, metadata));
+      assertEquals(freshMap.size(), map.size());
+      assertEquals(freshMap.uniqueKeysSize(), map.uniqueKeysSize());
+    }
+    assertEquals(true, map.contains(7));
+    assertEquals(false, map.contains(20));
+  }
 }
@@ -0,0 +1,83 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.twitter.graphjet.snapshot;
+
+import java.io.EOFException;
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SnapshotReaderWriterTest {
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    File file = temporaryFolder.newFile();
+    int[] ints = new int[1000];
+    long[] longs = new long[1000];
+    for (int i = 0; i < ints.length; i++) {
+      ints[i] = i * 31 - 7;
+      longs[i] = ((long) i << 33) - i;
+    }
+
+    try (SnapshotWriter writer = new SnapshotWriter(file)) {
+      writer.writeByte((byte) 7);
+      writer.writeInt(42);
+      writer.writeLong(-1L);
+      writer.writeDouble(0.75);
+      writer.writeInts(ints, 0, ints.length);
+      writer.writeLongs(longs, 10, 990);
+      assertEquals(1 + 4 + 8 + 8 + 4 * 1000 + 8 * 990, writer.getPosition());
+    }
+    assertEquals(1 + 4 + 8 + 8 + 4 * 1000 + 8 * 990, file.length());
+
+    // a tiny window that is not a multiple of the element sizes forces plenty of remapping
+    try (SnapshotReader reader = new SnapshotReader(file, 13)) {
+      assertEquals(7, reader.readByte());
+      assertEquals(42, reader.readInt());
+      assertEquals(-1L, reader.readLong());
+      assertEquals(0.75, reader.readDouble(), 0.0);
+      int[] readInts = new int[ints.length];
+      reader.readInts(readInts, 0, readInts.length);
+      assertArrayEquals(ints, readInts);
+      long[] readLongs = new long[longs.length];
+      reader.readLongs(readLongs, 10, 990);
+      for (int i = 10; i < longs.length; i++) {
+        assertEquals(longs[i], readLongs[i]);
+      }
+      assertEquals(file.length(), reader.getPosition());
+    }
+  }
+
+  @Test(expected = EOFException.class)
+  public void testReadPastEnd() throws Exception {
+    File file = temporaryFolder.newFile();
+    try (SnapshotWriter writer = new SnapshotWriter(file)) {
+      writer.writeInt(1);
+    }
+    try (SnapshotReader reader = new SnapshotReader(file)) {
+      reader.readInt();
+      reader.readInt();
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2016 Twitter. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.twitter.graphjet.stats;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DefaultStatTest {
+  @Test
+  public void testBuckets() {
+    for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 123456789L, Long.MAX_VALUE}) {
+      int bucket = DefaultStat.getBucket(value);
+      long lowerBound = DefaultStat.getBucketLowerBound(bucket);
+      assertTrue(lowerBound <= value);
+      // at most 1/16 relative error
+      assertTrue(value - lowerBound <= value / 16);
+      assertEquals(bucket, DefaultStat.getBucket(lowerBound));
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    DefaultStat stat = new DefaultStat();
+    assertEquals(0L, stat.getPercentile(99.0));
+
+    for (int i = 1; i <= 1000; i++) {
+      stat.add(i);
+    }
+    stat.add(-5);
+
+    assertEquals(1001L, stat.getCount());
+    assertEquals(500500L, stat.getSum());
+    assertEquals(1000L, stat.getMax());
+    assertEquals(0L, stat.getPercentile(0.0));
+    long median = stat.getPercentile(50.0);
+    assertTrue(median <= 500 && median >= 500 - 500 / 16);
+    long p99 = stat.getPercentile(99.0);
+    assertTrue(p99 <= 990 && p99 >= 990 - 990 / 16);
+    long max = stat.getPercentile(100.0);
+    assertTrue(max <= 1000 && max >= 1000 - 1000 / 16);
+  }
+
+  @Test
+  public void testDefaultStatsReceiver() {
+    StatsReceiver statsReceiver = new DefaultStatsReceiver("testDefaultStatsReceiver");
+    StatsReceiver scoped = statsReceiver.scope("scope");
+    assertSame(scoped.stat("latency"), scoped.stat("latency"));
+    assertSame(scoped.counter("numRequests"), scoped.counter("numRequests"));
+
+    scoped.stat("latency").add(42);
+    scoped.counter("numRequests").incr(3);
+    scoped.addGauge("size", () -> 7.0);
+
+    assertEquals(1L,
+        DefaultStatsReceiver.getStat("testDefaultStatsReceiver/scope/latency").getCount());
+    assertNull(DefaultStatsReceiver.getStat("testDefaultStatsReceiver/scope/missing"));
+    assertEquals(3L, DefaultStatsReceiver.getCount("testDefaultStatsReceiver/scope/numRequests"));
+    assertEquals(7.0, DefaultStatsReceiver.getGaugeValue("testDefaultStatsReceiver/scope/size"), 0.0);
+  }
+}
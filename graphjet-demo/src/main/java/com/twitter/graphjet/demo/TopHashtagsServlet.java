@@ -17,7 +17,7 @@
 package com.twitter.graphjet.demo;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.Lists;
+import com.twitter.graphjet.algorithms.TopKSelector;
 import com.twitter.graphjet.bipartite.MultiSegmentPowerLawBipartiteGraph;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
@@ -31,7 +31,6 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.PriorityQueue;
 
 /**
  * Servlet of {@link TwitterStreamReader} that returns the top <i>k</i> users in terms of degree in the user-tweet
@@ -60,32 +59,26 @@ public class TopHashtagsServlet extends HttpServlet {
       }
     }
 
-    PriorityQueue<NodeValueEntry> queue = new PriorityQueue<>(k);
+    TopKSelector<NodeValueEntry> selector = new TopKSelector<>(k);
     LongIterator iter = hashtags.keySet().iterator();
     while (iter.hasNext()) {
       long hashtagHash = iter.nextLong();
       int cnt = bigraph.getRightNodeDegree(hashtagHash);
       if (cnt == 1) continue;
 
-      if (queue.size() < k) {
-        queue.add(new NodeValueEntry(hashtagHash, cnt));
-      } else {
-        NodeValueEntry peek = queue.peek();
-        if (cnt > peek.getValue()) {
-          queue.poll();
-          queue.add(new NodeValueEntry(hashtagHash, cnt));
-        }
+      // Break ties on the hashtag hash so that the results do not depend on the iteration order
+      if (selector.wouldAccept(cnt, hashtagHash)) {
+        selector.offer(new NodeValueEntry(hashtagHash, cnt), cnt, hashtagHash);
       }
     }
 
-    if (queue.size() == 0) {
+    if (selector.size() == 0) {
       response.getWriter().println("[]\n");
       return;
     }
 
-    NodeValueEntry e;
-    List<String> entries = new ArrayList<>(queue.size());
-    while ((e = queue.poll()) != null) {
+    List<String> entries = new ArrayList<>(selector.size());
+    for (NodeValueEntry e : selector.drainDescending()) {
       // Note that we explicitly use id_str and treat the tweet id as a String. See:
       // https://dev.twitter.com/overview/api/twitter-ids-json-and-snowflake
       entries.add(String.format("{\"hashtag_str\": \"%s\", \"id\": %d, \"cnt\": %d}",
@@ -93,6 +86,6 @@ public class TopHashtagsServlet extends HttpServlet {
     }
 
     response.setStatus(HttpStatus.OK_200);
-    response.getWriter().println("[\n" + JOINER.join(Lists.reverse(entries)) + "\n]");
+    response.getWriter().println("[\n" + JOINER.join(entries) + "\n]");
   }
 }
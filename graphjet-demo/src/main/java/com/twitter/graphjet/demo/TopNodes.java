@@ -16,18 +16,15 @@
 
 package com.twitter.graphjet.demo;
 
-import com.google.common.collect.Lists;
-
-import java.util.ArrayList;
 import java.util.List;
-import java.util.PriorityQueue;
+
+import com.twitter.graphjet.algorithms.TopKSelector;
 
 /**
  * Heap for keeping track of top <i>k</i> nodes based on scores.
  */
 public class TopNodes {
-  private final int k;
-  private PriorityQueue<NodeValueEntry> queue;
+  private final TopKSelector<NodeValueEntry> selector;
 
   /**
    * Creates a heap for keeping track of top <i>k</i> nodes based on scores.
@@ -35,8 +32,7 @@ public class TopNodes {
    * @param k number of nodes to keep track of
    */
   public TopNodes(int k) {
-    this.k = k;
-    this.queue = new PriorityQueue<>(this.k);
+    this.selector = new TopKSelector<>(k);
   }
 
   /**
@@ -48,14 +44,9 @@ public class TopNodes {
    * @param score   score
    */
   public void offer(long nodeId, double score) {
-    if (queue.size() < k) {
-      queue.add(new NodeValueEntry(nodeId, score));
-    } else {
-      NodeValueEntry peek = queue.peek();
-      if (score > peek.getValue()) {
-        queue.poll();
-        queue.add(new NodeValueEntry(nodeId, score));
-      }
+    // Like NodeValueEntry, ties are broken in favor of the higher node id
+    if (selector.wouldAccept(score, nodeId)) {
+      selector.offer(new NodeValueEntry(nodeId, score), score, nodeId);
     }
   }
 
@@ -65,12 +56,6 @@ public class TopNodes {
    * @return the top <i>k</i> nodes encountered by this heap.
    */
   public List<NodeValueEntry> getNodes() {
-    NodeValueEntry e;
-    final List<NodeValueEntry> entries = new ArrayList<>(queue.size());
-    while ((e = queue.poll()) != null) {
-      entries.add(e);
-    }
-
-    return Lists.reverse(entries);
+    return selector.drainDescending();
   }
 }
@@ -17,7 +17,7 @@
 package com.twitter.graphjet.demo;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.Lists;
+import com.twitter.graphjet.algorithms.TopKSelector;
 import com.twitter.graphjet.bipartite.MultiSegmentPowerLawBipartiteGraph;
 import it.unimi.dsi.fastutil.longs.LongIterator;
 import it.unimi.dsi.fastutil.longs.LongSet;
@@ -30,7 +30,6 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.PriorityQueue;
 
 /**
  * Servlet of {@link TwitterStreamReader} that returns the top <i>k</i> tweets in terms of degree in the user-tweet
@@ -62,39 +61,32 @@ public class TopTweetsServlet extends HttpServlet {
       }
     }
 
-    PriorityQueue<NodeValueEntry> queue = new PriorityQueue<>(k);
+    TopKSelector<NodeValueEntry> selector = new TopKSelector<>(k);
     LongIterator iter = tweets.iterator();
     while (iter.hasNext()) {
       long tweet = iter.nextLong();
       int cnt = graphType.equals(GraphType.USER_TWEET) ? bigraph.getRightNodeDegree(tweet) : bigraph.getLeftNodeDegree(tweet);
       if (cnt == 1) continue;
 
-      if (queue.size() < k) {
-        queue.add(new NodeValueEntry(tweet, cnt));
-      } else {
-        NodeValueEntry peek = queue.peek();
-        // Break ties by preferring higher tweetid (i.e., more recent tweet)
-        if (cnt > peek.getValue() || (cnt == peek.getValue() && tweet > peek.getNode())) {
-          queue.poll();
-          queue.add(new NodeValueEntry(tweet, cnt));
-        }
+      // Break ties by preferring higher tweetid (i.e., more recent tweet)
+      if (selector.wouldAccept(cnt, tweet)) {
+        selector.offer(new NodeValueEntry(tweet, cnt), cnt, tweet);
       }
     }
 
-    if (queue.size() == 0) {
+    if (selector.size() == 0) {
       response.getWriter().println("[]\n");
       return;
     }
 
-    NodeValueEntry e;
-    List<String> entries = new ArrayList<>(queue.size());
-    while ((e = queue.poll()) != null) {
+    List<String> entries = new ArrayList<>(selector.size());
+    for (NodeValueEntry e : selector.drainDescending()) {
       // Note that we explicitly use id_str and treat the tweet id as a String. See:
       // https://dev.twitter.com/overview/api/twitter-ids-json-and-snowflake
       entries.add(String.format("{\"id_str\": \"%d\", \"cnt\": %d}", e.getNode(), (int) e.getValue()));
     }
 
     response.setStatus(HttpStatus.OK_200);
-    response.getWriter().println("[\n" + JOINER.join(Lists.reverse(entries)) + "\n]");
+    response.getWriter().println("[\n" + JOINER.join(entries) + "\n]");
   }
 }
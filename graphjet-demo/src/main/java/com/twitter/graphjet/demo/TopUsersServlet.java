@@ -17,7 +17,7 @@
 package com.twitter.graphjet.demo;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.Lists;
+import com.twitter.graphjet.algorithms.TopKSelector;
 import com.twitter.graphjet.bipartite.MultiSegmentPowerLawBipartiteGraph;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
@@ -31,7 +31,6 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.PriorityQueue;
 
 /**
  * Servlet of {@link TwitterStreamReader} that returns the top <i>k</i> users in terms of degree in the user-tweet
@@ -60,39 +59,32 @@ public class TopUsersServlet extends HttpServlet {
       }
     }
 
-    PriorityQueue<NodeValueEntry> queue = new PriorityQueue<>(k);
+    TopKSelector<NodeValueEntry> selector = new TopKSelector<>(k);
     LongIterator iter = users.keySet().iterator();
     while (iter.hasNext()) {
       long user = iter.nextLong();
       int cnt = bigraph.getLeftNodeDegree(user);
       if (cnt == 1) continue;
 
-      if (queue.size() < k) {
-        queue.add(new NodeValueEntry(user, cnt));
-      } else {
-        NodeValueEntry peek = queue.peek();
-        // Break ties by preferring higher userid (i.e., more recent user)
-        if (cnt > peek.getValue() || (cnt == peek.getValue() && user > peek.getNode())) {
-          queue.poll();
-          queue.add(new NodeValueEntry(user, cnt));
-        }
+      // Break ties by preferring higher userid (i.e., more recent user)
+      if (selector.wouldAccept(cnt, user)) {
+        selector.offer(new NodeValueEntry(user, cnt), cnt, user);
       }
     }
 
-    if (queue.size() == 0) {
+    if (selector.size() == 0) {
       response.getWriter().println("[]\n");
       return;
     }
 
-    NodeValueEntry e;
-    List<String> entries = new ArrayList<>(queue.size());
-    while ((e = queue.poll()) != null) {
+    List<String> entries = new ArrayList<>(selector.size());
+    for (NodeValueEntry e : selector.drainDescending()) {
       // Note that we explicitly use id_str and treat the tweet id as a String. See:
       // https://dev.twitter.com/overview/api/twitter-ids-json-and-snowflake
       entries.add(String.format("{\"id_str\": \"%d\", \"cnt\": %d}", e.getNode(), (int) e.getValue()));
     }
 
     response.setStatus(HttpStatus.OK_200);
-    response.getWriter().println("[\n" + JOINER.join(Lists.reverse(entries)) + "\n]");
+    response.getWriter().println("[\n" + JOINER.join(entries) + "\n]");
   }
 }
@@ -62,4 +62,21 @@ public class TopNodesTest {
     assertEquals(4.5, nodes.get(1).getValue(), 10e-6);
     assertEquals(4.4, nodes.get(2).getValue(), 10e-6);
   }
+
+  @Test
+  public void testTies() throws Exception {
+    // Ties are broken in favor of the higher node id, whatever the order the nodes come in.
+    for (long[] order : new long[][]{{1, 2, 3, 4, 5}, {5, 4, 3, 2, 1}, {3, 5, 1, 4, 2}}) {
+      TopNodes top = new TopNodes(3);
+      for (long node : order) {
+        top.offer(node, node == 1 ? 2.0 : 1.0);
+      }
+
+      List<NodeValueEntry> nodes = top.getNodes();
+      assertEquals(3, nodes.size());
+      assertEquals(1, nodes.get(0).getNode());
+      assertEquals(5, nodes.get(1).getNode());
+      assertEquals(4, nodes.get(2).getNode());
+    }
+  }
 }